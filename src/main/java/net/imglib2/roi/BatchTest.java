@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+
+/**
+ * Test of a batch of points, see {@link RealMask#testBatch(double[], BitSet, BitSet)}
+ * and {@link Mask#testBatch(long[], BitSet, BitSet)}. The positions are bound
+ * to the test, so the operators can combine tests of their arguments
+ * regardless of the position type.
+ *
+ * @see Operators.BinaryMaskOperator#testBatch(BatchTest, BatchTest, BitSet, BitSet)
+ */
+@FunctionalInterface
+public interface BatchTest
+{
+	/**
+	 * Sets bit {@code i} of {@code result} iff {@code i} is set in
+	 * {@code candidates} and point {@code i} is contained. All other bits of
+	 * {@code result} are cleared. {@code result} may be {@code candidates}.
+	 */
+	void test( BitSet candidates, BitSet result );
+
+	/**
+	 * Returns the batch test of {@code predicate} over the interleaved
+	 * {@code positions}, using {@link RealMask#testBatch} if available.
+	 */
+	static BatchTest of( final Predicate< ? super RealLocalizable > predicate, final double[] positions, final int numDimensions )
+	{
+		if ( predicate instanceof RealMask )
+			return ( candidates, result ) -> ( ( RealMask ) predicate ).testBatch( positions, candidates, result );
+		return ( candidates, result ) -> testEach( predicate, positions, numDimensions, candidates, result );
+	}
+
+	/**
+	 * Returns the batch test of {@code predicate} over the interleaved
+	 * {@code positions}, using {@link Mask#testBatch} if available.
+	 */
+	static BatchTest of( final Predicate< ? super Localizable > predicate, final long[] positions, final int numDimensions )
+	{
+		if ( predicate instanceof Mask )
+			return ( candidates, result ) -> ( ( Mask ) predicate ).testBatch( positions, candidates, result );
+		return ( candidates, result ) -> testEach( predicate, positions, numDimensions, candidates, result );
+	}
+
+	/**
+	 * Tests the candidate points one at a time.
+	 */
+	static void testEach( final Predicate< ? super RealLocalizable > predicate, final double[] positions, final int numDimensions, final BitSet candidates, final BitSet result )
+	{
+		final double[] position = new double[ numDimensions ];
+		final RealPoint point = RealPoint.wrap( position );
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			System.arraycopy( positions, i * numDimensions, position, 0, numDimensions );
+			result.set( i, predicate.test( point ) );
+		}
+		result.and( candidates );
+	}
+
+	/**
+	 * Tests the candidate points one at a time.
+	 */
+	static void testEach( final Predicate< ? super Localizable > predicate, final long[] positions, final int numDimensions, final BitSet candidates, final BitSet result )
+	{
+		final long[] position = new long[ numDimensions ];
+		final Point point = Point.wrap( position );
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			System.arraycopy( positions, i * numDimensions, position, 0, numDimensions );
+			result.set( i, predicate.test( point ) );
+		}
+		result.and( candidates );
+	}
+
+	/**
+	 * Returns a {@link BitSet} with the first {@code count} bits set.
+	 */
+	static BitSet all( final int count )
+	{
+		final BitSet all = new BitSet( count );
+		all.set( 0, count );
+		return all;
+	}
+}
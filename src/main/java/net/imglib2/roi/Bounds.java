@@ -41,7 +41,11 @@ import net.imglib2.Interval;
 import net.imglib2.Positionable;
 import net.imglib2.RealInterval;
 import net.imglib2.RealPositionable;
+import net.imglib2.realtransform.AffineGet;
 import net.imglib2.realtransform.InvertibleRealTransform;
+import net.imglib2.roi.geom.AffineShapes;
+import net.imglib2.roi.geom.real.Box;
+import net.imglib2.roi.util.VersionCounter;
 import net.imglib2.util.Intervals;
 
 /**
@@ -57,6 +61,11 @@ import net.imglib2.util.Intervals;
  * TODO: explain how empty intervals are determined by min/max and how emptiness
  * property is propagated.
  * </p>
+ * <p>
+ * The adapting intervals cache their bounds if all their sources are
+ * {@link Versioned}, and recompute them only if the summed versions of the
+ * sources changed.
+ * </p>
  *
  *
  * @param <I>
@@ -294,11 +303,75 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 	}
 
+	/**
+	 * Abstract base class for adapting intervals which cache their bounds,
+	 * leaving {@link #computeBounds(long[], long[])} and {@link #version()} to
+	 * be implemented by derived classes. The bounds are recomputed only if the
+	 * {@link #version()} changed, or on every query if it is negative.
+	 */
+	public static abstract class AbstractCachingInterval extends AbstractAdaptingInterval implements Versioned
+	{
+		private volatile IntCache cache;
+
+		public AbstractCachingInterval( final int n )
+		{
+			super( n );
+		}
+
+		/**
+		 * Computes the bounds from the sources.
+		 */
+		protected abstract void computeBounds( long[] min, long[] max );
+
+		@Override
+		public long min( final int d )
+		{
+			return bounds().min[ d ];
+		}
+
+		@Override
+		public long max( final int d )
+		{
+			return bounds().max[ d ];
+		}
+
+		@Override
+		public void min( final long[] min )
+		{
+			System.arraycopy( bounds().min, 0, min, 0, n );
+		}
+
+		@Override
+		public void max( final long[] max )
+		{
+			System.arraycopy( bounds().max, 0, max, 0, n );
+		}
+
+		private IntCache bounds()
+		{
+			final long global = VersionCounter.global();
+			IntCache c = cache;
+			if ( c != null && c.global == global )
+				return c;
+			final long version = version();
+			if ( c != null && version >= 0 && c.version == version )
+				c = new IntCache( global, version, c.min, c.max );
+			else
+			{
+				c = new IntCache( global, version, new long[ n ], new long[ n ] );
+				computeBounds( c.min, c.max );
+			}
+			if ( version >= 0 )
+				cache = c;
+			return c;
+		}
+	}
+
 	/**
 	 * Represents the smallest {@link Interval} completely containing a
 	 * specified {@link RealInterval}. Adapts to changes of the source interval.
 	 */
-	public static class SmallestContainingInterval extends AbstractAdaptingInterval
+	public static class SmallestContainingInterval extends AbstractCachingInterval
 	{
 		private final RealInterval source;
 
@@ -309,15 +382,19 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 
 		@Override
-		public long min( final int d )
+		public long version()
 		{
-			return ( long ) Math.floor( source.realMin( d ) );
+			return Versioned.versionOf( source );
 		}
 
 		@Override
-		public long max( final int d )
+		protected void computeBounds( final long[] min, final long[] max )
 		{
-			return ( long ) Math.ceil( source.realMax( d ) );
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = ( long ) Math.floor( source.realMin( d ) );
+				max[ d ] = ( long ) Math.ceil( source.realMax( d ) );
+			}
 		}
 	}
 
@@ -325,7 +402,7 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 	 * The intersection of two intervals. Adapts to changes of the source
 	 * intervals.
 	 */
-	public static class IntersectionInterval extends AbstractAdaptingInterval
+	public static class IntersectionInterval extends AbstractCachingInterval
 	{
 		private final Interval i1;
 
@@ -340,26 +417,32 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 
 		@Override
-		public long min( final int d )
+		public long version()
 		{
-			if ( Intervals.isEmpty( i1 ) || Intervals.isEmpty( i2 ) )
-				return Long.MAX_VALUE;
-			return Math.max( i1.min( d ), i2.min( d ) );
+			return Versioned.versionOf( i1, i2 );
 		}
 
 		@Override
-		public long max( final int d )
+		protected void computeBounds( final long[] min, final long[] max )
 		{
 			if ( Intervals.isEmpty( i1 ) || Intervals.isEmpty( i2 ) )
-				return Long.MIN_VALUE;
-			return Math.min( i1.max( d ), i2.max( d ) );
+			{
+				Arrays.fill( min, Long.MAX_VALUE );
+				Arrays.fill( max, Long.MIN_VALUE );
+				return;
+			}
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = Math.max( i1.min( d ), i2.min( d ) );
+				max[ d ] = Math.min( i1.max( d ), i2.max( d ) );
+			}
 		}
 	}
 
 	/**
 	 * The union of two intervals. Adapts to changes of the source intervals.
 	 */
-	public static class UnionInterval extends AbstractAdaptingInterval
+	public static class UnionInterval extends AbstractCachingInterval
 	{
 		private final Interval i1;
 
@@ -374,31 +457,34 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 
 		@Override
-		public long min( final int d )
+		public long version()
 		{
-			if ( Intervals.isEmpty( i1 ) )
-			{
-				if ( Intervals.isEmpty( i2 ) )
-					return Long.MAX_VALUE;
-				return i2.min( d );
-			}
-			if ( Intervals.isEmpty( i2 ) )
-				return i1.min( d );
-			return Math.min( i1.min( d ), i2.min( d ) );
+			return Versioned.versionOf( i1, i2 );
 		}
 
 		@Override
-		public long max( final int d )
+		protected void computeBounds( final long[] min, final long[] max )
 		{
-			if ( Intervals.isEmpty( i1 ) )
+			final boolean empty1 = Intervals.isEmpty( i1 );
+			final boolean empty2 = Intervals.isEmpty( i2 );
+			for ( int d = 0; d < n; ++d )
 			{
-				if ( Intervals.isEmpty( i2 ) )
-					return Long.MIN_VALUE;
-				return i2.max( d );
+				if ( empty1 )
+				{
+					min[ d ] = empty2 ? Long.MAX_VALUE : i2.min( d );
+					max[ d ] = empty2 ? Long.MIN_VALUE : i2.max( d );
+				}
+				else if ( empty2 )
+				{
+					min[ d ] = i1.min( d );
+					max[ d ] = i1.max( d );
+				}
+				else
+				{
+					min[ d ] = Math.min( i1.min( d ), i2.min( d ) );
+					max[ d ] = Math.max( i1.max( d ), i2.max( d ) );
+				}
 			}
-			if ( Intervals.isEmpty( i2 ) )
-				return i1.max( d );
-			return Math.max( i1.max( d ), i2.max( d ) );
 		}
 	}
 
@@ -491,11 +577,76 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 	}
 
+	/**
+	 * Abstract base class for adapting real intervals which cache their
+	 * bounds, leaving {@link #computeBounds(double[], double[])} and
+	 * {@link #version()} to be implemented by derived classes. The bounds are
+	 * recomputed only if the {@link #version()} changed, or on every query if
+	 * it is negative.
+	 */
+	public static abstract class AbstractCachingRealInterval extends AbstractAdaptingRealInterval implements Versioned
+	{
+		private volatile RealCache cache;
+
+		public AbstractCachingRealInterval( final int n )
+		{
+			super( n );
+		}
+
+		/**
+		 * Computes the bounds from the sources.
+		 */
+		protected abstract void computeBounds( double[] min, double[] max );
+
+		@Override
+		public double realMin( final int d )
+		{
+			return bounds().min[ d ];
+		}
+
+		@Override
+		public double realMax( final int d )
+		{
+			return bounds().max[ d ];
+		}
+
+		@Override
+		public void realMin( final double[] realMin )
+		{
+			System.arraycopy( bounds().min, 0, realMin, 0, n );
+		}
+
+		@Override
+		public void realMax( final double[] realMax )
+		{
+			System.arraycopy( bounds().max, 0, realMax, 0, n );
+		}
+
+		private RealCache bounds()
+		{
+			final long global = VersionCounter.global();
+			RealCache c = cache;
+			if ( c != null && c.global == global )
+				return c;
+			final long version = version();
+			if ( c != null && version >= 0 && c.version == version )
+				c = new RealCache( global, version, c.min, c.max );
+			else
+			{
+				c = new RealCache( global, version, new double[ n ], new double[ n ] );
+				computeBounds( c.min, c.max );
+			}
+			if ( version >= 0 )
+				cache = c;
+			return c;
+		}
+	}
+
 	/**
 	 * The intersection of two intervals. Adapts to changes of the source
 	 * intervals.
 	 */
-	public static class IntersectionRealInterval extends AbstractAdaptingRealInterval
+	public static class IntersectionRealInterval extends AbstractCachingRealInterval
 	{
 		private final RealInterval i1;
 
@@ -510,26 +661,32 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 
 		@Override
-		public double realMin( final int d )
+		public long version()
 		{
-			if ( Intervals.isEmpty( i1 ) || Intervals.isEmpty( i2 ) )
-				return Double.POSITIVE_INFINITY;
-			return Math.max( i1.realMin( d ), i2.realMin( d ) );
+			return Versioned.versionOf( i1, i2 );
 		}
 
 		@Override
-		public double realMax( final int d )
+		protected void computeBounds( final double[] min, final double[] max )
 		{
 			if ( Intervals.isEmpty( i1 ) || Intervals.isEmpty( i2 ) )
-				return Double.NEGATIVE_INFINITY;
-			return Math.min( i1.realMax( d ), i2.realMax( d ) );
+			{
+				Arrays.fill( min, Double.POSITIVE_INFINITY );
+				Arrays.fill( max, Double.NEGATIVE_INFINITY );
+				return;
+			}
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = Math.max( i1.realMin( d ), i2.realMin( d ) );
+				max[ d ] = Math.min( i1.realMax( d ), i2.realMax( d ) );
+			}
 		}
 	}
 
 	/**
 	 * The union of two intervals. Adapts to changes of the source intervals.
 	 */
-	public static class UnionRealInterval extends AbstractAdaptingRealInterval
+	public static class UnionRealInterval extends AbstractCachingRealInterval
 	{
 		private final RealInterval i1;
 
@@ -544,31 +701,34 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 
 		@Override
-		public double realMin( final int d )
+		public long version()
 		{
-			if ( Intervals.isEmpty( i1 ) )
-			{
-				if ( Intervals.isEmpty( i2 ) )
-					return Double.POSITIVE_INFINITY;
-				return i2.realMin( d );
-			}
-			if ( Intervals.isEmpty( i2 ) )
-				return i1.realMin( d );
-			return Math.min( i1.realMin( d ), i2.realMin( d ) );
+			return Versioned.versionOf( i1, i2 );
 		}
 
 		@Override
-		public double realMax( final int d )
+		protected void computeBounds( final double[] min, final double[] max )
 		{
-			if ( Intervals.isEmpty( i1 ) )
+			final boolean empty1 = Intervals.isEmpty( i1 );
+			final boolean empty2 = Intervals.isEmpty( i2 );
+			for ( int d = 0; d < n; ++d )
 			{
-				if ( Intervals.isEmpty( i2 ) )
-					return Double.NEGATIVE_INFINITY;
-				return i2.realMax( d );
+				if ( empty1 )
+				{
+					min[ d ] = empty2 ? Double.POSITIVE_INFINITY : i2.realMin( d );
+					max[ d ] = empty2 ? Double.NEGATIVE_INFINITY : i2.realMax( d );
+				}
+				else if ( empty2 )
+				{
+					min[ d ] = i1.realMin( d );
+					max[ d ] = i1.realMax( d );
+				}
+				else
+				{
+					min[ d ] = Math.min( i1.realMin( d ), i2.realMin( d ) );
+					max[ d ] = Math.max( i1.realMax( d ), i2.realMax( d ) );
+				}
 			}
-			if ( Intervals.isEmpty( i2 ) )
-				return i1.realMax( d );
-			return Math.max( i1.realMax( d ), i2.realMax( d ) );
 		}
 	}
 
@@ -621,7 +781,7 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 	 * The {@link Bounds} for a transformed source. These bounds are not
 	 * guaranteed to represent the minimum bounding box.
 	 */
-	public static class RealTransformRealInterval extends Bounds.AbstractAdaptingRealInterval
+	public static class RealTransformRealInterval extends Bounds.AbstractCachingRealInterval
 	{
 		private final RealInterval source;
 
@@ -662,19 +822,28 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 
 		@Override
-		public double realMin( final int d )
+		public long version()
 		{
-			if ( updateNeeded() )
-				updateMinMax();
-			return min[ d ];
+			return Versioned.versionOf( source );
 		}
 
+		/**
+		 * Shapes with a closed form under an affine transform get tight
+		 * bounds from {@link AffineShapes}. Otherwise, and for boxes whose
+		 * transformed corners already are tight, the corners of the source
+		 * bounds are transformed. If the source is not
+		 * {@link Versioned}, this is called on every query, so the corners
+		 * are only transformed again if the source bounds changed.
+		 */
 		@Override
-		public double realMax( final int d )
+		protected void computeBounds( final double[] realMin, final double[] realMax )
 		{
+			if ( transformToSource instanceof AffineGet && !( source instanceof Box ) && AffineShapes.bounds( source, ( AffineGet ) transformToSource, realMin, realMax ) )
+				return;
 			if ( updateNeeded() )
 				updateMinMax();
-			return max[ d ];
+			System.arraycopy( min, 0, realMin, 0, n );
+			System.arraycopy( max, 0, realMax, 0, n );
 		}
 
 		// -- Helper methods --
@@ -760,4 +929,51 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 	}
 
+	// -- Helper classes --
+
+	/**
+	 * Bounds of an {@link AbstractCachingRealInterval}, computed at the given
+	 * versions.
+	 */
+	private static final class RealCache
+	{
+		private final long global;
+
+		private final long version;
+
+		private final double[] min;
+
+		private final double[] max;
+
+		private RealCache( final long global, final long version, final double[] min, final double[] max )
+		{
+			this.global = global;
+			this.version = version;
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Bounds of an {@link AbstractCachingInterval}, computed at the given
+	 * versions.
+	 */
+	private static final class IntCache
+	{
+		private final long global;
+
+		private final long version;
+
+		private final long[] min;
+
+		private final long[] max;
+
+		private IntCache( final long global, final long version, final long[] min, final long[] max )
+		{
+			this.global = global;
+			this.version = version;
+			this.min = min;
+			this.max = max;
+		}
+	}
 }
@@ -39,6 +39,7 @@ import static net.imglib2.roi.Operators.NEGATE;
 import static net.imglib2.roi.Operators.OR;
 import static net.imglib2.roi.Operators.XOR;
 
+import java.util.BitSet;
 import java.util.function.Predicate;
 
 import net.imglib2.Localizable;
@@ -52,6 +53,32 @@ import net.imglib2.transform.Transform;
  */
 public interface Mask extends MaskPredicate< Localizable >
 {
+	/**
+	 * Tests a batch of points at once. Point {@code i} is at
+	 * {@code positions[ i * n ]} to {@code positions[ i * n + n - 1 ]}, where
+	 * {@code n} is {@link #numDimensions()}. On return, bit {@code i} of
+	 * {@code result} is set iff it is set in {@code candidates} and point
+	 * {@code i} is contained; all other bits are cleared. {@code result} may
+	 * be {@code candidates}.
+	 * <p>
+	 * The default tests the candidates one at a time. Composites and shapes
+	 * override this to avoid the per-point dispatch.
+	 * </p>
+	 */
+	default void testBatch( final long[] positions, final BitSet candidates, final BitSet result )
+	{
+		BatchTest.testEach( this, positions, numDimensions(), candidates, result );
+	}
+
+	/**
+	 * Tests the first {@code count} points of {@code positions}, see
+	 * {@link #testBatch(long[], BitSet, BitSet)}.
+	 */
+	default void testBatch( final long[] positions, final int count, final BitSet result )
+	{
+		testBatch( positions, BatchTest.all( count ), result );
+	}
+
 	@Override
 	default Mask and( final Predicate< ? super Localizable > other )
 	{
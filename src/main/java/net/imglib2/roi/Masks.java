@@ -253,6 +253,18 @@ public class Masks
 	 * }
 	 * }</pre>
 	 * 
+	 * Every pixel of the bounding box of {@code mask} is tested. To rasterize
+	 * a {@link net.imglib2.roi.geom.real.RealPointCollection} by iterating its
+	 * points instead, use
+	 * {@link net.imglib2.roi.util.runlength.RunLengthRegions#fromRealPointCollection}.
+	 * For the fraction of each pixel covered by {@code mask}, instead of a
+	 * binary value, see {@link net.imglib2.roi.util.CoverageRasterizer}.
+	 * The returned region tests pixels whenever it is iterated (twice,
+	 * counting its size first). To rasterize once, use
+	 * {@link net.imglib2.roi.util.runlength.RunLengthRegions#fromRealMask(RealMaskRealInterval)},
+	 * or {@link net.imglib2.roi.util.runlength.RasterCache} to reuse the
+	 * result until the mask is modified.
+	 * 
 	 * @param mask {@link RealMaskRealInterval} to be iterated in
 	 *             in integer coordinates.
 	 * @return IterableRegion&lt; BoolType &gt;
@@ -36,6 +36,7 @@ package net.imglib2.roi;
 import static net.imglib2.roi.BoundaryType.UNSPECIFIED;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
@@ -59,6 +60,8 @@ import net.imglib2.roi.composite.DefaultUnaryCompositeRealMask;
 import net.imglib2.roi.composite.DefaultUnaryCompositeRealMaskRealInterval;
 import net.imglib2.roi.composite.RealTransformUnaryCompositeRealMask;
 import net.imglib2.roi.composite.RealTransformUnaryCompositeRealMaskRealInterval;
+import net.imglib2.roi.geom.AffineShapes;
+import net.imglib2.roi.util.PerThread;
 
 /**
  * MaskOperator interfaces and instances. The concrete operator instances (e.g.,
@@ -87,6 +90,16 @@ public class Operators
 		{
 			return t -> left.test( t ) && right.test( t );
 		}
+
+		@Override
+		public boolean testBatch( final BatchTest left, final BatchTest right, final BitSet candidates, final BitSet result )
+		{
+			final BitSet inside = new BitSet();
+			left.test( candidates, inside );
+			right.test( inside, inside );
+			assign( result, inside );
+			return true;
+		}
 	};
 
 	public static final Operators.BinaryMaskOperator OR = new Operators.BinaryMaskOperator( BoundaryType::or, Bounds.OR, KnownConstant::or )
@@ -96,6 +109,19 @@ public class Operators
 		{
 			return t -> left.test( t ) || right.test( t );
 		}
+
+		@Override
+		public boolean testBatch( final BatchTest left, final BatchTest right, final BitSet candidates, final BitSet result )
+		{
+			final BitSet inside = new BitSet();
+			left.test( candidates, inside );
+			final BitSet remaining = ( BitSet ) candidates.clone();
+			remaining.andNot( inside );
+			right.test( remaining, remaining );
+			inside.or( remaining );
+			assign( result, inside );
+			return true;
+		}
 	};
 
 	public static final Operators.BinaryMaskOperator XOR = new Operators.BinaryMaskOperator( BoundaryType::xor, Bounds.XOR, KnownConstant::xor )
@@ -107,6 +133,18 @@ public class Operators
 				return t -> false;
 			return t -> left.test( t ) ^ right.test( t );
 		}
+
+		@Override
+		public boolean testBatch( final BatchTest left, final BatchTest right, final BitSet candidates, final BitSet result )
+		{
+			final BitSet inside = new BitSet();
+			left.test( candidates, inside );
+			final BitSet insideRight = new BitSet();
+			right.test( candidates, insideRight );
+			inside.xor( insideRight );
+			assign( result, inside );
+			return true;
+		}
 	};
 
 	public static final Operators.BinaryMaskOperator MINUS = new Operators.BinaryMaskOperator( BoundaryType::minus, Bounds.MINUS, KnownConstant::minus )
@@ -118,6 +156,18 @@ public class Operators
 				return t -> false;
 			return t -> left.test( t ) && !right.test( t );
 		}
+
+		@Override
+		public boolean testBatch( final BatchTest left, final BatchTest right, final BitSet candidates, final BitSet result )
+		{
+			final BitSet inside = new BitSet();
+			left.test( candidates, inside );
+			final BitSet insideRight = new BitSet();
+			right.test( inside, insideRight );
+			inside.andNot( insideRight );
+			assign( result, inside );
+			return true;
+		}
 	};
 
 	public static final Operators.UnaryMaskOperator NEGATE = new Operators.UnaryMaskOperator( BoundaryType::negate, Bounds.NEGATE, KnownConstant::negate )
@@ -127,6 +177,17 @@ public class Operators
 		{
 			return t -> !arg.test( t );
 		}
+
+		@Override
+		public boolean testBatch( final BatchTest arg, final BitSet candidates, final BitSet result )
+		{
+			final BitSet inside = new BitSet();
+			arg.test( candidates, inside );
+			final BitSet outside = ( BitSet ) candidates.clone();
+			outside.andNot( inside );
+			assign( result, outside );
+			return true;
+		}
 	};
 
 	/*
@@ -192,6 +253,20 @@ public class Operators
 		}
 
 		public abstract < T > Predicate< T > predicate( Predicate< ? super T > left, Predicate< ? super T > right );
+
+		/**
+		 * Combines batch tests of the arguments, see
+		 * {@link BatchTest#test(BitSet, BitSet)}. Operators which test the
+		 * second argument only where the first does not decide the result
+		 * restrict its candidates accordingly.
+		 *
+		 * @return false if this operator has no batch form, in which case
+		 *         {@code result} is unchanged
+		 */
+		public boolean testBatch( final BatchTest left, final BatchTest right, final BitSet candidates, final BitSet result )
+		{
+			return false;
+		}
 	}
 
 	public static abstract class UnaryMaskOperator implements MaskOperator
@@ -249,6 +324,18 @@ public class Operators
 		}
 
 		public abstract < T > Predicate< T > predicate( Predicate< ? super T > arg );
+
+		/**
+		 * Applies this operator to a batch test of the argument, see
+		 * {@link BatchTest#test(BitSet, BitSet)}.
+		 *
+		 * @return false if this operator has no batch form, in which case
+		 *         {@code result} is unchanged
+		 */
+		public boolean testBatch( final BatchTest arg, final BitSet candidates, final BitSet result )
+		{
+			return false;
+		}
 	}
 
 	/*
@@ -275,7 +362,15 @@ public class Operators
 		 */
 		private final int m;
 
-		private final ThreadLocal< RealPoint > pt;
+		/**
+		 * Copies of {@link #transformToSource}, since transforms may keep
+		 * scratch state, and the transformed position for each thread. The
+		 * copy of a thread is taken on its first test. If the transform is
+		 * {@link Versioned}, copies are taken again after it was modified;
+		 * otherwise a non-affine transform must not be modified after the
+		 * mask was first tested.
+		 */
+		private final PerThread< TransformScratch > scratch;
 
 		private final UnaryOperator< BoundaryType > boundaryTypeOp;
 
@@ -286,7 +381,7 @@ public class Operators
 			this.transformToSource = transformToSource;
 			n = transformToSource.numSourceDimensions();
 			m = transformToSource.numTargetDimensions();
-			pt = ThreadLocal.withInitial( () -> new RealPoint( m ) );
+			scratch = new PerThread<>( () -> new TransformScratch( transformToSource, m ) );
 			boundaryTypeOp = ( willPreserveBounds( transformToSource ) && isContinuous( transformToSource ) )
 					? UnaryOperator.identity()
 					: t -> UNSPECIFIED;
@@ -315,15 +410,49 @@ public class Operators
 			return transformToSource;
 		}
 
+		/**
+		 * If the transform is a square {@link AffineGet}, the returned
+		 * predicate uses a copy of its matrix, which is refreshed whenever
+		 * the transform is modified, see {@link AffineShapes}.
+		 */
 		public Predicate< RealLocalizable > predicate( final Predicate< ? super RealLocalizable > arg )
 		{
+			if ( AffineShapes.isSquare( transformToSource ) )
+				return AffineShapes.predicate( arg, ( AffineGet ) transformToSource );
 			return pos -> {
-				final RealPoint sourcePos = pt.get();
-				transformToSource.apply( pos, sourcePos );
-				return arg.test( sourcePos );
+				final TransformScratch s = scratch();
+				s.transform.apply( pos, s.sourcePos );
+				return arg.test( s.sourcePos );
 			};
 		}
 
+		/**
+		 * Tests {@code arg} at the transformed candidate points, see
+		 * {@link RealMask#testBatch(double[], BitSet, BitSet)}. The
+		 * positions are transformed in one pass before {@code arg} is
+		 * tested as a batch. Like {@link #predicate(Predicate)}, this reads
+		 * the current matrix of an affine transform.
+		 */
+		public void testBatch( final Predicate< ? super RealLocalizable > arg, final double[] positions, final BitSet candidates, final BitSet result )
+		{
+			final double[] sourcePositions = new double[ candidates.length() * m ];
+			if ( AffineShapes.isSquare( transformToSource ) )
+				AffineShapes.apply( ( AffineGet ) transformToSource, positions, candidates, sourcePositions );
+			else
+			{
+				final RealTransform transform = scratch().transform;
+				final double[] pos = new double[ n ];
+				final double[] sourcePos = new double[ m ];
+				for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+				{
+					System.arraycopy( positions, i * n, pos, 0, n );
+					transform.apply( pos, sourcePos );
+					System.arraycopy( sourcePos, 0, sourcePositions, i * m, m );
+				}
+			}
+			BatchTest.of( arg, sourcePositions, m ).test( candidates, result );
+		}
+
 		public RealMask applyReal( final Predicate< ? super RealLocalizable > arg )
 		{
 			checkDimensions( arg );
@@ -369,6 +498,55 @@ public class Operators
 			else
 				throw new IllegalArgumentException( "couldn't find dimensionality" );
 		}
+
+		/**
+		 * Returns the scratch of the current thread, with a copy of the
+		 * current state of the transform.
+		 */
+		private TransformScratch scratch()
+		{
+			final TransformScratch s = scratch.get();
+			if ( transformToSource instanceof Versioned )
+			{
+				final long version = ( ( Versioned ) transformToSource ).version();
+				if ( s.version != version )
+				{
+					s.transform = copyForThread( transformToSource );
+					s.version = version;
+				}
+			}
+			return s;
+		}
+
+		/**
+		 * Affine transforms are applied without scratch state, so they are
+		 * shared. Other transforms are copied, falling back to the shared
+		 * instance if they do not support {@link RealTransform#copy()}.
+		 */
+		private static RealTransform copyForThread( final RealTransform transform )
+		{
+			if ( transform instanceof AffineGet )
+				return transform;
+			final RealTransform copy = transform.copy();
+			return copy == null ? transform : copy;
+		}
+
+		private static final class TransformScratch
+		{
+			private RealTransform transform;
+
+			private long version;
+
+			private final RealPoint sourcePos;
+
+			private TransformScratch( final RealTransform transform, final int numDimensions )
+			{
+				// NB: read the version first, so modifications while copying are noticed
+				version = Versioned.versionOf( transform );
+				this.transform = copyForThread( transform );
+				sourcePos = new RealPoint( numDimensions );
+			}
+		}
 	}
 
 	/*
@@ -404,4 +582,14 @@ public class Operators
 			throw new IllegalArgumentException( "incompatible dimensionalities" );
 		}
 	}
+
+	/**
+	 * Copies {@code value} into {@code result}, which may be an input of the
+	 * batch test that computed {@code value}.
+	 */
+	private static void assign( final BitSet result, final BitSet value )
+	{
+		result.clear();
+		result.or( value );
+	}
 }
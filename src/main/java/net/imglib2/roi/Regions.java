@@ -33,9 +33,17 @@
  */
 package net.imglib2.roi;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.imglib2.Cursor;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.util.CursorSpliterator;
 import net.imglib2.roi.util.IterableRegionOnBooleanRAI;
 import net.imglib2.roi.util.PositionableWrappedIterableRegion;
 import net.imglib2.roi.util.SamplingIterableInterval;
@@ -149,6 +157,32 @@ public class Regions
 			return new IterableRegionOnBooleanRAI<>( region );
 	}
 
+	/**
+	 * Obtains an {@link IterableRegion} whose iteration consists of only the
+	 * true pixels of a region, like {@link #iterable(RandomAccessibleInterval)}.
+	 * <p>
+	 * If {@code region} is not an {@code IterableRegion}, the true pixels are
+	 * collected into a run index in a single pass. Iterating the result
+	 * repeatedly does not access {@code region} again. If {@code region} is
+	 * modified, call {@link IterableRegionOnBooleanRAI#invalidate()} on the
+	 * result.
+	 *
+	 * @param <B>
+	 *     The {@link BooleanType} of the region.
+	 * @param region
+	 *     The region to filter by its true values.
+	 *
+	 * @return An {@link IterableRegion} consisting of true values of the input
+	 * region.
+	 */
+	public static < B extends BooleanType< B > > IterableRegion< B > iterableCached( final RandomAccessibleInterval< B > region )
+	{
+		if ( region instanceof IterableRegion )
+			return ( IterableRegion< B > ) region;
+		else
+			return new IterableRegionOnBooleanRAI<>( region, true );
+	}
+
 	/**
 	 * Make any {@code RandomAccessibleInterval<BooleanType>} into an
 	 * {@code PositionableIterableRegion}.
@@ -189,4 +223,163 @@ public class Regions
 				++sum;
 		return sum;
 	}
+
+	/**
+	 * Creates a {@link CursorSpliterator} over the elements of
+	 * {@code iterable}, which can be split into chunks that are traversed by
+	 * independent cursors.
+	 *
+	 * @param iterable
+	 *     The elements to traverse, e.g. a region or a
+	 *     {@link #sample(IterableInterval, RandomAccessible) sampled} region.
+	 *
+	 * @return A spliterator over the elements of {@code iterable}.
+	 */
+	public static < T > CursorSpliterator< T > spliterator( final IterableInterval< T > iterable )
+	{
+		return new CursorSpliterator<>( iterable );
+	}
+
+	/**
+	 * Creates a {@link Stream} over the elements of {@code iterable}. For
+	 * example, the sum over all pixels of {@code img} inside {@code region}
+	 * can be computed on all cores by
+	 *
+	 * <pre>
+	 * {@code
+	 * Regions.stream( Regions.sample( region, img ), true ).mapToDouble( t -> t.getRealDouble() ).sum();
+	 * }
+	 * </pre>
+	 *
+	 * Note that the stream elements are usually proxies that are only valid
+	 * until the next element is visited. They must be consumed immediately,
+	 * not collected.
+	 *
+	 * @param iterable
+	 *     The elements to stream.
+	 * @param parallel
+	 *     Whether to create a parallel stream.
+	 *
+	 * @return A stream over the elements of {@code iterable}.
+	 */
+	public static < T > Stream< T > stream( final IterableInterval< T > iterable, final boolean parallel )
+	{
+		return StreamSupport.stream( spliterator( iterable ), parallel );
+	}
+
+	/**
+	 * Visits all elements of {@code iterable} in parallel, using the common
+	 * {@link ForkJoinPool}. The iteration is split into chunks which are
+	 * traversed by independent localizing cursors. {@code action} is called
+	 * for every element with the cursor of its chunk, positioned at the
+	 * element. It must be safe to call {@code action} concurrently.
+	 *
+	 * @param iterable
+	 *     The elements to visit, e.g. a region or a
+	 *     {@link #sample(IterableInterval, RandomAccessible) sampled} region.
+	 * @param action
+	 *     The action to perform for each element.
+	 */
+	public static < T > void parallelForEach( final IterableInterval< T > iterable, final Consumer< ? super Cursor< T > > action )
+	{
+		parallelForEach( iterable, defaultChunkSize( iterable.size() ), action );
+	}
+
+	/**
+	 * Visits all elements of {@code iterable} in parallel, in chunks of at most
+	 * {@code chunkSize} elements. See
+	 * {@link #parallelForEach(IterableInterval, Consumer)}.
+	 *
+	 * @param iterable
+	 *     The elements to visit.
+	 * @param chunkSize
+	 *     The maximum number of elements visited by one task.
+	 * @param action
+	 *     The action to perform for each element.
+	 */
+	public static < T > void parallelForEach( final IterableInterval< T > iterable, final long chunkSize, final Consumer< ? super Cursor< T > > action )
+	{
+		parallelForEachChunk( iterable, chunkSize, chunk -> chunk.forEachRemainingCursor( action ) );
+	}
+
+	/**
+	 * Splits the iteration of {@code iterable} into chunks and processes them
+	 * in parallel. See
+	 * {@link #parallelForEachChunk(IterableInterval, long, Consumer)}.
+	 *
+	 * @param iterable
+	 *     The elements to visit.
+	 * @param chunkAction
+	 *     The action to perform for each chunk.
+	 */
+	public static < T > void parallelForEachChunk( final IterableInterval< T > iterable, final Consumer< ? super CursorSpliterator< T > > chunkAction )
+	{
+		parallelForEachChunk( iterable, defaultChunkSize( iterable.size() ), chunkAction );
+	}
+
+	/**
+	 * Splits the iteration of {@code iterable} into chunks of at most
+	 * {@code chunkSize} elements, and processes the chunks in parallel, using
+	 * the common {@link ForkJoinPool}. {@code chunkAction} is called once per
+	 * chunk, and can set up per-chunk state (e.g. {@code RandomAccess}es)
+	 * before traversing the chunk.
+	 *
+	 * @param iterable
+	 *     The elements to visit.
+	 * @param chunkSize
+	 *     The maximum number of elements in a chunk.
+	 * @param chunkAction
+	 *     The action to perform for each chunk.
+	 */
+	public static < T > void parallelForEachChunk( final IterableInterval< T > iterable, final long chunkSize, final Consumer< ? super CursorSpliterator< T > > chunkAction )
+	{
+		if ( chunkSize < 1 )
+			throw new IllegalArgumentException( "chunkSize must be positive" );
+		final CursorSpliterator< T > spliterator = new CursorSpliterator<>( iterable, 0, iterable.size(), true );
+		ForkJoinPool.commonPool().invoke( new ForEachTask<>( spliterator, chunkSize, chunkAction ) );
+	}
+
+	/**
+	 * Returns the default chunk size for processing {@code size} elements in
+	 * parallel.
+	 */
+	private static long defaultChunkSize( final long size )
+	{
+		return Math.max( 1024, size / ( 4 * ForkJoinPool.getCommonPoolParallelism() ) );
+	}
+
+	// -- Helper classes --
+
+	private static final class ForEachTask< T > extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final CursorSpliterator< T > spliterator;
+
+		private final long chunkSize;
+
+		private final Consumer< ? super CursorSpliterator< T > > chunkAction;
+
+		ForEachTask( final CursorSpliterator< T > spliterator, final long chunkSize, final Consumer< ? super CursorSpliterator< T > > chunkAction )
+		{
+			this.spliterator = spliterator;
+			this.chunkSize = chunkSize;
+			this.chunkAction = chunkAction;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if ( spliterator.estimateSize() > chunkSize )
+			{
+				final CursorSpliterator< T > prefix = spliterator.trySplit();
+				if ( prefix != null )
+				{
+					invokeAll( new ForEachTask<>( prefix, chunkSize, chunkAction ), new ForEachTask<>( spliterator, chunkSize, chunkAction ) );
+					return;
+				}
+			}
+			chunkAction.accept( spliterator );
+		}
+	}
 }
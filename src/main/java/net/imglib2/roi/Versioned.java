@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.FinalRealInterval;
+import net.imglib2.roi.util.VersionCounter;
+
+/**
+ * An object which can be modified, and which counts its modifications.
+ * <p>
+ * {@link #version()} increases whenever the object changes in a way that may
+ * affect its bounds (or its contents). Adapting bounds, such as
+ * {@link Bounds.UnionRealInterval}, cache their results and only recompute
+ * them when the summed versions of their sources changed. Implementations
+ * should count modifications with a {@link VersionCounter}, which also
+ * maintains a global count of modifications that caches check first.
+ * </p>
+ * <p>
+ * Composites report the sum of the versions of their operands. A negative
+ * version means that modifications cannot be detected, e.g. because some
+ * operand is not {@link Versioned}, and disables caching.
+ * </p>
+ * <p>
+ * Masks which wrap an arbitrary predicate, such as
+ * {@link net.imglib2.roi.mask.integer.DefaultMaskInterval}, only version
+ * their bounds: their contents may change without a new version. Caches of
+ * contents must check {@link net.imglib2.roi.util.runlength.RasterCache#contentVersion(Object)}
+ * instead.
+ * </p>
+ */
+public interface Versioned
+{
+	/**
+	 * Returns the number of modifications of this object (or the sum over
+	 * its sources), or a negative number if modifications are not tracked.
+	 */
+	long version();
+
+	/**
+	 * Returns the version of {@code o} if it is {@link Versioned}, {@code 0}
+	 * if it is known to be immutable, and {@code -1} otherwise.
+	 */
+	static long versionOf( final Object o )
+	{
+		if ( o instanceof Versioned )
+			return ( ( Versioned ) o ).version();
+		if ( o instanceof FinalRealInterval || o instanceof FinalInterval )
+			return 0;
+		return -1;
+	}
+
+	/**
+	 * Returns the summed versions of {@code o1} and {@code o2}, or {@code -1}
+	 * if either version is unknown.
+	 */
+	static long versionOf( final Object o1, final Object o2 )
+	{
+		final long v1 = versionOf( o1 );
+		if ( v1 < 0 )
+			return -1;
+		final long v2 = versionOf( o2 );
+		if ( v2 < 0 )
+			return -1;
+		return v1 + v2;
+	}
+}
@@ -0,0 +1,498 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import static net.imglib2.roi.boundary.Boundary.StructuringElement.FOUR_CONNECTED;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegionBuilder;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+import net.imglib2.type.BooleanType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Run-based extraction of boundary pixels, with the same semantics as
+ * {@link BoundaryRandomAccess4} and {@link BoundaryRandomAccess8}: a pixel is a
+ * boundary pixel if it is in the region and it lies on the border of the
+ * interval or at least one of its neighbors is not in the region.
+ * <p>
+ * Instead of probing the neighborhood of every pixel, each line along
+ * dimension 0 is compared as a whole to its neighbor lines: the interior runs
+ * of a line are the intersection of its eroded runs with the runs of the
+ * neighbor lines, and the boundary runs are the remaining runs. The cost is
+ * proportional to the number of runs rather than the number of pixels. The
+ * lines are processed in slabs along the last dimension, which can be
+ * extracted in parallel.
+ * </p>
+ * <p>
+ * The {@link StructuringElement}s generalize to n dimensions, e.g.
+ * {@link StructuringElement#FOUR_CONNECTED} is 6-connectivity and
+ * {@link StructuringElement#EIGHT_CONNECTED} is 26-connectivity in 3D.
+ * </p>
+ */
+public final class Boundaries
+{
+	private Boundaries()
+	{
+		// NB: prevent instantiation of utility class.
+	}
+
+	/**
+	 * Extract the boundary of the {@code true} pixels of {@code region}.
+	 *
+	 * @param numTasks
+	 *            number of slabs along the last dimension which are processed
+	 *            in parallel.
+	 */
+	public static < T extends BooleanType< T > > RunLengthRegion runs(
+			final RandomAccessibleInterval< T > region,
+			final StructuringElement structuringElement,
+			final int numTasks )
+	{
+		if ( numTasks < 1 )
+			throw new IllegalArgumentException( "numTasks must be positive" );
+		final int n = region.numDimensions();
+		if ( Intervals.isEmpty( region ) )
+			return RunLengthRegion.empty( n );
+
+		final List< RunLengthRegion > slabs = forEachSlab( region, numTasks, ( from, to ) -> {
+			final long[] min = Intervals.minAsLongArray( region );
+			final long[] max = Intervals.maxAsLongArray( region );
+			min[ n - 1 ] = from;
+			max[ n - 1 ] = to;
+			return RunLengthRegions.fromBooleanRAI( Views.interval( region, new FinalInterval( min, max ) ) );
+		} );
+		return runs( concatenate( n, slabs ), region, structuringElement, numTasks );
+	}
+
+	/**
+	 * Extract the boundary of {@code source}, which must be contained in
+	 * {@code interval}. Pixels on the border of {@code interval} are boundary
+	 * pixels.
+	 *
+	 * @param numTasks
+	 *            number of slabs along the last dimension which are processed
+	 *            in parallel.
+	 */
+	public static RunLengthRegion runs(
+			final RunLengthRegion source,
+			final Interval interval,
+			final StructuringElement structuringElement,
+			final int numTasks )
+	{
+		if ( numTasks < 1 )
+			throw new IllegalArgumentException( "numTasks must be positive" );
+		final int n = source.numDimensions();
+		if ( interval.numDimensions() != n )
+			throw new IllegalArgumentException( "source and interval dimensions do not match" );
+		if ( source.isEmpty() )
+			return source;
+		if ( !Intervals.contains( interval, source ) )
+			throw new IllegalArgumentException( "source is not contained in interval" );
+
+		final long[][] offsets = neighborLines( n, structuringElement );
+		final boolean erodeNeighbors = structuringElement != FOUR_CONNECTED;
+		final List< RunLengthRegion > slabs = forEachSlab( source, numTasks,
+				( from, to ) -> extract( source, interval, offsets, erodeNeighbors, from, to ) );
+		return concatenate( n, slabs );
+	}
+
+	/**
+	 * Get the inner boundary of {@code region}: the pixels of {@code region}
+	 * with at least one neighbor that is not in {@code region}.
+	 */
+	public static RunLengthRegion inner( final RunLengthRegion region, final StructuringElement structuringElement )
+	{
+		return runs( region, region, structuringElement, 1 );
+	}
+
+	/**
+	 * Get the outer boundary of {@code region}: the pixels not in
+	 * {@code region} with at least one neighbor in {@code region}.
+	 */
+	public static RunLengthRegion outer( final RunLengthRegion region, final StructuringElement structuringElement )
+	{
+		return outer( region, structuringElement, null );
+	}
+
+	/**
+	 * Get the outer boundary of {@code region}, restricted to {@code clip}
+	 * (e.g. the interval of the labeling the region was taken from). If
+	 * {@code clip == null} the outer boundary is not restricted.
+	 */
+	public static RunLengthRegion outer( final RunLengthRegion region, final StructuringElement structuringElement, final Interval clip )
+	{
+		final int n = region.numDimensions();
+		if ( clip != null && clip.numDimensions() != n )
+			throw new IllegalArgumentException( "region and clip dimensions do not match" );
+		final long[][] offsets = neighborLines( n, structuringElement );
+		final boolean dilateNeighbors = structuringElement != FOUR_CONNECTED;
+		final long clipMin = clip == null ? Long.MIN_VALUE : clip.min( 0 );
+		final long clipMax = clip == null ? Long.MAX_VALUE : clip.max( 0 );
+
+		// NB: lines are added out of order, the builder sorts and merges them
+		final RunLengthRegionBuilder dilated = new RunLengthRegionBuilder( n );
+		final long[] pos = new long[ n ];
+		final long[] target = new long[ n ];
+		for ( int l = 0; l < region.numLines(); ++l )
+		{
+			region.lineLocalize( l, pos );
+			for ( int i = -1; i < offsets.length; ++i )
+			{
+				boolean inside = true;
+				for ( int d = 1; d < n; ++d )
+				{
+					target[ d ] = i < 0 ? pos[ d ] : pos[ d ] + offsets[ i ][ d ];
+					if ( clip != null && ( target[ d ] < clip.min( d ) || target[ d ] > clip.max( d ) ) )
+						inside = false;
+				}
+				if ( !inside )
+					continue;
+				final long grow = i < 0 || dilateNeighbors ? 1 : 0;
+				for ( int r = region.lineRunStart( l ); r < region.lineRunStart( l + 1 ); ++r )
+				{
+					target[ 0 ] = Math.max( region.runMin( r ) - grow, clipMin );
+					dilated.addRun( target, Math.min( region.runMax( r ) + grow, clipMax ) );
+				}
+			}
+		}
+		return RunLengthRegions.difference( dilated.build(), region );
+	}
+
+	/**
+	 * Get the surface area of {@code region} (the perimeter in 2D), measured
+	 * as the number of pixel faces between a pixel of {@code region} and a
+	 * pixel not in {@code region}.
+	 */
+	public static long surfaceArea( final RunLengthRegion region )
+	{
+		final int n = region.numDimensions();
+		long area = 2L * region.numRuns();
+		final long[] pos = new long[ n ];
+		for ( int l = 0; l < region.numLines(); ++l )
+		{
+			region.lineLocalize( l, pos );
+			final int runStart = region.lineRunStart( l );
+			final int runEnd = region.lineRunStart( l + 1 );
+			long lineSize = 0;
+			for ( int r = runStart; r < runEnd; ++r )
+				lineSize += region.runMax( r ) - region.runMin( r ) + 1;
+			for ( int d = 1; d < n; ++d )
+			{
+				for ( int step = -1; step <= 1; step += 2 )
+				{
+					pos[ d ] += step;
+					final int nl = region.findLine( pos );
+					pos[ d ] -= step;
+					area += nl < 0 ? lineSize : lineSize - overlap( region, runStart, runEnd, region.lineRunStart( nl ), region.lineRunStart( nl + 1 ) );
+				}
+			}
+		}
+		return area;
+	}
+
+	// -- Helper methods --
+
+	private interface SlabTask
+	{
+		RunLengthRegion apply( long from, long to );
+	}
+
+	/**
+	 * Split {@code interval} into at most {@code numTasks} slabs along the last
+	 * dimension and run {@code task} for each, in parallel if there is more
+	 * than one slab.
+	 */
+	private static List< RunLengthRegion > forEachSlab( final Interval interval, final int numTasks, final SlabTask task )
+	{
+		final int outer = interval.numDimensions() - 1;
+		final long outerMin = interval.min( outer );
+		final long outerSize = interval.dimension( outer );
+		final int slabs = outer > 0 ? ( int ) Math.min( numTasks, outerSize ) : 1;
+		final IntStream tasks = IntStream.range( 0, slabs );
+		return ( slabs > 1 ? tasks.parallel() : tasks ).mapToObj( t -> {
+			final long from = outerMin + outerSize * t / slabs;
+			final long to = outerMin + outerSize * ( t + 1 ) / slabs - 1;
+			return task.apply( from, to );
+		} ).collect( Collectors.toList() );
+	}
+
+	private static RunLengthRegion concatenate( final int n, final List< RunLengthRegion > slabs )
+	{
+		if ( slabs.size() == 1 )
+			return slabs.get( 0 );
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		for ( final RunLengthRegion slab : slabs )
+			builder.addRegion( slab );
+		return builder.build();
+	}
+
+	/**
+	 * Offsets (in dimensions 1, ..., n-1) of the neighbor lines that have to be
+	 * compared to a line. The line itself is not included.
+	 */
+	private static long[][] neighborLines( final int n, final StructuringElement structuringElement )
+	{
+		final int m = n - 1;
+		if ( structuringElement == FOUR_CONNECTED )
+		{
+			final long[][] offsets = new long[ 2 * m ][ n ];
+			for ( int d = 1; d < n; ++d )
+			{
+				offsets[ 2 * d - 2 ][ d ] = -1;
+				offsets[ 2 * d - 1 ][ d ] = 1;
+			}
+			return offsets;
+		}
+		final int count = ( int ) Math.pow( 3, m );
+		final long[][] offsets = new long[ count - 1 ][];
+		int i = 0;
+		for ( int k = 0; k < count; ++k )
+		{
+			if ( k == ( count - 1 ) / 2 )
+				continue;
+			final long[] offset = new long[ n ];
+			for ( int d = 1, r = k; d < n; ++d, r /= 3 )
+				offset[ d ] = r % 3 - 1;
+			offsets[ i++ ] = offset;
+		}
+		return offsets;
+	}
+
+	/**
+	 * Extract the boundary runs of the lines of {@code source} with position
+	 * {@code from <= p[n-1] <= to} in the last dimension.
+	 */
+	private static RunLengthRegion extract(
+			final RunLengthRegion source,
+			final Interval interval,
+			final long[][] offsets,
+			final boolean erodeNeighbors,
+			final long from,
+			final long to )
+	{
+		final int n = source.numDimensions();
+		final int outer = n - 1;
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		final long[] pos = new long[ n ];
+		final long[] neighbor = new long[ n ];
+		Runs interior = new Runs();
+		Runs intersection = new Runs();
+		final Runs tmp = new Runs();
+		final long innerMin = interval.min( 0 ) + 1;
+		final long innerMax = interval.max( 0 ) - 1;
+
+		int l = 0;
+		if ( outer > 0 )
+		{
+			interval.min( pos );
+			pos[ outer ] = from;
+			l = source.findLine( pos );
+			if ( l < 0 )
+				l = -l - 1;
+		}
+		for ( ; l < source.numLines(); ++l )
+		{
+			source.lineLocalize( l, pos );
+			if ( outer > 0 && pos[ outer ] > to )
+				break;
+			final int runStart = source.lineRunStart( l );
+			final int runEnd = source.lineRunStart( l + 1 );
+
+			interior.clear();
+			if ( !onBorder( pos, interval ) )
+			{
+				interior.addEroded( source, runStart, runEnd, innerMin, innerMax );
+				for ( int i = 0; i < offsets.length && interior.size > 0; ++i )
+				{
+					for ( int d = 1; d < n; ++d )
+						neighbor[ d ] = pos[ d ] + offsets[ i ][ d ];
+					final int nl = source.findLine( neighbor );
+					if ( nl < 0 )
+					{
+						interior.clear();
+						break;
+					}
+					tmp.clear();
+					if ( erodeNeighbors )
+						tmp.addEroded( source, source.lineRunStart( nl ), source.lineRunStart( nl + 1 ), innerMin, innerMax );
+					else
+						tmp.add( source, source.lineRunStart( nl ), source.lineRunStart( nl + 1 ) );
+					interior.intersect( tmp, intersection );
+					final Runs swap = interior;
+					interior = intersection;
+					intersection = swap;
+				}
+			}
+
+			// boundary runs = line runs minus interior runs (a subset)
+			int j = 0;
+			for ( int r = runStart; r < runEnd; ++r )
+			{
+				long x = source.runMin( r );
+				final long runMax = source.runMax( r );
+				for ( ; j < interior.size && interior.max( j ) <= runMax; ++j )
+				{
+					pos[ 0 ] = x;
+					builder.addRun( pos, interior.min( j ) - 1 );
+					x = interior.max( j ) + 1;
+				}
+				pos[ 0 ] = x;
+				builder.addRun( pos, runMax );
+			}
+		}
+		return builder.build();
+	}
+
+	private static boolean onBorder( final long[] pos, final Interval interval )
+	{
+		for ( int d = 1; d < pos.length; ++d )
+			if ( pos[ d ] <= interval.min( d ) || pos[ d ] >= interval.max( d ) )
+				return true;
+		return false;
+	}
+
+	/**
+	 * Number of pixels covered by both runs {@code a0} to {@code a1 - 1} and
+	 * runs {@code b0} to {@code b1 - 1} of {@code region}.
+	 */
+	private static long overlap( final RunLengthRegion region, int a0, final int a1, int b0, final int b1 )
+	{
+		long count = 0;
+		while ( a0 < a1 && b0 < b1 )
+		{
+			final long min = Math.max( region.runMin( a0 ), region.runMin( b0 ) );
+			final long max = Math.min( region.runMax( a0 ), region.runMax( b0 ) );
+			if ( min <= max )
+				count += max - min + 1;
+			if ( region.runMax( a0 ) < region.runMax( b0 ) )
+				++a0;
+			else
+				++b0;
+		}
+		return count;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Growable list of sorted, disjoint runs {@code [min, max]}.
+	 */
+	private static final class Runs
+	{
+		private long[] data = new long[ 16 ];
+
+		private int size;
+
+		long min( final int i )
+		{
+			return data[ 2 * i ];
+		}
+
+		long max( final int i )
+		{
+			return data[ 2 * i + 1 ];
+		}
+
+		void clear()
+		{
+			size = 0;
+		}
+
+		void append( final long min, final long max )
+		{
+			if ( 2 * size + 2 > data.length )
+				data = Arrays.copyOf( data, 2 * data.length );
+			data[ 2 * size ] = min;
+			data[ 2 * size + 1 ] = max;
+			++size;
+		}
+
+		/**
+		 * Append runs {@code runStart} to {@code runEnd - 1} of {@code region}.
+		 */
+		void add( final RunLengthRegion region, final int runStart, final int runEnd )
+		{
+			for ( int r = runStart; r < runEnd; ++r )
+				append( region.runMin( r ), region.runMax( r ) );
+		}
+
+		/**
+		 * Append runs {@code runStart} to {@code runEnd - 1} of {@code region},
+		 * shrunk by one pixel at either end and clipped to
+		 * {@code [lower, upper]}.
+		 */
+		void addEroded( final RunLengthRegion region, final int runStart, final int runEnd, final long lower, final long upper )
+		{
+			for ( int r = runStart; r < runEnd; ++r )
+			{
+				final long min = Math.max( region.runMin( r ) + 1, lower );
+				final long max = Math.min( region.runMax( r ) - 1, upper );
+				if ( min <= max )
+					append( min, max );
+			}
+		}
+
+		/**
+		 * Write the intersection with {@code other} into {@code result}.
+		 */
+		void intersect( final Runs other, final Runs result )
+		{
+			result.clear();
+			int i = 0;
+			int j = 0;
+			while ( i < size && j < other.size )
+			{
+				final long min = Math.max( min( i ), other.min( j ) );
+				final long max = Math.min( max( i ), other.max( j ) );
+				if ( min <= max )
+					result.append( min, max );
+				if ( max( i ) < other.max( j ) )
+					++i;
+				else
+					++j;
+			}
+		}
+	}
+}
@@ -35,16 +35,14 @@ package net.imglib2.roi.boundary;
 
 import static net.imglib2.roi.boundary.Boundary.StructuringElement.FOUR_CONNECTED;
 
-import gnu.trove.list.array.TIntArrayList;
 import net.imglib2.AbstractWrappedInterval;
-import net.imglib2.Cursor;
 import net.imglib2.Interval;
-import net.imglib2.Localizable;
-import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.IterableRegion;
-import net.imglib2.roi.Regions;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.runlength.RunLengthCursor;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
 import net.imglib2.type.BooleanType;
 import net.imglib2.type.logic.BoolType;
 
@@ -61,6 +59,11 @@ import net.imglib2.type.logic.BoolType;
  * equivalent) according to the {@link StructuringElement} given in the
  * constructor. Note, that a {@link Boundary} constructed with 4-neighborhood
  * {@link StructuringElement} is 8-connected, and vice versa.
+ * <p>
+ * The boundary pixels are extracted line by line (see {@link Boundaries}) and
+ * stored as runs, so {@link #size()} is exact and iteration does not touch the
+ * source.
+ * </p>
  *
  * @param <T>
  *            BooleanType of the source {@link IterableRegion}.
@@ -78,11 +81,7 @@ public final class Boundary< T extends BooleanType< T > >
 
 	private StructuringElement structuringElement;
 
-	private final int n;
-
-	private final TIntArrayList coords;
-
-	private final int size;
+	private final RunLengthRegion runs;
 
 	public Boundary( final RandomAccessibleInterval< T > region )
 	{
@@ -90,30 +89,42 @@ public final class Boundary< T extends BooleanType< T > >
 	}
 
 	public Boundary( final RandomAccessibleInterval< T > region, final StructuringElement structuringElement )
+	{
+		this( region, structuringElement, 1 );
+	}
+
+	/**
+	 * @param numTasks
+	 *            number of slabs along the last dimension which are extracted
+	 *            in parallel.
+	 */
+	public Boundary( final RandomAccessibleInterval< T > region, final StructuringElement structuringElement, final int numTasks )
 	{
 		super( region );
 		this.structuringElement = structuringElement;
-		n = region.numDimensions();
-		coords = new TIntArrayList();
-		final BoundaryConstructor< T > c = new BoundaryConstructor< T >( region, structuringElement );
-		while( true )
-		{
-			c.fwd();
-			if ( c.isValid() )
-			{
-				for ( int d = 0; d < n; ++d )
-					coords.add( c.getIntPosition( d ) );
-			}
-			else
-				break;
-		}
-		size = coords.size() / n;
+		runs = Boundaries.runs( region, structuringElement, numTasks );
+	}
+
+	/**
+	 * Get the boundary pixels as a {@link RunLengthRegion}.
+	 */
+	public RunLengthRegion toRunLengthRegion()
+	{
+		return runs;
+	}
+
+	/**
+	 * Get the boundary pixels as an {@link IterationCode}.
+	 */
+	public IterationCode toIterationCode()
+	{
+		return runs.toIterationCode();
 	}
 
 	@Override
 	public long size()
 	{
-		return size;
+		return runs.size();
 	}
 
 	@Override
@@ -123,19 +134,19 @@ public final class Boundary< T extends BooleanType< T > >
 	}
 
 	@Override
-	public BoundaryCursor cursor()
+	public RunLengthCursor cursor()
 	{
-		return new BoundaryCursor();
+		return runs.cursor();
 	}
 
 	@Override
-	public BoundaryCursor localizingCursor()
+	public RunLengthCursor localizingCursor()
 	{
 		return cursor();
 	}
 
 	@Override
-	public BoundaryCursor iterator()
+	public RunLengthCursor iterator()
 	{
 		return cursor();
 	}
@@ -159,171 +170,4 @@ public final class Boundary< T extends BooleanType< T > >
 	{
 		return randomAccess();
 	}
-
-	final class BoundaryCursor extends Point implements Cursor< Void >
-	{
-		private int i;
-
-		private final int size = coords.size();
-
-		BoundaryCursor()
-		{
-			super( Boundary.this.numDimensions() );
-			i = 0;
-		}
-
-		private BoundaryCursor( final BoundaryCursor c )
-		{
-			i = c.i;
-			setPosition( c );
-		}
-
-		@Override
-		public Void get()
-		{
-			return null;
-		}
-
-		@Override
-		public Void next()
-		{
-			fwd();
-			return null;
-		}
-
-		@Override
-		public boolean hasNext()
-		{
-			return i < size;
-		}
-
-		@Override
-		public void fwd()
-		{
-			for ( int d = 0; d < n; ++d, ++i )
-				position[ d ] = coords.getQuick( i );
-		}
-
-		@Override
-		public void jumpFwd( final long steps )
-		{
-			i += n * ( steps - 1 );
-			fwd();
-		}
-
-		@Override
-		public void reset()
-		{
-			i = 0;
-		}
-
-		@Override
-		public void remove()
-		{
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public BoundaryCursor copy()
-		{
-			return new BoundaryCursor( this );
-		}
-
-		@Override
-		public BoundaryCursor copyCursor()
-		{
-			return copy();
-		}
-	}
-
-	static final class BoundaryConstructor< T extends BooleanType< T > > implements Localizable
-	{
-		private final Cursor< Void > c;
-
-		private final RandomAccess< BoolType > a;
-
-		private boolean valid;
-
-		public BoundaryConstructor( final RandomAccessibleInterval< T > region, final StructuringElement structuringElement )
-		{
-			c = Regions.iterable( region ).localizingCursor();
-			a = structuringElement == FOUR_CONNECTED
-					? new BoundaryRandomAccess4< T >( region )
-					: new BoundaryRandomAccess8< T >( region );
-		}
-
-		public void fwd()
-		{
-			while ( c.hasNext() )
-			{
-				c.fwd();
-				a.setPosition( c );
-				if ( a.get().get() )
-				{
-					valid = true;
-					return;
-				}
-			}
-			valid = false;
-		}
-
-		public boolean isValid()
-		{
-			return valid;
-		}
-
-		@Override
-		public void localize( final float[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public void localize( final double[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public float getFloatPosition( final int d )
-		{
-			return c.getFloatPosition( d );
-		}
-
-		@Override
-		public double getDoublePosition( final int d )
-		{
-			return c.getDoublePosition( d );
-		}
-
-		@Override
-		public int numDimensions()
-		{
-			return c.numDimensions();
-		}
-
-		@Override
-		public void localize( final int[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public void localize( final long[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public int getIntPosition( final int d )
-		{
-			return c.getIntPosition( d );
-		}
-
-		@Override
-		public long getLongPosition( final int d )
-		{
-			return c.getLongPosition( d );
-		}
-	}
 }
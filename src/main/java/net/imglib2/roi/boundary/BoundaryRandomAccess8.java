@@ -83,7 +83,8 @@ public final class BoundaryRandomAccess8< T extends BooleanType< T > > extends A
 		final long[] omax = new long[ n ];
 		Arrays.fill( omax, 1 );
 		final IntervalIterator idx = new IntervalIterator( new FinalInterval( omin, omax ) );
-		final int center = ( offsets.length - 1 ) / 2;
+		// index of the center among the 3^n positions of idx
+		final int center = offsets.length / 2;
 		final long[] pos = new long[ n ];
 		for ( int i = 0; i < offsets.length; ++i )
 		{
@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.real.WritablePolygon2D;
+
+/**
+ * The outline of one connected component of a 2D region, as traced by
+ * {@link Contours}: an outer polygon and the polygons of its holes.
+ * <p>
+ * Vertices lie on pixel corners (half-integer coordinates), so the centers of
+ * the pixels of the component are strictly inside {@link #outer()} and
+ * strictly outside all {@link #holes()}, unless the polygons were simplified.
+ * </p>
+ */
+public final class Contour
+{
+	private final WritablePolygon2D outer;
+
+	private final List< WritablePolygon2D > holes;
+
+	Contour( final WritablePolygon2D outer, final List< WritablePolygon2D > holes )
+	{
+		this.outer = outer;
+		this.holes = Collections.unmodifiableList( holes );
+	}
+
+	/**
+	 * Get the outer contour of the component.
+	 */
+	public WritablePolygon2D outer()
+	{
+		return outer;
+	}
+
+	/**
+	 * Get the contours of the holes of the component.
+	 */
+	public List< WritablePolygon2D > holes()
+	{
+		return holes;
+	}
+
+	/**
+	 * Get the component as a mask, i.e., the outer contour minus the holes.
+	 */
+	public RealMaskRealInterval toMask()
+	{
+		RealMaskRealInterval mask = outer;
+		for ( final WritablePolygon2D hole : holes )
+			mask = mask.minus( hole );
+		return mask;
+	}
+}
@@ -0,0 +1,515 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import static net.imglib2.roi.boundary.Boundary.StructuringElement.EIGHT_CONNECTED;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import net.imglib2.IterableInterval;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.WritablePolygon2D;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegionBuilder;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+
+/**
+ * Traces the contours of 2D regions into polygons.
+ * <p>
+ * The contours follow the pixel edges ("cracks") between the region and its
+ * complement. The edges are derived from the runs of the region: the top and
+ * bottom edges of a line are the differences of its runs to the runs of the
+ * lines above and below, the left and right edges are the ends of its runs.
+ * The edges are then linked into closed rings, keeping only the vertices
+ * where the direction changes. Every ring is an {@link Contour#outer() outer}
+ * contour or a {@link Contour#holes() hole}, depending on its orientation.
+ * </p>
+ * <p>
+ * Where two pixels of the region touch only diagonally, the connectivity
+ * decides whether they are traced as one component
+ * ({@link StructuringElement#EIGHT_CONNECTED}) or as two
+ * ({@link StructuringElement#FOUR_CONNECTED}). Optionally, the polygons are
+ * simplified with the Douglas-Peucker algorithm.
+ * </p>
+ * <p>
+ * Use {@link net.imglib2.roi.labeling.LabelRegion#toRunLengthRegion()} to
+ * trace a single label, or
+ * {@link net.imglib2.roi.labeling.LabelRegions#contours(StructuringElement, double)}
+ * to trace all labels of a labeling in parallel.
+ * </p>
+ */
+public final class Contours
+{
+	private Contours()
+	{
+		// NB: prevent instantiation of utility class.
+	}
+
+	/**
+	 * Trace the 8-connected components of a 2D region, without
+	 * simplification.
+	 */
+	public static List< Contour > trace( final IterableInterval< ? > region )
+	{
+		return trace( region, EIGHT_CONNECTED, 0 );
+	}
+
+	/**
+	 * Trace the components of a 2D region.
+	 *
+	 * @param tolerance
+	 *            maximum distance of removed vertices from the simplified
+	 *            polygon, or 0 for no simplification.
+	 */
+	public static List< Contour > trace( final IterableInterval< ? > region, final StructuringElement connectivity, final double tolerance )
+	{
+		return trace( region instanceof RunLengthRegion
+				? ( RunLengthRegion ) region
+				: RunLengthRegions.fromIterable( region ), connectivity, tolerance );
+	}
+
+	/**
+	 * Trace the components of a 2D region.
+	 *
+	 * @param tolerance
+	 *            maximum distance of removed vertices from the simplified
+	 *            polygon, or 0 for no simplification.
+	 */
+	public static List< Contour > trace( final RunLengthRegion region, final StructuringElement connectivity, final double tolerance )
+	{
+		if ( region.numDimensions() != 2 )
+			throw new IllegalArgumentException( "region must be 2D" );
+		if ( !( tolerance >= 0 ) )
+			throw new IllegalArgumentException( "tolerance must not be negative" );
+
+		final CrackEdges edges = new CrackEdges( region );
+		final List< long[] > outers = new ArrayList<>();
+		final List< long[] > holes = new ArrayList<>();
+		// bounding box of each outer ring: minX, minY, maxX, maxY
+		final TLongArrayList outerBoxes = new TLongArrayList();
+		final boolean[] traced = new boolean[ edges.size() ];
+		final TLongArrayList ring = new TLongArrayList();
+		for ( int e = 0; e < edges.size(); ++e )
+		{
+			if ( traced[ e ] )
+				continue;
+			edges.trace( e, connectivity == EIGHT_CONNECTED, traced, ring );
+			final long[] vertices = ring.toArray();
+			if ( signedArea2( vertices ) > 0 )
+			{
+				outers.add( vertices );
+				addBounds( vertices, outerBoxes );
+			}
+			else
+				holes.add( vertices );
+		}
+
+		// assign each hole to the smallest outer contour containing it
+		final long[] outerAreas = new long[ outers.size() ];
+		final List< List< long[] > > holesOf = new ArrayList<>();
+		for ( int o = 0; o < outers.size(); ++o )
+		{
+			outerAreas[ o ] = signedArea2( outers.get( o ) );
+			holesOf.add( new ArrayList<>() );
+		}
+		for ( final long[] hole : holes )
+		{
+			// center of the (background) pixel left of the first edge, in doubled coordinates
+			final long dx = Long.signum( hole[ 2 ] - hole[ 0 ] );
+			final long dy = Long.signum( hole[ 3 ] - hole[ 1 ] );
+			final long px = 2 * hole[ 0 ] + dx + dy;
+			final long py = 2 * hole[ 1 ] + dy - dx;
+			int best = -1;
+			for ( int o = 0; o < outers.size(); ++o )
+				if ( ( best < 0 || outerAreas[ o ] < outerAreas[ best ] ) && inBox( outerBoxes, o, px, py ) && contains( outers.get( o ), px, py ) )
+					best = o;
+			if ( best >= 0 )
+				holesOf.get( best ).add( hole );
+		}
+
+		final List< Contour > contours = new ArrayList<>( outers.size() );
+		for ( int o = 0; o < outers.size(); ++o )
+		{
+			final List< WritablePolygon2D > holePolygons = new ArrayList<>();
+			for ( final long[] hole : holesOf.get( o ) )
+				holePolygons.add( toPolygon( hole, tolerance ) );
+			contours.add( new Contour( toPolygon( outers.get( o ), tolerance ), holePolygons ) );
+		}
+		return contours;
+	}
+
+	/**
+	 * Trace the contours of every slice (along dimension 2) of a 3D region.
+	 *
+	 * @return the contours of each non-empty slice, by slice position.
+	 */
+	public static SortedMap< Long, List< Contour > > traceSlices( final RunLengthRegion region, final StructuringElement connectivity, final double tolerance )
+	{
+		if ( region.numDimensions() != 3 )
+			throw new IllegalArgumentException( "region must be 3D" );
+		final SortedMap< Long, List< Contour > > slices = new TreeMap<>();
+		final long[] start = new long[ 2 ];
+		int l = 0;
+		while ( l < region.numLines() )
+		{
+			final long z = region.linePosition( l, 2 );
+			final RunLengthRegionBuilder slice = new RunLengthRegionBuilder( 2 );
+			for ( ; l < region.numLines() && region.linePosition( l, 2 ) == z; ++l )
+			{
+				start[ 1 ] = region.linePosition( l, 1 );
+				for ( int r = region.lineRunStart( l ); r < region.lineRunStart( l + 1 ); ++r )
+				{
+					start[ 0 ] = region.runMin( r );
+					slice.addRun( start, region.runMax( r ) );
+				}
+			}
+			slices.put( z, trace( slice.build(), connectivity, tolerance ) );
+		}
+		return slices;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Twice the signed area of a ring of corners {@code x0, y0, x1, y1, ...}.
+	 * Positive for outer contours, negative for holes.
+	 */
+	private static long signedArea2( final long[] ring )
+	{
+		final int m = ring.length / 2;
+		long area = 0;
+		for ( int i = 0, j = m - 1; i < m; j = i++ )
+			area += ring[ 2 * j ] * ring[ 2 * i + 1 ] - ring[ 2 * i ] * ring[ 2 * j + 1 ];
+		return area;
+	}
+
+	/**
+	 * Append the bounding box {@code minX, minY, maxX, maxY} of a ring of
+	 * corners to {@code boxes}.
+	 */
+	private static void addBounds( final long[] ring, final TLongArrayList boxes )
+	{
+		long minX = Long.MAX_VALUE;
+		long minY = Long.MAX_VALUE;
+		long maxX = Long.MIN_VALUE;
+		long maxY = Long.MIN_VALUE;
+		for ( int i = 0; i < ring.length; i += 2 )
+		{
+			minX = Math.min( minX, ring[ i ] );
+			minY = Math.min( minY, ring[ i + 1 ] );
+			maxX = Math.max( maxX, ring[ i ] );
+			maxY = Math.max( maxY, ring[ i + 1 ] );
+		}
+		boxes.add( minX );
+		boxes.add( minY );
+		boxes.add( maxX );
+		boxes.add( maxY );
+	}
+
+	/**
+	 * Whether the point {@code (px, py)} (in doubled corner coordinates) is
+	 * inside the bounding box {@code o} of {@code boxes}. Cheaply rejects
+	 * rings before testing {@link #contains}.
+	 */
+	private static boolean inBox( final TLongArrayList boxes, final int o, final long px, final long py )
+	{
+		return px > 2 * boxes.get( 4 * o ) && py > 2 * boxes.get( 4 * o + 1 ) && px < 2 * boxes.get( 4 * o + 2 ) && py < 2 * boxes.get( 4 * o + 3 );
+	}
+
+	/**
+	 * Whether the point {@code (px, py)} (in doubled corner coordinates, both
+	 * odd) is inside the axis-aligned ring.
+	 */
+	private static boolean contains( final long[] ring, final long px, final long py )
+	{
+		final int m = ring.length / 2;
+		boolean inside = false;
+		for ( int i = 0, j = m - 1; i < m; j = i++ )
+		{
+			final long x = 2 * ring[ 2 * i ];
+			if ( x == 2 * ring[ 2 * j ] && x > px && ( 2 * ring[ 2 * i + 1 ] > py ) != ( 2 * ring[ 2 * j + 1 ] > py ) )
+				inside = !inside;
+		}
+		return inside;
+	}
+
+	/**
+	 * Convert a ring of corners to a polygon in pixel coordinates, optionally
+	 * simplified.
+	 */
+	private static WritablePolygon2D toPolygon( final long[] ring, final double tolerance )
+	{
+		final int m = ring.length / 2;
+		final double[] x = new double[ m ];
+		final double[] y = new double[ m ];
+		for ( int i = 0; i < m; ++i )
+		{
+			x[ i ] = ring[ 2 * i ] - 0.5;
+			y[ i ] = ring[ 2 * i + 1 ] - 0.5;
+		}
+		if ( tolerance == 0 || m <= 4 )
+			return GeomMasks.polygon2D( x, y );
+
+		// split the ring at the vertex farthest from vertex 0
+		int far = 0;
+		double farDist = 0;
+		for ( int i = 1; i < m; ++i )
+		{
+			final double d = ( x[ i ] - x[ 0 ] ) * ( x[ i ] - x[ 0 ] ) + ( y[ i ] - y[ 0 ] ) * ( y[ i ] - y[ 0 ] );
+			if ( d > farDist )
+			{
+				far = i;
+				farDist = d;
+			}
+		}
+		final boolean[] keep = new boolean[ m + 1 ];
+		keep[ 0 ] = keep[ far ] = keep[ m ] = true;
+		simplify( x, y, 0, far, tolerance * tolerance, keep );
+		simplify( x, y, far, m, tolerance * tolerance, keep );
+
+		int count = 0;
+		for ( int i = 0; i < m; ++i )
+			if ( keep[ i ] )
+				++count;
+		if ( count < 3 )
+			return GeomMasks.polygon2D( x, y );
+		final double[] sx = new double[ count ];
+		final double[] sy = new double[ count ];
+		for ( int i = 0, k = 0; i < m; ++i )
+			if ( keep[ i ] )
+			{
+				sx[ k ] = x[ i ];
+				sy[ k++ ] = y[ i ];
+			}
+		return GeomMasks.polygon2D( sx, sy );
+	}
+
+	/**
+	 * Douglas-Peucker simplification of the chain from vertex {@code from} to
+	 * vertex {@code to} (indices modulo the number of vertices).
+	 */
+	private static void simplify( final double[] x, final double[] y, final int from, final int to, final double squTolerance, final boolean[] keep )
+	{
+		if ( to - from < 2 )
+			return;
+		final int m = x.length;
+		final double ax = x[ from ];
+		final double ay = y[ from ];
+		final double bx = x[ to % m ];
+		final double by = y[ to % m ];
+		final double vx = bx - ax;
+		final double vy = by - ay;
+		final double squLength = vx * vx + vy * vy;
+		int farthest = -1;
+		double farDist = squTolerance;
+		for ( int i = from + 1; i < to; ++i )
+		{
+			final double wx = x[ i ] - ax;
+			final double wy = y[ i ] - ay;
+			final double cross = vx * wy - vy * wx;
+			final double d = squLength > 0 ? cross * cross / squLength : wx * wx + wy * wy;
+			if ( d > farDist )
+			{
+				farthest = i;
+				farDist = d;
+			}
+		}
+		if ( farthest >= 0 )
+		{
+			keep[ farthest ] = true;
+			simplify( x, y, from, farthest, squTolerance, keep );
+			simplify( x, y, farthest, to, squTolerance, keep );
+		}
+	}
+
+	// -- Helper classes --
+
+	private interface RunConsumer
+	{
+		void accept( long min, long max );
+	}
+
+	/**
+	 * The directed pixel edges between a region and its complement, with the
+	 * region on the right-hand side (in image coordinates, y pointing down).
+	 * Edge end points are pixel corners; corner {@code (x, y)} is the top left
+	 * corner of pixel {@code (x, y)}.
+	 */
+	private static final class CrackEdges
+	{
+		private static final int EAST = 0;
+
+		private static final int SOUTH = 1;
+
+		private static final int WEST = 2;
+
+		private static final int NORTH = 3;
+
+		private static final long[] DX = { 1, 0, -1, 0 };
+
+		private static final long[] DY = { 0, 1, 0, -1 };
+
+		/** start corner of each edge, {@code x, y} */
+		private final TLongArrayList starts = new TLongArrayList();
+
+		/** length of each edge */
+		private final TLongArrayList lengths = new TLongArrayList();
+
+		private final TIntArrayList directions = new TIntArrayList();
+
+		/** packed start corner to index of the first edge starting there */
+		private final TLongIntHashMap firstAt = new TLongIntHashMap( 16, 0.5f, Long.MIN_VALUE, -1 );
+
+		/** index of the next edge with the same start corner, or -1 */
+		private final TIntArrayList nextAt = new TIntArrayList();
+
+		CrackEdges( final RunLengthRegion region )
+		{
+			final int numLines = region.numLines();
+			for ( int l = 0; l < numLines; ++l )
+			{
+				final long y = region.linePosition( l, 1 );
+				final int runStart = region.lineRunStart( l );
+				final int runEnd = region.lineRunStart( l + 1 );
+				final boolean hasAbove = l > 0 && region.linePosition( l - 1, 1 ) == y - 1;
+				final boolean hasBelow = l + 1 < numLines && region.linePosition( l + 1, 1 ) == y + 1;
+
+				// top and bottom edges: runs of this line minus runs of the
+				// lines above and below
+				final int aboveStart = hasAbove ? region.lineRunStart( l - 1 ) : runStart;
+				difference( region, runStart, runEnd, aboveStart, runStart,
+						( min, max ) -> add( min, y, EAST, max + 1 - min ) );
+				final int belowEnd = hasBelow ? region.lineRunStart( l + 2 ) : runEnd;
+				difference( region, runStart, runEnd, runEnd, belowEnd,
+						( min, max ) -> add( max + 1, y + 1, WEST, max + 1 - min ) );
+
+				// left and right edges
+				for ( int r = runStart; r < runEnd; ++r )
+				{
+					add( region.runMin( r ), y + 1, NORTH, 1 );
+					add( region.runMax( r ) + 1, y, SOUTH, 1 );
+				}
+			}
+		}
+
+		int size()
+		{
+			return directions.size();
+		}
+
+		/**
+		 * Call {@code action} for each run of pixels covered by runs
+		 * {@code a0} to {@code a1 - 1} but not by runs {@code b0} to
+		 * {@code b1 - 1} of {@code region}.
+		 */
+		private static void difference( final RunLengthRegion region, final int a0, final int a1, int b0, final int b1, final RunConsumer action )
+		{
+			for ( int a = a0; a < a1; ++a )
+			{
+				long x = region.runMin( a );
+				final long max = region.runMax( a );
+				for ( ; b0 < b1 && region.runMin( b0 ) <= max; ++b0 )
+				{
+					if ( region.runMax( b0 ) < x )
+						continue;
+					if ( region.runMin( b0 ) > x )
+						action.accept( x, region.runMin( b0 ) - 1 );
+					x = region.runMax( b0 ) + 1;
+					if ( x > max )
+						break;
+				}
+				if ( x <= max )
+					action.accept( x, max );
+			}
+		}
+
+		private void add( final long x, final long y, final int direction, final long length )
+		{
+			final int e = directions.size();
+			starts.add( x );
+			starts.add( y );
+			lengths.add( length );
+			directions.add( direction );
+			final long key = key( x, y );
+			nextAt.add( firstAt.get( key ) );
+			firstAt.put( key, e );
+		}
+
+		private static long key( final long x, final long y )
+		{
+			return ( x << 32 ) ^ ( y & 0xffffffffL );
+		}
+
+		/**
+		 * Follow the edges from {@code first} until the ring is closed, and
+		 * write the corners where the direction changes into {@code ring}.
+		 */
+		void trace( final int first, final boolean eightConnected, final boolean[] traced, final TLongArrayList ring )
+		{
+			ring.resetQuick();
+			int e = first;
+			do
+			{
+				traced[ e ] = true;
+				final int dir = directions.get( e );
+				final long ex = starts.get( 2 * e ) + DX[ dir ] * lengths.get( e );
+				final long ey = starts.get( 2 * e + 1 ) + DY[ dir ] * lengths.get( e );
+
+				// at a corner where the region touches itself diagonally, there
+				// are two outgoing edges: turning left joins the diagonal
+				// pixels, turning right separates them
+				final int preferred = eightConnected ? ( dir + 3 ) % 4 : ( dir + 1 ) % 4;
+				int next = firstAt.get( key( ex, ey ) );
+				final int other = nextAt.get( next );
+				if ( other >= 0 && directions.get( other ) == preferred )
+					next = other;
+
+				if ( directions.get( next ) != dir )
+				{
+					ring.add( ex );
+					ring.add( ey );
+				}
+				e = next;
+			}
+			while ( e != first );
+		}
+	}
+}
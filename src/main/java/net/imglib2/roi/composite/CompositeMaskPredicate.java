@@ -37,6 +37,8 @@ import java.util.List;
 import java.util.function.Predicate;
 
 import net.imglib2.roi.MaskPredicate;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
 import net.imglib2.roi.Operators.MaskOperator;
 
 /**
@@ -49,7 +51,7 @@ import net.imglib2.roi.Operators.MaskOperator;
  *
  * @author Tobias Pietzsch
  */
-public interface CompositeMaskPredicate< T > extends MaskPredicate< T >
+public interface CompositeMaskPredicate< T > extends MaskPredicate< T >, ObservableMask
 {
 	/** Returns the operation which lead to this mask. */
 	MaskOperator operator();
@@ -61,6 +63,37 @@ public interface CompositeMaskPredicate< T > extends MaskPredicate< T >
 	 */
 	List< Predicate< ? > > operands();
 
+	/**
+	 * Adds {@code listener} to all {@link ObservableMask} leaves of this
+	 * composite, such that it is notified once per modification with this
+	 * composite as the source.
+	 */
+	@Override
+	default void addModificationListener( final ModificationListener listener )
+	{
+		final OperandListener forward = new OperandListener( this, listener );
+		OperandListener.forEachLeaf( this, leaf -> leaf.addModificationListener( forward ) );
+	}
+
+	@Override
+	default void removeModificationListener( final ModificationListener listener )
+	{
+		final OperandListener forward = new OperandListener( this, listener );
+		OperandListener.forEachLeaf( this, leaf -> leaf.removeModificationListener( forward ) );
+	}
+
+	/**
+	 * Runs {@code edits} within a bulk edit of every {@link ObservableMask}
+	 * leaf of this composite, so that listeners of this composite (and of the
+	 * leaves) are notified once afterwards, even if several leaves were
+	 * modified.
+	 */
+	@Override
+	default void modify( final Runnable edits )
+	{
+		OperandListener.modify( this, edits );
+	}
+
 	@Override
 	default Class< ? > maskType()
 	{
@@ -33,11 +33,13 @@
  */
 package net.imglib2.roi.composite;
 
+import java.util.BitSet;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.Localizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Mask;
@@ -99,6 +101,13 @@ public class DefaultBinaryCompositeMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final long[] positions, final BitSet candidates, final BitSet result )
+	{
+		if ( !operator.testBatch( BatchTest.of( arg0, positions, numDimensions() ), BatchTest.of( arg1, positions, numDimensions() ), candidates, result ) )
+			BatchTest.testEach( predicate, positions, numDimensions(), candidates, result );
+	}
+
 	@Override
 	public BinaryMaskOperator operator()
 	{
@@ -35,16 +35,19 @@ package net.imglib2.roi.composite;
 
 import static net.imglib2.roi.KnownConstant.ALL_FALSE;
 
+import java.util.BitSet;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 
 import net.imglib2.AbstractWrappedInterval;
 import net.imglib2.Interval;
 import net.imglib2.Localizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.MaskInterval;
 import net.imglib2.roi.Operators.BinaryMaskOperator;
+import net.imglib2.roi.Versioned;
 import net.imglib2.util.Intervals;
 
 /**
@@ -55,7 +58,7 @@ import net.imglib2.util.Intervals;
  */
 public class DefaultBinaryCompositeMaskInterval
 		extends AbstractWrappedInterval< Interval >
-		implements BinaryCompositeMaskPredicate< Localizable >, MaskInterval
+		implements BinaryCompositeMaskPredicate< Localizable >, MaskInterval, Versioned
 {
 	private final BinaryMaskOperator operator;
 
@@ -92,6 +95,12 @@ public class DefaultBinaryCompositeMaskInterval
 		return boundaryType;
 	}
 
+	@Override
+	public long version()
+	{
+		return Versioned.versionOf( sourceInterval );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
@@ -106,6 +115,13 @@ public class DefaultBinaryCompositeMaskInterval
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final long[] positions, final BitSet candidates, final BitSet result )
+	{
+		if ( !operator.testBatch( BatchTest.of( arg0, positions, numDimensions() ), BatchTest.of( arg1, positions, numDimensions() ), candidates, result ) )
+			BatchTest.testEach( predicate, positions, numDimensions(), candidates, result );
+	}
+
 	@Override
 	public BinaryMaskOperator operator()
 	{
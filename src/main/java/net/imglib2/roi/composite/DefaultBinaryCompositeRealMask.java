@@ -33,11 +33,13 @@
  */
 package net.imglib2.roi.composite;
 
+import java.util.BitSet;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Operators.BinaryMaskOperator;
@@ -100,6 +102,13 @@ public class DefaultBinaryCompositeRealMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		if ( !operator.testBatch( BatchTest.of( arg0, positions, numDimensions() ), BatchTest.of( arg1, positions, numDimensions() ), candidates, result ) )
+			BatchTest.testEach( predicate, positions, numDimensions(), candidates, result );
+	}
+
 	@Override
 	public BinaryMaskOperator operator()
 	{
@@ -33,11 +33,13 @@
  */
 package net.imglib2.roi.composite;
 
+import java.util.BitSet;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.Localizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Mask;
@@ -95,6 +97,13 @@ public class DefaultUnaryCompositeMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final long[] positions, final BitSet candidates, final BitSet result )
+	{
+		if ( !operator.testBatch( BatchTest.of( arg0, positions, numDimensions() ), candidates, result ) )
+			BatchTest.testEach( predicate, positions, numDimensions(), candidates, result );
+	}
+
 	@Override
 	public UnaryMaskOperator operator()
 	{
@@ -35,16 +35,19 @@ package net.imglib2.roi.composite;
 
 import static net.imglib2.roi.KnownConstant.ALL_FALSE;
 
+import java.util.BitSet;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 import net.imglib2.AbstractWrappedRealInterval;
 import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Operators.UnaryMaskOperator;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Versioned;
 import net.imglib2.util.Intervals;
 
 /**
@@ -55,7 +58,7 @@ import net.imglib2.util.Intervals;
  */
 public class DefaultUnaryCompositeRealMaskRealInterval
 		extends AbstractWrappedRealInterval< RealInterval >
-		implements UnaryCompositeMaskPredicate< RealLocalizable >, RealMaskRealInterval
+		implements UnaryCompositeMaskPredicate< RealLocalizable >, RealMaskRealInterval, Versioned
 {
 	private final UnaryMaskOperator operator;
 
@@ -88,6 +91,12 @@ public class DefaultUnaryCompositeRealMaskRealInterval
 		return boundaryType;
 	}
 
+	@Override
+	public long version()
+	{
+		return Versioned.versionOf( sourceInterval );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
@@ -102,6 +111,13 @@ public class DefaultUnaryCompositeRealMaskRealInterval
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		if ( !operator.testBatch( BatchTest.of( arg0, positions, numDimensions() ), candidates, result ) )
+			BatchTest.testEach( predicate, positions, numDimensions(), candidates, result );
+	}
+
 	@Override
 	public UnaryMaskOperator operator()
 	{
@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.composite;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+
+/**
+ * Forwards notifications of an operand to a listener of a
+ * {@link CompositeMaskPredicate}. Instances are equal if they forward to the
+ * same listener for the same composite, so that a listener can be removed
+ * from the operands again.
+ * <p>
+ * Forwarders are registered on the leaves of the operand tree rather than on
+ * nested composites, so a leaf shared by several branches reports each
+ * modification only once. During {@link #modify(CompositeMaskPredicate,
+ * Runnable)}, forwarded notifications are collected and sent once at the end.
+ * </p>
+ */
+final class OperandListener implements ModificationListener
+{
+	/**
+	 * Listeners to notify at the end of the bulk edits of each composite
+	 * modified by the current thread.
+	 */
+	private static final ThreadLocal< Map< CompositeMaskPredicate< ? >, Set< ModificationListener > > > deferred = ThreadLocal.withInitial( IdentityHashMap::new );
+
+	private final CompositeMaskPredicate< ? > composite;
+
+	private final ModificationListener listener;
+
+	OperandListener( final CompositeMaskPredicate< ? > composite, final ModificationListener listener )
+	{
+		this.composite = composite;
+		this.listener = listener;
+	}
+
+	@Override
+	public void modified( final Object source )
+	{
+		final Set< ModificationListener > pending = deferred.get().get( composite );
+		if ( pending != null )
+			pending.add( listener );
+		else
+			listener.modified( composite );
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( !( obj instanceof OperandListener ) )
+			return false;
+		final OperandListener other = ( OperandListener ) obj;
+		return composite == other.composite && listener.equals( other.listener );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * System.identityHashCode( composite ) + listener.hashCode();
+	}
+
+	/**
+	 * Calls {@code action} once for every distinct {@link ObservableMask}
+	 * operand of {@code composite} (transitively) which is not itself a
+	 * {@link CompositeMaskPredicate}.
+	 */
+	static void forEachLeaf( final CompositeMaskPredicate< ? > composite, final Consumer< ObservableMask > action )
+	{
+		final Set< Object > visited = Collections.newSetFromMap( new IdentityHashMap<>() );
+		final ArrayDeque< CompositeMaskPredicate< ? > > pending = new ArrayDeque<>();
+		pending.push( composite );
+		visited.add( composite );
+		while ( !pending.isEmpty() )
+		{
+			for ( final Predicate< ? > operand : pending.pop().operands() )
+			{
+				if ( !visited.add( operand ) )
+					continue;
+				if ( operand instanceof CompositeMaskPredicate )
+					pending.push( ( CompositeMaskPredicate< ? > ) operand );
+				else if ( operand instanceof ObservableMask )
+					action.accept( ( ObservableMask ) operand );
+			}
+		}
+	}
+
+	/**
+	 * Runs {@code edits} within a bulk edit of every distinct
+	 * {@link ObservableMask} leaf of {@code composite}, and notifies each
+	 * listener of {@code composite} once afterwards, if any leaf was modified.
+	 */
+	static void modify( final CompositeMaskPredicate< ? > composite, final Runnable edits )
+	{
+		final List< ObservableMask > leaves = new ArrayList<>();
+		forEachLeaf( composite, leaves::add );
+		final Map< CompositeMaskPredicate< ? >, Set< ModificationListener > > bulk = deferred.get();
+		if ( bulk.containsKey( composite ) )
+		{
+			// NB: nested in a bulk edit of the same composite
+			modify( leaves, 0, edits );
+			return;
+		}
+		final Set< ModificationListener > pending = new LinkedHashSet<>();
+		bulk.put( composite, pending );
+		try
+		{
+			modify( leaves, 0, edits );
+		}
+		finally
+		{
+			bulk.remove( composite );
+		}
+		for ( final ModificationListener l : pending )
+			l.modified( composite );
+	}
+
+	private static void modify( final List< ObservableMask > leaves, final int i, final Runnable edits )
+	{
+		if ( i == leaves.size() )
+			edits.run();
+		else
+			leaves.get( i ).modify( () -> modify( leaves, i + 1, edits ) );
+	}
+}
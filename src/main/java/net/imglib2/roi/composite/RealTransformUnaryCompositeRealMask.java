@@ -1,10 +1,12 @@
 package net.imglib2.roi.composite;
 
+import java.util.BitSet;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Operators.MaskOperator;
@@ -64,6 +66,12 @@ public class RealTransformUnaryCompositeRealMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		operator.testBatch( arg0, positions, candidates, result );
+	}
+
 	@Override
 	public MaskOperator operator()
 	{
@@ -1,16 +1,19 @@
 package net.imglib2.roi.composite;
 
+import java.util.BitSet;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 import net.imglib2.AbstractWrappedRealInterval;
 import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BatchTest;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Operators.MaskOperator;
 import net.imglib2.roi.Operators.RealTransformMaskOperator;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Versioned;
 
 /**
  * A {@link RealMaskRealInterval} which is the result of a transform operation
@@ -21,7 +24,7 @@ import net.imglib2.roi.RealMaskRealInterval;
  */
 public class RealTransformUnaryCompositeRealMaskRealInterval extends
 	AbstractWrappedRealInterval< RealInterval > implements
-	UnaryCompositeMaskPredicate< RealLocalizable >, RealMaskRealInterval
+	UnaryCompositeMaskPredicate< RealLocalizable >, RealMaskRealInterval, Versioned
 {
 
 	private final RealTransformMaskOperator operator;
@@ -54,6 +57,12 @@ public class RealTransformUnaryCompositeRealMaskRealInterval extends
 		return boundaryType;
 	}
 
+	@Override
+	public long version()
+	{
+		return Versioned.versionOf( sourceInterval );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
@@ -66,6 +75,12 @@ public class RealTransformUnaryCompositeRealMaskRealInterval extends
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		operator.testBatch( arg0, positions, candidates, result );
+	}
+
 	@Override
 	public MaskOperator operator()
 	{
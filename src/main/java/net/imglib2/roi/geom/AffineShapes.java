@@ -0,0 +1,591 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.geom.real.Box;
+import net.imglib2.roi.geom.real.ClosedWritableBox;
+import net.imglib2.roi.geom.real.ClosedWritableEllipsoid;
+import net.imglib2.roi.geom.real.ClosedWritablePolygon2D;
+import net.imglib2.roi.geom.real.ClosedWritableSphere;
+import net.imglib2.roi.geom.real.ClosedWritableSuperEllipsoid;
+import net.imglib2.roi.geom.real.DefaultWritablePolygon2D;
+import net.imglib2.roi.geom.real.OpenWritableBox;
+import net.imglib2.roi.geom.real.OpenWritableEllipsoid;
+import net.imglib2.roi.geom.real.OpenWritablePolygon2D;
+import net.imglib2.roi.geom.real.OpenWritableSphere;
+import net.imglib2.roi.geom.real.OpenWritableSuperEllipsoid;
+import net.imglib2.roi.geom.real.Polygon2D;
+import net.imglib2.roi.geom.real.SuperEllipsoid;
+
+/**
+ * Closed forms for shapes viewed through an affine transform.
+ * <p>
+ * A mask transformed by a square {@link AffineGet} {@code A} contains
+ * {@code x} iff the source contains {@code A x}. For boxes, ellipsoids
+ * (including spheres and superellipsoids with exponent 2) and polygons the
+ * transform can be folded into the shape parameters, which yields a cheaper
+ * membership test and tight bounds: the bounds of a rotated ellipsoid are
+ * those of the ellipsoid, not of its rotated bounding box. Other masks are
+ * tested by multiplying the query point with the affine matrix directly.
+ * </p>
+ * <p>
+ * Only the concrete shape classes of this library are specialised, since
+ * subclasses may override {@code test}. The folded parameters are keyed by
+ * {@link Versioned#version()}, so they follow modifications of the source
+ * shape. Predicates compare the affine to the matrix they were computed from
+ * on every test, and recompute if it was modified.
+ * </p>
+ */
+public final class AffineShapes
+{
+	private AffineShapes()
+	{
+		// NB: prevent instantiation of utility class.
+	}
+
+	/**
+	 * Returns true if {@code transform} is an {@link AffineGet} with equal
+	 * source and target dimensions, for which the methods of this class can
+	 * be used.
+	 */
+	public static boolean isSquare( final RealTransform transform )
+	{
+		if ( !( transform instanceof AffineGet ) )
+			return false;
+		final AffineGet affine = ( AffineGet ) transform;
+		final int n = affine.numSourceDimensions();
+		if ( n != affine.numTargetDimensions() || n != affine.numDimensions() )
+			return false;
+		final double[] matrix = affine.getRowPackedCopy();
+		return matrix != null && matrix.length == n * ( n + 1 );
+	}
+
+	/**
+	 * Creates a {@link Predicate} which tests {@code source} at the position
+	 * {@code transformToSource} maps the query to.
+	 *
+	 * @param source
+	 *            predicate in the target space of {@code transformToSource}
+	 * @param transformToSource
+	 *            transform from the space of the returned predicate to the
+	 *            space of {@code source}, see {@link #isSquare(RealTransform)}
+	 */
+	public static Predicate< RealLocalizable > predicate( final Predicate< ? super RealLocalizable > source, final AffineGet transformToSource )
+	{
+		if ( !isSquare( transformToSource ) )
+			throw new IllegalArgumentException( "transform is not a square affine" );
+		return new AffinePredicate( source, transformToSource, source instanceof Versioned && isSupported( source ) );
+	}
+
+	/**
+	 * Computes tight bounds of {@code source} transformed by the inverse of
+	 * {@code transformToSource}.
+	 *
+	 * @return false if {@code source} has no closed form; {@code min} and
+	 *         {@code max} are unchanged in that case
+	 */
+	public static boolean bounds( final Object source, final AffineGet transformToSource, final double[] min, final double[] max )
+	{
+		if ( !isSupported( source ) || !isSquare( transformToSource ) )
+			return false;
+		final double[] affine = transformToSource.getRowPackedCopy();
+		final double[] inverse = invert( affine );
+		if ( inverse == null )
+			return false;
+		final Shape shape = create( source, affine, inverse );
+		if ( shape == null )
+			return false;
+		shape.bounds( min, max );
+		return true;
+	}
+
+	/**
+	 * Transforms the candidate positions with the current matrix of
+	 * {@code transform}, as the predicates returned by
+	 * {@link #predicate(Predicate, AffineGet)} do.
+	 *
+	 * @param positions
+	 *            packed positions, {@code n} coordinates each
+	 * @param candidates
+	 *            indices of the positions to transform
+	 * @param sourcePositions
+	 *            receives the transformed positions at the same indices
+	 */
+	public static void apply( final AffineGet transform, final double[] positions, final BitSet candidates, final double[] sourcePositions )
+	{
+		if ( !isSquare( transform ) )
+			throw new IllegalArgumentException( "transform is not a square affine" );
+		final int n = transform.numDimensions();
+		final double[] affine = transform.getRowPackedCopy();
+		final double[] x = new double[ n ];
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			System.arraycopy( positions, i * n, x, 0, n );
+			for ( int r = 0; r < n; r++ )
+				sourcePositions[ i * n + r ] = apply( affine, n, r, x );
+		}
+	}
+
+	// -- Helper methods --
+
+	private static boolean isSupported( final Object source )
+	{
+		final Class< ? > c = source.getClass();
+		return c == ClosedWritableBox.class || c == OpenWritableBox.class ||
+				c == ClosedWritableEllipsoid.class || c == OpenWritableEllipsoid.class ||
+				c == ClosedWritableSphere.class || c == OpenWritableSphere.class ||
+				c == ClosedWritableSuperEllipsoid.class || c == OpenWritableSuperEllipsoid.class ||
+				c == DefaultWritablePolygon2D.class || c == ClosedWritablePolygon2D.class || c == OpenWritablePolygon2D.class;
+	}
+
+	/**
+	 * Folds the affine into the current parameters of {@code source}, or
+	 * returns null if the source currently has no closed form.
+	 */
+	private static Shape create( final Object source, final double[] affine, final double[] inverse )
+	{
+		final int n = numDimensions( affine );
+		if ( source instanceof ClosedWritableBox || source instanceof OpenWritableBox )
+		{
+			final Box box = ( Box ) source;
+			if ( box.numDimensions() != n )
+				return null;
+			final double[] center = new double[ n ];
+			final double[] halfLengths = new double[ n ];
+			for ( int d = 0; d < n; d++ )
+			{
+				center[ d ] = box.center().getDoublePosition( d );
+				halfLengths[ d ] = 0.5 * box.sideLength( d );
+			}
+			return new OrientedBox( affine, inverse, center, halfLengths, source instanceof ClosedWritableBox );
+		}
+		if ( source instanceof SuperEllipsoid )
+		{
+			final SuperEllipsoid ellipsoid = ( SuperEllipsoid ) source;
+			if ( ellipsoid.numDimensions() != n || ellipsoid.exponent() != 2 )
+				return null;
+			final double[] center = new double[ n ];
+			final double[] semiAxisLengths = new double[ n ];
+			for ( int d = 0; d < n; d++ )
+			{
+				center[ d ] = ellipsoid.center().getDoublePosition( d );
+				semiAxisLengths[ d ] = ellipsoid.semiAxisLength( d );
+				if ( !( semiAxisLengths[ d ] > 0 ) )
+					return null;
+			}
+			final boolean closed = source instanceof ClosedWritableEllipsoid || source instanceof ClosedWritableSphere || source instanceof ClosedWritableSuperEllipsoid;
+			return new Quadric( affine, inverse, center, semiAxisLengths, closed );
+		}
+		if ( source instanceof Polygon2D && n == 2 )
+			return new TransformedPolygon( ( Polygon2D ) source, inverse );
+		return null;
+	}
+
+	private static int numDimensions( final double[] affine )
+	{
+		// NB: affine.length == n * ( n + 1 )
+		return ( int ) Math.round( ( Math.sqrt( 1 + 4.0 * affine.length ) - 1 ) / 2 );
+	}
+
+	/**
+	 * Row {@code r} of the row packed affine applied to {@code l}.
+	 */
+	private static double apply( final double[] affine, final int n, final int r, final RealLocalizable l )
+	{
+		final int o = r * ( n + 1 );
+		double s = affine[ o + n ];
+		for ( int c = 0; c < n; c++ )
+			s += affine[ o + c ] * l.getDoublePosition( c );
+		return s;
+	}
+
+	/**
+	 * Row {@code r} of the row packed affine applied to {@code x}.
+	 */
+	private static double apply( final double[] affine, final int n, final int r, final double[] x )
+	{
+		final int o = r * ( n + 1 );
+		double s = affine[ o + n ];
+		for ( int c = 0; c < n; c++ )
+			s += affine[ o + c ] * x[ c ];
+		return s;
+	}
+
+	/**
+	 * Inverts a row packed affine by Gauss-Jordan elimination with partial
+	 * pivoting, or returns null if it is singular.
+	 */
+	private static double[] invert( final double[] affine )
+	{
+		final int n = numDimensions( affine );
+		final int w = 2 * n;
+		final double[] a = new double[ n * w ];
+		for ( int r = 0; r < n; r++ )
+		{
+			System.arraycopy( affine, r * ( n + 1 ), a, r * w, n );
+			a[ r * w + n + r ] = 1;
+		}
+		for ( int c = 0; c < n; c++ )
+		{
+			int pivot = c;
+			for ( int r = c + 1; r < n; r++ )
+				if ( Math.abs( a[ r * w + c ] ) > Math.abs( a[ pivot * w + c ] ) )
+					pivot = r;
+			final double p = a[ pivot * w + c ];
+			if ( p == 0 || !Double.isFinite( p ) )
+				return null;
+			if ( pivot != c )
+				for ( int k = 0; k < w; k++ )
+				{
+					final double t = a[ c * w + k ];
+					a[ c * w + k ] = a[ pivot * w + k ];
+					a[ pivot * w + k ] = t;
+				}
+			for ( int k = 0; k < w; k++ )
+				a[ c * w + k ] /= p;
+			for ( int r = 0; r < n; r++ )
+			{
+				final double f = a[ r * w + c ];
+				if ( r == c || f == 0 )
+					continue;
+				for ( int k = 0; k < w; k++ )
+					a[ r * w + k ] -= f * a[ c * w + k ];
+			}
+		}
+		final double[] inverse = new double[ n * ( n + 1 ) ];
+		for ( int r = 0; r < n; r++ )
+		{
+			double t = 0;
+			for ( int c = 0; c < n; c++ )
+			{
+				final double v = a[ r * w + n + c ];
+				inverse[ r * ( n + 1 ) + c ] = v;
+				t -= v * affine[ c * ( n + 1 ) + n ];
+			}
+			inverse[ r * ( n + 1 ) + n ] = t;
+		}
+		return inverse;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Tests the source at the transformed position, without a shared
+	 * {@link RealPoint}, or a closed form of the source if there is one.
+	 */
+	private static final class AffinePredicate implements Predicate< RealLocalizable >
+	{
+		private final Predicate< ? super RealLocalizable > source;
+
+		private final AffineGet transform;
+
+		private final int n;
+
+		private final boolean closedForm;
+
+		private volatile Snapshot snapshot;
+
+		AffinePredicate( final Predicate< ? super RealLocalizable > source, final AffineGet transform, final boolean closedForm )
+		{
+			this.source = source;
+			this.transform = transform;
+			this.closedForm = closedForm;
+			n = transform.numDimensions();
+		}
+
+		@Override
+		public boolean test( final RealLocalizable l )
+		{
+			final Snapshot s = snapshot();
+			if ( closedForm && s.inverse != null )
+			{
+				final long version = ( ( Versioned ) source ).version();
+				CachedShape c = s.cached;
+				if ( c == null || c.version != version )
+				{
+					c = new CachedShape( version, create( source, s.affine, s.inverse ) );
+					s.cached = c;
+				}
+				if ( c.shape != null )
+					return c.shape.test( l );
+			}
+			final double[] p = new double[ n ];
+			for ( int r = 0; r < n; r++ )
+				p[ r ] = apply( s.affine, n, r, l );
+			return source.test( RealPoint.wrap( p ) );
+		}
+
+		/**
+		 * Get the matrix of the transform, recomputing it (and the inverse)
+		 * if the transform was modified.
+		 */
+		private Snapshot snapshot()
+		{
+			Snapshot s = snapshot;
+			if ( s == null || !s.matches( transform ) )
+			{
+				final double[] affine = transform.getRowPackedCopy();
+				s = new Snapshot( affine, closedForm ? invert( affine ) : null );
+				snapshot = s;
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * A copy of the matrix of an affine, with the closed form of the source
+	 * computed for it, keyed by the version of the source.
+	 */
+	private static final class Snapshot
+	{
+		private final double[] affine;
+
+		private final double[] inverse;
+
+		private volatile CachedShape cached;
+
+		private Snapshot( final double[] affine, final double[] inverse )
+		{
+			this.affine = affine;
+			this.inverse = inverse;
+		}
+
+		private boolean matches( final AffineGet transform )
+		{
+			final int n = transform.numDimensions();
+			for ( int r = 0; r < n; r++ )
+				for ( int c = 0; c <= n; c++ )
+					if ( Double.compare( transform.get( r, c ), affine[ r * ( n + 1 ) + c ] ) != 0 )
+						return false;
+			return true;
+		}
+	}
+
+	private static final class CachedShape
+	{
+		private final long version;
+
+		private final Shape shape;
+
+		private CachedShape( final long version, final Shape shape )
+		{
+			this.version = version;
+			this.shape = shape;
+		}
+	}
+
+	private interface Shape
+	{
+		boolean test( RealLocalizable l );
+
+		void bounds( double[] min, double[] max );
+	}
+
+	/**
+	 * Box {@code |A x + b - c| <= h}, with {@code b - c} folded into the
+	 * translation.
+	 */
+	private static final class OrientedBox implements Shape
+	{
+		private final int n;
+
+		private final double[] toBox;
+
+		private final double[] halfLengths;
+
+		private final boolean closed;
+
+		private final double[] center;
+
+		private final double[] extent;
+
+		OrientedBox( final double[] affine, final double[] inverse, final double[] boxCenter, final double[] halfLengths, final boolean closed )
+		{
+			n = halfLengths.length;
+			this.halfLengths = halfLengths;
+			this.closed = closed;
+			toBox = affine.clone();
+			for ( int r = 0; r < n; r++ )
+				toBox[ r * ( n + 1 ) + n ] -= boxCenter[ r ];
+			// NB: x = inverse( c + diag( h ) u ) for u in [-1, 1]^n
+			center = new double[ n ];
+			extent = new double[ n ];
+			for ( int d = 0; d < n; d++ )
+			{
+				center[ d ] = apply( inverse, n, d, boxCenter );
+				for ( int k = 0; k < n; k++ )
+					extent[ d ] += Math.abs( inverse[ d * ( n + 1 ) + k ] ) * halfLengths[ k ];
+			}
+		}
+
+		@Override
+		public boolean test( final RealLocalizable l )
+		{
+			for ( int r = 0; r < n; r++ )
+			{
+				final double u = Math.abs( apply( toBox, n, r, l ) );
+				if ( closed ? u > halfLengths[ r ] : u >= halfLengths[ r ] )
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public void bounds( final double[] min, final double[] max )
+		{
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = center[ d ] - extent[ d ];
+				max[ d ] = center[ d ] + extent[ d ];
+			}
+		}
+	}
+
+	/**
+	 * Ellipsoid {@code |Q x + q|^2 <= 1}, where {@code Q} is the affine with
+	 * row {@code d} scaled by the reciprocal semi-axis length, and the center
+	 * folded into {@code q}.
+	 */
+	private static final class Quadric implements Shape
+	{
+		private final int n;
+
+		private final double[] toUnitSphere;
+
+		private final boolean closed;
+
+		private final double[] center;
+
+		private final double[] extent;
+
+		Quadric( final double[] affine, final double[] inverse, final double[] ellipsoidCenter, final double[] semiAxisLengths, final boolean closed )
+		{
+			n = semiAxisLengths.length;
+			this.closed = closed;
+			toUnitSphere = affine.clone();
+			for ( int r = 0; r < n; r++ )
+			{
+				final int o = r * ( n + 1 );
+				toUnitSphere[ o + n ] -= ellipsoidCenter[ r ];
+				for ( int c = 0; c <= n; c++ )
+					toUnitSphere[ o + c ] /= semiAxisLengths[ r ];
+			}
+			// NB: x = inverse( c + diag( r ) u ) for |u| <= 1
+			center = new double[ n ];
+			extent = new double[ n ];
+			for ( int d = 0; d < n; d++ )
+			{
+				center[ d ] = apply( inverse, n, d, ellipsoidCenter );
+				double sq = 0;
+				for ( int k = 0; k < n; k++ )
+				{
+					final double m = inverse[ d * ( n + 1 ) + k ] * semiAxisLengths[ k ];
+					sq += m * m;
+				}
+				extent[ d ] = Math.sqrt( sq );
+			}
+		}
+
+		@Override
+		public boolean test( final RealLocalizable l )
+		{
+			double sum = 0;
+			for ( int r = 0; r < n; r++ )
+			{
+				final double u = apply( toUnitSphere, n, r, l );
+				sum += u * u;
+			}
+			return closed ? sum <= 1 : sum < 1;
+		}
+
+		@Override
+		public void bounds( final double[] min, final double[] max )
+		{
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = center[ d ] - extent[ d ];
+				max[ d ] = center[ d ] + extent[ d ];
+			}
+		}
+	}
+
+	/**
+	 * Polygon of the same boundary type with its vertices mapped by the
+	 * inverse affine.
+	 */
+	private static final class TransformedPolygon implements Shape
+	{
+		private final Polygon2D polygon;
+
+		TransformedPolygon( final Polygon2D source, final double[] inverse )
+		{
+			final int size = source.numVertices();
+			final double[] x = new double[ size ];
+			final double[] y = new double[ size ];
+			for ( int i = 0; i < size; i++ )
+			{
+				final RealLocalizable v = source.vertex( i );
+				x[ i ] = apply( inverse, 2, 0, v );
+				y[ i ] = apply( inverse, 2, 1, v );
+			}
+			if ( source instanceof ClosedWritablePolygon2D )
+				polygon = new ClosedWritablePolygon2D( x, y );
+			else if ( source instanceof OpenWritablePolygon2D )
+				polygon = new OpenWritablePolygon2D( x, y );
+			else
+				polygon = new DefaultWritablePolygon2D( x, y );
+		}
+
+		@Override
+		public boolean test( final RealLocalizable l )
+		{
+			return polygon.test( l );
+		}
+
+		@Override
+		public void bounds( final double[] min, final double[] max )
+		{
+			polygon.realMin( min );
+			polygon.realMax( max );
+		}
+	}
+}
@@ -33,6 +33,7 @@
  */
 package net.imglib2.roi.geom;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -47,17 +48,23 @@ import net.imglib2.roi.geom.real.ClosedWritableEllipsoid;
 import net.imglib2.roi.geom.real.ClosedWritablePolygon2D;
 import net.imglib2.roi.geom.real.ClosedWritableSphere;
 import net.imglib2.roi.geom.real.ClosedWritableSuperEllipsoid;
+import net.imglib2.roi.geom.real.ClosedWritableTube;
 import net.imglib2.roi.geom.real.DefaultWritableLine;
 import net.imglib2.roi.geom.real.DefaultWritablePointMask;
 import net.imglib2.roi.geom.real.DefaultWritablePolygon2D;
 import net.imglib2.roi.geom.real.DefaultWritablePolyline;
 import net.imglib2.roi.geom.real.DefaultWritableRealPointCollection;
+import net.imglib2.roi.geom.real.GridWritableRealPointCollection;
+import net.imglib2.roi.geom.real.HashWritableRealPointCollection;
 import net.imglib2.roi.geom.real.KDTreeRealPointCollection;
+import net.imglib2.roi.geom.real.Line;
 import net.imglib2.roi.geom.real.OpenWritableBox;
 import net.imglib2.roi.geom.real.OpenWritableEllipsoid;
 import net.imglib2.roi.geom.real.OpenWritablePolygon2D;
 import net.imglib2.roi.geom.real.OpenWritableSphere;
 import net.imglib2.roi.geom.real.OpenWritableSuperEllipsoid;
+import net.imglib2.roi.geom.real.OpenWritableTube;
+import net.imglib2.roi.geom.real.Polyline;
 import net.imglib2.roi.geom.real.RealPointCollection;
 import net.imglib2.roi.geom.real.RealPointSampleListWritableRealPointCollection;
 import net.imglib2.roi.geom.real.WritableBox;
@@ -69,6 +76,7 @@ import net.imglib2.roi.geom.real.WritablePolyline;
 import net.imglib2.roi.geom.real.WritableRealPointCollection;
 import net.imglib2.roi.geom.real.WritableSphere;
 import net.imglib2.roi.geom.real.WritableSuperEllipsoid;
+import net.imglib2.roi.geom.real.WritableTube;
 
 import gnu.trove.list.array.TDoubleArrayList;
 
@@ -241,6 +249,26 @@ public class GeomMasks
 		return new DefaultWritableRealPointCollection<>( points );
 	}
 
+	/**
+	 * Creates a hash-based {@link WritableRealPointCollection} from a
+	 * collection of points, with constant time containment tests, insertion
+	 * and removal.
+	 */
+	public static < L extends RealLocalizable > WritableRealPointCollection< L > hashRealPointCollection( final Collection< L > points )
+	{
+		return new HashWritableRealPointCollection<>( points );
+	}
+
+	/**
+	 * Creates a grid-indexed {@link GridWritableRealPointCollection} from a
+	 * collection of points, which supports insertion, removal and nearest
+	 * neighbor, radius and interval queries.
+	 */
+	public static < L extends RealLocalizable > GridWritableRealPointCollection< L > gridRealPointCollection( final Collection< L > points, final double cellSize )
+	{
+		return new GridWritableRealPointCollection<>( points, cellSize );
+	}
+
 	/** Creates a {@link RealPointCollection} from a {@link KDTree}. */
 	public static < L extends RealLocalizable > RealPointCollection< L > kDTreeRealPointCollection( final KDTree< L > tree )
 	{
@@ -317,4 +345,106 @@ public class GeomMasks
 			return new OpenWritableEllipsoid( center, semiAxisLengths );
 		return new OpenWritableSuperEllipsoid( center, semiAxisLengths, exponent );
 	}
+
+	// -- Tube --
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#CLOSED closed}
+	 * {@link MaskPredicate#boundaryType() boundaries} and a radius for each
+	 * vertex.
+	 */
+	public static WritableTube closedTube( final List< ? extends RealLocalizable > vertices, final double[] radii )
+	{
+		return new ClosedWritableTube( vertices, radii );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#CLOSED closed}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius.
+	 */
+	public static WritableTube closedTube( final List< ? extends RealLocalizable > vertices, final double radius )
+	{
+		return new ClosedWritableTube( vertices, radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#OPEN open}
+	 * {@link MaskPredicate#boundaryType() boundaries} and a radius for each
+	 * vertex.
+	 */
+	public static WritableTube openTube( final List< ? extends RealLocalizable > vertices, final double[] radii )
+	{
+		return new OpenWritableTube( vertices, radii );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#OPEN open}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius.
+	 */
+	public static WritableTube openTube( final List< ? extends RealLocalizable > vertices, final double radius )
+	{
+		return new OpenWritableTube( vertices, radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#CLOSED closed}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius
+	 * around a copy of the vertices of {@code polyline}.
+	 */
+	public static WritableTube closedTube( final Polyline polyline, final double radius )
+	{
+		return new ClosedWritableTube( polyline.vertices(), radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#OPEN open}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius
+	 * around a copy of the vertices of {@code polyline}.
+	 */
+	public static WritableTube openTube( final Polyline polyline, final double radius )
+	{
+		return new OpenWritableTube( polyline.vertices(), radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#CLOSED closed}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius
+	 * around the segment from {@code start} to {@code end}, e.g. the
+	 * endpoints of a {@link Line} or of an
+	 * {@link net.imglib2.roi.geom.integer.IterableLine}.
+	 */
+	public static WritableTube closedTube( final RealLocalizable start, final RealLocalizable end, final double radius )
+	{
+		return new ClosedWritableTube( Arrays.asList( start, end ), radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#OPEN open}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius
+	 * around the segment from {@code start} to {@code end}.
+	 */
+	public static WritableTube openTube( final RealLocalizable start, final RealLocalizable end, final double radius )
+	{
+		return new OpenWritableTube( Arrays.asList( start, end ), radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#CLOSED closed}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius
+	 * around the segment between the endpoints of {@code line}.
+	 */
+	public static WritableTube closedTube( final Line line, final double radius )
+	{
+		return closedTube( line.endpointOne(), line.endpointTwo(), radius );
+	}
+
+	/**
+	 * Creates a {@link WritableTube} with {@link BoundaryType#OPEN open}
+	 * {@link MaskPredicate#boundaryType() boundaries} and constant radius
+	 * around the segment between the endpoints of {@code line}.
+	 */
+	public static WritableTube openTube( final Line line, final double radius )
+	{
+		return openTube( line.endpointOne(), line.endpointTwo(), radius );
+	}
 }
@@ -102,6 +102,36 @@ public class GeomMaths
 		return squaredDistance <= 1e-15;
 	}
 
+	/**
+	 * Computes the squared distance between a point and a line segment.
+	 *
+	 * @param endpointOne
+	 *            Line segment endpoint
+	 * @param endpointTwo
+	 *            Line segment endpoint
+	 * @param testPoint
+	 *            Point to compute the distance for
+	 */
+	public static double squaredDistanceToSegment( final double[] endpointOne, final double[] endpointTwo, final RealLocalizable testPoint, final int dims )
+	{
+		double dot = 0;
+		double lengthSquared = 0;
+		for ( int d = 0; d < dims; d++ )
+		{
+			final double v = endpointTwo[ d ] - endpointOne[ d ];
+			dot += ( testPoint.getDoublePosition( d ) - endpointOne[ d ] ) * v;
+			lengthSquared += v * v;
+		}
+		final double t = lengthSquared > 0 ? Math.max( 0, Math.min( 1, dot / lengthSquared ) ) : 0;
+		double squaredDistance = 0;
+		for ( int d = 0; d < dims; d++ )
+		{
+			final double diff = testPoint.getDoublePosition( d ) - ( endpointOne[ d ] + t * ( endpointTwo[ d ] - endpointOne[ d ] ) );
+			squaredDistance += diff * diff;
+		}
+		return squaredDistance;
+	}
+
 	/**
 	 * Return true if the given point is contained inside the boundary. See:
 	 * https://wrf.ecse.rpi.edu/Research/Short_Notes/pnpoly.html
@@ -254,8 +284,8 @@ public class GeomMaths
 	}
 
 	// TODO: bresenham(vertices) assumes closed loop of vertices (first vertex
-	// is repeated after last vertex). It would be useful to have a version that
-	// doesn't assume that, and a version that just takes 2 points.
+	// is repeated after last vertex). For open polylines (and single segments),
+	// IterablePolyline iterates the pixels without materializing them.
 	public static List< Localizable > bresenham( final List< ? extends RealLocalizable > vertices )
 	{
 
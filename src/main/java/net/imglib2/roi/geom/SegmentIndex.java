@@ -0,0 +1,504 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.RealLocalizable;
+
+/**
+ * Bounding volume hierarchy over the segments of a polyline, for fast
+ * containment and distance queries.
+ * <p>
+ * The start point and (unnormalized) direction of each segment are computed
+ * once when the index is created. The segments are then recursively split at
+ * the median of their centers along the axis of largest extent, and each node
+ * of the tree stores the bounding box of its segments. Queries only descend
+ * into nodes whose bounding box is close enough to the query point, so they
+ * take {@code O(log S)} time for {@code S} segments in typical (not
+ * pathologically overlapping) polylines.
+ * <p>
+ * Optionally, a radius can be given for every vertex. The index then also
+ * describes a tube around the polyline, see {@link #isInside}. Node bounding
+ * boxes are enlarged by the radii, which keeps them valid lower bounds for the
+ * distance queries.
+ * <p>
+ * The index is immutable and can be queried concurrently. It does not track
+ * changes of the vertices it was built from, a new index must be created
+ * after the vertices change.
+ */
+public class SegmentIndex
+{
+	private static final int LEAF_SIZE = 4;
+
+	private final int n;
+
+	private final int numSegments;
+
+	/** Start point of each segment, {@code n} values per segment. */
+	private final double[] start;
+
+	/** End minus start point of each segment, {@code n} values per segment. */
+	private final double[] direction;
+
+	/** {@code 1 / |direction|^2}, or 0 for degenerate segments. */
+	private final double[] invLengthSquared;
+
+	/** Radius at each vertex, or {@code null} for a plain polyline. */
+	private final double[] radii;
+
+	/** Segment indices, ordered such that each node covers a contiguous range. */
+	private final int[] order;
+
+	private final double[] nodeMin;
+
+	private final double[] nodeMax;
+
+	/** First entry of {@link #order} covered by each node. */
+	private final int[] nodeStart;
+
+	/** End (exclusive) of the entries of {@link #order} covered by each node. */
+	private final int[] nodeEnd;
+
+	/** Children of each node, or -1 for leaves. */
+	private final int[] nodeLeft;
+
+	private final int[] nodeRight;
+
+	private int numNodes;
+
+	private final int maxDepth;
+
+	/**
+	 * Creates an index over the segments {@code vertices[i-1]} to
+	 * {@code vertices[i]}.
+	 *
+	 * @param vertices
+	 *            polyline vertices, each with at least {@code n} coordinates
+	 * @param n
+	 *            number of dimensions
+	 */
+	public SegmentIndex( final List< double[] > vertices, final int n )
+	{
+		this( vertices, null, n );
+	}
+
+	/**
+	 * Creates an index over the segments {@code vertices[i-1]} to
+	 * {@code vertices[i]} of a tube with radius {@code radii[i]} at vertex
+	 * {@code i}.
+	 *
+	 * @param vertices
+	 *            polyline vertices, each with at least {@code n} coordinates
+	 * @param radii
+	 *            radius at each vertex, or {@code null} for a plain polyline
+	 * @param n
+	 *            number of dimensions
+	 */
+	public SegmentIndex( final List< double[] > vertices, final double[] radii, final int n )
+	{
+		if ( radii != null && radii.length != vertices.size() )
+			throw new IllegalArgumentException( "Expected " + vertices.size() + " radii, got " + radii.length );
+		this.n = n;
+		this.radii = radii == null ? null : radii.clone();
+		numSegments = Math.max( vertices.size() - 1, 0 );
+		start = new double[ numSegments * n ];
+		direction = new double[ numSegments * n ];
+		invLengthSquared = new double[ numSegments ];
+		final double[] centers = new double[ numSegments * n ];
+		for ( int s = 0; s < numSegments; ++s )
+		{
+			final double[] a = vertices.get( s );
+			final double[] b = vertices.get( s + 1 );
+			double lengthSquared = 0;
+			for ( int d = 0; d < n; ++d )
+			{
+				start[ s * n + d ] = a[ d ];
+				final double v = b[ d ] - a[ d ];
+				direction[ s * n + d ] = v;
+				lengthSquared += v * v;
+				centers[ s * n + d ] = 0.5 * ( a[ d ] + b[ d ] );
+			}
+			invLengthSquared[ s ] = lengthSquared > 0 ? 1 / lengthSquared : 0;
+		}
+
+		order = new int[ numSegments ];
+		for ( int s = 0; s < numSegments; ++s )
+			order[ s ] = s;
+		final int capacity = Math.max( 1, 2 * numSegments );
+		nodeMin = new double[ capacity * n ];
+		nodeMax = new double[ capacity * n ];
+		nodeStart = new int[ capacity ];
+		nodeEnd = new int[ capacity ];
+		nodeLeft = new int[ capacity ];
+		nodeRight = new int[ capacity ];
+		numNodes = 0;
+		maxDepth = numSegments == 0 ? 0 : build( 0, numSegments, centers, 0 );
+	}
+
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	public int numSegments()
+	{
+		return numSegments;
+	}
+
+	/**
+	 * Squared distance from {@code point} to segment {@code segment}.
+	 */
+	public double squaredDistance( final int segment, final RealLocalizable point )
+	{
+		return squaredDistance( segment, position( point ) );
+	}
+
+	/**
+	 * Squared distance from {@code point} to the closest segment, or
+	 * {@link Double#POSITIVE_INFINITY} if there are no segments.
+	 */
+	public double squaredDistance( final RealLocalizable point )
+	{
+		final int s = nearestSegment( point );
+		return s < 0 ? Double.POSITIVE_INFINITY : squaredDistance( s, point );
+	}
+
+	/**
+	 * Distance from {@code point} to the closest segment, or
+	 * {@link Double#POSITIVE_INFINITY} if there are no segments.
+	 */
+	public double distance( final RealLocalizable point )
+	{
+		return Math.sqrt( squaredDistance( point ) );
+	}
+
+	/**
+	 * Index of the segment closest to {@code point}, or -1 if there are no
+	 * segments. Segment {@code i} connects vertices {@code i} and
+	 * {@code i + 1}.
+	 */
+	public int nearestSegment( final RealLocalizable point )
+	{
+		if ( numSegments == 0 )
+			return -1;
+		final double[] p = position( point );
+		final int[] stack = new int[ maxDepth + 2 ];
+		int top = 0;
+		stack[ top++ ] = 0;
+		double best = Double.POSITIVE_INFINITY;
+		int bestSegment = -1;
+		while ( top > 0 )
+		{
+			final int node = stack[ --top ];
+			if ( boxSquaredDistance( node, p ) >= best )
+				continue;
+			if ( nodeLeft[ node ] < 0 )
+			{
+				for ( int i = nodeStart[ node ]; i < nodeEnd[ node ]; ++i )
+				{
+					final int s = order[ i ];
+					final double dist = squaredDistance( s, p );
+					if ( dist < best || ( dist == best && s < bestSegment ) )
+					{
+						best = dist;
+						bestSegment = s;
+					}
+				}
+			}
+			else
+			{
+				// push the farther child first, so that the nearer one is
+				// visited first and tightens the bound
+				final int left = nodeLeft[ node ];
+				final int right = nodeRight[ node ];
+				if ( boxSquaredDistance( left, p ) <= boxSquaredDistance( right, p ) )
+				{
+					stack[ top++ ] = right;
+					stack[ top++ ] = left;
+				}
+				else
+				{
+					stack[ top++ ] = left;
+					stack[ top++ ] = right;
+				}
+			}
+		}
+		return bestSegment;
+	}
+
+	/**
+	 * Returns {@code true} if {@code point} is within squared distance
+	 * {@code squaredDistance} (inclusive) of any segment.
+	 */
+	public boolean isWithinSquared( final RealLocalizable point, final double squaredDistance )
+	{
+		if ( numSegments == 0 )
+			return false;
+		final double[] p = position( point );
+		final int[] stack = new int[ maxDepth + 2 ];
+		int top = 0;
+		stack[ top++ ] = 0;
+		while ( top > 0 )
+		{
+			final int node = stack[ --top ];
+			if ( boxSquaredDistance( node, p ) > squaredDistance )
+				continue;
+			if ( nodeLeft[ node ] < 0 )
+			{
+				for ( int i = nodeStart[ node ]; i < nodeEnd[ node ]; ++i )
+					if ( squaredDistance( order[ i ], p ) <= squaredDistance )
+						return true;
+			}
+			else
+			{
+				stack[ top++ ] = nodeRight[ node ];
+				stack[ top++ ] = nodeLeft[ node ];
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns {@code true} if {@code point} is within {@code distance}
+	 * (inclusive) of any segment.
+	 */
+	public boolean isWithin( final RealLocalizable point, final double distance )
+	{
+		return isWithinSquared( point, distance * distance );
+	}
+
+	/**
+	 * Returns {@code true} if {@code point} is inside the tube described by
+	 * the vertex radii, i.e. {@link #segmentContains inside} any of its
+	 * segments.
+	 *
+	 * @param closed
+	 *            whether points on the surface of the tube are inside
+	 */
+	public boolean isInside( final RealLocalizable point, final boolean closed )
+	{
+		if ( numSegments == 0 )
+			return false;
+		final double[] p = position( point );
+		final int[] stack = new int[ maxDepth + 2 ];
+		int top = 0;
+		stack[ top++ ] = 0;
+		while ( top > 0 )
+		{
+			final int node = stack[ --top ];
+			if ( boxSquaredDistance( node, p ) > 0 )
+				continue;
+			if ( nodeLeft[ node ] < 0 )
+			{
+				for ( int i = nodeStart[ node ]; i < nodeEnd[ node ]; ++i )
+					if ( segmentContains( order[ i ], p, closed ) )
+						return true;
+			}
+			else
+			{
+				stack[ top++ ] = nodeRight[ node ];
+				stack[ top++ ] = nodeLeft[ node ];
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns {@code true} if {@code p} is inside the tube segment
+	 * {@code segment}. This is the union of the spheres around both vertices
+	 * and the points whose projection {@code t} onto the segment lies within
+	 * the segment and whose distance from the segment is at most the radius
+	 * linearly interpolated at {@code t}. For equal radii this is exactly a
+	 * capsule; for different radii it approximates the convex hull of the two
+	 * spheres.
+	 *
+	 * @param closed
+	 *            whether points on the surface are inside
+	 */
+	public boolean segmentContains( final int segment, final double[] p, final boolean closed )
+	{
+		final int o = segment * n;
+		final double ra = radii == null ? 0 : radii[ segment ];
+		final double rb = radii == null ? 0 : radii[ segment + 1 ];
+		double dot = 0;
+		double distA = 0;
+		double distB = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double w = p[ d ] - start[ o + d ];
+			final double wb = w - direction[ o + d ];
+			dot += w * direction[ o + d ];
+			distA += w * w;
+			distB += wb * wb;
+		}
+		if ( closed ? distA <= ra * ra : distA < ra * ra )
+			return true;
+		if ( closed ? distB <= rb * rb : distB < rb * rb )
+			return true;
+		final double t = dot * invLengthSquared[ segment ];
+		if ( invLengthSquared[ segment ] == 0 || t < 0 || t > 1 )
+			return false;
+		double dist = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double diff = p[ d ] - ( start[ o + d ] + t * direction[ o + d ] );
+			dist += diff * diff;
+		}
+		final double r = ra + t * ( rb - ra );
+		return closed ? dist <= r * r : dist < r * r;
+	}
+
+	// -- Helper methods --
+
+	private double[] position( final RealLocalizable point )
+	{
+		final double[] p = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+			p[ d ] = point.getDoublePosition( d );
+		return p;
+	}
+
+	private double squaredDistance( final int s, final double[] p )
+	{
+		final int o = s * n;
+		double dot = 0;
+		for ( int d = 0; d < n; ++d )
+			dot += ( p[ d ] - start[ o + d ] ) * direction[ o + d ];
+		final double t = Math.max( 0, Math.min( 1, dot * invLengthSquared[ s ] ) );
+		double sum = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double diff = p[ d ] - ( start[ o + d ] + t * direction[ o + d ] );
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	private double boxSquaredDistance( final int node, final double[] p )
+	{
+		final int o = node * n;
+		double sum = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double diff = Math.max( 0, Math.max( nodeMin[ o + d ] - p[ d ], p[ d ] - nodeMax[ o + d ] ) );
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Create the node for segments {@code order[from]} to
+	 * {@code order[to - 1]} and its subtree.
+	 *
+	 * @return depth of the subtree
+	 */
+	private int build( final int from, final int to, final double[] centers, final int depth )
+	{
+		final int node = numNodes++;
+		nodeStart[ node ] = from;
+		nodeEnd[ node ] = to;
+		final int o = node * n;
+		Arrays.fill( nodeMin, o, o + n, Double.POSITIVE_INFINITY );
+		Arrays.fill( nodeMax, o, o + n, Double.NEGATIVE_INFINITY );
+		for ( int i = from; i < to; ++i )
+		{
+			final int s = order[ i ];
+			final double r = radii == null ? 0 : Math.max( radii[ s ], radii[ s + 1 ] );
+			for ( int d = 0; d < n; ++d )
+			{
+				final double a = start[ s * n + d ];
+				final double b = a + direction[ s * n + d ];
+				nodeMin[ o + d ] = Math.min( nodeMin[ o + d ], Math.min( a, b ) - r );
+				nodeMax[ o + d ] = Math.max( nodeMax[ o + d ], Math.max( a, b ) + r );
+			}
+		}
+		if ( to - from <= LEAF_SIZE )
+		{
+			nodeLeft[ node ] = -1;
+			nodeRight[ node ] = -1;
+			return depth;
+		}
+
+		int axis = 0;
+		for ( int d = 1; d < n; ++d )
+			if ( nodeMax[ o + d ] - nodeMin[ o + d ] > nodeMax[ o + axis ] - nodeMin[ o + axis ] )
+				axis = d;
+		final int mid = ( from + to ) >>> 1;
+		select( from, to - 1, mid, centers, axis );
+
+		final int leftDepth = build( from, mid, centers, depth + 1 );
+		nodeLeft[ node ] = node + 1;
+		nodeRight[ node ] = numNodes;
+		final int rightDepth = build( mid, to, centers, depth + 1 );
+		return Math.max( leftDepth, rightDepth );
+	}
+
+	/**
+	 * Partially sort {@code order[lo..hi]} (inclusive) such that
+	 * {@code order[k]} is the segment with the k-th smallest center along
+	 * {@code axis}, with smaller centers before and larger after it.
+	 */
+	private void select( int lo, int hi, final int k, final double[] centers, final int axis )
+	{
+		while ( hi > lo )
+		{
+			final double pivot = centers[ order[ ( lo + hi ) >>> 1 ] * n + axis ];
+			int i = lo;
+			int j = hi;
+			while ( i <= j )
+			{
+				while ( centers[ order[ i ] * n + axis ] < pivot )
+					++i;
+				while ( centers[ order[ j ] * n + axis ] > pivot )
+					--j;
+				if ( i <= j )
+				{
+					final int tmp = order[ i ];
+					order[ i ] = order[ j ];
+					order[ j ] = tmp;
+					++i;
+					--j;
+				}
+			}
+			if ( k <= j )
+				hi = j;
+			else if ( k >= i )
+				lo = i;
+			else
+				return;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom;
+
+import java.util.Arrays;
+
+/**
+ * Slab decomposition of a 2D polygon for fast point-in-polygon tests.
+ * <p>
+ * The distinct vertex y coordinates split the plane into horizontal slabs.
+ * For each slab the index stores the edges spanning it, which are exactly the
+ * edges that a horizontal ray from any point in the slab can cross. A test
+ * finds the slab by binary search and then only checks those edges, with the
+ * same crossing rule as {@link GeomMaths#pnpoly}, so results are identical to
+ * {@code pnpoly}. A test costs {@code O(log n + k)} for {@code k} edges in
+ * the slab. Self-intersecting polygons are handled like by {@code pnpoly}.
+ * <p>
+ * The slab lists can grow quadratically with the number of vertices for
+ * pathological polygons (e.g. many long spikes). If they would exceed
+ * {@code 16} entries per vertex the index falls back to checking all edges.
+ * <p>
+ * The index is immutable and can be queried concurrently. It copies the
+ * vertices, a new index must be created after the polygon changes.
+ */
+public class SlabIndex
+{
+	private static final int MAX_ENTRIES_PER_VERTEX = 16;
+
+	private final double[] x;
+
+	private final double[] y;
+
+	/** Sorted distinct vertex y coordinates (slab boundaries). */
+	private final double[] ys;
+
+	/**
+	 * Edges spanning slab {@code s} are
+	 * {@code slabEdges[slabStart[s]]} to {@code slabEdges[slabStart[s+1]-1]},
+	 * or {@code null} if the index fell back to checking all edges.
+	 */
+	private final int[] slabStart;
+
+	private final int[] slabEdges;
+
+	/**
+	 * Creates an index for the polygon with the given vertices. Edge
+	 * {@code i} connects vertex {@code i - 1} (or the last vertex, for
+	 * {@code i = 0}) with vertex {@code i}.
+	 */
+	public SlabIndex( final double[] x, final double[] y )
+	{
+		if ( x.length != y.length )
+			throw new IllegalArgumentException( "x and y must have the same length" );
+		this.x = x.clone();
+		this.y = y.clone();
+		final int n = x.length;
+
+		final double[] sorted = this.y.clone();
+		Arrays.sort( sorted );
+		int m = 0;
+		for ( int i = 0; i < n; i++ )
+			if ( m == 0 || sorted[ i ] != sorted[ m - 1 ] )
+				sorted[ m++ ] = sorted[ i ];
+		ys = Arrays.copyOf( sorted, m );
+
+		// count the slabs spanned by each edge
+		final int[] first = new int[ n ];
+		final int[] last = new int[ n ];
+		long total = 0;
+		for ( int i = 0; i < n; i++ )
+		{
+			final int j = i == 0 ? n - 1 : i - 1;
+			first[ i ] = Arrays.binarySearch( ys, Math.min( this.y[ i ], this.y[ j ] ) );
+			last[ i ] = Arrays.binarySearch( ys, Math.max( this.y[ i ], this.y[ j ] ) );
+			total += last[ i ] - first[ i ];
+		}
+
+		if ( total > ( long ) MAX_ENTRIES_PER_VERTEX * n + 1024 )
+		{
+			slabStart = null;
+			slabEdges = null;
+			return;
+		}
+
+		slabStart = new int[ m + 1 ];
+		for ( int i = 0; i < n; i++ )
+			for ( int s = first[ i ]; s < last[ i ]; s++ )
+				++slabStart[ s + 1 ];
+		for ( int s = 0; s < m; s++ )
+			slabStart[ s + 1 ] += slabStart[ s ];
+		slabEdges = new int[ ( int ) total ];
+		final int[] fill = Arrays.copyOf( slabStart, m );
+		for ( int i = 0; i < n; i++ )
+			for ( int s = first[ i ]; s < last[ i ]; s++ )
+				slabEdges[ fill[ s ]++ ] = i;
+	}
+
+	/**
+	 * Returns {@code true} if {@code (xl, yl)} is inside the polygon,
+	 * following {@link GeomMaths#pnpoly}.
+	 */
+	public boolean contains( final double xl, final double yl )
+	{
+		final int n = x.length;
+		if ( slabEdges == null )
+		{
+			boolean result = false;
+			for ( int i = 0; i < n; i++ )
+				if ( crosses( i, xl, yl ) )
+					result = !result;
+			return result;
+		}
+
+		if ( ys.length < 2 || !( yl >= ys[ 0 ] && yl < ys[ ys.length - 1 ] ) )
+			return false;
+		// find the last slab with ys[ s ] <= yl
+		int lo = 0;
+		int hi = ys.length - 2;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi + 1 ) >>> 1;
+			if ( ys[ mid ] <= yl )
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		boolean result = false;
+		for ( int e = slabStart[ lo ]; e < slabStart[ lo + 1 ]; e++ )
+			if ( crosses( slabEdges[ e ], xl, yl ) )
+				result = !result;
+		return result;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * The crossing test of {@link GeomMaths#pnpoly} for edge {@code i}.
+	 */
+	private boolean crosses( final int i, final double xl, final double yl )
+	{
+		final int j = i == 0 ? x.length - 1 : i - 1;
+		final double xi = x[ i ];
+		final double yi = y[ i ];
+		final double xj = x[ j ];
+		final double yj = y[ j ];
+		return ( yi > yl ) != ( yj > yl ) && ( xl < ( xj - xi ) * ( yl - yi ) / ( yj - yi ) + xi );
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.integer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.Localizable;
+
+/**
+ * An immutable polyline sampled on integer positions, in n dimensions.
+ * <p>
+ * The cursors iterate the pixels of each segment like {@link IterableLine}:
+ * a segment with largest coordinate difference {@code k} is sampled at
+ * {@code k + 1} equally spaced points, rounded to the nearest integer
+ * position. The last pixel of a segment is the first pixel of the next
+ * segment and is visited only once, so the {@link #size()} is one plus the
+ * sum of the segment lengths (in pixels), and segments of length zero
+ * (repeated vertices) add nothing.
+ * <p>
+ * Positions are computed on the fly from the vertices, so cursors need no
+ * memory beyond their position, and {@link Cursor#jumpFwd(long)} locates the
+ * target segment by binary search instead of stepping through the pixels.
+ */
+public class IterablePolyline extends AbstractInterval implements IterableInterval< Void >
+{
+	private final int numVertices;
+
+	/** Vertex coordinates, {@code n} per vertex. */
+	private final long[] vertices;
+
+	/** Number of steps of each segment (largest coordinate difference). */
+	private final long[] steps;
+
+	/**
+	 * {@code offsets[ s ]} is the iteration index of the first pixel of
+	 * segment {@code s} (which is the last pixel of segment {@code s - 1}).
+	 * {@code offsets[ numSegments ]} is the index of the last pixel.
+	 */
+	private final long[] offsets;
+
+	/**
+	 * Creates a polyline through the given vertices.
+	 *
+	 * @param vertices
+	 *            the vertices, in order. There must be at least one vertex.
+	 */
+	public IterablePolyline( final List< ? extends Localizable > vertices )
+	{
+		super( vertices.get( 0 ).numDimensions() );
+		numVertices = vertices.size();
+		this.vertices = new long[ numVertices * n ];
+		for ( int i = 0; i < numVertices; i++ )
+			for ( int d = 0; d < n; d++ )
+				this.vertices[ i * n + d ] = vertices.get( i ).getLongPosition( d );
+
+		final int numSegments = numVertices - 1;
+		steps = new long[ numSegments ];
+		offsets = new long[ numSegments + 1 ];
+		for ( int s = 0; s < numSegments; s++ )
+		{
+			long maxDiff = 0;
+			for ( int d = 0; d < n; d++ )
+				maxDiff = Math.max( maxDiff, Math.abs( this.vertices[ ( s + 1 ) * n + d ] - this.vertices[ s * n + d ] ) );
+			steps[ s ] = maxDiff;
+			offsets[ s + 1 ] = offsets[ s ] + maxDiff;
+		}
+
+		Arrays.fill( min, Long.MAX_VALUE );
+		Arrays.fill( max, Long.MIN_VALUE );
+		for ( int i = 0; i < numVertices; i++ )
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = Math.min( min[ d ], this.vertices[ i * n + d ] );
+				max[ d ] = Math.max( max[ d ], this.vertices[ i * n + d ] );
+			}
+	}
+
+	public int numVertices()
+	{
+		return numVertices;
+	}
+
+	@Override
+	public long size()
+	{
+		return offsets[ offsets.length - 1 ] + 1;
+	}
+
+	@Override
+	public Void firstElement()
+	{
+		return null;
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return this;
+	}
+
+	@Override
+	public Iterator< Void > iterator()
+	{
+		return cursor();
+	}
+
+	@Override
+	public PolylineCursor cursor()
+	{
+		return new PolylineCursor();
+	}
+
+	@Override
+	public PolylineCursor localizingCursor()
+	{
+		return cursor();
+	}
+
+	@Override
+	public boolean equals( final Object o )
+	{
+		if ( o == this )
+			return true;
+		if ( !( o instanceof IterablePolyline ) )
+			return false;
+		return n == ( ( IterablePolyline ) o ).n && Arrays.equals( vertices, ( ( IterablePolyline ) o ).vertices );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * n + Arrays.hashCode( vertices );
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Cursor over an {@link IterablePolyline}.
+	 */
+	public final class PolylineCursor extends AbstractLocalizable implements Cursor< Void >
+	{
+		/** Iteration index of the current pixel. */
+		private long index;
+
+		/** Current segment. */
+		private int segment;
+
+		/** Current step within {@link #segment}. */
+		private long step;
+
+		private PolylineCursor()
+		{
+			super( IterablePolyline.this.n );
+			reset();
+		}
+
+		private PolylineCursor( final PolylineCursor c )
+		{
+			super( c.position.clone() );
+			index = c.index;
+			segment = c.segment;
+			step = c.step;
+		}
+
+		/**
+		 * @return the iteration index of the current pixel.
+		 */
+		public long index()
+		{
+			return index;
+		}
+
+		@Override
+		public Void get()
+		{
+			return null;
+		}
+
+		@Override
+		public void fwd()
+		{
+			++index;
+			if ( index == 0 )
+				setSegmentStep( 0, 0 );
+			else if ( step < steps[ segment ] )
+			{
+				++step;
+				updatePosition();
+			}
+			else
+			{
+				// skip segments of length zero
+				int s = segment + 1;
+				while ( steps[ s ] == 0 )
+					++s;
+				setSegmentStep( s, 1 );
+			}
+		}
+
+		@Override
+		public void jumpFwd( final long numSteps )
+		{
+			final long target = index + numSteps;
+			if ( index >= 0 && segment < steps.length && target > offsets[ segment ] && target <= offsets[ segment + 1 ] )
+			{
+				index = target;
+				step = target - offsets[ segment ];
+				updatePosition();
+			}
+			else
+				locate( target );
+		}
+
+		@Override
+		public void reset()
+		{
+			index = -1;
+			segment = 0;
+			step = -1;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < size() - 1;
+		}
+
+		@Override
+		public Void next()
+		{
+			fwd();
+			return null;
+		}
+
+		@Override
+		public PolylineCursor copy()
+		{
+			return new PolylineCursor( this );
+		}
+
+		@Override
+		public PolylineCursor copyCursor()
+		{
+			return copy();
+		}
+
+		/**
+		 * Move to the pixel with the given iteration index.
+		 */
+		private void locate( final long target )
+		{
+			index = target;
+			if ( target <= 0 )
+			{
+				if ( target == 0 )
+					setSegmentStep( 0, 0 );
+				return;
+			}
+			// find the last segment with offsets[ s ] < target
+			int lo = 0;
+			int hi = steps.length - 1;
+			while ( lo < hi )
+			{
+				final int mid = ( lo + hi + 1 ) >>> 1;
+				if ( offsets[ mid ] < target )
+					lo = mid;
+				else
+					hi = mid - 1;
+			}
+			setSegmentStep( lo, target - offsets[ lo ] );
+		}
+
+		private void setSegmentStep( final int s, final long j )
+		{
+			segment = s;
+			step = j;
+			updatePosition();
+		}
+
+		/**
+		 * Set the position to {@code a + round(step * (b - a) / steps)} for
+		 * the current segment from vertex {@code a} to {@code b}, using exact
+		 * integer arithmetic.
+		 */
+		private void updatePosition()
+		{
+			final int o = segment * n;
+			final long k = steps.length == 0 ? 0 : steps[ segment ];
+			if ( k == 0 )
+			{
+				System.arraycopy( vertices, o, position, 0, n );
+				return;
+			}
+			for ( int d = 0; d < n; d++ )
+			{
+				final long diff = vertices[ o + n + d ] - vertices[ o + d ];
+				position[ d ] = vertices[ o + d ] + Math.floorDiv( 2 * step * diff + k, 2 * k );
+			}
+		}
+	}
+}
@@ -34,18 +34,27 @@
 
 package net.imglib2.roi.geom.real;
 
+import java.util.BitSet;
+
 import net.imglib2.AbstractRealInterval;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
 import net.imglib2.roi.RealMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
 
 /**
  * Abstract base class for implementations of {@link WritableBox}.
  *
  * @author Alison Walter
  */
-public abstract class AbstractWritableBox extends AbstractRealInterval implements WritableBox
+public abstract class AbstractWritableBox extends AbstractRealInterval implements WritableBox, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	/**
 	 * Creates an n-d rectangular {@link RealMask}. The dimensionality is
 	 * dictated by the length of the min array.
@@ -89,6 +98,55 @@ public abstract class AbstractWritableBox extends AbstractRealInterval implement
 		final double center = ( max[ d ] + min[ d ] ) / 2.0;
 		max[ d ] = center + length / 2.0;
 		min[ d ] = center - length / 2.0;
+		modifications.increment();
+	}
+
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		final BoundaryType boundaryType = boundaryType();
+		if ( boundaryType != BoundaryType.CLOSED && boundaryType != BoundaryType.OPEN )
+		{
+			WritableBox.super.testBatch( positions, candidates, result );
+			return;
+		}
+		final boolean closed = boundaryType == BoundaryType.CLOSED;
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			final int o = i * n;
+			boolean isInside = true;
+			for ( int d = 0; d < n && isInside; d++ )
+			{
+				final double x = positions[ o + d ];
+				isInside = closed ? x >= min[ d ] && x <= max[ d ] : x > min[ d ] && x < max[ d ];
+			}
+			result.set( i, isInside );
+		}
+		result.and( candidates );
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	@Override
@@ -121,6 +179,7 @@ public abstract class AbstractWritableBox extends AbstractRealInterval implement
 				max[ d ] = position[ d ] + halfSideLength;
 				min[ d ] = position[ d ] - halfSideLength;
 			}
+			modifications.increment();
 		}
 	}
 }
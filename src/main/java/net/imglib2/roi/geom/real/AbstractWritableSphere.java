@@ -33,18 +33,27 @@
  */
 package net.imglib2.roi.geom.real;
 
+import java.util.BitSet;
+
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
 
 /**
  * Abstract base class for {@link WritableSphere} implementations.
  *
  * @author Alison Walter
  */
-public abstract class AbstractWritableSphere extends AbstractEuclideanSpace implements WritableSphere
+public abstract class AbstractWritableSphere extends AbstractEuclideanSpace implements WritableSphere, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	protected final double[] center;
 
 	protected double radius;
@@ -124,6 +133,56 @@ public abstract class AbstractWritableSphere extends AbstractEuclideanSpace impl
 		if ( radius <= 0 )
 			throw new IllegalArgumentException( "Radius must be positive and non-zero." );
 		this.radius = radius;
+		modifications.increment();
+	}
+
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		final BoundaryType boundaryType = boundaryType();
+		if ( boundaryType != BoundaryType.CLOSED && boundaryType != BoundaryType.OPEN )
+		{
+			WritableSphere.super.testBatch( positions, candidates, result );
+			return;
+		}
+		final boolean closed = boundaryType == BoundaryType.CLOSED;
+		final double radiusSquared = radius * radius;
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			final int o = i * n;
+			double distancePowered = 0;
+			for ( int d = 0; d < n; d++ )
+			{
+				final double t = positions[ o + d ] - center[ d ];
+				distancePowered += t * t;
+			}
+			result.set( i, closed ? distancePowered <= radiusSquared : distancePowered < radiusSquared );
+		}
+		result.and( candidates );
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	@Override
@@ -164,7 +223,8 @@ public abstract class AbstractWritableSphere extends AbstractEuclideanSpace impl
 		@Override
 		public void updateBounds()
 		{
-			// No implementation needed, min/max easy to compute
+			// min/max easy to compute, only count the change
+			modifications.increment();
 		}
 
 	}
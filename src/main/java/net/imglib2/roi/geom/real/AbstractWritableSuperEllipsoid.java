@@ -33,18 +33,27 @@
  */
 package net.imglib2.roi.geom.real;
 
+import java.util.BitSet;
+
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
 
 /**
  * Abstract base class for {@link WritableSuperEllipsoid} implementations.
  *
  * @author Alison Walter
  */
-public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSpace implements WritableSuperEllipsoid
+public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSpace implements WritableSuperEllipsoid, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	protected double exponent;
 
 	protected final double[] center;
@@ -125,6 +134,7 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		if ( exponent <= 0 )
 			throw new IllegalArgumentException( "exponent must be positve and non-zero" );
 		this.exponent = exponent;
+		modifications.increment();
 	}
 
 	@Override
@@ -133,6 +143,56 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		if ( length <= 0 )
 			throw new IllegalArgumentException( "Semi-axis length must be positive and non-zero" );
 		semiAxisLengths[ d ] = length;
+		modifications.increment();
+	}
+
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		final BoundaryType boundaryType = boundaryType();
+		if ( boundaryType != BoundaryType.CLOSED && boundaryType != BoundaryType.OPEN )
+		{
+			WritableSuperEllipsoid.super.testBatch( positions, candidates, result );
+			return;
+		}
+		final boolean closed = boundaryType == BoundaryType.CLOSED;
+		final boolean square = exponent == 2;
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			final int o = i * n;
+			double distancePowered = 0;
+			for ( int d = 0; d < n; d++ )
+			{
+				final double t = ( positions[ o + d ] - center[ d ] ) / semiAxisLengths[ d ];
+				distancePowered += square ? t * t : Math.pow( Math.abs( t ), exponent );
+			}
+			result.set( i, closed ? distancePowered <= 1.0 : distancePowered < 1.0 );
+		}
+		result.and( candidates );
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	@Override
@@ -163,7 +223,10 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 
 		double distancePowered = 0;
 		for ( int d = 0; d < n; d++ )
-			distancePowered += Math.pow( Math.abs( ( l.getDoublePosition( d ) - center[ d ] ) / semiAxisLengths[ d ] ), exponent );
+		{
+			final double t = ( l.getDoublePosition( d ) - center[ d ] ) / semiAxisLengths[ d ];
+			distancePowered += exponent == 2 ? t * t : Math.pow( Math.abs( t ), exponent );
+		}
 
 		return distancePowered;
 	}
@@ -181,7 +244,8 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		@Override
 		public void updateBounds()
 		{
-			// Not needed, bounds are simple enough to compute
+			// Bounds are simple enough to compute, only count the change
+			modifications.increment();
 		}
 
 	}
@@ -0,0 +1,294 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.roi.geom.real;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import net.imglib2.AbstractRealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.geom.SegmentIndex;
+import net.imglib2.roi.util.AbstractRealMaskPoint;
+import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
+
+/**
+ * Abstract base class for {@link WritableTube}s. Containment tests use a
+ * {@link SegmentIndex} over the tube segments, which is built on the first
+ * test and discarded whenever vertices or radii change.
+ */
+public abstract class AbstractWritableTube extends AbstractRealInterval implements WritableTube, Versioned, ObservableMask
+{
+	private final VersionCounter modifications = new VersionCounter( this );
+
+	private final ArrayList< double[] > vertices;
+
+	private final TDoubleArrayList radii;
+
+	private volatile SegmentIndex segmentIndex;
+
+	/**
+	 * Creates a tube with the specified vertices and a radius for each
+	 * vertex. The dimensionality of the space is determined by the
+	 * dimensionality of the first vertex.
+	 *
+	 * @param vertices
+	 *            Vertices of the center line, in the desired order.
+	 * @param radii
+	 *            Radius of the tube at each vertex.
+	 */
+	public AbstractWritableTube( final List< ? extends RealLocalizable > vertices, final double[] radii )
+	{
+		super( vertices.get( 0 ).numDimensions() );
+		if ( radii.length != vertices.size() )
+			throw new IllegalArgumentException( "Expected " + vertices.size() + " radii, got " + radii.length );
+		this.vertices = new ArrayList<>( vertices.size() );
+		this.radii = new TDoubleArrayList( radii.length );
+		for ( int i = 0; i < vertices.size(); i++ )
+		{
+			this.vertices.add( toArray( vertices.get( i ) ) );
+			this.radii.add( checkRadius( radii[ i ] ) );
+		}
+		updateMinMax();
+	}
+
+	/**
+	 * Creates a tube with the specified vertices and the same radius at every
+	 * vertex.
+	 *
+	 * @param vertices
+	 *            Vertices of the center line, in the desired order.
+	 * @param radius
+	 *            Radius of the tube.
+	 */
+	public AbstractWritableTube( final List< ? extends RealLocalizable > vertices, final double radius )
+	{
+		this( vertices, filled( vertices.size(), radius ) );
+	}
+
+	/**
+	 * Returns the vertex at the specified position. The vertices are in the
+	 * same order as when they were passed to the constructor, unless vertices
+	 * have been added/removed.
+	 */
+	@Override
+	public RealLocalizableRealPositionable vertex( final int pos )
+	{
+		return new TubeVertex( vertices.get( pos ) );
+	}
+
+	@Override
+	public int numVertices()
+	{
+		return vertices.size();
+	}
+
+	@Override
+	public double radius( final int pos )
+	{
+		return radii.get( pos );
+	}
+
+	@Override
+	public void setRadius( final int pos, final double radius )
+	{
+		radii.set( pos, checkRadius( radius ) );
+		updateMinMax();
+	}
+
+	@Override
+	public void addVertex( final int index, final RealLocalizable vertex )
+	{
+		addVertex( index, vertex, neighborRadius( index ) );
+	}
+
+	@Override
+	public void addVertex( final int index, final RealLocalizable vertex, final double radius )
+	{
+		final double[] p = toArray( vertex );
+		checkRadius( radius );
+		vertices.add( index, p );
+		radii.insert( index, radius );
+		updateMinMax();
+	}
+
+	@Override
+	public void removeVertex( final int index )
+	{
+		vertices.remove( index );
+		radii.removeAt( index );
+		updateMinMax();
+	}
+
+	@Override
+	public void addVertices( final int index, final Collection< RealLocalizable > newVertices )
+	{
+		final double radius = neighborRadius( index );
+		final List< double[] > points = new ArrayList<>( newVertices.size() );
+		for ( final RealLocalizable vertex : newVertices )
+			points.add( toArray( vertex ) );
+		vertices.addAll( index, points );
+		radii.insert( index, filled( points.size(), radius ) );
+		updateMinMax();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		return obj instanceof Tube && Tube.equals( this, ( Tube ) obj );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Tube.hashCode( this );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Returns the index over the segments of this tube. A tube with a single
+	 * vertex is indexed as one degenerate segment.
+	 */
+	protected SegmentIndex segmentIndex()
+	{
+		SegmentIndex index = segmentIndex;
+		if ( index == null )
+		{
+			if ( vertices.size() == 1 )
+				index = new SegmentIndex( Arrays.asList( vertices.get( 0 ), vertices.get( 0 ) ), new double[] { radii.get( 0 ), radii.get( 0 ) }, n );
+			else
+				index = new SegmentIndex( vertices, radii.toArray(), n );
+			segmentIndex = index;
+		}
+		return index;
+	}
+
+	private double[] toArray( final RealLocalizable vertex )
+	{
+		if ( vertex.numDimensions() < n )
+			throw new IllegalArgumentException( "Vertex must have at least " + n + " dimensions" );
+		final double[] p = new double[ n ];
+		for ( int d = 0; d < n; d++ )
+			p[ d ] = vertex.getDoublePosition( d );
+		return p;
+	}
+
+	private double neighborRadius( final int index )
+	{
+		if ( radii.isEmpty() )
+			throw new IllegalArgumentException( "Radius must be specified for the first vertex" );
+		return radii.get( index > 0 ? index - 1 : 0 );
+	}
+
+	private static double checkRadius( final double radius )
+	{
+		if ( !( radius >= 0 ) )
+			throw new IllegalArgumentException( "Radius must be non-negative: " + radius );
+		return radius;
+	}
+
+	private static double[] filled( final int size, final double value )
+	{
+		final double[] array = new double[ size ];
+		Arrays.fill( array, value );
+		return array;
+	}
+
+	private void updateMinMax()
+	{
+		segmentIndex = null;
+		Arrays.fill( min, Double.POSITIVE_INFINITY );
+		Arrays.fill( max, Double.NEGATIVE_INFINITY );
+		for ( int i = 0; i < vertices.size(); i++ )
+		{
+			final double[] vertex = vertices.get( i );
+			final double r = radii.get( i );
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = Math.min( min[ d ], vertex[ d ] - r );
+				max[ d ] = Math.max( max[ d ], vertex[ d ] + r );
+			}
+		}
+		// NB: listeners are notified by increment(), so the bounds must be up to date
+		modifications.increment();
+	}
+
+	// -- Helper classes --
+
+	private class TubeVertex extends AbstractRealMaskPoint
+	{
+		public TubeVertex( final double[] pos )
+		{
+			super( pos );
+		}
+
+		@Override
+		public void updateBounds()
+		{
+			updateMinMax();
+		}
+	}
+}
@@ -38,7 +38,6 @@ import java.util.List;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
-import net.imglib2.roi.geom.GeomMaths;
 
 /**
  * A {@link Polygon2D} which contains all boundary points, and is defined by the
@@ -68,34 +67,7 @@ public class ClosedWritablePolygon2D extends DefaultWritablePolygon2D
 	@Override
 	public boolean test( final RealLocalizable localizable )
 	{
-		// check edges, this needs to be done first because pnpoly has
-		// unknown edge behavior
-		boolean edge = false;
-		final double[] pt1 = new double[ 2 ];
-		final double[] pt2 = new double[ 2 ];
-		for ( int i = 0; i < x.size(); i++ )
-		{
-			pt1[ 0 ] = x.get( i );
-			pt1[ 1 ] = y.get( i );
-
-			// 1e-15 is for error caused by double precision
-			if ( i == x.size() - 1 )
-			{
-				pt2[ 0 ] = x.get( 0 );
-				pt2[ 1 ] = y.get( 0 );
-			}
-			else
-			{
-				pt2[ 0 ] = x.get( i + 1 );
-				pt2[ 1 ] = y.get( i + 1 );
-			}
-
-			edge = GeomMaths.lineContains( pt1, pt2, localizable, 2 );
-
-			if ( edge )
-				return true;
-		}
-		return GeomMaths.pnpoly( x, y, localizable );
+		return testBoundary( localizable ) || testInside( localizable );
 	}
 
 	@Override
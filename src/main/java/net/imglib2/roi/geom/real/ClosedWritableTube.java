@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.roi.geom.real;
+
+import java.util.List;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BoundaryType;
+
+/**
+ * A {@link Tube} with {@link BoundaryType#CLOSED closed} boundary
+ * behavior: points on the surface of the tube are contained.
+ */
+public class ClosedWritableTube extends AbstractWritableTube
+{
+	/**
+	 * Creates a tube with the specified vertices and a radius for each
+	 * vertex.
+	 *
+	 * @param vertices
+	 *            Vertices of the center line, in the desired order.
+	 * @param radii
+	 *            Radius of the tube at each vertex.
+	 */
+	public ClosedWritableTube( final List< ? extends RealLocalizable > vertices, final double[] radii )
+	{
+		super( vertices, radii );
+	}
+
+	/**
+	 * Creates a tube with the specified vertices and constant radius.
+	 *
+	 * @param vertices
+	 *            Vertices of the center line, in the desired order.
+	 * @param radius
+	 *            Radius of the tube.
+	 */
+	public ClosedWritableTube( final List< ? extends RealLocalizable > vertices, final double radius )
+	{
+		super( vertices, radius );
+	}
+
+	@Override
+	public boolean test( final RealLocalizable l )
+	{
+		return segmentIndex().isInside( l, true );
+	}
+
+	@Override
+	public BoundaryType boundaryType()
+	{
+		return BoundaryType.CLOSED;
+	}
+}
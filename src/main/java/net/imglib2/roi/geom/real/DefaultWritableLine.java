@@ -37,9 +37,13 @@ import java.util.Arrays;
 
 import net.imglib2.AbstractRealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.geom.GeomMaths;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
 import net.imglib2.util.Intervals;
 
 /**
@@ -48,8 +52,10 @@ import net.imglib2.util.Intervals;
  *
  * @author Alison Walter
  */
-public class DefaultWritableLine extends AbstractRealInterval implements WritableLine
+public class DefaultWritableLine extends AbstractRealInterval implements WritableLine, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	private double[] pointOne;
 
 	private double[] pointTwo;
@@ -136,6 +142,30 @@ public class DefaultWritableLine extends AbstractRealInterval implements Writabl
 		return new LineEndPoint( pointTwo );
 	}
 
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
+	}
+
 	@Override
 	public boolean equals( final Object obj )
 	{
@@ -181,6 +211,7 @@ public class DefaultWritableLine extends AbstractRealInterval implements Writabl
 				min[ d ] = Math.min( pointOne[ d ], pointTwo[ d ] );
 				max[ d ] = Math.max( pointOne[ d ], pointTwo[ d ] );
 			}
+			modifications.increment();
 		}
 	}
 }
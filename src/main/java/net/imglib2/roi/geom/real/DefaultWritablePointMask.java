@@ -34,9 +34,14 @@
 
 package net.imglib2.roi.geom.real;
 
+import net.imglib2.Localizable;
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.roi.Mask;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.util.VersionCounter;
 import net.imglib2.util.Util;
 
 /**
@@ -44,8 +49,10 @@ import net.imglib2.util.Util;
  *
  * @author Alison Walter
  */
-public class DefaultWritablePointMask extends RealPoint implements WritablePointMask
+public class DefaultWritablePointMask extends RealPoint implements WritablePointMask, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	/**
 	 * Creates a {@link WritablePointMask} with the given point, such that only
 	 * that point is contained in the {@link Mask}. The dimensionality of the
@@ -78,6 +85,186 @@ public class DefaultWritablePointMask extends RealPoint implements WritablePoint
 		return Util.locationsEqual( this, l );
 	}
 
+	// NB: every setter of RealPoint is overridden to count the modification
+
+	@Override
+	public void fwd( final int d )
+	{
+		super.fwd( d );
+		modifications.increment();
+	}
+
+	@Override
+	public void bck( final int d )
+	{
+		super.bck( d );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final int distance, final int d )
+	{
+		super.move( distance, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final long distance, final int d )
+	{
+		super.move( distance, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final Localizable localizable )
+	{
+		super.move( localizable );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final int[] distance )
+	{
+		super.move( distance );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final long[] distance )
+	{
+		super.move( distance );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final Localizable localizable )
+	{
+		super.setPosition( localizable );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final int[] position )
+	{
+		super.setPosition( position );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final long[] position )
+	{
+		super.setPosition( position );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final int position, final int d )
+	{
+		super.setPosition( position, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final long position, final int d )
+	{
+		super.setPosition( position, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final float distance, final int d )
+	{
+		super.move( distance, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final double distance, final int d )
+	{
+		super.move( distance, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final RealLocalizable localizable )
+	{
+		super.move( localizable );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final float[] distance )
+	{
+		super.move( distance );
+		modifications.increment();
+	}
+
+	@Override
+	public void move( final double[] distance )
+	{
+		super.move( distance );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final RealLocalizable localizable )
+	{
+		super.setPosition( localizable );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final float[] position )
+	{
+		super.setPosition( position );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final double[] position )
+	{
+		super.setPosition( position );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final float position, final int d )
+	{
+		super.setPosition( position, d );
+		modifications.increment();
+	}
+
+	@Override
+	public void setPosition( final double position, final int d )
+	{
+		super.setPosition( position, d );
+		modifications.increment();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
+	}
+
 	@Override
 	public boolean equals( final Object obj )
 	{
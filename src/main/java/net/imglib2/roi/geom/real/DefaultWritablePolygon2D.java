@@ -33,15 +33,25 @@
  */
 package net.imglib2.roi.geom.real;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
 import net.imglib2.AbstractRealInterval;
-import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.geom.GeomMaths;
+import net.imglib2.roi.geom.SegmentIndex;
+import net.imglib2.roi.geom.SlabIndex;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
+import net.imglib2.roi.util.BoundsTree;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
 
 import gnu.trove.list.array.TDoubleArrayList;
 
@@ -60,12 +70,26 @@ import gnu.trove.list.array.TDoubleArrayList;
  * @author Daniel Seebacher, University of Konstanz
  * @author Christian Dietz, University of Konstanz
  */
-public class DefaultWritablePolygon2D extends AbstractRealInterval implements WritablePolygon2D
+public class DefaultWritablePolygon2D extends AbstractRealInterval implements WritablePolygon2D, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	protected final VertexList x;
 
 	protected final VertexList y;
 
+	private final BoundsTree vertexBounds = new BoundsTree( 2 );
+
+	/**
+	 * Polygons with fewer vertices are tested directly, without building
+	 * indices.
+	 */
+	private static final int INDEX_THRESHOLD = 64;
+
+	private volatile SlabIndex slabIndex;
+
+	private volatile SegmentIndex edgeIndex;
+
 	/**
 	 * Creates a 2D polygon with the provided vertices.
 	 *
@@ -112,6 +136,11 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 			this.y = new VertexList( l );
 			this.y.add( y, 0, l );
 		}
+		vertexBounds.insert( 0, this.x.size() );
+		final double[] tmp = new double[ 2 ];
+		for ( int i = 0; i < this.x.size(); i++ )
+			setBoundsQuick( i, tmp );
+		updateMinMax();
 	}
 
 	/**
@@ -121,7 +150,33 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 	@Override
 	public boolean test( final RealLocalizable localizable )
 	{
-		return GeomMaths.pnpoly( x, y, localizable );
+		return testInside( localizable );
+	}
+
+	/**
+	 * Rejects points outside the vertex bounds without testing them, unless
+	 * the boundary is closed, where {@link #testBoundary} has a tolerance.
+	 */
+	@Override
+	public void testBatch( final double[] positions, final BitSet candidates, final BitSet result )
+	{
+		final boolean reject = boundaryType() != BoundaryType.CLOSED;
+		final double minX = min[ 0 ];
+		final double minY = min[ 1 ];
+		final double maxX = max[ 0 ];
+		final double maxY = max[ 1 ];
+		final double[] xy = new double[ 2 ];
+		final RealPoint point = RealPoint.wrap( xy );
+		for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) )
+		{
+			xy[ 0 ] = positions[ 2 * i ];
+			xy[ 1 ] = positions[ 2 * i + 1 ];
+			if ( reject && ( xy[ 0 ] < minX || xy[ 0 ] > maxX || xy[ 1 ] < minY || xy[ 1 ] > maxY ) )
+				result.clear( i );
+			else
+				result.set( i, test( point ) );
+		}
+		result.and( candidates );
 	}
 
 	/** Return a copy of the vertex */
@@ -148,7 +203,8 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 		final double py = vertex.getDoublePosition( 1 );
 		x.insert( index, px );
 		y.insert( index, py );
-		expandMinMax(px, py, px, py);
+		vertexBounds.insert( index, new double[] { px, py } );
+		updateMinMax();
 	}
 
 	@Override
@@ -156,6 +212,7 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 	{
 		x.removeAt( index );
 		y.removeAt( index );
+		vertexBounds.remove( index );
 		updateMinMax();
 	}
 
@@ -164,16 +221,59 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 	{
 		x.makeRoom( index, vertices.size() );
 		y.makeRoom( index, vertices.size() );
+		vertexBounds.insert( index, vertices.size() );
+		final double[] tmp = new double[ 2 ];
 		int offset = index;
 		for ( final RealLocalizable vertex : vertices )
 		{
 			x.setQuick( offset, vertex.getDoublePosition( 0 ) );
 			y.setQuick( offset, vertex.getDoublePosition( 1 ) );
+			setBoundsQuick( offset, tmp );
 			offset++;
 		}
+		updateMinMax();
+	}
 
-		final RealInterval bounds = GeomMaths.getBoundsReal( vertices );
-		expandMinMax( bounds.realMin( 0 ), bounds.realMin( 1 ), bounds.realMax( 0 ), bounds.realMax( 1 ) );
+	/**
+	 * If the given positions have more than 2 dimensions, the higher
+	 * dimensions will be ignored.
+	 */
+	@Override
+	public void setVertices( final int index, final List< ? extends RealLocalizable > positions )
+	{
+		final double[] tmp = new double[ 2 ];
+		for ( int i = 0; i < positions.size(); i++ )
+		{
+			final RealLocalizable p = positions.get( i );
+			x.set( index + i, p.getDoublePosition( 0 ) );
+			y.set( index + i, p.getDoublePosition( 1 ) );
+			setBoundsQuick( index + i, tmp );
+		}
+		updateMinMax();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	@Override
@@ -190,6 +290,72 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 
 	// -- Helper methods --
 
+	/**
+	 * Tests if the given point is inside the polygon, with the (unspecified)
+	 * edge behavior of {@link GeomMaths#pnpoly}. Large polygons use a
+	 * {@link SlabIndex}, which gives identical results.
+	 */
+	protected boolean testInside( final RealLocalizable localizable )
+	{
+		if ( x.size() < INDEX_THRESHOLD )
+			return GeomMaths.pnpoly( x, y, localizable );
+		SlabIndex index = slabIndex;
+		if ( index == null )
+		{
+			index = new SlabIndex( x.toArray(), y.toArray() );
+			slabIndex = index;
+		}
+		return index.contains( localizable.getDoublePosition( 0 ), localizable.getDoublePosition( 1 ) );
+	}
+
+	/**
+	 * Tests if the given point is on an edge of the polygon, within double
+	 * precision errors. Large polygons use a {@link SegmentIndex} over the
+	 * edges.
+	 */
+	protected boolean testBoundary( final RealLocalizable localizable )
+	{
+		final int numVertices = x.size();
+		if ( numVertices < INDEX_THRESHOLD )
+		{
+			final double[] pt1 = new double[ 2 ];
+			final double[] pt2 = new double[ 2 ];
+			for ( int i = 0; i < numVertices; i++ )
+			{
+				final int j = i == numVertices - 1 ? 0 : i + 1;
+				pt1[ 0 ] = x.get( i );
+				pt1[ 1 ] = y.get( i );
+				pt2[ 0 ] = x.get( j );
+				pt2[ 1 ] = y.get( j );
+				if ( GeomMaths.lineContains( pt1, pt2, localizable, 2 ) )
+					return true;
+			}
+			return false;
+		}
+		SegmentIndex index = edgeIndex;
+		if ( index == null )
+		{
+			final List< double[] > loop = new ArrayList<>( numVertices + 1 );
+			for ( int i = 0; i <= numVertices; i++ )
+				loop.add( new double[] { x.get( i % numVertices ), y.get( i % numVertices ) } );
+			index = new SegmentIndex( loop, 2 );
+			edgeIndex = index;
+		}
+		// 1e-15 is for error caused by double precision
+		return index.isWithinSquared( localizable, 1e-15 );
+	}
+
+	/**
+	 * Discards the indices used by {@link #testInside} and
+	 * {@link #testBoundary}. Must be called whenever {@link #x} or {@link #y}
+	 * are modified.
+	 */
+	protected void invalidateIndex()
+	{
+		slabIndex = null;
+		edgeIndex = null;
+	}
+
 	/**
 	 * Populates the x and y arrays, and sets min/max values.
 	 *
@@ -221,30 +387,30 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 		max[ 1 ] = maxY;
 		min[ 0 ] = minX;
 		min[ 1 ] = minY;
+		vertexBounds.insert( 0, x.size() );
+		final double[] tmp = new double[ 2 ];
+		for ( int i = 0; i < x.size(); i++ )
+			setBoundsQuick( i, tmp );
+		vertexBounds.update();
 	}
 
+	/**
+	 * Copies the vertex bounds into min/max, after changes to
+	 * {@link #vertexBounds}.
+	 */
 	private void updateMinMax()
 	{
-		min[ 0 ] = min[ 1 ] = Double.POSITIVE_INFINITY;
-		max[ 0 ] = max[ 1 ] = Double.NEGATIVE_INFINITY;
-		for ( int i = 0; i < numVertices(); i++ )
-		{
-			final double px = x.get( i );
-			final double py = y.get( i );
-			expandMinMax( px, py, px, py );
-		}
+		invalidateIndex();
+		vertexBounds.bounds( min, max );
+		// NB: listeners are notified by increment(), so the bounds must be up to date
+		modifications.increment();
 	}
 
-	private void expandMinMax( final double xMin, final double yMin, final double xMax, final double yMax )
+	private void setBoundsQuick( final int index, final double[] tmp )
 	{
-		if ( xMax > max[ 0 ] )
-			max[ 0 ] = xMax;
-		if ( yMax > max[ 1 ] )
-			max[ 1 ] = yMax;
-		if ( xMin < min[ 0 ] )
-			min[ 0 ] = xMin;
-		if ( yMin < min[ 1 ] )
-			min[ 1 ] = yMin;
+		tmp[ 0 ] = x.getQuick( index );
+		tmp[ 1 ] = y.getQuick( index );
+		vertexBounds.setQuick( index, tmp );
 	}
 
 	// -- Helper classes --
@@ -265,6 +431,7 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 			x.set( pos, position[ 0 ] );
 			y.set( pos, position[ 1 ] );
 
+			vertexBounds.set( pos, position );
 			updateMinMax();
 		}
 	}
@@ -35,26 +35,41 @@
 package net.imglib2.roi.geom.real;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import net.imglib2.AbstractRealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.geom.GeomMaths;
+import net.imglib2.roi.geom.SegmentIndex;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
+import net.imglib2.roi.util.BoundsTree;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.VersionCounter;
 
 /**
  * A polyline, which can be embedded in n-dimensional space.
+ * <p>
+ * Containment and distance queries use a {@link SegmentIndex}, which is built
+ * on the first query and discarded whenever the vertices change.
+ * </p>
  *
  * @author Alison Walter
  */
-public class DefaultWritablePolyline extends AbstractRealInterval implements WritablePolyline
+public class DefaultWritablePolyline extends AbstractRealInterval implements WritablePolyline, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	private final ArrayList< double[] > vertices;
 
+	private final BoundsTree vertexBounds;
+
+	private volatile SegmentIndex segmentIndex;
+
 	/**
 	 * Creates a polyline with the specified vertices. The dimensionality of the
 	 * space is determined by the dimensionality of the first vertex. If a given
@@ -78,20 +93,23 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 			}
 			this.vertices.add( p );
 		}
+		vertexBounds = new BoundsTree( n, vertices.size() );
+		for ( int i = 0; i < vertices.size(); i++ )
+			vertexBounds.setQuick( i, this.vertices.get( i ) );
+		vertexBounds.update();
 	}
 
 	@Override
 	public boolean test( final RealLocalizable l )
 	{
-		for ( int i = 1; i < vertices.size(); i++ )
-		{
-			final double[] ptOne = vertices.get( i - 1 );
-			final double[] ptTwo = vertices.get( i );
-			final boolean testLineContains = GeomMaths.lineContains( ptOne, ptTwo, l, n );
-			if ( testLineContains )
-				return true;
-		}
-		return false;
+		// Needs 1e-15 for double precision errors, like GeomMaths.lineContains
+		return segmentIndex().isWithinSquared( l, 1e-15 );
+	}
+
+	@Override
+	public double distance( final RealLocalizable point )
+	{
+		return segmentIndex().distance( point );
 	}
 
 	/**
@@ -102,7 +120,7 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 	@Override
 	public RealLocalizableRealPositionable vertex( final int pos )
 	{
-		return new PolylineVertex( vertices.get( pos ) );
+		return new PolylineVertex( pos );
 	}
 
 	@Override
@@ -120,13 +138,15 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 		for ( int d = 0; d < n; d++ )
 			p[ d ] = vertex.getDoublePosition( d );
 		vertices.add( index, p );
-		expandMinMax( p, p );
+		vertexBounds.insert( index, p );
+		updateMinMax();
 	}
 
 	@Override
 	public void removeVertex( final int index )
 	{
 		vertices.remove( index );
+		vertexBounds.remove( index );
 		updateMinMax();
 	}
 
@@ -144,12 +164,54 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 		} ).collect( Collectors.toList() ) );
 
 		// expand the bounds
-		int offset = index;
-		for ( int i = 0; i < newVertices.size(); i++ )
+		vertexBounds.insert( index, newVertices.size() );
+		for ( int i = index; i < index + newVertices.size(); i++ )
+			vertexBounds.setQuick( i, vertices.get( i ) );
+		updateMinMax();
+	}
+
+	/**
+	 * If the given positions have more dimensions than this polyline, they
+	 * will be truncated.
+	 */
+	@Override
+	public void setVertices( final int index, final List< ? extends RealLocalizable > positions )
+	{
+		for ( int i = 0; i < positions.size(); i++ )
 		{
-			final double[] vertex = vertices.get( offset++ );
-			expandMinMax( vertex, vertex );
+			final RealLocalizable position = positions.get( i );
+			if ( position.numDimensions() < n )
+				throw new IllegalArgumentException( "Vertex must have at least" + n + " dimensions" );
+			final double[] p = vertices.get( index + i );
+			for ( int d = 0; d < n; d++ )
+				p[ d ] = position.getDoublePosition( d );
+			vertexBounds.setQuick( index + i, p );
 		}
+		updateMinMax();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	@Override
@@ -166,40 +228,59 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 
 	// -- Helper methods --
 
-	private void updateMinMax()
+	private SegmentIndex segmentIndex()
 	{
-		Arrays.fill( min, Double.POSITIVE_INFINITY );
-		Arrays.fill( max, Double.NEGATIVE_INFINITY );
-		for ( double[] vertex : vertices ) {
-			expandMinMax( vertex, vertex );
+		SegmentIndex index = segmentIndex;
+		if ( index == null )
+		{
+			index = new SegmentIndex( vertices, n );
+			segmentIndex = index;
 		}
+		return index;
 	}
 
-	private void expandMinMax( final double[] mn, final double[] mx )
+	/**
+	 * Copies the vertex bounds into min/max, after changes to
+	 * {@link #vertexBounds}.
+	 */
+	private void updateMinMax()
 	{
-		for ( int d = 0; d < numDimensions(); d++ )
-		{
-			if ( mx[ d ] > max[ d ] )
-				max[ d ] = mx[ d ];
-			if ( mn[ d ] < min[ d ] )
-				min[ d ] = mn[ d ];
-		}
+		segmentIndex = null;
+		vertexBounds.bounds( min, max );
+		// NB: listeners are notified by increment(), so the bounds must be up to date
+		modifications.increment();
 	}
 
 	// -- Helper classes --
 
 	private class PolylineVertex extends AbstractRealMaskPoint
 	{
-		public PolylineVertex( final double[] pos )
+		private final int pos;
+
+		public PolylineVertex( final int pos )
 		{
-			super( pos );
+			super( vertices.get( pos ) );
+			this.pos = pos;
 		}
 
 		@Override
 		public void updateBounds()
 		{
+			// position is shared with the vertex list, so find it again if
+			// vertices have been added or removed since this view was created
+			final int i = pos < vertices.size() && vertices.get( pos ) == position ? pos : indexOf( position );
+			if ( i >= 0 )
+				vertexBounds.set( i, position );
 			updateMinMax();
 		}
 
+		private int indexOf( final double[] vertex )
+		{
+			for ( int i = 0; i < vertices.size(); i++ )
+				if ( vertices.get( i ) == vertex )
+					return i;
+			return -1;
+		}
+
 	}
 }
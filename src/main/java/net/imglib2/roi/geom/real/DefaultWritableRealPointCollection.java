@@ -33,27 +33,48 @@
  */
 package net.imglib2.roi.geom.real;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import net.imglib2.AbstractRealInterval;
-import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.geom.GeomMaths;
+import net.imglib2.roi.util.BoundsTree;
+import net.imglib2.roi.util.VersionCounter;
 import net.imglib2.util.Intervals;
 
 import gnu.trove.list.array.TDoubleArrayList;
 
 /**
  * {@link RealPointCollection} backed by a {@code Map}.
+ * <p>
+ * Bounds are maintained by a {@link BoundsTree} over the positions of the
+ * points, so adding or removing a point updates them in {@code O(log size)},
+ * also if the point lies on the bounds.
+ * </p>
  *
  * @author Alison Walter
  */
-public class DefaultWritableRealPointCollection< L extends RealLocalizable > extends AbstractRealInterval implements WritableRealPointCollection< L >
+public class DefaultWritableRealPointCollection< L extends RealLocalizable > extends AbstractRealInterval implements WritableRealPointCollection< L >, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
+
 	private final Map< TDoubleArrayList, L > points;
 
+	/** Positions of the points in the order of {@link #bounds}. */
+	private final List< TDoubleArrayList > positions;
+
+	/** Index of each position in {@link #positions}. */
+	private final Map< TDoubleArrayList, Integer > indices;
+
+	private final BoundsTree bounds;
+
 	/**
 	 * Creates a point collection which includes points in the given
 	 * {@code Map}.
@@ -68,6 +89,15 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 	{
 		super( GeomMaths.getBoundsReal( points.values() ) );
 		this.points = points;
+		positions = new ArrayList<>( points.keySet() );
+		indices = new HashMap<>();
+		bounds = new BoundsTree( n, positions.size() );
+		for ( int i = 0; i < positions.size(); i++ )
+		{
+			indices.put( positions.get( i ), i );
+			bounds.setQuick( i, positions.get( i ).toArray() );
+		}
+		bounds.update();
 	}
 
 	/**
@@ -117,16 +147,16 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 
 		final double[] l = new double[ point.numDimensions() ];
 		point.localize( l );
-		points.put( new TDoubleArrayList( l ), point );
-
-		// Update bounds.
-		for ( int d = 0; d < numDimensions(); d++ )
+		final TDoubleArrayList key = new TDoubleArrayList( l );
+		points.put( key, point );
+		if ( !indices.containsKey( key ) )
 		{
-			if ( l[ d ] > max[ d ] )
-				max[ d ] = l[ d ];
-			if ( l[ d ] < min[ d ] )
-				min[ d ] = l[ d ];
+			indices.put( key, positions.size() );
+			positions.add( key );
+			bounds.insert( bounds.size(), l );
+			bounds.bounds( min, max );
 		}
+		modifications.increment();
 	}
 
 	/**
@@ -141,9 +171,49 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 	{
 		final double[] l = new double[ point.numDimensions() ];
 		point.localize( l );
-		points.remove( new TDoubleArrayList( l ) );
+		final TDoubleArrayList key = new TDoubleArrayList( l );
+		points.remove( key );
+
+		final Integer index = indices.remove( key );
+		if ( index != null )
+		{
+			// move the last position into the gap
+			final int last = positions.size() - 1;
+			final TDoubleArrayList moved = positions.remove( last );
+			if ( index != last )
+			{
+				positions.set( index, moved );
+				indices.put( moved, index );
+				bounds.set( index, moved.toArray() );
+			}
+			bounds.remove( last );
+			bounds.bounds( min, max );
+		}
+		modifications.increment();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
 
-		updateMinMax();
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	@Override
@@ -180,11 +250,4 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 		}
 		return map;
 	}
-
-	private void updateMinMax()
-	{
-		final RealInterval interval = GeomMaths.getBoundsReal( points.values() );
-		interval.realMin( min );
-		interval.realMax( max );
-	}
 }
@@ -0,0 +1,658 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.imglib2.AbstractRealInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.util.BoundsTree;
+import net.imglib2.roi.util.VersionCounter;
+
+/**
+ * {@link WritableRealPointCollection} backed by a sparse uniform grid: points
+ * are stored in buckets of cubic cells with side length {@code cellSize}, and
+ * only non-empty cells are stored (in a hash map). Points can be added and
+ * removed in constant time, so the index never needs to be rebuilt.
+ * <p>
+ * In addition to {@link #test(RealLocalizable)}, the grid supports
+ * {@link #nearestNeighbor(RealLocalizable) nearest neighbor},
+ * {@link #radiusSearch(RealLocalizable, double) radius} and
+ * {@link #intervalSearch(RealInterval) interval} queries. Queries visit the
+ * cells overlapping the query region, or all non-empty cells if there are
+ * fewer of those. The cell size should be chosen so that a cell contains a
+ * few points on average.
+ * <p>
+ * Bounds are maintained by a {@link BoundsTree} over the non-empty cells, so
+ * adding or removing a point rescans its cell and updates the tree in
+ * {@code O(log numCells)}, also if the point lies on the bounds.
+ * <p>
+ * Like {@link DefaultWritableRealPointCollection}, a location is contained if
+ * it has exactly the coordinates of one of the points. Points with the same
+ * coordinates replace each other.
+ */
+public class GridWritableRealPointCollection< L extends RealLocalizable > extends AbstractRealInterval implements WritableRealPointCollection< L >, Versioned, ObservableMask
+{
+	private final VersionCounter modifications = new VersionCounter( this );
+
+	private final double cellSize;
+
+	private final TLongObjectHashMap< Cell > cells;
+
+	private int numCells;
+
+	private long size;
+
+	/** Non-empty cells, in the order of {@link #cellBounds}. */
+	private Cell[] cellList;
+
+	/** Bounds of the points of each cell in {@link #cellList}. */
+	private final BoundsTree cellBounds;
+
+	private final double[] tmp;
+
+	private final double[] cellMin;
+
+	private final double[] cellMax;
+
+	/**
+	 * Creates an empty point collection.
+	 *
+	 * @param numDimensions
+	 *            dimensionality of the points
+	 * @param cellSize
+	 *            side length of grid cells
+	 */
+	public GridWritableRealPointCollection( final int numDimensions, final double cellSize )
+	{
+		super( numDimensions );
+		if ( !( cellSize > 0 ) )
+			throw new IllegalArgumentException( "cellSize must be positive" );
+		this.cellSize = cellSize;
+		cells = new TLongObjectHashMap<>();
+		numCells = 0;
+		size = 0;
+		tmp = new double[ numDimensions ];
+		cellMin = new double[ numDimensions ];
+		cellMax = new double[ numDimensions ];
+		cellList = new Cell[ 16 ];
+		cellBounds = new BoundsTree( numDimensions );
+		cellBounds.bounds( min, max );
+	}
+
+	/**
+	 * Creates a point collection which includes points in the given
+	 * {@code Collection}.
+	 *
+	 * @param points
+	 *            points to include in the collection, the first point
+	 *            determines the dimensionality of the collection
+	 * @param cellSize
+	 *            side length of grid cells
+	 */
+	public GridWritableRealPointCollection( final Collection< L > points, final double cellSize )
+	{
+		this( points.iterator().next().numDimensions(), cellSize );
+		for ( final L p : points )
+			addPoint( p );
+	}
+
+	public double cellSize()
+	{
+		return cellSize;
+	}
+
+	@Override
+	public boolean test( final RealLocalizable l )
+	{
+		if ( size == 0 )
+			return false;
+		final double[] pos = new double[ n ];
+		l.localize( pos );
+		final Cell cell = getCell( cellIndex( pos ) );
+		return cell != null && cell.indexOf( pos ) >= 0;
+	}
+
+	@Override
+	public Iterable< L > points()
+	{
+		return () -> new PointIterator();
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public void addPoint( final L point )
+	{
+		if ( point.numDimensions() != n )
+			throw new IllegalArgumentException( "Point must have " + n + " dimensions" );
+		point.localize( tmp );
+		final long[] index = cellIndex( tmp );
+		Cell cell = getCell( index );
+		if ( cell == null )
+		{
+			cell = new Cell( index, n );
+			final long key = hash( index );
+			cell.next = cells.get( key );
+			cells.put( key, cell );
+			if ( numCells == cellList.length )
+				cellList = Arrays.copyOf( cellList, 2 * numCells );
+			cell.slot = numCells;
+			cellList[ numCells++ ] = cell;
+			cellBounds.insert( cellBounds.size(), 1 );
+		}
+		else
+		{
+			final int i = cell.indexOf( tmp );
+			if ( i >= 0 )
+			{
+				cell.points[ i ] = point;
+				return;
+			}
+		}
+		cell.add( tmp, point );
+		++size;
+		updateCellBounds( cell );
+		modifications.increment();
+	}
+
+	/**
+	 * Removes the point with the same coordinates as the given point, if
+	 * there is one.
+	 */
+	@Override
+	public void removePoint( final L point )
+	{
+		if ( point.numDimensions() != n )
+			throw new IllegalArgumentException( "Point must have " + n + " dimensions" );
+		point.localize( tmp );
+		final long[] index = cellIndex( tmp );
+		final Cell cell = getCell( index );
+		if ( cell == null )
+			return;
+		final int i = cell.indexOf( tmp );
+		if ( i < 0 )
+			return;
+		cell.remove( i );
+		--size;
+		if ( cell.size == 0 )
+			removeCell( cell );
+		else
+			updateCellBounds( cell );
+		modifications.increment();
+	}
+
+	/**
+	 * Find the point closest to {@code query}.
+	 *
+	 * @return the closest point, or {@code null} if the collection is empty.
+	 */
+	public L nearestNeighbor( final RealLocalizable query )
+	{
+		if ( size == 0 )
+			return null;
+		final double[] q = new double[ n ];
+		query.localize( q );
+		final long[] center = cellIndex( q );
+		final NearestNeighbor nn = new NearestNeighbor( q );
+		final long[] cmin = new long[ n ];
+		final long[] cmax = new long[ n ];
+		for ( long r = 0;; ++r )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				cmin[ d ] = center[ d ] - r;
+				cmax[ d ] = center[ d ] + r;
+			}
+			if ( numCellsInBox( cmin, cmax ) > numCells )
+			{
+				// the ring is larger than the set of cells, finish with a full scan
+				forEachCell( nn );
+				break;
+			}
+			forEachCellOnRing( center, r, nn );
+			// all cells outside the current box are farther than r * cellSize
+			if ( nn.best != null && nn.bestDistance <= r * cellSize * r * cellSize )
+				break;
+		}
+		@SuppressWarnings( "unchecked" )
+		final L best = ( L ) nn.best;
+		return best;
+	}
+
+	/**
+	 * Find all points within distance {@code radius} (inclusive) of
+	 * {@code query}.
+	 */
+	public List< L > radiusSearch( final RealLocalizable query, final double radius )
+	{
+		final double[] q = new double[ n ];
+		query.localize( q );
+		final double[] qmin = new double[ n ];
+		final double[] qmax = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			qmin[ d ] = q[ d ] - radius;
+			qmax[ d ] = q[ d ] + radius;
+		}
+		final double radiusSquared = radius * radius;
+		final List< L > result = new ArrayList<>();
+		forEachCellInBox( qmin, qmax, cell -> {
+			for ( int i = 0; i < cell.size; ++i )
+				if ( cell.squaredDistance( i, q ) <= radiusSquared )
+					result.add( cell.point( i ) );
+		} );
+		return result;
+	}
+
+	/**
+	 * Find all points inside {@code interval} (inclusive).
+	 */
+	public List< L > intervalSearch( final RealInterval interval )
+	{
+		final double[] qmin = new double[ n ];
+		final double[] qmax = new double[ n ];
+		interval.realMin( qmin );
+		interval.realMax( qmax );
+		final List< L > result = new ArrayList<>();
+		forEachCellInBox( qmin, qmax, cell -> {
+			for ( int i = 0; i < cell.size; ++i )
+				if ( cell.isInside( i, qmin, qmax ) )
+					result.add( cell.point( i ) );
+		} );
+		return result;
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		return obj instanceof RealPointCollection && RealPointCollection.equals( this, ( RealPointCollection< ? > ) obj );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return RealPointCollection.hashCode( this );
+	}
+
+	// -- Helper methods --
+
+	private long[] cellIndex( final double[] pos )
+	{
+		final long[] index = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			index[ d ] = ( long ) Math.floor( pos[ d ] / cellSize );
+		return index;
+	}
+
+	private static long hash( final long[] index )
+	{
+		long h = 17;
+		for ( final long i : index )
+			h = 31 * h + i;
+		h ^= ( h >>> 33 );
+		h *= 0xff51afd7ed558ccdL;
+		h ^= ( h >>> 33 );
+		return h;
+	}
+
+	private Cell getCell( final long[] index )
+	{
+		for ( Cell cell = cells.get( hash( index ) ); cell != null; cell = cell.next )
+			if ( Arrays.equals( cell.index, index ) )
+				return cell;
+		return null;
+	}
+
+	private void removeCell( final Cell cell )
+	{
+		final long key = hash( cell.index );
+		final Cell head = cells.get( key );
+		if ( head == cell )
+		{
+			if ( cell.next == null )
+				cells.remove( key );
+			else
+				cells.put( key, cell.next );
+		}
+		else
+		{
+			Cell prev = head;
+			while ( prev.next != cell )
+				prev = prev.next;
+			prev.next = cell.next;
+		}
+
+		// move the last cell into the gap
+		final Cell last = cellList[ --numCells ];
+		cellList[ numCells ] = null;
+		if ( last != cell )
+		{
+			last.slot = cell.slot;
+			cellList[ last.slot ] = last;
+			updateCellBounds( last );
+		}
+		cellBounds.remove( numCells );
+		cellBounds.bounds( min, max );
+	}
+
+	private void updateCellBounds( final Cell cell )
+	{
+		Arrays.fill( cellMin, Double.POSITIVE_INFINITY );
+		Arrays.fill( cellMax, Double.NEGATIVE_INFINITY );
+		for ( int i = 0; i < cell.size; ++i )
+			for ( int d = 0; d < n; ++d )
+			{
+				final double v = cell.coords[ i * n + d ];
+				cellMin[ d ] = Math.min( cellMin[ d ], v );
+				cellMax[ d ] = Math.max( cellMax[ d ], v );
+			}
+		cellBounds.set( cell.slot, cellMin, cellMax );
+		cellBounds.bounds( min, max );
+	}
+
+	private void forEachCell( final Consumer< Cell > action )
+	{
+		cells.forEachValue( head -> {
+			for ( Cell cell = head; cell != null; cell = cell.next )
+				action.accept( cell );
+			return true;
+		} );
+	}
+
+	private static double numCellsInBox( final long[] cmin, final long[] cmax )
+	{
+		double count = 1;
+		for ( int d = 0; d < cmin.length; ++d )
+			count *= cmax[ d ] - cmin[ d ] + 1;
+		return count;
+	}
+
+	/**
+	 * Visit all non-empty cells overlapping the box {@code [qmin, qmax]}.
+	 */
+	private void forEachCellInBox( final double[] qmin, final double[] qmax, final Consumer< Cell > action )
+	{
+		final long[] cmin = cellIndex( qmin );
+		final long[] cmax = cellIndex( qmax );
+		if ( numCellsInBox( cmin, cmax ) > numCells )
+		{
+			forEachCell( cell -> {
+				for ( int d = 0; d < n; ++d )
+					if ( cell.index[ d ] < cmin[ d ] || cell.index[ d ] > cmax[ d ] )
+						return;
+				action.accept( cell );
+			} );
+			return;
+		}
+		final long[] index = cmin.clone();
+		while ( true )
+		{
+			final Cell cell = getCell( index );
+			if ( cell != null )
+				action.accept( cell );
+			int d = 0;
+			for ( ; d < n; ++d )
+			{
+				if ( ++index[ d ] <= cmax[ d ] )
+					break;
+				index[ d ] = cmin[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+	}
+
+	/**
+	 * Visit all non-empty cells with Chebyshev distance {@code r} from
+	 * {@code center}.
+	 */
+	private void forEachCellOnRing( final long[] center, final long r, final Consumer< Cell > action )
+	{
+		final long[] offset = new long[ n ];
+		Arrays.fill( offset, -r );
+		final long[] index = new long[ n ];
+		while ( true )
+		{
+			boolean onRing = false;
+			for ( int d = 0; d < n; ++d )
+			{
+				index[ d ] = center[ d ] + offset[ d ];
+				onRing |= Math.abs( offset[ d ] ) == r;
+			}
+			if ( onRing )
+			{
+				final Cell cell = getCell( index );
+				if ( cell != null )
+					action.accept( cell );
+			}
+			int d = 0;
+			for ( ; d < n; ++d )
+			{
+				if ( ++offset[ d ] <= r )
+					break;
+				offset[ d ] = -r;
+			}
+			if ( d >= n )
+				break;
+		}
+	}
+
+	// -- Helper classes --
+
+	private static final class Cell
+	{
+		final long[] index;
+
+		final int n;
+
+		Cell next;
+
+		/** Index in {@code cellList}. */
+		int slot;
+
+		double[] coords;
+
+		Object[] points;
+
+		int size;
+
+		Cell( final long[] index, final int n )
+		{
+			this.index = index;
+			this.n = n;
+			coords = new double[ 4 * n ];
+			points = new Object[ 4 ];
+			size = 0;
+		}
+
+		int indexOf( final double[] pos )
+		{
+			for ( int i = 0; i < size; ++i )
+			{
+				boolean equal = true;
+				for ( int d = 0; d < n && equal; ++d )
+					equal = coords[ i * n + d ] == pos[ d ];
+				if ( equal )
+					return i;
+			}
+			return -1;
+		}
+
+		void add( final double[] pos, final Object point )
+		{
+			if ( size == points.length )
+			{
+				points = Arrays.copyOf( points, 2 * size );
+				coords = Arrays.copyOf( coords, 2 * size * n );
+			}
+			System.arraycopy( pos, 0, coords, size * n, n );
+			points[ size++ ] = point;
+		}
+
+		void remove( final int i )
+		{
+			--size;
+			System.arraycopy( coords, size * n, coords, i * n, n );
+			points[ i ] = points[ size ];
+			points[ size ] = null;
+		}
+
+		@SuppressWarnings( "unchecked" )
+		< L > L point( final int i )
+		{
+			return ( L ) points[ i ];
+		}
+
+		double squaredDistance( final int i, final double[] q )
+		{
+			double sum = 0;
+			for ( int d = 0; d < n; ++d )
+			{
+				final double diff = coords[ i * n + d ] - q[ d ];
+				sum += diff * diff;
+			}
+			return sum;
+		}
+
+		boolean isInside( final int i, final double[] qmin, final double[] qmax )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				final double v = coords[ i * n + d ];
+				if ( v < qmin[ d ] || v > qmax[ d ] )
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static final class NearestNeighbor implements Consumer< Cell >
+	{
+		private final double[] query;
+
+		Object best;
+
+		double bestDistance = Double.POSITIVE_INFINITY;
+
+		NearestNeighbor( final double[] query )
+		{
+			this.query = query;
+		}
+
+		@Override
+		public void accept( final Cell cell )
+		{
+			for ( int i = 0; i < cell.size; ++i )
+			{
+				final double dist = cell.squaredDistance( i, query );
+				if ( dist < bestDistance )
+				{
+					bestDistance = dist;
+					best = cell.points[ i ];
+				}
+			}
+		}
+	}
+
+	private class PointIterator implements Iterator< L >
+	{
+		private final Iterator< Cell > heads = cells.valueCollection().iterator();
+
+		private Cell cell;
+
+		private int i;
+
+		private long remaining = size;
+
+		@Override
+		public boolean hasNext()
+		{
+			return remaining > 0;
+		}
+
+		@Override
+		public L next()
+		{
+			if ( remaining <= 0 )
+				throw new NoSuchElementException();
+			while ( cell == null || i >= cell.size )
+			{
+				cell = cell != null && cell.next != null ? cell.next : heads.next();
+				i = 0;
+			}
+			--remaining;
+			return cell.point( i++ );
+		}
+	}
+}
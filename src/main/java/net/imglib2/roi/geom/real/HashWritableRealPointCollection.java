@@ -0,0 +1,370 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.imglib2.AbstractRealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.util.BoundsTree;
+import net.imglib2.roi.util.VersionCounter;
+
+/**
+ * {@link WritableRealPointCollection} backed by an open addressing hash table
+ * of the exact point coordinates. {@link #test(RealLocalizable)},
+ * {@link #addPoint(RealLocalizable)} and {@link #removePoint(RealLocalizable)}
+ * take expected constant time. Coordinates are stored densely in a flat
+ * {@code double[]}, and the hash table only holds indices into it, so a point
+ * takes {@code n} doubles, one reference and a few ints, plus its share of
+ * the bounds (about {@code n / 2} doubles).
+ * <p>
+ * Bounds are maintained by a {@link BoundsTree} over blocks of
+ * 16 consecutive points. Removing a point moves the last
+ * point into its place, so adding or removing a point rescans at most two
+ * blocks and updates the tree in {@code O(log size)}, also if the point lies
+ * on the bounds.
+ * <p>
+ * Like {@link DefaultWritableRealPointCollection}, a location is contained if
+ * it has exactly the coordinates of one of the points. Points with the same
+ * coordinates replace each other.
+ */
+public class HashWritableRealPointCollection< L extends RealLocalizable > extends AbstractRealInterval implements WritableRealPointCollection< L >, Versioned, ObservableMask
+{
+	private final VersionCounter modifications = new VersionCounter( this );
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final int BLOCK_SIZE = 16;
+
+	/** Coordinates of the points, {@code n} per point. */
+	private double[] coordinates;
+
+	/** Points, the first {@link #size} entries are used. */
+	private Object[] points;
+
+	private int size;
+
+	/** Hash table of point indices plus one, {@code 0} for empty slots. */
+	private int[] table;
+
+	/** Bounds of the blocks of {@link #BLOCK_SIZE} points. */
+	private final BoundsTree blockBounds;
+
+	private final double[] tmp;
+
+	private final double[] blockMin;
+
+	private final double[] blockMax;
+
+	/**
+	 * Creates an empty point collection.
+	 */
+	public HashWritableRealPointCollection( final int numDimensions )
+	{
+		super( numDimensions );
+		coordinates = new double[ INITIAL_CAPACITY * numDimensions ];
+		points = new Object[ INITIAL_CAPACITY ];
+		table = new int[ 2 * INITIAL_CAPACITY ];
+		size = 0;
+		tmp = new double[ numDimensions ];
+		blockMin = new double[ numDimensions ];
+		blockMax = new double[ numDimensions ];
+		blockBounds = new BoundsTree( numDimensions );
+		blockBounds.bounds( min, max );
+	}
+
+	/**
+	 * Creates a point collection which includes points in the given
+	 * {@code Collection}.
+	 *
+	 * @param points
+	 *            points to include in the collection, the first point
+	 *            determines the dimensionality of the collection
+	 */
+	public HashWritableRealPointCollection( final Collection< L > points )
+	{
+		this( points.iterator().next().numDimensions() );
+		for ( final L p : points )
+			addPoint( p );
+	}
+
+	@Override
+	public boolean test( final RealLocalizable l )
+	{
+		if ( size == 0 )
+			return false;
+		final double[] pos = new double[ n ];
+		l.localize( pos );
+		return table[ find( pos ) ] != 0;
+	}
+
+	@Override
+	public Iterable< L > points()
+	{
+		return () -> new PointIterator();
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public void addPoint( final L point )
+	{
+		if ( point.numDimensions() != n )
+			throw new IllegalArgumentException( "Point must have " + n + " dimensions" );
+		point.localize( tmp );
+		final int slot = find( tmp );
+		if ( table[ slot ] != 0 )
+		{
+			points[ table[ slot ] - 1 ] = point;
+			return;
+		}
+
+		final int index = size;
+		if ( index == points.length )
+		{
+			coordinates = Arrays.copyOf( coordinates, 2 * coordinates.length );
+			points = Arrays.copyOf( points, 2 * points.length );
+		}
+		System.arraycopy( tmp, 0, coordinates, index * n, n );
+		points[ index ] = point;
+		++size;
+		if ( 2 * size > table.length )
+			rehash( 2 * table.length );
+		else
+			table[ slot ] = index + 1;
+
+		if ( index % BLOCK_SIZE == 0 )
+			blockBounds.insert( blockBounds.size(), tmp );
+		else
+			updateBlock( index / BLOCK_SIZE );
+		blockBounds.bounds( min, max );
+		modifications.increment();
+	}
+
+	/**
+	 * Removes the point with the same coordinates as the given point, if
+	 * there is one.
+	 */
+	@Override
+	public void removePoint( final L point )
+	{
+		if ( point.numDimensions() != n )
+			throw new IllegalArgumentException( "Point must have " + n + " dimensions" );
+		point.localize( tmp );
+		final int slot = find( tmp );
+		if ( table[ slot ] == 0 )
+			return;
+		final int index = table[ slot ] - 1;
+		delete( slot );
+
+		// move the last point into the gap
+		final int last = --size;
+		if ( index != last )
+		{
+			System.arraycopy( coordinates, last * n, tmp, 0, n );
+			table[ find( tmp ) ] = index + 1;
+			System.arraycopy( tmp, 0, coordinates, index * n, n );
+			points[ index ] = points[ last ];
+		}
+		points[ last ] = null;
+
+		if ( last % BLOCK_SIZE == 0 )
+			blockBounds.remove( blockBounds.size() - 1 );
+		else
+			updateBlock( last / BLOCK_SIZE );
+		if ( index / BLOCK_SIZE != last / BLOCK_SIZE )
+			updateBlock( index / BLOCK_SIZE );
+		blockBounds.bounds( min, max );
+		modifications.increment();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		return obj instanceof RealPointCollection && RealPointCollection.equals( this, ( RealPointCollection< ? > ) obj );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return RealPointCollection.hashCode( this );
+	}
+
+	// -- Helper methods --
+
+	private int hash( final double[] pos, final int offset )
+	{
+		long h = 17;
+		for ( int d = 0; d < n; ++d )
+		{
+			// map -0.0 to 0.0, which compares equal
+			final double v = pos[ offset + d ] == 0 ? 0 : pos[ offset + d ];
+			h = 31 * h + Double.doubleToLongBits( v );
+		}
+		h ^= ( h >>> 33 );
+		h *= 0xff51afd7ed558ccdL;
+		h ^= ( h >>> 33 );
+		return ( int ) h & ( table.length - 1 );
+	}
+
+	private boolean coordinatesEqual( final int index, final double[] pos )
+	{
+		final int o = index * n;
+		for ( int d = 0; d < n; ++d )
+			if ( coordinates[ o + d ] != pos[ d ] )
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the slot containing the index of the point at {@code pos}, or
+	 *         the empty slot where it would be inserted.
+	 */
+	private int find( final double[] pos )
+	{
+		final int mask = table.length - 1;
+		for ( int slot = hash( pos, 0 );; slot = ( slot + 1 ) & mask )
+			if ( table[ slot ] == 0 || coordinatesEqual( table[ slot ] - 1, pos ) )
+				return slot;
+	}
+
+	/**
+	 * Delete the entry in {@code slot}, shifting back following entries of the
+	 * probe sequence (so that no tombstones are needed).
+	 */
+	private void delete( int slot )
+	{
+		final int mask = table.length - 1;
+		int next = ( slot + 1 ) & mask;
+		while ( table[ next ] != 0 )
+		{
+			final int home = hash( coordinates, ( table[ next ] - 1 ) * n );
+			// move the entry at next to slot, if slot lies cyclically in [home, next)
+			final boolean move = slot <= next
+					? ( home <= slot || home > next )
+					: ( home <= slot && home > next );
+			if ( move )
+			{
+				table[ slot ] = table[ next ];
+				slot = next;
+			}
+			next = ( next + 1 ) & mask;
+		}
+		table[ slot ] = 0;
+	}
+
+	private void rehash( final int capacity )
+	{
+		table = new int[ capacity ];
+		final int mask = capacity - 1;
+		for ( int i = 0; i < size; ++i )
+		{
+			int slot = hash( coordinates, i * n );
+			while ( table[ slot ] != 0 )
+				slot = ( slot + 1 ) & mask;
+			table[ slot ] = i + 1;
+		}
+	}
+
+	private void updateBlock( final int block )
+	{
+		Arrays.fill( blockMin, Double.POSITIVE_INFINITY );
+		Arrays.fill( blockMax, Double.NEGATIVE_INFINITY );
+		final int end = Math.min( size, ( block + 1 ) * BLOCK_SIZE );
+		for ( int i = block * BLOCK_SIZE; i < end; ++i )
+			for ( int d = 0; d < n; ++d )
+			{
+				final double v = coordinates[ i * n + d ];
+				blockMin[ d ] = Math.min( blockMin[ d ], v );
+				blockMax[ d ] = Math.max( blockMax[ d ], v );
+			}
+		blockBounds.set( block, blockMin, blockMax );
+	}
+
+	// -- Helper classes --
+
+	private class PointIterator implements Iterator< L >
+	{
+		private int index = 0;
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < size;
+		}
+
+		@Override
+		@SuppressWarnings( "unchecked" )
+		public L next()
+		{
+			if ( index >= size )
+				throw new NoSuchElementException();
+			return ( L ) points[ index++ ];
+		}
+	}
+}
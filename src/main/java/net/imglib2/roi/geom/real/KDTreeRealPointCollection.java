@@ -41,6 +41,7 @@ import net.imglib2.KDTree;
 import net.imglib2.RealLocalizable;
 import net.imglib2.neighborsearch.NearestNeighborSearch;
 import net.imglib2.neighborsearch.NearestNeighborSearchOnKDTree;
+import net.imglib2.roi.Versioned;
 
 /**
  * A {@link RealPointCollection} which checks if points are contained in the
@@ -49,7 +50,7 @@ import net.imglib2.neighborsearch.NearestNeighborSearchOnKDTree;
  *
  * @author Alison Walter
  */
-public class KDTreeRealPointCollection< L extends RealLocalizable > extends NNSRealPointCollection< L >
+public class KDTreeRealPointCollection< L extends RealLocalizable > extends NNSRealPointCollection< L > implements Versioned
 {
 
 	/**
@@ -81,6 +82,15 @@ public class KDTreeRealPointCollection< L extends RealLocalizable > extends NNSR
 		super( tree, new NearestNeighborSearchOnKDTree<>( tree ) );
 	}
 
+	/**
+	 * Points cannot be added or removed, so the bounds never change.
+	 */
+	@Override
+	public long version()
+	{
+		return 0;
+	}
+
 	// -- Helper methods --
 
 	/**
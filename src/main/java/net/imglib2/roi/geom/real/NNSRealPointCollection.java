@@ -45,6 +45,12 @@ import net.imglib2.neighborsearch.NearestNeighborSearchOnIterableRealInterval;
  * A {@link RealPointCollection} which checks if points are in the collection by
  * performing a {@link NearestNeighborSearch} on the provided
  * {@link IterableRealInterval}.
+ * <p>
+ * {@link NearestNeighborSearch} is stateful, so each thread calling
+ * {@link #test(RealLocalizable)} performs its searches on its own
+ * {@link NearestNeighborSearch#copy() copy} of the search. This makes
+ * concurrent calls to {@code test} safe, as long as the points are not
+ * modified at the same time.
  *
  * @author Alison Walter
  */
@@ -54,6 +60,8 @@ public class NNSRealPointCollection< L extends RealLocalizable > extends Abstrac
 
 	protected NearestNeighborSearch< L > search;
 
+	private final ThreadLocal< NearestNeighborSearch< L > > searches = ThreadLocal.withInitial( () -> search.copy() );
+
 	/**
 	 * Creates a {@link RealPointCollection}.
 	 *
@@ -93,14 +101,15 @@ public class NNSRealPointCollection< L extends RealLocalizable > extends Abstrac
 	@Override
 	public boolean test( final RealLocalizable l )
 	{
-		search.search( l );
-		return search.getSquareDistance() <= 0;
+		final NearestNeighborSearch< L > s = searches.get();
+		s.search( l );
+		return s.getSquareDistance() <= 0;
 	}
 
 	@Override
 	public double realMin( final int d )
 	{
-		return interval.realMax( d );
+		return interval.realMin( d );
 	}
 
 	@Override
@@ -38,7 +38,6 @@ import java.util.List;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
-import net.imglib2.roi.geom.GeomMaths;
 
 /**
  * A {@link Polygon2D} which contains no boundary points, and is defined by the
@@ -67,35 +66,8 @@ public class OpenWritablePolygon2D extends DefaultWritablePolygon2D
 	@Override
 	public boolean test( final RealLocalizable localizable )
 	{
-		// check edges, this needs to be done first because pnpoly has
-		// unknown edge behavior
-		boolean edge = false;
-		final double[] pt1 = new double[ 2 ];
-		final double[] pt2 = new double[ 2 ];
-		for ( int i = 0; i < x.size(); i++ )
-		{
-			pt1[ 0 ] = x.get( i );
-			pt1[ 1 ] = y.get( i );
-
-			if ( i == x.size() - 1 )
-			{
-				pt2[ 0 ] = x.get( 0 );
-				pt2[ 1 ] = y.get( 0 );
-			}
-			else
-			{
-				pt2[ 0 ] = x.get( i + 1 );
-				pt2[ 1 ] = y.get( i + 1 );
-			}
-
-			edge = GeomMaths.lineContains( pt1, pt2, localizable, 2 );
-
-			if ( edge )
-				return false;
-		}
-
-		// not on edge, check inside
-		return GeomMaths.pnpoly( x, y, localizable );
+		// points on edges are excluded
+		return !testBoundary( localizable ) && testInside( localizable );
 	}
 
 	@Override
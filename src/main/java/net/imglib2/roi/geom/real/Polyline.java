@@ -38,6 +38,7 @@ import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMaths;
 
 /**
  * A {@link RealMaskRealInterval} which defines a polyline in n-d space.
@@ -59,6 +60,26 @@ public interface Polyline extends Polyshape
 		return BoundaryType.CLOSED;
 	}
 
+	/**
+	 * Computes the distance from {@code point} to the closest segment of this
+	 * polyline, or {@link Double#POSITIVE_INFINITY} if the polyline has fewer
+	 * than two vertices. The default implementation checks every segment.
+	 */
+	default double distance( final RealLocalizable point )
+	{
+		final int n = numDimensions();
+		double best = Double.POSITIVE_INFINITY;
+		final double[] a = new double[ n ];
+		final double[] b = new double[ n ];
+		for ( int i = 1; i < numVertices(); i++ )
+		{
+			vertex( i - 1 ).localize( a );
+			vertex( i ).localize( b );
+			best = Math.min( best, GeomMaths.squaredDistanceToSegment( a, b, point, n ) );
+		}
+		return Math.sqrt( best );
+	}
+
 	/**
 	 * Determines whether this polyline describes the same region as another one.
 	 * 
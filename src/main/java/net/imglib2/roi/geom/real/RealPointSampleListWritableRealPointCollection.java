@@ -40,6 +40,10 @@ import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.RealPointSampleList;
 import net.imglib2.neighborsearch.NearestNeighborSearch;
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.util.VersionCounter;
 
 /**
  * A {@link WritableRealPointCollection} which checks if points are contained in
@@ -53,8 +57,9 @@ import net.imglib2.neighborsearch.NearestNeighborSearch;
  *
  * @author Alison Walter
  */
-public class RealPointSampleListWritableRealPointCollection< L extends RealLocalizable > extends NNSRealPointCollection< L > implements WritableRealPointCollection< L >
+public class RealPointSampleListWritableRealPointCollection< L extends RealLocalizable > extends NNSRealPointCollection< L > implements WritableRealPointCollection< L >, Versioned, ObservableMask
 {
+	private final VersionCounter modifications = new VersionCounter( this );
 
 	/**
 	 * Creates a {@link RealPointCollection} with the points in the
@@ -92,6 +97,31 @@ public class RealPointSampleListWritableRealPointCollection< L extends RealLocal
 		final double[] pos = new double[ n ];
 		point.localize( pos );
 		( ( RealPointSampleList< L > ) this.points() ).add( new RealPoint( pos ), point );
+		modifications.increment();
+	}
+
+	@Override
+	public long version()
+	{
+		return modifications.get();
+	}
+
+	@Override
+	public void addModificationListener( final ModificationListener listener )
+	{
+		modifications.addListener( listener );
+	}
+
+	@Override
+	public void removeModificationListener( final ModificationListener listener )
+	{
+		modifications.removeListener( listener );
+	}
+
+	@Override
+	public void modify( final Runnable edits )
+	{
+		modifications.modify( edits );
 	}
 
 	// -- Helper methods --
@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.roi.geom.real;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.MaskPredicate;
+import net.imglib2.roi.RealMaskRealInterval;
+
+/**
+ * A {@link RealMaskRealInterval} which defines a tube (a thick polyline) in
+ * n-d space. Each vertex of the center line has its own radius. Each segment
+ * of the tube contains the spheres around its two vertices, and the points
+ * whose projection onto the segment falls between the vertices and whose
+ * distance from the segment is at most the linearly interpolated radius. A
+ * tube with a single vertex is a sphere.
+ */
+public interface Tube extends Polyshape
+{
+	@Override
+	default Class<?> maskType()
+	{
+		return Tube.class;
+	}
+
+	/** Returns the radius of the tube at the specified vertex. */
+	double radius( int pos );
+
+	/**
+	 * Determines whether this tube describes the same region as another one.
+	 *
+	 * @param obj
+	 *            The tube to compare with this one.
+	 * @return True iff the tubes describe the same region.
+	 * @see MaskPredicate#equals(Object)
+	 * @see #equals(Tube, Tube)
+	 */
+	@Override
+	boolean equals( Object obj );
+
+	/**
+	 * Determines whether two tubes describe the same region.
+	 * <p>
+	 * Two tubes are equal iff they have the same mask type, boundary type,
+	 * dimensions, vertices and radii.
+	 * </p>
+	 *
+	 * @param tube1
+	 *            The first tube to compare.
+	 * @param tube2
+	 *            The second tube to compare.
+	 * @return True iff the tubes describe the same region.
+	 */
+	static boolean equals( final Tube tube1, final Tube tube2 )
+	{
+		if ( tube1 == null || tube2 == null )
+			return tube1 == tube2;
+		if ( tube1.numVertices() != tube2.numVertices() || !Polyshape.equals( tube1, tube2 ) )
+			return false;
+		for ( int i = 0; i < tube1.numVertices(); i++ )
+			if ( tube1.radius( i ) != tube2.radius( i ) )
+				return false;
+		return true;
+	}
+
+	/**
+	 * Computes a hash code for a tube. The hash code value is based on the
+	 * vertex positions, radii and boundary type.
+	 *
+	 * @param tube
+	 *            The tube for which to compute the hash code.
+	 * @return Hash code of the tube.
+	 */
+	static int hashCode( final Tube tube )
+	{
+		int result = 331;
+		int t = 13;
+		for ( int i = 0; i < tube.numVertices(); i++ )
+		{
+			final RealLocalizable v = tube.vertex( i );
+			for ( int d = 0; d < v.numDimensions(); d++ )
+			{
+				final double p = v.getDoublePosition( d );
+				result += t * ( p * p );
+			}
+			result += t * tube.radius( i );
+			t += 3;
+		}
+		if ( tube.boundaryType() == BoundaryType.CLOSED )
+			result += 17;
+		else if ( tube.boundaryType() == BoundaryType.OPEN )
+			result += 53;
+		else
+			result += 5;
+		return result;
+	}
+}
@@ -35,6 +35,7 @@
 package net.imglib2.roi.geom.real;
 
 import java.util.Collection;
+import java.util.List;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
@@ -58,4 +59,15 @@ public interface WritablePolyshape extends Polyshape
 
 	/** Adds vertices starting at the given index. */
 	void addVertices( int index, Collection< RealLocalizable > vertices );
+
+	/**
+	 * Moves the vertices starting at the given index to the given positions.
+	 * This is equivalent to setting the position of each {@link #vertex(int)}
+	 * in turn, but implementations may update their bounds only once.
+	 */
+	default void setVertices( final int index, final List< ? extends RealLocalizable > positions )
+	{
+		for ( int i = 0; i < positions.size(); i++ )
+			vertex( index + i ).setPosition( positions.get( i ) );
+	}
 }
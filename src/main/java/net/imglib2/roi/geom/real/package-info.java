@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+/**
+ * Geometric {@link net.imglib2.roi.RealMask}s in real space: boxes,
+ * ellipsoids, spheres, polygons, polylines, lines, points and point
+ * collections.
+ * <h2>Concurrency</h2>
+ * <p>
+ * {@code test(RealLocalizable)} and the
+ * {@link net.imglib2.RealInterval} methods of all masks in this package may
+ * be called concurrently from multiple threads, e.g. when rasterizing a mask
+ * in parallel. Masks which need per-query state, like the
+ * {@link net.imglib2.roi.geom.real.NNSRealPointCollection nearest neighbor
+ * search} based point collections, keep one copy of that state per thread.
+ * </p>
+ * <p>
+ * The {@code Writable*} masks are not synchronized. Modifying a mask (moving
+ * vertices, changing a center or radius, adding or removing points) while
+ * other threads call {@code test} or query its bounds gives undefined
+ * results; callers must synchronize such access themselves. Bounds are
+ * updated by the modifying call, also when removing points from
+ * {@link net.imglib2.roi.geom.real.DefaultWritableRealPointCollection},
+ * {@link net.imglib2.roi.geom.real.GridWritableRealPointCollection} or
+ * {@link net.imglib2.roi.geom.real.HashWritableRealPointCollection}, so
+ * querying bounds never modifies a mask.
+ * </p>
+ */
+package net.imglib2.roi.geom.real;
@@ -45,9 +45,13 @@ import net.imglib2.RealPositionable;
 import net.imglib2.outofbounds.OutOfBounds;
 import net.imglib2.outofbounds.OutOfBoundsConstantValue;
 import net.imglib2.roi.PositionableIterableRegion;
+import net.imglib2.roi.boundary.Boundaries;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
 import net.imglib2.roi.labeling.LabelRegions.LabelRegionProperties;
 import net.imglib2.roi.util.PositionableInterval;
 import net.imglib2.roi.util.PositionableLocalizable;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegionBuilder;
 import net.imglib2.type.logic.BoolType;
 import net.imglib2.util.Intervals;
 
@@ -194,6 +198,61 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 		return size;
 	}
 
+	/**
+	 * Get the pixels of this region, at its current position, as a
+	 * {@link RunLengthRegion}. This decodes the iteration codes of the region
+	 * directly, without visiting individual pixels.
+	 *
+	 * @return an immutable snapshot of this region.
+	 */
+	public RunLengthRegion toRunLengthRegion()
+	{
+		update();
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		for ( final TIntArrayList itcode : itcodes )
+			builder.addIterationCode( itcode, currentOffset );
+		return builder.build();
+	}
+
+	/**
+	 * Get the inner boundary of this region, at its current position: the
+	 * pixels of the region with at least one neighbor outside the region. The
+	 * boundary is computed from the iteration codes of the region, see
+	 * {@link Boundaries#inner(RunLengthRegion, StructuringElement)}.
+	 */
+	public RunLengthRegion innerBoundary( final StructuringElement structuringElement )
+	{
+		return Boundaries.inner( toRunLengthRegion(), structuringElement );
+	}
+
+	/**
+	 * Get the outer boundary of this region, at its current position: the
+	 * pixels outside the region with at least one neighbor in the region. The
+	 * boundary is restricted to the interval of the labeling (moved along with
+	 * the region).
+	 */
+	public RunLengthRegion outerBoundary( final StructuringElement structuringElement )
+	{
+		final long[] min = Intervals.minAsLongArray( regions.labeling );
+		final long[] max = Intervals.maxAsLongArray( regions.labeling );
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] += currentOffset[ d ];
+			max[ d ] += currentOffset[ d ];
+		}
+		return Boundaries.outer( toRunLengthRegion(), structuringElement, new FinalInterval( min, max ) );
+	}
+
+	/**
+	 * Get the surface area (perimeter in 2D) of this region, as the number of
+	 * pixel faces between the region and its complement. See
+	 * {@link Boundaries#surfaceArea(RunLengthRegion)}.
+	 */
+	public long surfaceArea()
+	{
+		return Boundaries.surfaceArea( toRunLengthRegion() );
+	}
+
 	@Override
 	public Void firstElement()
 	{
@@ -39,14 +39,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.Cursor;
 import net.imglib2.Localizable;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.boundary.Contour;
+import net.imglib2.roi.boundary.Contours;
 import net.imglib2.roi.util.iterationcode.IterationCodeBuilder;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
 import net.imglib2.view.Views;
 
 /**
@@ -173,6 +181,68 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 		};
 	}
 
+	/**
+	 * Get the inner boundaries of all labels, see
+	 * {@link LabelRegion#innerBoundary(StructuringElement)}.
+	 */
+	public Map< T, RunLengthRegion > innerBoundaries( final StructuringElement structuringElement )
+	{
+		return forEachLabel( region -> region.innerBoundary( structuringElement ) );
+	}
+
+	/**
+	 * Get the outer boundaries of all labels, see
+	 * {@link LabelRegion#outerBoundary(StructuringElement)}.
+	 */
+	public Map< T, RunLengthRegion > outerBoundaries( final StructuringElement structuringElement )
+	{
+		return forEachLabel( region -> region.outerBoundary( structuringElement ) );
+	}
+
+	/**
+	 * Get the surface areas (perimeters in 2D) of all labels, see
+	 * {@link LabelRegion#surfaceArea()}.
+	 */
+	public Map< T, Long > surfaceAreas()
+	{
+		return forEachLabel( LabelRegion::surfaceArea );
+	}
+
+	/**
+	 * Trace the contours of all labels of a 2D labeling, see
+	 * {@link Contours#trace(RunLengthRegion, StructuringElement, double)}.
+	 *
+	 * @param tolerance
+	 *            Douglas-Peucker tolerance, or 0 for no simplification.
+	 */
+	public Map< T, List< Contour > > contours( final StructuringElement connectivity, final double tolerance )
+	{
+		if ( n != 2 )
+			throw new IllegalArgumentException( "labeling must be 2D" );
+		return forEachLabel( region -> Contours.trace( region.toRunLengthRegion(), connectivity, tolerance ) );
+	}
+
+	/**
+	 * Apply {@code measure} to the regions of all labels (at their original
+	 * position) in parallel. Every region is decoded from its iteration codes
+	 * once; the labeling is not accessed.
+	 */
+	private < R > Map< T, R > forEachLabel( final Function< LabelRegion< T >, R > measure )
+	{
+		final List< LabelRegion< T > > labelRegions = new ArrayList<>();
+		synchronized ( this )
+		{
+			update();
+			for ( final Entry< T, LabelRegionProperties > entry : labelToLabelRegionProperties.entrySet() )
+				labelRegions.add( new LabelRegion<>( this, entry.getValue(), entry.getKey() ) );
+		}
+		final List< R > results = labelRegions.parallelStream().map( measure ).collect( Collectors.toList() );
+		final Map< T, R > map = new HashMap<>();
+		for ( int i = 0; i < labelRegions.size(); ++i )
+			map.put( labelRegions.get( i ).getLabel(), results.get( i ) );
+		return map;
+	}
+
 	static final class FragmentProperties extends IterationCodeBuilder
 	{
 		private final int index;
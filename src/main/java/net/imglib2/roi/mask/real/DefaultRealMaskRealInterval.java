@@ -41,12 +41,13 @@ import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Versioned;
 import net.imglib2.util.Intervals;
 
 /**
  * @author Tobias Pietzsch
  */
-public class DefaultRealMaskRealInterval extends AbstractRealInterval implements RealMaskRealInterval
+public class DefaultRealMaskRealInterval extends AbstractRealInterval implements RealMaskRealInterval, Versioned
 {
 	private final BoundaryType boundaryType;
 
@@ -66,6 +67,16 @@ public class DefaultRealMaskRealInterval extends AbstractRealInterval implements
 		this.knownConstant = knownConstant;
 	}
 
+	/**
+	 * The bounds are copied on construction and never change. The predicate
+	 * is not tracked, so this does not version the contents.
+	 */
+	@Override
+	public long version()
+	{
+		return 0;
+	}
+
 	@Override
 	public BoundaryType boundaryType()
 	{
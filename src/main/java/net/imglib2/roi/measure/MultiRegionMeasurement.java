@@ -0,0 +1,413 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.measure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.imglib2.EuclideanSpace;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.labeling.LabelRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Measures {@link RegionStatistics} of many regions on one image in a single
+ * sweep over the image.
+ * <p>
+ * The image is traversed line by line in flat iteration order. The regions
+ * are sorted by their bounding box in the last dimension, and an active set
+ * of regions whose bounding box overlaps the current line is maintained while
+ * sweeping. Each line is read into a buffer once (only the part overlapped by
+ * active regions), and the statistics of all active regions are updated from
+ * that buffer. So the image is read at most once, independent of how many
+ * (possibly overlapping) regions there are.
+ * <p>
+ * Discrete regions are converted to {@link RunLengthRegion}s and contribute
+ * their runs on each line. {@link RealMaskRealInterval}s are tested at the
+ * integer positions inside their bounding box, as in
+ * {@link net.imglib2.roi.Masks#toIterableRegion(RealMaskRealInterval)}; they
+ * must support concurrent {@code test()} calls if
+ * {@link #measure(int) measured in parallel}.
+ *
+ * @param <T>
+ *            pixel type of the image
+ */
+public class MultiRegionMeasurement< T extends RealType< T > >
+{
+	private final RandomAccessibleInterval< T > image;
+
+	private final int n;
+
+	private final List< Region > regions;
+
+	private double histogramMin;
+
+	private double histogramMax;
+
+	private int numBins;
+
+	public MultiRegionMeasurement( final RandomAccessibleInterval< T > image )
+	{
+		this.image = image;
+		n = image.numDimensions();
+		regions = new ArrayList<>();
+		numBins = 0;
+	}
+
+	/**
+	 * Compute a histogram with {@code numBins} bins covering
+	 * {@code [min, max]} for every region.
+	 */
+	public void setHistogram( final double min, final double max, final int numBins )
+	{
+		// validate the parameters
+		new RegionStatistics( min, max, numBins );
+		histogramMin = min;
+		histogramMax = max;
+		this.numBins = numBins;
+	}
+
+	/**
+	 * Add a region to be measured.
+	 *
+	 * @return the index of the region in the result of {@link #measure()}.
+	 */
+	public int add( final RunLengthRegion region )
+	{
+		checkDimensions( region );
+		regions.add( new RunLengthRegionRef( region ) );
+		return regions.size() - 1;
+	}
+
+	/**
+	 * Add a region to be measured. The region is converted to a
+	 * {@link RunLengthRegion} at its current position.
+	 *
+	 * @return the index of the region in the result of {@link #measure()}.
+	 */
+	public int add( final LabelRegion< ? > region )
+	{
+		return add( region.toRunLengthRegion() );
+	}
+
+	/**
+	 * Add a region to be measured. The region is converted to a
+	 * {@link RunLengthRegion}.
+	 *
+	 * @return the index of the region in the result of {@link #measure()}.
+	 */
+	public int add( final IterableInterval< Void > region )
+	{
+		return add( RunLengthRegions.fromIterable( region ) );
+	}
+
+	/**
+	 * Add a mask to be measured.
+	 *
+	 * @return the index of the mask in the result of {@link #measure()}.
+	 */
+	public int add( final RealMaskRealInterval mask )
+	{
+		checkDimensions( mask );
+		regions.add( new MaskRef( mask ) );
+		return regions.size() - 1;
+	}
+
+	/**
+	 * @return the number of regions added.
+	 */
+	public int numRegions()
+	{
+		return regions.size();
+	}
+
+	/**
+	 * Measure all regions in a single sweep over the image.
+	 *
+	 * @return statistics for every region, in the order they were added.
+	 */
+	public List< RegionStatistics > measure()
+	{
+		return measure( 1 );
+	}
+
+	/**
+	 * Measure all regions, splitting the image into {@code numTasks} slabs
+	 * along the last dimension which are swept in parallel.
+	 *
+	 * @return statistics for every region, in the order they were added.
+	 */
+	public List< RegionStatistics > measure( final int numTasks )
+	{
+		if ( numTasks < 1 )
+			throw new IllegalArgumentException( "numTasks must be positive" );
+
+		final int outer = n - 1;
+		final Integer[] order = new Integer[ regions.size() ];
+		for ( int i = 0; i < order.length; ++i )
+			order[ i ] = i;
+		Arrays.sort( order, Comparator.comparingLong( i -> regions.get( i ).min[ outer ] ) );
+		final int[] sorted = new int[ order.length ];
+		for ( int i = 0; i < order.length; ++i )
+			sorted[ i ] = order[ i ];
+
+		final RegionStatistics[] result = createStatistics();
+		if ( Intervals.isEmpty( image ) )
+			return Arrays.asList( result );
+
+		final long outerMin = image.min( outer );
+		final long outerSize = image.dimension( outer );
+		final int slabs = n > 1 ? ( int ) Math.min( numTasks, outerSize ) : 1;
+		final IntStream tasks = IntStream.range( 0, slabs );
+		final List< RegionStatistics[] > partial = ( slabs > 1 ? tasks.parallel() : tasks ).mapToObj( t -> {
+			final long from = outerMin + outerSize * t / slabs;
+			final long to = outerMin + outerSize * ( t + 1 ) / slabs - 1;
+			return sweep( sorted, from, to );
+		} ).collect( Collectors.toList() );
+
+		for ( final RegionStatistics[] stats : partial )
+			for ( int i = 0; i < result.length; ++i )
+				result[ i ].add( stats[ i ] );
+		return Arrays.asList( result );
+	}
+
+	// -- Helper methods --
+
+	private RegionStatistics[] createStatistics()
+	{
+		final RegionStatistics[] stats = new RegionStatistics[ regions.size() ];
+		for ( int i = 0; i < stats.length; ++i )
+			stats[ i ] = new RegionStatistics( histogramMin, histogramMax, numBins );
+		return stats;
+	}
+
+	/**
+	 * Sweep the lines with position {@code from <= p[n-1] <= to} in the last
+	 * dimension.
+	 */
+	private RegionStatistics[] sweep( final int[] sorted, final long from, final long to )
+	{
+		final RegionStatistics[] stats = createStatistics();
+		final long[] imin = Intervals.minAsLongArray( image );
+		final long[] imax = Intervals.maxAsLongArray( image );
+		final int outer = n - 1;
+		if ( n > 1 )
+		{
+			imin[ outer ] = from;
+			imax[ outer ] = to;
+		}
+
+		final RandomAccess< T > ra = image.randomAccess();
+		final RealPoint point = new RealPoint( n );
+		final double[] buffer = new double[ ( int ) ( imax[ 0 ] - imin[ 0 ] + 1 ) ];
+		final TIntArrayList active = new TIntArrayList();
+		final TIntArrayList candidates = new TIntArrayList();
+		int nextSorted = 0;
+		if ( n == 1 )
+			active.add( sorted );
+
+		final long[] pos = imin.clone();
+		long currentOuter = Long.MIN_VALUE;
+		while ( true )
+		{
+			// update the set of regions overlapping the current position in the last dimension
+			if ( n > 1 && pos[ outer ] != currentOuter )
+			{
+				currentOuter = pos[ outer ];
+				for ( int i = active.size() - 1; i >= 0; --i )
+					if ( regions.get( active.get( i ) ).max[ outer ] < currentOuter )
+						active.removeAt( i );
+				while ( nextSorted < sorted.length && regions.get( sorted[ nextSorted ] ).min[ outer ] <= currentOuter )
+				{
+					final int r = sorted[ nextSorted++ ];
+					if ( regions.get( r ).max[ outer ] >= currentOuter )
+						active.add( r );
+				}
+			}
+
+			// find regions overlapping the current line
+			candidates.resetQuick();
+			long lo = Long.MAX_VALUE;
+			long hi = Long.MIN_VALUE;
+			for ( int i = 0; i < active.size(); ++i )
+			{
+				final Region region = regions.get( active.get( i ) );
+				if ( region.overlapsLine( pos, imin[ 0 ], imax[ 0 ] ) )
+				{
+					candidates.add( active.get( i ) );
+					lo = Math.min( lo, region.min[ 0 ] );
+					hi = Math.max( hi, region.max[ 0 ] );
+				}
+			}
+
+			if ( !candidates.isEmpty() )
+			{
+				lo = Math.max( lo, imin[ 0 ] );
+				hi = Math.min( hi, imax[ 0 ] );
+				pos[ 0 ] = lo;
+				ra.setPosition( pos );
+				for ( int i = 0; i <= hi - lo; ++i )
+				{
+					buffer[ i ] = ra.get().getRealDouble();
+					ra.fwd( 0 );
+				}
+				for ( int i = 0; i < candidates.size(); ++i )
+				{
+					final int r = candidates.get( i );
+					regions.get( r ).accumulate( pos, buffer, lo, hi, stats[ r ], point );
+				}
+				pos[ 0 ] = imin[ 0 ];
+			}
+
+			// next line
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( ++pos[ d ] <= imax[ d ] )
+					break;
+				pos[ d ] = imin[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+		return stats;
+	}
+
+	private void checkDimensions( final EuclideanSpace region )
+	{
+		if ( region.numDimensions() != n )
+			throw new IllegalArgumentException( "region and image dimensionalities do not match" );
+	}
+
+	// -- Helper classes --
+
+	private static abstract class Region
+	{
+		final long[] min;
+
+		final long[] max;
+
+		Region( final Interval bounds )
+		{
+			min = Intervals.minAsLongArray( bounds );
+			max = Intervals.maxAsLongArray( bounds );
+		}
+
+		/**
+		 * Check whether the bounding box overlaps the line at {@code pos}
+		 * (dimension 0 ranging from {@code minX} to {@code maxX}).
+		 */
+		boolean overlapsLine( final long[] pos, final long minX, final long maxX )
+		{
+			if ( min[ 0 ] > maxX || max[ 0 ] < minX )
+				return false;
+			for ( int d = 1; d < pos.length; ++d )
+				if ( pos[ d ] < min[ d ] || pos[ d ] > max[ d ] )
+					return false;
+			return true;
+		}
+
+		/**
+		 * Add the values of the pixels of the line at {@code pos} inside this
+		 * region to {@code stats}. {@code line[ 0 ]} is the value at
+		 * {@code x = lineMin}, and {@code line} is valid up to
+		 * {@code lineMax}.
+		 */
+		abstract void accumulate( long[] pos, double[] line, long lineMin, long lineMax, RegionStatistics stats, RealPoint point );
+	}
+
+	private static final class RunLengthRegionRef extends Region
+	{
+		private final RunLengthRegion region;
+
+		RunLengthRegionRef( final RunLengthRegion region )
+		{
+			super( region );
+			this.region = region;
+		}
+
+		@Override
+		void accumulate( final long[] pos, final double[] line, final long lineMin, final long lineMax, final RegionStatistics stats, final RealPoint point )
+		{
+			final int l = region.findLine( pos );
+			if ( l < 0 )
+				return;
+			for ( int r = region.lineRunStart( l ); r < region.lineRunStart( l + 1 ); ++r )
+			{
+				final long x0 = Math.max( region.runMin( r ), lineMin );
+				final long x1 = Math.min( region.runMax( r ), lineMax );
+				for ( long x = x0; x <= x1; ++x )
+					stats.add( line[ ( int ) ( x - lineMin ) ] );
+			}
+		}
+	}
+
+	private static final class MaskRef extends Region
+	{
+		private final RealMaskRealInterval mask;
+
+		MaskRef( final RealMaskRealInterval mask )
+		{
+			super( Intervals.largestContainedInterval( mask ) );
+			this.mask = mask;
+		}
+
+		@Override
+		void accumulate( final long[] pos, final double[] line, final long lineMin, final long lineMax, final RegionStatistics stats, final RealPoint point )
+		{
+			point.setPosition( pos );
+			final long x0 = Math.max( min[ 0 ], lineMin );
+			final long x1 = Math.min( max[ 0 ], lineMax );
+			for ( long x = x0; x <= x1; ++x )
+			{
+				point.setPosition( x, 0 );
+				if ( mask.test( point ) )
+					stats.add( line[ ( int ) ( x - lineMin ) ] );
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.measure;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates count, sum, sum of squares, minimum, maximum and (optionally) a
+ * histogram of the pixel values inside one region.
+ * <p>
+ * Statistics of disjoint parts of a region can be combined with
+ * {@link #add(RegionStatistics)}.
+ */
+public class RegionStatistics
+{
+	private long count;
+
+	private double sum;
+
+	private double sumOfSquares;
+
+	private double min;
+
+	private double max;
+
+	private final long[] histogram;
+
+	private final double histogramMin;
+
+	private final double histogramMax;
+
+	private final double binScale;
+
+	/**
+	 * Create statistics without histogram.
+	 */
+	public RegionStatistics()
+	{
+		this( 0, 0, 0 );
+	}
+
+	/**
+	 * Create statistics with a histogram of {@code numBins} equally sized bins
+	 * covering {@code [histogramMin, histogramMax]}. Values outside this range
+	 * are not counted in the histogram. If {@code numBins == 0}, no histogram
+	 * is computed.
+	 */
+	public RegionStatistics( final double histogramMin, final double histogramMax, final int numBins )
+	{
+		if ( numBins < 0 )
+			throw new IllegalArgumentException( "numBins must not be negative" );
+		if ( numBins > 0 && !( histogramMax > histogramMin ) )
+			throw new IllegalArgumentException( "histogramMax must be greater than histogramMin" );
+		count = 0;
+		sum = 0;
+		sumOfSquares = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		histogram = numBins > 0 ? new long[ numBins ] : null;
+		this.histogramMin = histogramMin;
+		this.histogramMax = histogramMax;
+		binScale = numBins > 0 ? numBins / ( histogramMax - histogramMin ) : 0;
+	}
+
+	/**
+	 * Create empty statistics with the same histogram configuration as
+	 * {@code other}.
+	 */
+	public RegionStatistics( final RegionStatistics other )
+	{
+		this( other.histogramMin, other.histogramMax, other.histogram == null ? 0 : other.histogram.length );
+	}
+
+	/**
+	 * Add a pixel value.
+	 */
+	public void add( final double value )
+	{
+		++count;
+		sum += value;
+		sumOfSquares += value * value;
+		if ( value < min )
+			min = value;
+		if ( value > max )
+			max = value;
+		if ( histogram != null && value >= histogramMin && value <= histogramMax )
+			++histogram[ Math.min( histogram.length - 1, ( int ) ( ( value - histogramMin ) * binScale ) ) ];
+	}
+
+	/**
+	 * Add the statistics of a disjoint part of the region.
+	 */
+	public void add( final RegionStatistics other )
+	{
+		if ( ( histogram == null ) != ( other.histogram == null )
+				|| ( histogram != null && ( histogram.length != other.histogram.length || histogramMin != other.histogramMin || histogramMax != other.histogramMax ) ) )
+			throw new IllegalArgumentException( "incompatible histograms" );
+		count += other.count;
+		sum += other.sum;
+		sumOfSquares += other.sumOfSquares;
+		min = Math.min( min, other.min );
+		max = Math.max( max, other.max );
+		if ( histogram != null )
+			for ( int i = 0; i < histogram.length; ++i )
+				histogram[ i ] += other.histogram[ i ];
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public double getSum()
+	{
+		return sum;
+	}
+
+	public double getSumOfSquares()
+	{
+		return sumOfSquares;
+	}
+
+	/**
+	 * @return the minimum value, or {@code +Infinity} if no values were added.
+	 */
+	public double getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * @return the maximum value, or {@code -Infinity} if no values were added.
+	 */
+	public double getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * @return the mean value, or {@code NaN} if no values were added.
+	 */
+	public double getMean()
+	{
+		return sum / count;
+	}
+
+	/**
+	 * @return the sample variance (normalized by {@code count - 1}), or
+	 *         {@code NaN} if less than two values were added.
+	 */
+	public double getVariance()
+	{
+		if ( count < 2 )
+			return Double.NaN;
+		final double mean = getMean();
+		return Math.max( 0, ( sumOfSquares - count * mean * mean ) / ( count - 1 ) );
+	}
+
+	/**
+	 * @return a copy of the histogram counts, or {@code null} if no histogram
+	 *         is computed.
+	 */
+	public long[] getHistogram()
+	{
+		return histogram == null ? null : Arrays.copyOf( histogram, histogram.length );
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RegionStatistics{count=" + count + ", mean=" + getMean() + ", min=" + min + ", max=" + max + "}";
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.Arrays;
+
+import net.imglib2.EuclideanSpace;
+
+/**
+ * Min/max segment tree over a list of boxes (typically single positions, e.g.
+ * vertices) for maintaining bounds incrementally.
+ * <p>
+ * Each entry is a leaf of a complete binary tree whose inner nodes store the
+ * bounding box of their subtree, so the bounds of all entries are available
+ * at the root. Changing a single entry updates the path to the root in
+ * {@code O(log N)}, instead of rescanning all {@code N} entries. Inserting or
+ * removing entries shifts the following entries and rebuilds the tree in
+ * {@code O(N)}, which is the same order as shifting the entries of an array
+ * list. Appending an entry or removing the last one only updates the path to
+ * the root (amortized, if the tree has to grow).
+ * <p>
+ * For bulk updates, {@link #setQuick} changes entries without updating the
+ * tree, and {@link #update()} then rebuilds it once.
+ * <p>
+ * Entries can be empty (the default for new entries), and do not contribute
+ * to the bounds. If all entries are empty, {@code min} is
+ * {@link Double#POSITIVE_INFINITY} and {@code max} is
+ * {@link Double#NEGATIVE_INFINITY}.
+ */
+public class BoundsTree implements EuclideanSpace
+{
+	private final int n;
+
+	/** Number of entries. */
+	private int size;
+
+	/** Number of leaves, a power of two. */
+	private int capacity;
+
+	/** Node {@code i} has its min at {@code mins[i*n]} to {@code mins[i*n+n-1]}. Node 1 is the root, leaves start at {@code capacity}. */
+	private double[] mins;
+
+	private double[] maxs;
+
+	private boolean dirty;
+
+	public BoundsTree( final int numDimensions )
+	{
+		this( numDimensions, 0 );
+	}
+
+	/**
+	 * Creates a tree with {@code size} empty entries.
+	 */
+	public BoundsTree( final int numDimensions, final int size )
+	{
+		n = numDimensions;
+		this.size = 0;
+		capacity = 0;
+		mins = new double[ 0 ];
+		maxs = new double[ 0 ];
+		grow( size );
+		this.size = size;
+		dirty = false;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Sets entry {@code index} to the single position {@code position} and
+	 * updates the bounds.
+	 */
+	public void set( final int index, final double[] position )
+	{
+		set( index, position, position );
+	}
+
+	/**
+	 * Sets entry {@code index} to the box {@code [min, max]} and updates the
+	 * bounds.
+	 */
+	public void set( final int index, final double[] min, final double[] max )
+	{
+		write( index, min, max );
+		if ( !dirty )
+			propagate( index );
+	}
+
+	/**
+	 * Sets entry {@code index} to the single position {@code position},
+	 * without updating the bounds. Call {@link #update()} after the last
+	 * change.
+	 */
+	public void setQuick( final int index, final double[] position )
+	{
+		setQuick( index, position, position );
+	}
+
+	/**
+	 * Sets entry {@code index} to the box {@code [min, max]}, without
+	 * updating the bounds. Call {@link #update()} after the last change.
+	 */
+	public void setQuick( final int index, final double[] min, final double[] max )
+	{
+		write( index, min, max );
+		dirty = true;
+	}
+
+	/**
+	 * Makes entry {@code index} empty and updates the bounds.
+	 */
+	public void clear( final int index )
+	{
+		checkIndex( index );
+		final int o = ( capacity + index ) * n;
+		Arrays.fill( mins, o, o + n, Double.POSITIVE_INFINITY );
+		Arrays.fill( maxs, o, o + n, Double.NEGATIVE_INFINITY );
+		if ( !dirty )
+			propagate( index );
+	}
+
+	/**
+	 * Inserts {@code count} empty entries before entry {@code index}. Use
+	 * {@link #setQuick} and {@link #update()} to fill them.
+	 */
+	public void insert( final int index, final int count )
+	{
+		if ( index < 0 || index > size )
+			throw new IndexOutOfBoundsException( "index " + index + ", size " + size );
+		grow( size + count );
+		final int from = ( capacity + index ) * n;
+		final int to = from + count * n;
+		final int length = ( size - index ) * n;
+		System.arraycopy( mins, from, mins, to, length );
+		System.arraycopy( maxs, from, maxs, to, length );
+		Arrays.fill( mins, from, to, Double.POSITIVE_INFINITY );
+		Arrays.fill( maxs, from, to, Double.NEGATIVE_INFINITY );
+		// NB: empty entries appended at the end do not change inner nodes
+		if ( index < size )
+			dirty = true;
+		size += count;
+	}
+
+	/**
+	 * Inserts the single position {@code position} before entry
+	 * {@code index} and updates the bounds.
+	 */
+	public void insert( final int index, final double[] position )
+	{
+		insert( index, 1 );
+		set( index, position );
+		update();
+	}
+
+	/**
+	 * Removes entry {@code index} and updates the bounds.
+	 */
+	public void remove( final int index )
+	{
+		checkIndex( index );
+		if ( index == size - 1 )
+		{
+			clear( index );
+			--size;
+			return;
+		}
+		final int from = ( capacity + index + 1 ) * n;
+		final int length = ( size - index - 1 ) * n;
+		System.arraycopy( mins, from, mins, from - n, length );
+		System.arraycopy( maxs, from, maxs, from - n, length );
+		--size;
+		final int o = ( capacity + size ) * n;
+		Arrays.fill( mins, o, o + n, Double.POSITIVE_INFINITY );
+		Arrays.fill( maxs, o, o + n, Double.NEGATIVE_INFINITY );
+		dirty = true;
+		update();
+	}
+
+	/**
+	 * Rebuilds the bounds after {@link #setQuick} or {@link #insert(int, int)}.
+	 * Does nothing if the bounds are up to date.
+	 */
+	public void update()
+	{
+		if ( !dirty )
+			return;
+		for ( int node = capacity - 1; node >= 1; --node )
+			merge( node );
+		dirty = false;
+	}
+
+	/**
+	 * Min of all entries in dimension {@code d}.
+	 */
+	public double min( final int d )
+	{
+		update();
+		return capacity == 0 ? Double.POSITIVE_INFINITY : mins[ n + d ];
+	}
+
+	/**
+	 * Max of all entries in dimension {@code d}.
+	 */
+	public double max( final int d )
+	{
+		update();
+		return capacity == 0 ? Double.NEGATIVE_INFINITY : maxs[ n + d ];
+	}
+
+	/**
+	 * Writes the bounds of all entries into {@code min} and {@code max}.
+	 */
+	public void bounds( final double[] min, final double[] max )
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = min( d );
+			max[ d ] = max( d );
+		}
+	}
+
+	// -- Helper methods --
+
+	private void write( final int index, final double[] min, final double[] max )
+	{
+		checkIndex( index );
+		final int o = ( capacity + index ) * n;
+		System.arraycopy( min, 0, mins, o, n );
+		System.arraycopy( max, 0, maxs, o, n );
+	}
+
+	private void checkIndex( final int index )
+	{
+		if ( index < 0 || index >= size )
+			throw new IndexOutOfBoundsException( "index " + index + ", size " + size );
+	}
+
+	private void propagate( final int index )
+	{
+		for ( int node = ( capacity + index ) >>> 1; node >= 1; node >>>= 1 )
+			merge( node );
+	}
+
+	private void merge( final int node )
+	{
+		final int o = node * n;
+		final int l = 2 * o;
+		final int r = l + n;
+		for ( int d = 0; d < n; ++d )
+		{
+			mins[ o + d ] = Math.min( mins[ l + d ], mins[ r + d ] );
+			maxs[ o + d ] = Math.max( maxs[ l + d ], maxs[ r + d ] );
+		}
+	}
+
+	/**
+	 * Makes room for at least {@code minCapacity} leaves, keeping the
+	 * existing entries.
+	 */
+	private void grow( final int minCapacity )
+	{
+		if ( minCapacity <= capacity )
+			return;
+		int newCapacity = Math.max( 1, capacity );
+		while ( newCapacity < minCapacity )
+			newCapacity <<= 1;
+		final double[] newMins = new double[ 2 * newCapacity * n ];
+		final double[] newMaxs = new double[ 2 * newCapacity * n ];
+		Arrays.fill( newMins, Double.POSITIVE_INFINITY );
+		Arrays.fill( newMaxs, Double.NEGATIVE_INFINITY );
+		System.arraycopy( mins, capacity * n, newMins, newCapacity * n, size * n );
+		System.arraycopy( maxs, capacity * n, newMaxs, newCapacity * n, size * n );
+		mins = newMins;
+		maxs = newMaxs;
+		capacity = newCapacity;
+		dirty = true;
+	}
+}
@@ -0,0 +1,716 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.Arrays;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.RealMask;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.real.Box;
+import net.imglib2.roi.geom.real.Polygon2D;
+import net.imglib2.roi.geom.real.SuperEllipsoid;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+/**
+ * Rasterizes {@link RealMask}s into per-pixel coverage, i.e. the fraction of
+ * the area (volume) of each pixel which lies inside the mask.
+ * <p>
+ * Pixel {@code x} covers {@code [x - 0.5, x + 0.5]} in every dimension, so
+ * that pixel centers lie on integer coordinates as for
+ * {@link net.imglib2.roi.Masks#toIterableRegion}. The coverage is computed
+ * exactly for {@link Box}es, 2D ellipses (and circles), and
+ * {@link Polygon2D}s, where self-intersecting polygons follow the even-odd
+ * rule of {@link Polygon2D#test}. Other masks are sampled adaptively: a pixel
+ * whose
+ * corners and center all agree is taken to be entirely inside or outside,
+ * other pixels are subdivided up to a maximum depth. Features smaller than a
+ * pixel which do not contain any of these sample points are missed.
+ * <p>
+ * The boundary type of the mask is irrelevant for coverage, since the
+ * boundary has no area.
+ */
+public final class CoverageRasterizer
+{
+	/**
+	 * Default number of times boundary pixels are subdivided, i.e. they are
+	 * sampled at a resolution of up to {@code 2^DEFAULT_DEPTH} per dimension.
+	 */
+	public static final int DEFAULT_DEPTH = 4;
+
+	private CoverageRasterizer()
+	{
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Rasterizes the coverage of {@code mask} on the smallest interval which
+	 * contains all pixels overlapping its bounds.
+	 */
+	public static RandomAccessibleInterval< DoubleType > rasterize( final RealMaskRealInterval mask )
+	{
+		return rasterize( mask, coveringInterval( mask ) );
+	}
+
+	/**
+	 * Rasterizes the coverage of {@code mask} on {@code interval}, using
+	 * exact coverage if the type of the mask is supported and adaptive
+	 * sampling with {@link #DEFAULT_DEPTH} otherwise.
+	 */
+	public static RandomAccessibleInterval< DoubleType > rasterize( final RealMask mask, final Interval interval )
+	{
+		if ( mask.numDimensions() != interval.numDimensions() )
+			throw new IllegalArgumentException( "Mask and interval must have the same dimensionality" );
+		final double[] data = allocate( interval );
+		if ( mask instanceof Box )
+			box( ( Box ) mask, interval, data );
+		else if ( mask instanceof SuperEllipsoid && ( ( SuperEllipsoid ) mask ).exponent() == 2 && mask.numDimensions() == 2 )
+			ellipse( ( SuperEllipsoid ) mask, interval, data );
+		else if ( mask instanceof Polygon2D )
+			polygon( ( Polygon2D ) mask, interval, data );
+		else
+			adaptive( mask, interval, DEFAULT_DEPTH, data );
+		return wrap( data, interval );
+	}
+
+	/**
+	 * Rasterizes the coverage of {@code mask} on {@code interval} by adaptive
+	 * sampling, subdividing boundary pixels at most {@code depth} times.
+	 */
+	public static RandomAccessibleInterval< DoubleType > rasterize( final RealMask mask, final Interval interval, final int depth )
+	{
+		if ( mask.numDimensions() != interval.numDimensions() )
+			throw new IllegalArgumentException( "Mask and interval must have the same dimensionality" );
+		if ( depth < 0 )
+			throw new IllegalArgumentException( "depth must not be negative" );
+		final double[] data = allocate( interval );
+		adaptive( mask, interval, depth, data );
+		return wrap( data, interval );
+	}
+
+	/**
+	 * Returns the smallest interval containing all pixels which overlap
+	 * {@code bounds}.
+	 */
+	public static Interval coveringInterval( final RealMaskRealInterval bounds )
+	{
+		final int n = bounds.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( int d = 0; d < n; d++ )
+		{
+			min[ d ] = ( long ) Math.floor( bounds.realMin( d ) - 0.5 ) + 1;
+			max[ d ] = ( long ) Math.ceil( bounds.realMax( d ) + 0.5 ) - 1;
+		}
+		return new FinalInterval( min, max );
+	}
+
+	// -- Helper methods --
+
+	private static double[] allocate( final Interval interval )
+	{
+		final long size = numElements( interval );
+		if ( size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Interval is too large: " + size + " pixels" );
+		return new double[ ( int ) size ];
+	}
+
+	private static long numElements( final Interval interval )
+	{
+		long size = 1;
+		for ( int d = 0; d < interval.numDimensions(); d++ )
+			size *= Math.max( 0, interval.dimension( d ) );
+		return size;
+	}
+
+	private static RandomAccessibleInterval< DoubleType > wrap( final double[] data, final Interval interval )
+	{
+		final long[] dims = new long[ interval.numDimensions() ];
+		interval.dimensions( dims );
+		final long[] min = new long[ interval.numDimensions() ];
+		interval.min( min );
+		return Views.translate( ArrayImgs.doubles( data, dims ), min );
+	}
+
+	/**
+	 * Product of the overlaps of the box and the pixel in each dimension.
+	 */
+	private static void box( final Box box, final Interval interval, final double[] data )
+	{
+		final int n = interval.numDimensions();
+		Arrays.fill( data, 1 );
+		int stride = 1;
+		for ( int d = 0; d < n; d++ )
+		{
+			final int size = ( int ) interval.dimension( d );
+			final double[] overlap = new double[ size ];
+			for ( int i = 0; i < size; i++ )
+			{
+				final double x = interval.min( d ) + i;
+				overlap[ i ] = Math.max( 0, Math.min( box.realMax( d ), x + 0.5 ) - Math.max( box.realMin( d ), x - 0.5 ) );
+			}
+			for ( int j = 0; j < data.length; j++ )
+				data[ j ] *= overlap[ ( j / stride ) % size ];
+			stride *= size;
+		}
+	}
+
+	/**
+	 * Scales each pixel to the unit circle and computes the area of its
+	 * intersection.
+	 */
+	private static void ellipse( final SuperEllipsoid ellipse, final Interval interval, final double[] data )
+	{
+		final RealLocalizable center = ellipse.center();
+		final double cx = center.getDoublePosition( 0 );
+		final double cy = center.getDoublePosition( 1 );
+		final double a = ellipse.semiAxisLength( 0 );
+		final double b = ellipse.semiAxisLength( 1 );
+		final int w = ( int ) interval.dimension( 0 );
+		final int h = ( int ) interval.dimension( 1 );
+		for ( int j = 0; j < h; j++ )
+		{
+			final double y = interval.min( 1 ) + j;
+			final double v0 = ( y - 0.5 - cy ) / b;
+			final double v1 = ( y + 0.5 - cy ) / b;
+			if ( v0 >= 1 || v1 <= -1 )
+				continue;
+			for ( int i = 0; i < w; i++ )
+			{
+				final double x = interval.min( 0 ) + i;
+				final double u0 = ( x - 0.5 - cx ) / a;
+				final double u1 = ( x + 0.5 - cx ) / a;
+				data[ j * w + i ] = Math.min( 1, a * b * unitCircleRectangleArea( u0, u1, v0, v1 ) );
+			}
+		}
+	}
+
+	/**
+	 * Area of the intersection of the unit circle and the rectangle
+	 * {@code [x0, x1] x [y0, y1]}, integrating the clipped height of the
+	 * circle between the x where it crosses {@code y0} and {@code y1}.
+	 */
+	static double unitCircleRectangleArea( double x0, double x1, final double y0, final double y1 )
+	{
+		x0 = Math.max( x0, -1 );
+		x1 = Math.min( x1, 1 );
+		if ( x0 >= x1 || y0 >= 1 || y1 <= -1 )
+			return 0;
+		final double[] breaks = new double[ 6 ];
+		int numBreaks = 0;
+		breaks[ numBreaks++ ] = x0;
+		breaks[ numBreaks++ ] = x1;
+		for ( final double y : new double[] { y0, y1 } )
+			if ( Math.abs( y ) < 1 )
+			{
+				final double s = Math.sqrt( 1 - y * y );
+				if ( -s > x0 && -s < x1 )
+					breaks[ numBreaks++ ] = -s;
+				if ( s > x0 && s < x1 )
+					breaks[ numBreaks++ ] = s;
+			}
+		Arrays.sort( breaks, 0, numBreaks );
+		double area = 0;
+		for ( int k = 0; k + 1 < numBreaks; k++ )
+		{
+			final double p = breaks[ k ];
+			final double q = breaks[ k + 1 ];
+			if ( q <= p )
+				continue;
+			final double m = 0.5 * ( p + q );
+			final double s = Math.sqrt( 1 - m * m );
+			if ( Math.min( y1, s ) <= Math.max( y0, -s ) )
+				continue;
+			final double arc = circleIntegral( q ) - circleIntegral( p );
+			area += y1 < s ? y1 * ( q - p ) : arc;
+			area -= y0 > -s ? y0 * ( q - p ) : -arc;
+		}
+		return area;
+	}
+
+	/**
+	 * Antiderivative of {@code sqrt(1 - x^2)}.
+	 */
+	private static double circleIntegral( double x )
+	{
+		x = Math.max( -1, Math.min( 1, x ) );
+		return 0.5 * ( x * Math.sqrt( 1 - x * x ) + Math.asin( x ) );
+	}
+
+	/**
+	 * Accumulates the signed area to the right of each polygon edge within
+	 * each pixel, then sums the accumulated values along each row. This is
+	 * the winding number integrated over each pixel, clamped to
+	 * {@code [0, 1]}, which is the exact coverage of simple polygons. Since
+	 * the winding number of self-intersecting polygons may exceed one where
+	 * {@link Polygon2D#test} is false, these are rasterized by
+	 * {@link #evenOdd} instead.
+	 */
+	private static void polygon( final Polygon2D polygon, final Interval interval, final double[] data )
+	{
+		final int w = ( int ) interval.dimension( 0 );
+		final int h = ( int ) interval.dimension( 1 );
+		final int n = polygon.numVertices();
+		if ( w == 0 || h == 0 || n < 3 )
+			return;
+
+		// pixel (i, j) covers [i, i+1] x [j, j+1] in shifted coordinates
+		final double ox = interval.min( 0 ) - 0.5;
+		final double oy = interval.min( 1 ) - 0.5;
+		final double[] x = new double[ n ];
+		final double[] y = new double[ n ];
+		for ( int k = 0; k < n; k++ )
+		{
+			final RealLocalizable v = polygon.vertex( k );
+			x[ k ] = v.getDoublePosition( 0 ) - ox;
+			y[ k ] = v.getDoublePosition( 1 ) - oy;
+		}
+		final double[] acc = new double[ ( w + 1 ) * h ];
+		if ( isSimple( x, y ) )
+		{
+			for ( int e = 0; e < n; e++ )
+			{
+				final int e1 = ( e + 1 ) % n;
+				accumulateEdge( x[ e ], y[ e ], x[ e1 ], y[ e1 ], w, h, acc );
+			}
+		}
+		else
+			evenOdd( x, y, w, h, acc );
+
+		for ( int j = 0; j < h; j++ )
+		{
+			double sum = 0;
+			for ( int i = 0; i < w; i++ )
+			{
+				sum += acc[ j * ( w + 1 ) + i ];
+				data[ j * w + i ] = Math.min( 1, Math.abs( sum ) );
+			}
+		}
+	}
+
+	/**
+	 * Splits the polygon into horizontal strips at all vertices and edge
+	 * crossings. Within a strip the edges do not cross, so ordering them by x
+	 * and alternating their direction yields a winding number that is one
+	 * exactly where the even-odd rule is inside.
+	 */
+	private static void evenOdd( final double[] x, final double[] y, final int w, final int h, final double[] acc )
+	{
+		final int n = x.length;
+		final double[] strips = stripBounds( x, y );
+		final int[] order = IndexSort.sort( n, ( e, f ) -> Double.compare( minY( y, e ), minY( y, f ) ) );
+		final int[] active = new int[ n ];
+		final double[] xm = new double[ n ];
+		int numActive = 0;
+		int next = 0;
+		for ( int s = 0; s + 1 < strips.length; s++ )
+		{
+			final double ya = strips[ s ];
+			final double yb = strips[ s + 1 ];
+			if ( yb <= ya )
+				continue;
+			if ( ya >= h )
+				break;
+			while ( next < n && minY( y, order[ next ] ) <= ya )
+				active[ numActive++ ] = order[ next++ ];
+			int kept = 0;
+			for ( int a = 0; a < numActive; a++ )
+				if ( maxY( y, active[ a ] ) > ya )
+					active[ kept++ ] = active[ a ];
+			numActive = kept;
+			if ( yb <= 0 )
+				continue;
+
+			final double ym = 0.5 * ( ya + yb );
+			for ( int a = 0; a < numActive; a++ )
+				xm[ a ] = xAt( x, y, active[ a ], ym );
+			final int[] byX = IndexSort.sort( numActive, ( a, b ) -> Double.compare( xm[ a ], xm[ b ] ) );
+			for ( int r = 0; r < numActive; r++ )
+			{
+				final int e = active[ byX[ r ] ];
+				final double xa = xAt( x, y, e, ya );
+				final double xb = xAt( x, y, e, yb );
+				if ( r % 2 == 0 )
+					accumulateEdge( xa, ya, xb, yb, w, h, acc );
+				else
+					accumulateEdge( xb, yb, xa, ya, w, h, acc );
+			}
+		}
+	}
+
+	/**
+	 * Returns the sorted y coordinates of all vertices and edge crossings.
+	 */
+	private static double[] stripBounds( final double[] x, final double[] y )
+	{
+		final int n = x.length;
+		final double[][] ys = { Arrays.copyOf( y, 2 * n ) };
+		final int[] numYs = { n };
+		sweep( x, y, ( e, f ) -> {
+			final int e1 = ( e + 1 ) % n;
+			final int f1 = ( f + 1 ) % n;
+			final double d1 = orientation( x, y, f, f1, e );
+			final double d2 = orientation( x, y, f, f1, e1 );
+			if ( crosses( d1, d2 ) && crosses( orientation( x, y, e, e1, f ), orientation( x, y, e, e1, f1 ) ) )
+			{
+				if ( numYs[ 0 ] == ys[ 0 ].length )
+					ys[ 0 ] = Arrays.copyOf( ys[ 0 ], 2 * numYs[ 0 ] );
+				ys[ 0 ][ numYs[ 0 ]++ ] = y[ e ] + ( y[ e1 ] - y[ e ] ) * d1 / ( d1 - d2 );
+			}
+			return false;
+		} );
+		final double[] strips = Arrays.copyOf( ys[ 0 ], numYs[ 0 ] );
+		Arrays.sort( strips );
+		return strips;
+	}
+	/**
+	 * Checks that no two edges of {@code polygon} intersect, except adjacent
+	 * edges at their common vertex.
+	 */
+	static boolean isSimple( final Polygon2D polygon )
+	{
+		final int n = polygon.numVertices();
+		final double[] x = new double[ n ];
+		final double[] y = new double[ n ];
+		for ( int k = 0; k < n; k++ )
+		{
+			x[ k ] = polygon.vertex( k ).getDoublePosition( 0 );
+			y[ k ] = polygon.vertex( k ).getDoublePosition( 1 );
+		}
+		return isSimple( x, y );
+	}
+
+	private static boolean isSimple( final double[] x, final double[] y )
+	{
+		return !sweep( x, y, ( e, f ) -> edgesIntersect( x, y, e, f ) );
+	}
+
+	/**
+	 * Visits all pairs of edges whose y ranges overlap, in order of their
+	 * lower y, until {@code visitor} returns {@code true}. Edge {@code e} goes
+	 * from vertex {@code e} to the next vertex.
+	 *
+	 * @return whether the visitor stopped the sweep
+	 */
+	private static boolean sweep( final double[] x, final double[] y, final EdgePairVisitor visitor )
+	{
+		final int n = x.length;
+		final int[] order = IndexSort.sort( n, ( e, f ) -> Double.compare( minY( y, e ), minY( y, f ) ) );
+		final int[] active = new int[ n ];
+		int numActive = 0;
+		for ( final int e : order )
+		{
+			final double minY = minY( y, e );
+			int kept = 0;
+			for ( int a = 0; a < numActive; a++ )
+			{
+				final int f = active[ a ];
+				if ( maxY( y, f ) < minY )
+					continue;
+				active[ kept++ ] = f;
+				if ( visitor.visit( e, f ) )
+					return true;
+			}
+			numActive = kept;
+			active[ numActive++ ] = e;
+		}
+		return false;
+	}
+
+	/**
+	 * Adjacent edges only intersect if they fold back onto each other.
+	 */
+	private static boolean edgesIntersect( final double[] x, final double[] y, final int e, final int f )
+	{
+		final int n = x.length;
+		final int e1 = ( e + 1 ) % n;
+		final int f1 = ( f + 1 ) % n;
+		if ( e1 == f || f1 == e )
+		{
+			final int shared = e1 == f ? f : e;
+			final int u = e1 == f ? e : f;
+			final int w = e1 == f ? f1 : e1;
+			return orientation( x, y, u, shared, w ) == 0 && ( x[ u ] - x[ shared ] ) * ( x[ w ] - x[ shared ] ) + ( y[ u ] - y[ shared ] ) * ( y[ w ] - y[ shared ] ) > 0;
+		}
+		final double d1 = orientation( x, y, f, f1, e );
+		final double d2 = orientation( x, y, f, f1, e1 );
+		final double d3 = orientation( x, y, e, e1, f );
+		final double d4 = orientation( x, y, e, e1, f1 );
+		if ( crosses( d1, d2 ) && crosses( d3, d4 ) )
+			return true;
+		return d1 == 0 && onSegment( x, y, f, f1, e ) || d2 == 0 && onSegment( x, y, f, f1, e1 ) || //
+				d3 == 0 && onSegment( x, y, e, e1, f ) || d4 == 0 && onSegment( x, y, e, e1, f1 );
+	}
+
+	private static boolean crosses( final double d1, final double d2 )
+	{
+		return ( d1 > 0 && d2 < 0 ) || ( d1 < 0 && d2 > 0 );
+	}
+
+	private static double orientation( final double[] x, final double[] y, final int a, final int b, final int c )
+	{
+		return ( x[ b ] - x[ a ] ) * ( y[ c ] - y[ a ] ) - ( y[ b ] - y[ a ] ) * ( x[ c ] - x[ a ] );
+	}
+
+	/**
+	 * Whether vertex {@code c}, collinear with {@code a} and {@code b}, lies
+	 * on the segment between them.
+	 */
+	private static boolean onSegment( final double[] x, final double[] y, final int a, final int b, final int c )
+	{
+		return Math.min( x[ a ], x[ b ] ) <= x[ c ] && x[ c ] <= Math.max( x[ a ], x[ b ] ) && //
+				Math.min( y[ a ], y[ b ] ) <= y[ c ] && y[ c ] <= Math.max( y[ a ], y[ b ] );
+	}
+
+	private static double minY( final double[] y, final int e )
+	{
+		return Math.min( y[ e ], y[ ( e + 1 ) % y.length ] );
+	}
+
+	private static double maxY( final double[] y, final int e )
+	{
+		return Math.max( y[ e ], y[ ( e + 1 ) % y.length ] );
+	}
+
+	/**
+	 * The x coordinate of edge {@code e} at {@code yy}, which must be within
+	 * the y range of the non-horizontal edge.
+	 */
+	private static double xAt( final double[] x, final double[] y, final int e, final double yy )
+	{
+		final int e1 = ( e + 1 ) % x.length;
+		return x[ e ] + ( yy - y[ e ] ) * ( x[ e1 ] - x[ e ] ) / ( y[ e1 ] - y[ e ] );
+	}
+
+	private static void accumulateEdge( final double x0, final double y0, final double x1, final double y1, final int w, final int h, final double[] acc )
+	{
+		if ( y0 == y1 )
+			return;
+		final double sign = y1 > y0 ? 1 : -1;
+		final double yMin = Math.max( 0, Math.min( y0, y1 ) );
+		final double yMax = Math.min( h, Math.max( y0, y1 ) );
+		if ( yMin >= yMax )
+			return;
+		final double dxdy = ( x1 - x0 ) / ( y1 - y0 );
+		for ( int j = ( int ) Math.floor( yMin ); j < yMax; j++ )
+		{
+			final double ya = Math.max( yMin, j );
+			final double yb = Math.min( yMax, j + 1 );
+			if ( yb <= ya )
+				continue;
+			final double dy = sign * ( yb - ya );
+			final double xa = x0 + ( ya - y0 ) * dxdy;
+			final double xb = x0 + ( yb - y0 ) * dxdy;
+			final double xl = Math.min( xa, xb );
+			final double xr = Math.max( xa, xb );
+			final int row = j * ( w + 1 );
+			if ( xl >= w )
+				continue;
+			if ( xr - xl == 0 || Math.ceil( xr ) - Math.floor( xl ) <= 1 )
+			{
+				deposit( ( int ) Math.floor( Math.max( xl, -1 ) ), dy, 0.5 * ( xl + xr ), w, row, acc );
+				continue;
+			}
+			// split at column boundaries, dy is distributed proportionally
+			// to the length in x since the edge is straight
+			final double dyPerX = dy / ( xr - xl );
+			if ( xl < 0 )
+				acc[ row ] += dyPerX * ( Math.min( xr, 0 ) - xl );
+			final double end = Math.min( xr, w );
+			for ( int c = ( int ) Math.floor( Math.max( xl, 0 ) ); c < end; c++ )
+			{
+				final double l = Math.max( xl, c );
+				final double r = Math.min( xr, c + 1 );
+				if ( r > l )
+					deposit( c, dyPerX * ( r - l ), 0.5 * ( l + r ), w, row, acc );
+			}
+		}
+	}
+
+	/**
+	 * Adds an edge piece with height {@code dy} and mean x {@code xm} within
+	 * column {@code c}: the part of the column right of the piece gets
+	 * {@code dy * (c + 1 - xm)}, all following columns get {@code dy}.
+	 */
+	private static void deposit( final int c, final double dy, final double xm, final int w, final int row, final double[] acc )
+	{
+		if ( c >= w )
+			return;
+		if ( c < 0 )
+		{
+			acc[ row ] += dy;
+			return;
+		}
+		final double a = dy * ( c + 1 - xm );
+		acc[ row + c ] += a;
+		acc[ row + c + 1 ] += dy - a;
+	}
+
+	/**
+	 * Tests the pixel corners once for the whole interval, and subdivides
+	 * only pixels where corners and center disagree.
+	 */
+	private static void adaptive( final RealMask mask, final Interval interval, final int depth, final double[] data )
+	{
+		final int n = interval.numDimensions();
+		if ( data.length == 0 )
+			return;
+		final int[] dims = new int[ n ];
+		final int[] cornerDims = new int[ n ];
+		final int[] cornerStrides = new int[ n ];
+		int numCorners = 1;
+		for ( int d = 0; d < n; d++ )
+		{
+			dims[ d ] = ( int ) interval.dimension( d );
+			cornerDims[ d ] = dims[ d ] + 1;
+			cornerStrides[ d ] = numCorners;
+			numCorners *= cornerDims[ d ];
+		}
+
+		final RealPoint p = new RealPoint( n );
+		final int[] pos = new int[ n ];
+		final boolean[] corners = new boolean[ numCorners ];
+		for ( int c = 0; c < numCorners; c++ )
+		{
+			for ( int d = 0; d < n; d++ )
+				p.setPosition( interval.min( d ) + pos[ d ] - 0.5, d );
+			corners[ c ] = mask.test( p );
+			increment( pos, cornerDims );
+		}
+
+		final int[] offsets = new int[ 1 << n ];
+		for ( int k = 0; k < offsets.length; k++ )
+			for ( int d = 0; d < n; d++ )
+				if ( ( k >> d & 1 ) != 0 )
+					offsets[ k ] += cornerStrides[ d ];
+
+		Arrays.fill( pos, 0 );
+		final double[] lo = new double[ n ];
+		for ( int i = 0; i < data.length; i++ )
+		{
+			int base = 0;
+			for ( int d = 0; d < n; d++ )
+				base += pos[ d ] * cornerStrides[ d ];
+			final boolean inside = corners[ base ];
+			boolean uniform = true;
+			for ( int k = 1; k < offsets.length && uniform; k++ )
+				uniform = corners[ base + offsets[ k ] ] == inside;
+			if ( uniform )
+			{
+				for ( int d = 0; d < n; d++ )
+					p.setPosition( interval.min( d ) + pos[ d ], d );
+				uniform = mask.test( p ) == inside;
+			}
+			if ( uniform )
+				data[ i ] = inside ? 1 : 0;
+			else
+			{
+				for ( int d = 0; d < n; d++ )
+					lo[ d ] = interval.min( d ) + pos[ d ] - 0.5;
+				data[ i ] = subdivide( mask, lo, 1, depth, p );
+			}
+			increment( pos, dims );
+		}
+	}
+
+	/**
+	 * Mean coverage of the children of the cube with lower corner {@code lo}
+	 * and side length {@code size}.
+	 */
+	private static double subdivide( final RealMask mask, final double[] lo, final double size, final int depth, final RealPoint p )
+	{
+		final int n = lo.length;
+		if ( depth == 0 )
+		{
+			for ( int d = 0; d < n; d++ )
+				p.setPosition( lo[ d ] + 0.5 * size, d );
+			return mask.test( p ) ? 1 : 0;
+		}
+		final double half = 0.5 * size;
+		final double[] childLo = new double[ n ];
+		double sum = 0;
+		for ( int k = 0; k < 1 << n; k++ )
+		{
+			for ( int d = 0; d < n; d++ )
+				childLo[ d ] = lo[ d ] + ( k >> d & 1 ) * half;
+			sum += coverage( mask, childLo, half, depth - 1, p );
+		}
+		return sum / ( 1 << n );
+	}
+
+	/**
+	 * Coverage of the cube with lower corner {@code lo} and side length
+	 * {@code size}, which is uniform if its corners and center agree.
+	 */
+	private static double coverage( final RealMask mask, final double[] lo, final double size, final int depth, final RealPoint p )
+	{
+		final int n = lo.length;
+		for ( int d = 0; d < n; d++ )
+			p.setPosition( lo[ d ] + 0.5 * size, d );
+		final boolean inside = mask.test( p );
+		if ( depth == 0 )
+			return inside ? 1 : 0;
+		for ( int k = 0; k < 1 << n; k++ )
+		{
+			for ( int d = 0; d < n; d++ )
+				p.setPosition( lo[ d ] + ( k >> d & 1 ) * size, d );
+			if ( mask.test( p ) != inside )
+				return subdivide( mask, lo, size, depth, p );
+		}
+		return inside ? 1 : 0;
+	}
+
+	private static void increment( final int[] pos, final int[] dims )
+	{
+		for ( int d = 0; d < pos.length; d++ )
+		{
+			if ( ++pos[ d ] < dims[ d ] )
+				return;
+			pos[ d ] = 0;
+		}
+	}
+
+	// -- Helper classes --
+
+	private interface EdgePairVisitor
+	{
+		boolean visit( int e, int f );
+	}
+}
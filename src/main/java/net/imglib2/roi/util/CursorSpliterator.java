@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+
+/**
+ * A {@link Spliterator} over the elements {@code [start, end)} (in iteration
+ * order) of an {@link IterableInterval}. Splitting halves the index range.
+ * Each part lazily creates its own {@link Cursor} and positions it with a
+ * single {@link Cursor#jumpFwd(long)}, so splitting is cheap for iterables
+ * whose cursors jump efficiently (run-length and iteration code regions,
+ * boundaries, images, and samplings of these).
+ * <p>
+ * Note that like with cursors, the element passed to the action usually is a
+ * proxy that is only valid until the next element is visited.
+ *
+ * @param <T>
+ *            element type
+ */
+public class CursorSpliterator< T > implements Spliterator< T >
+{
+	private final IterableInterval< T > iterable;
+
+	private final boolean localizing;
+
+	private long index;
+
+	private long end;
+
+	private Cursor< T > cursor;
+
+	public CursorSpliterator( final IterableInterval< T > iterable )
+	{
+		this( iterable, 0, iterable.size(), false );
+	}
+
+	/**
+	 * @param iterable
+	 *            the iterable to traverse
+	 * @param start
+	 *            index of the first element (inclusive)
+	 * @param end
+	 *            index of the last element (exclusive)
+	 * @param localizing
+	 *            whether to use {@link IterableInterval#localizingCursor()}
+	 *            instead of {@link IterableInterval#cursor()}
+	 */
+	public CursorSpliterator( final IterableInterval< T > iterable, final long start, final long end, final boolean localizing )
+	{
+		this.iterable = iterable;
+		this.index = start;
+		this.end = end;
+		this.localizing = localizing;
+	}
+
+	@Override
+	public boolean tryAdvance( final Consumer< ? super T > action )
+	{
+		if ( index >= end )
+			return false;
+		final Cursor< T > c = cursor();
+		c.fwd();
+		++index;
+		action.accept( c.get() );
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining( final Consumer< ? super T > action )
+	{
+		if ( index >= end )
+			return;
+		final Cursor< T > c = cursor();
+		for ( ; index < end; ++index )
+		{
+			c.fwd();
+			action.accept( c.get() );
+		}
+	}
+
+	/**
+	 * Visit the remaining elements, passing the cursor (positioned at the
+	 * current element) to {@code action}.
+	 */
+	public void forEachRemainingCursor( final Consumer< ? super Cursor< T > > action )
+	{
+		if ( index >= end )
+			return;
+		final Cursor< T > c = cursor();
+		for ( ; index < end; ++index )
+		{
+			c.fwd();
+			action.accept( c );
+		}
+	}
+
+	@Override
+	public CursorSpliterator< T > trySplit()
+	{
+		final long mid = ( index + end ) >>> 1;
+		if ( mid <= index )
+			return null;
+		final CursorSpliterator< T > prefix = new CursorSpliterator<>( iterable, index, mid, localizing );
+		if ( cursor != null )
+		{
+			// the current cursor belongs to the prefix
+			prefix.cursor = cursor;
+			cursor = null;
+		}
+		index = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize()
+	{
+		return end - index;
+	}
+
+	@Override
+	public int characteristics()
+	{
+		return ORDERED | SIZED | SUBSIZED;
+	}
+
+	private Cursor< T > cursor()
+	{
+		if ( cursor == null )
+		{
+			cursor = localizing ? iterable.localizingCursor() : iterable.cursor();
+			if ( index > 0 )
+				cursor.jumpFwd( index );
+		}
+		return cursor;
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.roi.Regions;
+
+/**
+ * Samples any number of images at the positions of one region in a single
+ * traversal.
+ * <p>
+ * Images are {@link #add(RandomAccessible) added} as channels, each
+ * identified by a typed {@link Channel} handle. {@link #forEach(Consumer)}
+ * then iterates the region once, moves one {@link RandomAccess} per channel
+ * along, and passes a {@link Samples} object (the current position, giving
+ * access to the value of every channel) to the action. Consecutive positions
+ * on the same line move the accesses with {@code fwd(0)} instead of
+ * {@code setPosition}.
+ * <p>
+ * For example, to compute a weighted mean of two channels:
+ *
+ * <pre>
+ * {@code
+ * FusedSampler sampler = new FusedSampler( region );
+ * Channel< FloatType > red = sampler.add( redImg );
+ * Channel< FloatType > green = sampler.add( greenImg );
+ * Channel< FloatType > weight = sampler.add( weightImg );
+ * sampler.forEach( s -> {
+ *     double w = s.get( weight ).get();
+ *     ...
+ * } );
+ * }
+ * </pre>
+ */
+public class FusedSampler
+{
+	private final IterableInterval< Void > region;
+
+	private final List< RandomAccessible< ? > > images;
+
+	public FusedSampler( final IterableInterval< Void > region )
+	{
+		this.region = region;
+		images = new ArrayList<>();
+	}
+
+	/**
+	 * Add an image to be sampled.
+	 *
+	 * @return a handle to get the value of the image from {@link Samples}.
+	 */
+	public < T > Channel< T > add( final RandomAccessible< T > image )
+	{
+		if ( image.numDimensions() != region.numDimensions() )
+			throw new IllegalArgumentException( "image and region dimensionalities do not match" );
+		images.add( image );
+		return new Channel<>( this, images.size() - 1 );
+	}
+
+	/**
+	 * @return the number of channels.
+	 */
+	public int numChannels()
+	{
+		return images.size();
+	}
+
+	/**
+	 * Traverse the region once, calling {@code action} at every position.
+	 */
+	public void forEach( final Consumer< ? super Samples > action )
+	{
+		final Samples samples = new Samples( this );
+		final Cursor< Void > c = region.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			samples.moveTo( c );
+			action.accept( samples );
+		}
+	}
+
+	/**
+	 * Traverse the region in parallel chunks (see
+	 * {@link Regions#parallelForEachChunk(IterableInterval, Consumer)}),
+	 * calling {@code action} at every position. Each chunk uses its own
+	 * {@link Samples}. It must be safe to call {@code action} concurrently.
+	 */
+	public void parallelForEach( final Consumer< ? super Samples > action )
+	{
+		Regions.parallelForEachChunk( region, chunk -> {
+			final Samples samples = new Samples( this );
+			chunk.forEachRemainingCursor( c -> {
+				samples.moveTo( c );
+				action.accept( samples );
+			} );
+		} );
+	}
+
+	/**
+	 * Handle to get the value of one image from {@link Samples}.
+	 */
+	public static final class Channel< T >
+	{
+		private final FusedSampler sampler;
+
+		private final int index;
+
+		private Channel( final FusedSampler sampler, final int index )
+		{
+			this.sampler = sampler;
+			this.index = index;
+		}
+
+		public int index()
+		{
+			return index;
+		}
+	}
+
+	/**
+	 * The current position of a traversal, and the values of all channels at
+	 * this position. Values are only valid until the traversal moves on.
+	 */
+	public static final class Samples extends AbstractLocalizable
+	{
+		private final FusedSampler sampler;
+
+		private final RandomAccess< ? >[] accesses;
+
+		private boolean initialized;
+
+		private Samples( final FusedSampler sampler )
+		{
+			super( sampler.region.numDimensions() );
+			this.sampler = sampler;
+			final int numChannels = sampler.images.size();
+			accesses = new RandomAccess< ? >[ numChannels ];
+			for ( int i = 0; i < numChannels; ++i )
+				accesses[ i ] = sampler.images.get( i ).randomAccess();
+			initialized = false;
+		}
+
+		/**
+		 * Get the value of the given channel at the current position.
+		 */
+		@SuppressWarnings( "unchecked" )
+		public < T > T get( final Channel< T > channel )
+		{
+			if ( channel.sampler != sampler )
+				throw new IllegalArgumentException( "channel belongs to a different sampler" );
+			return ( ( RandomAccess< T > ) accesses[ channel.index ] ).get();
+		}
+
+		/**
+		 * Get the value of the channel with the given index at the current
+		 * position.
+		 */
+		public Object get( final int channelIndex )
+		{
+			return accesses[ channelIndex ].get();
+		}
+
+		private void moveTo( final Cursor< Void > c )
+		{
+			boolean sameLine = initialized && c.getLongPosition( 0 ) == position[ 0 ] + 1;
+			for ( int d = 1; d < n && sameLine; ++d )
+				sameLine = c.getLongPosition( d ) == position[ d ];
+			if ( sameLine )
+			{
+				++position[ 0 ];
+				for ( final RandomAccess< ? > access : accesses )
+					access.fwd( 0 );
+			}
+			else
+			{
+				c.localize( position );
+				for ( final RandomAccess< ? > access : accesses )
+					access.setPosition( position );
+				initialized = true;
+			}
+		}
+	}
+}
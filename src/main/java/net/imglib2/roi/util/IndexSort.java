@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Sorts indices into parallel primitive arrays, without boxing.
+ * <p>
+ * The comparator gets two indices and compares the elements they refer to,
+ * like a {@link java.util.Comparator} of {@link Integer}s, but as an
+ * {@link IntBinaryOperator} on primitive {@code int}s. The sort is a stable
+ * merge sort, with insertion sort for short runs.
+ * </p>
+ */
+public final class IndexSort
+{
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private IndexSort()
+	{
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Returns the indices {@code 0, ..., size - 1}, stably sorted by
+	 * {@code comparator}.
+	 */
+	public static int[] sort( final int size, final IntBinaryOperator comparator )
+	{
+		if ( size < 0 )
+			throw new IllegalArgumentException( "size must not be negative: " + size );
+		final int[] order = new int[ size ];
+		for ( int i = 0; i < size; ++i )
+			order[ i ] = i;
+		sort( order, comparator );
+		return order;
+	}
+
+	/**
+	 * Stably sorts {@code indices} by {@code comparator}.
+	 */
+	public static void sort( final int[] indices, final IntBinaryOperator comparator )
+	{
+		final int size = indices.length;
+		for ( int lo = 0; lo < size; lo += INSERTION_SORT_THRESHOLD )
+			insertionSort( indices, lo, Math.min( size, lo + INSERTION_SORT_THRESHOLD ), comparator );
+		if ( size <= INSERTION_SORT_THRESHOLD )
+			return;
+
+		int[] src = indices;
+		int[] dst = new int[ size ];
+		for ( int width = INSERTION_SORT_THRESHOLD; width < size; width *= 2 )
+		{
+			for ( int lo = 0; lo < size; lo += 2 * width )
+				merge( src, dst, lo, Math.min( size, lo + width ), Math.min( size, lo + 2 * width ), comparator );
+			final int[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if ( src != indices )
+			System.arraycopy( src, 0, indices, 0, size );
+	}
+
+	// -- Helper methods --
+
+	private static void insertionSort( final int[] a, final int lo, final int hi, final IntBinaryOperator comparator )
+	{
+		for ( int i = lo + 1; i < hi; ++i )
+		{
+			final int v = a[ i ];
+			int j = i - 1;
+			while ( j >= lo && comparator.applyAsInt( a[ j ], v ) > 0 )
+			{
+				a[ j + 1 ] = a[ j ];
+				--j;
+			}
+			a[ j + 1 ] = v;
+		}
+	}
+
+	/**
+	 * Merges the sorted ranges {@code [lo, mid)} and {@code [mid, hi)} of
+	 * {@code src} into {@code dst}, taking from the left on ties.
+	 */
+	private static void merge( final int[] src, final int[] dst, final int lo, final int mid, final int hi, final IntBinaryOperator comparator )
+	{
+		int i = lo;
+		int j = mid;
+		for ( int k = lo; k < hi; ++k )
+		{
+			if ( j >= hi || i < mid && comparator.applyAsInt( src[ i ], src[ j ] ) <= 0 )
+				dst[ k ] = src[ i++ ];
+			else
+				dst[ k ] = src[ j++ ];
+		}
+	}
+}
@@ -43,6 +43,8 @@ import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.IterableRegion;
 import net.imglib2.roi.Regions;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
 import net.imglib2.type.BooleanType;
 import net.imglib2.view.Views;
 
@@ -51,6 +53,12 @@ import net.imglib2.view.Views;
  * Cursors on the result only iterate {@code true} samples of the source interval.
  *
  * {@link Cursor Cursors} are realized by wrapping source cursors (using {@link TrueCursor}).
+ * <p>
+ * Optionally, a {@link RunLengthRegion run index} of the {@code true} pixels
+ * can be built in a single pass over the source. Then {@link #size()} is
+ * known without counting, cursors iterate the cached runs without touching
+ * the source, and {@link Cursor#jumpFwd(long)} takes {@code O(log runs)}. If
+ * the source is modified, {@link #invalidate()} must be called.
  *
  * @author Tobias Pietzsch
  */
@@ -58,10 +66,16 @@ public class IterableRegionOnBooleanRAI< T extends BooleanType< T > >
 		extends AbstractWrappedInterval< RandomAccessibleInterval< T > >
 		implements IterableRegion< T >
 {
-	private final long size;
+	private long size;
 
 	private final IterableInterval< T > sourceIterable;
 
+	private final boolean cacheRuns;
+
+	private RunLengthRegion runs;
+
+	private volatile boolean valid;
+
 	public IterableRegionOnBooleanRAI( final RandomAccessibleInterval< T > interval )
 	{
 		this( interval, Regions.countTrue( interval ) );
@@ -72,11 +86,69 @@ public class IterableRegionOnBooleanRAI< T extends BooleanType< T > >
 		super( interval );
 		this.size = size;
 		sourceIterable = Views.iterable( interval );
+		cacheRuns = false;
+		valid = true;
+	}
+
+	/**
+	 * @param interval
+	 *            the boolean source
+	 * @param cacheRuns
+	 *            whether to build a run index of the {@code true} pixels (in
+	 *            one pass over the source) and use it for {@link #size()} and
+	 *            cursors.
+	 */
+	public IterableRegionOnBooleanRAI( final RandomAccessibleInterval< T > interval, final boolean cacheRuns )
+	{
+		super( interval );
+		sourceIterable = Views.iterable( interval );
+		this.cacheRuns = cacheRuns;
+		valid = false;
+		validate();
+	}
+
+	/**
+	 * Notify this region that its source has been modified. The size (and the
+	 * run index, if cached) are recomputed on next access.
+	 */
+	public void invalidate()
+	{
+		valid = false;
+	}
+
+	/**
+	 * @return whether this region caches a run index of its source.
+	 */
+	public boolean isCachingRuns()
+	{
+		return cacheRuns;
+	}
+
+	private void validate()
+	{
+		if ( !valid )
+		{
+			synchronized ( this )
+			{
+				if ( !valid )
+				{
+					if ( cacheRuns )
+					{
+						runs = RunLengthRegions.fromBooleanRAI( sourceInterval );
+						size = runs.size();
+					}
+					else
+						size = Regions.countTrue( sourceInterval );
+					valid = true;
+				}
+			}
+		}
 	}
 
 	@Override
 	public long size()
 	{
+		validate();
 		return size;
 	}
 
@@ -103,12 +175,18 @@ public class IterableRegionOnBooleanRAI< T extends BooleanType< T > >
 	@Override
 	public Cursor< Void > cursor()
 	{
+		validate();
+		if ( cacheRuns )
+			return runs.cursor();
 		return new TrueCursor< T >( sourceIterable.cursor(), size );
 	}
 
 	@Override
 	public Cursor< Void > localizingCursor()
 	{
+		validate();
+		if ( cacheRuns )
+			return runs.cursor();
 		return new TrueCursor< T >( sourceIterable.localizingCursor(), size );
 	}
 
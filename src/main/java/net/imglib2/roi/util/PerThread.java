@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Lazily created instances of a non-thread-safe object, one per thread.
+ * <p>
+ * Unlike a {@link ThreadLocal}, instances are kept in a small open-addressed
+ * table indexed by the thread id, so the common lookup is one array read and
+ * one comparison. A thread gets a slot on its first {@link #get()}; it takes
+ * over the slot of a terminated thread if there is one on its way, and
+ * otherwise the table doubles in size. Threads are only weakly referenced,
+ * but the instance of a terminated thread stays reachable until its slot is
+ * taken over.
+ * </p>
+ *
+ * @param <T>
+ *            type of the per-thread instances
+ */
+public final class PerThread< T >
+{
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final Supplier< ? extends T > factory;
+
+	private volatile AtomicReferenceArray< Slot< T > > slots;
+
+	/**
+	 * @param factory
+	 *            creates the instance of a thread on its first {@link #get()}
+	 */
+	public PerThread( final Supplier< ? extends T > factory )
+	{
+		this( factory, DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * @param factory
+	 *            creates the instance of a thread on its first {@link #get()}
+	 * @param capacity
+	 *            initial number of threads with a cached instance, rounded up
+	 *            to a power of two
+	 */
+	public PerThread( final Supplier< ? extends T > factory, final int capacity )
+	{
+		if ( capacity < 1 || capacity > 1 << 30 )
+			throw new IllegalArgumentException( "capacity must be in [1, 2^30]: " + capacity );
+		this.factory = factory;
+		int size = 1;
+		while ( size < capacity )
+			size <<= 1;
+		slots = new AtomicReferenceArray<>( size );
+	}
+
+	/**
+	 * Returns the instance of the current thread.
+	 */
+	public T get()
+	{
+		final Thread thread = Thread.currentThread();
+		final Slot< T > slot = find( slots, thread );
+		return slot != null ? slot.value : insert( thread );
+	}
+
+	// -- Helper methods --
+
+	private static int index( final long id, final int mask )
+	{
+		final long h = id * 0x9E3779B97F4A7C15L;
+		return ( int ) ( h >>> 32 ) & mask;
+	}
+
+	private static < T > Slot< T > find( final AtomicReferenceArray< Slot< T > > slots, final Thread thread )
+	{
+		final int mask = slots.length() - 1;
+		final int start = index( thread.getId(), mask );
+		for ( int k = 0; k <= mask; k++ )
+		{
+			final Slot< T > slot = slots.get( ( start + k ) & mask );
+			if ( slot == null )
+				return null;
+			if ( slot.owner.get() == thread )
+				return slot;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the instance of {@code thread} and stores it in the first free
+	 * slot, or the first slot of a terminated thread, on its probe sequence.
+	 * If there is none, the table is grown first.
+	 */
+	private synchronized T insert( final Thread thread )
+	{
+		// NB: another thread may have rebuilt the table since the lookup
+		final Slot< T > existing = find( slots, thread );
+		if ( existing != null )
+			return existing.value;
+		final Slot< T > created = new Slot<>( thread, factory.get() );
+		if ( !place( slots, created, true ) )
+		{
+			slots = grow( slots );
+			place( slots, created, false );
+		}
+		return created.value;
+	}
+
+	private static < T > boolean place( final AtomicReferenceArray< Slot< T > > slots, final Slot< T > slot, final boolean reuse )
+	{
+		final int mask = slots.length() - 1;
+		final int start = index( slot.id, mask );
+		for ( int k = 0; k <= mask; k++ )
+		{
+			final int i = ( start + k ) & mask;
+			final Slot< T > old = slots.get( i );
+			if ( old == null || reuse && old.isDead() )
+			{
+				slots.set( i, slot );
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the slots of live threads into a table of twice the size.
+	 */
+	private static < T > AtomicReferenceArray< Slot< T > > grow( final AtomicReferenceArray< Slot< T > > slots )
+	{
+		final AtomicReferenceArray< Slot< T > > grown = new AtomicReferenceArray<>( 2 * slots.length() );
+		for ( int i = 0; i < slots.length(); i++ )
+		{
+			final Slot< T > slot = slots.get( i );
+			if ( !slot.isDead() )
+				place( grown, slot, false );
+		}
+		return grown;
+	}
+
+	// -- Helper classes --
+
+	private static final class Slot< T >
+	{
+		private final WeakReference< Thread > owner;
+
+		private final long id;
+
+		private final T value;
+
+		private Slot( final Thread owner, final T value )
+		{
+			this.owner = new WeakReference<>( owner );
+			this.id = owner.getId();
+			this.value = value;
+		}
+
+		private boolean isDead()
+		{
+			final Thread thread = owner.get();
+			return thread == null || !thread.isAlive();
+		}
+	}
+}
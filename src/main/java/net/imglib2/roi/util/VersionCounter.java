@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.roi.ModificationListener;
+import net.imglib2.roi.ObservableMask;
+import net.imglib2.roi.Versioned;
+
+/**
+ * Modification counter for {@link Versioned} objects.
+ * <p>
+ * Besides the count of one object, every {@link #increment()} also increases
+ * a global count of modifications. A cache which recorded the
+ * {@link #global()} count can skip comparing the versions of all its sources
+ * if the global count has not changed since.
+ * </p>
+ * <p>
+ * The counter also keeps the {@link ModificationListener}s of an
+ * {@link ObservableMask}. They are notified after every increment, or once
+ * at the end of a bulk edit (see {@link #modify(Runnable)}). The list is only
+ * allocated when the first listener is added. Like the modifications
+ * themselves, bulk edits are not synchronized.
+ * </p>
+ */
+public final class VersionCounter
+{
+	private static final AtomicLong GLOBAL = new AtomicLong();
+
+	private final Object source;
+
+	private volatile long version;
+
+	private volatile CopyOnWriteArrayList< ModificationListener > listeners;
+
+	private int bulkDepth;
+
+	private boolean pending;
+
+	/**
+	 * Creates a counter which reports itself as the source of
+	 * notifications.
+	 */
+	public VersionCounter()
+	{
+		this( null );
+	}
+
+	/**
+	 * Creates a counter which reports {@code source} as the source of
+	 * notifications.
+	 */
+	public VersionCounter( final Object source )
+	{
+		this.source = source == null ? this : source;
+	}
+
+	/**
+	 * Records a modification.
+	 */
+	public void increment()
+	{
+		// NB: modifications of a single object are not synchronized anyway
+		version = version + 1;
+		GLOBAL.incrementAndGet();
+		if ( bulkDepth > 0 )
+			pending = true;
+		else
+			notifyListeners();
+	}
+
+	/**
+	 * Returns the number of modifications recorded by this counter.
+	 */
+	public long get()
+	{
+		return version;
+	}
+
+	/**
+	 * Runs {@code edits}, deferring notifications until it returns. The
+	 * listeners are notified once if anything was modified.
+	 */
+	public void modify( final Runnable edits )
+	{
+		++bulkDepth;
+		try
+		{
+			edits.run();
+		}
+		finally
+		{
+			if ( --bulkDepth == 0 && pending )
+			{
+				pending = false;
+				notifyListeners();
+			}
+		}
+	}
+
+	/**
+	 * Adds {@code listener}, unless it was already added.
+	 */
+	public void addListener( final ModificationListener listener )
+	{
+		CopyOnWriteArrayList< ModificationListener > l = listeners;
+		if ( l == null )
+		{
+			synchronized ( this )
+			{
+				l = listeners;
+				if ( l == null )
+				{
+					l = new CopyOnWriteArrayList<>();
+					listeners = l;
+				}
+			}
+		}
+		l.addIfAbsent( listener );
+	}
+
+	/**
+	 * Removes {@code listener}, if it was added.
+	 */
+	public void removeListener( final ModificationListener listener )
+	{
+		final CopyOnWriteArrayList< ModificationListener > l = listeners;
+		if ( l != null )
+			l.remove( listener );
+	}
+
+	/**
+	 * Returns the number of modifications recorded by all counters.
+	 */
+	public static long global()
+	{
+		return GLOBAL.get();
+	}
+
+	// -- Helper methods --
+
+	private void notifyListeners()
+	{
+		final CopyOnWriteArrayList< ModificationListener > l = listeners;
+		if ( l != null )
+			for ( final ModificationListener listener : l )
+				listener.modified( source );
+	}
+}
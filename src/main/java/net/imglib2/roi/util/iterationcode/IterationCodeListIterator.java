@@ -142,8 +142,15 @@ public class IterationCodeListIterator< P extends Positionable & Localizable > e
 	@Override
 	public void jumpFwd( final long steps )
 	{
-		for ( long j = 0; j < steps; ++j )
-			fwd();
+		// skip whole raster stretches instead of single pixels
+		long x = position.getLongPosition( 0 ) + steps;
+		while ( x > maxX && hasNextRaster )
+		{
+			final long remaining = x - maxX - 1;
+			nextRasterStretch();
+			x = position.getLongPosition( 0 ) + remaining;
+		}
+		position.setPosition( x, 0 );
 	}
 
 	@Override
@@ -0,0 +1,308 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import net.imglib2.Interval;
+import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.RealMask;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.composite.CompositeMaskPredicate;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.roi.mask.real.DefaultRealMaskRealInterval;
+import net.imglib2.util.Intervals;
+
+/**
+ * Cache of rasterized masks, stored as {@link RunLengthRegion}s.
+ * <p>
+ * Entries are keyed by the identity of the mask and the sampling grid. Masks
+ * are only weakly referenced, so the cache does not keep discarded masks (and
+ * the operands of composites) alive; their entries are dropped on a later
+ * access of the cache. The budget therefore only needs to account for the
+ * cached regions. Each
+ * entry records the version of the mask when it was rasterized, which for
+ * composites is the summed version of all leaf operands, so modifying a
+ * writable shape anywhere in a composite invalidates its entries. Masks with
+ * an operand whose contents are not tracked, see
+ * {@link #contentVersion(Object)}, are rasterized on every request and not
+ * cached. Transforms of transformed
+ * masks are assumed not to change.
+ * </p>
+ * <p>
+ * The total {@link RunLengthRegion#sizeInBytes()} of the entries is bounded
+ * by the budget given at construction, evicting the least recently used
+ * entries first. Rasterization happens outside of the lock, so concurrent
+ * requests for the same mask may rasterize it more than once.
+ * </p>
+ */
+public class RasterCache
+{
+	private final long maxBytes;
+
+	private final LinkedHashMap< Key, Entry > entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+	/** Keys whose mask was garbage collected. */
+	private final ReferenceQueue< Object > discarded = new ReferenceQueue<>();
+
+	private long bytes;
+
+	/**
+	 * @param maxBytes
+	 *            memory budget for the cached regions
+	 */
+	public RasterCache( final long maxBytes )
+	{
+		if ( maxBytes < 0 )
+			throw new IllegalArgumentException( "memory budget must not be negative: " + maxBytes );
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns {@code mask} rasterized on the integer grid of its largest
+	 * contained interval, see {@link RunLengthRegions#fromRealMask(RealMaskRealInterval)}.
+	 */
+	public RunLengthRegion get( final RealMaskRealInterval mask )
+	{
+		return get( new Key( mask, null, null, discarded ), () -> RunLengthRegions.fromRealMask( mask ) );
+	}
+
+	/**
+	 * Returns {@code mask} rasterized on the integer grid of
+	 * {@code interval}, see {@link RunLengthRegions#fromRealMask(RealMask, Interval)}.
+	 */
+	public RunLengthRegion get( final RealMask mask, final Interval interval )
+	{
+		return get( new Key( mask, interval, discarded ), () -> RunLengthRegions.fromRealMask( mask, interval ) );
+	}
+
+	/**
+	 * Returns the pixels of {@code mask}, see
+	 * {@link RunLengthRegions#fromMaskInterval(MaskInterval)}.
+	 */
+	public RunLengthRegion get( final MaskInterval mask )
+	{
+		return get( new Key( mask, null, null, discarded ), () -> RunLengthRegions.fromMaskInterval( mask ) );
+	}
+
+	/**
+	 * Removes all entries of {@code mask}.
+	 */
+	public synchronized void invalidate( final Object mask )
+	{
+		expunge();
+		final Iterator< Map.Entry< Key, Entry > > it = entries.entrySet().iterator();
+		while ( it.hasNext() )
+		{
+			final Map.Entry< Key, Entry > e = it.next();
+			if ( e.getKey().get() == mask )
+			{
+				bytes -= e.getValue().bytes;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Returns the number of cached regions.
+	 */
+	public synchronized int size()
+	{
+		expunge();
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total size of the cached regions, in bytes.
+	 */
+	public synchronized long sizeInBytes()
+	{
+		expunge();
+		return bytes;
+	}
+
+	/**
+	 * Returns the summed version of the leaf operands of {@code mask}, or
+	 * {@code -1} if the contents of some operand are not tracked, because it
+	 * is not {@link Versioned} or only versions its bounds.
+	 */
+	public static long contentVersion( final Object mask )
+	{
+		// NB: these wrap an arbitrary predicate and only version their bounds
+		if ( mask instanceof DefaultMaskInterval || mask instanceof DefaultRealMaskRealInterval )
+			return -1;
+		if ( !( mask instanceof CompositeMaskPredicate ) )
+			return Versioned.versionOf( mask );
+		long version = 0;
+		for ( final Predicate< ? > operand : ( ( CompositeMaskPredicate< ? > ) mask ).operands() )
+		{
+			final long v = contentVersion( operand );
+			if ( v < 0 )
+				return -1;
+			version += v;
+		}
+		return version;
+	}
+
+	// -- Helper methods --
+
+	private RunLengthRegion get( final Key key, final Supplier< RunLengthRegion > rasterize )
+	{
+		final long version = contentVersion( key.get() );
+		if ( version < 0 )
+			return rasterize.get();
+		synchronized ( this )
+		{
+			expunge();
+			final Entry entry = entries.get( key );
+			if ( entry != null && entry.version == version )
+				return entry.region;
+		}
+		final RunLengthRegion region = rasterize.get();
+		put( key, new Entry( version, region ) );
+		return region;
+	}
+
+	private synchronized void put( final Key key, final Entry entry )
+	{
+		expunge();
+		final Entry old = entries.remove( key );
+		if ( old != null )
+			bytes -= old.bytes;
+		if ( entry.bytes > maxBytes )
+			return;
+		entries.put( key, entry );
+		bytes += entry.bytes;
+		final Iterator< Entry > it = entries.values().iterator();
+		while ( bytes > maxBytes )
+		{
+			bytes -= it.next().bytes;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Removes the entries of garbage collected masks.
+	 */
+	private void expunge()
+	{
+		for ( Reference< ? > ref; ( ref = discarded.poll() ) != null; )
+		{
+			final Entry old = entries.remove( ref );
+			if ( old != null )
+				bytes -= old.bytes;
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Weakly references the mask, and compares it by identity. A key whose
+	 * mask was collected is only equal to itself.
+	 */
+	private static final class Key extends WeakReference< Object >
+	{
+		private final long[] min;
+
+		private final long[] max;
+
+		private final int hash;
+
+		Key( final Object mask, final Interval interval, final ReferenceQueue< Object > queue )
+		{
+			this( mask, Intervals.minAsLongArray( interval ), Intervals.maxAsLongArray( interval ), queue );
+		}
+
+		Key( final Object mask, final long[] min, final long[] max, final ReferenceQueue< Object > queue )
+		{
+			super( mask, queue );
+			this.min = min;
+			this.max = max;
+			hash = 31 * ( 31 * System.identityHashCode( mask ) + Arrays.hashCode( min ) ) + Arrays.hashCode( max );
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			if ( obj == this )
+				return true;
+			if ( !( obj instanceof Key ) )
+				return false;
+			final Key other = ( Key ) obj;
+			final Object mask = get();
+			return mask != null && mask == other.get() && Arrays.equals( min, other.min ) && Arrays.equals( max, other.max );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+
+	private static final class Entry
+	{
+		private final long version;
+
+		private final RunLengthRegion region;
+
+		private final long bytes;
+
+		Entry( final long version, final RunLengthRegion region )
+		{
+			this.version = version;
+			this.region = region;
+			// NB: includes object headers and the arrays' lengths
+			bytes = region.sizeInBytes() + 128;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Cursor;
+
+/**
+ * A {@code Cursor<Void>} that visits all pixels of a {@link RunLengthRegion}
+ * in flat iteration order.
+ * <p>
+ * {@link #jumpFwd(long)} locates the target run by binary search over the
+ * cumulative run sizes, so it takes {@code O(log runs)} regardless of the
+ * number of steps.
+ */
+public class RunLengthCursor extends AbstractLocalizable implements Cursor< Void >
+{
+	private final RunLengthRegion region;
+
+	private final int numRuns;
+
+	private final long lastIndex;
+
+	/**
+	 * Iteration index of the current pixel ({@code -1} before the first
+	 * {@link #fwd()}).
+	 */
+	private long index;
+
+	private int line;
+
+	private int run;
+
+	private long maxX;
+
+	public RunLengthCursor( final RunLengthRegion region )
+	{
+		super( region.numDimensions() );
+		this.region = region;
+		numRuns = region.numRuns();
+		lastIndex = region.size() - 1;
+		reset();
+	}
+
+	protected RunLengthCursor( final RunLengthCursor c )
+	{
+		super( c.position.clone() );
+		region = c.region;
+		numRuns = c.numRuns;
+		lastIndex = c.lastIndex;
+		index = c.index;
+		line = c.line;
+		run = c.run;
+		maxX = c.maxX;
+	}
+
+	/**
+	 * @return the iteration index of the current pixel.
+	 */
+	public long index()
+	{
+		return index;
+	}
+
+	@Override
+	public Void get()
+	{
+		return null;
+	}
+
+	@Override
+	public void jumpFwd( final long steps )
+	{
+		final long x = position[ 0 ] + steps;
+		if ( x <= maxX && run >= 0 )
+		{
+			position[ 0 ] = x;
+			index += steps;
+		}
+		else
+			locate( index + steps );
+	}
+
+	@Override
+	public void fwd()
+	{
+		++index;
+		if ( ++position[ 0 ] > maxX )
+			nextRun();
+	}
+
+	@Override
+	public void reset()
+	{
+		index = -1;
+		line = -1;
+		run = -1;
+		position[ 0 ] = 0;
+		maxX = -1;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return index < lastIndex;
+	}
+
+	@Override
+	public Void next()
+	{
+		fwd();
+		return null;
+	}
+
+	@Override
+	public RunLengthCursor copy()
+	{
+		return new RunLengthCursor( this );
+	}
+
+	@Override
+	public RunLengthCursor copyCursor()
+	{
+		return copy();
+	}
+
+	/**
+	 * Move to the pixel with the given iteration index.
+	 */
+	void locate( final long targetIndex )
+	{
+		final long[] runIndex = region.runIndex;
+		if ( targetIndex < 0 || targetIndex > lastIndex )
+		{
+			index = targetIndex;
+			return;
+		}
+
+		// find the last run with runIndex[ r ] <= targetIndex
+		int lo = 0;
+		int hi = numRuns - 1;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi + 1 ) >>> 1;
+			if ( runIndex[ mid ] <= targetIndex )
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		run = lo;
+
+		// find the last line with lineRuns[ l ] <= run
+		final int[] lineRuns = region.lineRuns;
+		lo = 0;
+		hi = region.numLines - 1;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi + 1 ) >>> 1;
+			if ( lineRuns[ mid ] <= run )
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		line = lo;
+		region.lineLocalize( line, position );
+
+		index = targetIndex;
+		position[ 0 ] = region.runs[ 2 * run ] + targetIndex - runIndex[ run ];
+		maxX = region.runs[ 2 * run + 1 ];
+	}
+
+	private void nextRun()
+	{
+		if ( ++run >= numRuns )
+		{
+			// ran past the end: stay on the last pixel
+			--run;
+			--index;
+			--position[ 0 ];
+			return;
+		}
+		if ( run >= region.lineRuns[ line + 1 ] )
+		{
+			++line;
+			region.lineLocalize( line, position );
+		}
+		position[ 0 ] = region.runs[ 2 * run ];
+		maxX = region.runs[ 2 * run + 1 ];
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.roi.Operators;
+
+/**
+ * Morphological operations on {@link RunLengthRegion}s.
+ * <p>
+ * A structuring element is itself a {@link RunLengthRegion}, whose pixels are
+ * offsets relative to the origin. {@link #box(long...)} and
+ * {@link #sphere(int, double)} create common structuring elements; arbitrary
+ * ones can be created with {@link RunLengthRegionBuilder} or
+ * {@link RunLengthRegions}.
+ * <p>
+ * The structuring element is decomposed into its runs (line spans). Dilating
+ * by one span shifts every line of the region and widens every run, erosion
+ * shifts and narrows, so each span yields a region with as many runs as the
+ * source. These are combined with {@link RunLengthRegions#union(java.util.Collection)}
+ * and {@link RunLengthRegions#intersection(java.util.Collection)}. The cost is
+ * proportional to the number of runs of the region times the number of runs
+ * of the structuring element (its height, for convex shapes) times the
+ * logarithm of the latter, independent of the size of the bounding box.
+ * <p>
+ * Regions stored as iteration codes (e.g.
+ * {@link net.imglib2.roi.labeling.LabelRegion}) can be converted with
+ * {@link net.imglib2.roi.labeling.LabelRegion#toRunLengthRegion()} or
+ * {@link RunLengthRegions#fromIterationCode(net.imglib2.roi.util.iterationcode.IterationCode)},
+ * and the results converted back with {@link RunLengthRegion#toIterationCode()}.
+ */
+public class RunLengthMorphology
+{
+	/**
+	 * Create a box structuring element covering {@code [-radius[d], radius[d]]}
+	 * in every dimension {@code d}.
+	 */
+	public static RunLengthRegion box( final long... radius )
+	{
+		final int n = radius.length;
+		if ( n == 0 )
+			throw new IllegalArgumentException( "no radius given" );
+		for ( final long r : radius )
+			if ( r < 0 )
+				throw new IllegalArgumentException( "radius must not be negative" );
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		final long[] pos = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			pos[ d ] = -radius[ d ];
+		while ( true )
+		{
+			builder.addRun( pos, radius[ 0 ] );
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( ++pos[ d ] <= radius[ d ] )
+					break;
+				pos[ d ] = -radius[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Create a sphere (disc in 2D) structuring element containing all offsets
+	 * with Euclidean length {@code <= radius}.
+	 */
+	public static RunLengthRegion sphere( final int numDimensions, final double radius )
+	{
+		if ( numDimensions < 1 )
+			throw new IllegalArgumentException( "numDimensions must be positive" );
+		if ( !( radius >= 0 ) )
+			throw new IllegalArgumentException( "radius must not be negative" );
+		final long r = ( long ) Math.floor( radius );
+		final double squRadius = radius * radius;
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( numDimensions );
+		final long[] pos = new long[ numDimensions ];
+		for ( int d = 1; d < numDimensions; ++d )
+			pos[ d ] = -r;
+		while ( true )
+		{
+			long squDistance = 0;
+			for ( int d = 1; d < numDimensions; ++d )
+				squDistance += pos[ d ] * pos[ d ];
+			if ( squDistance <= squRadius )
+			{
+				final long w = ( long ) Math.floor( Math.sqrt( squRadius - squDistance ) );
+				pos[ 0 ] = -w;
+				builder.addRun( pos, w );
+			}
+			int d = 1;
+			for ( ; d < numDimensions; ++d )
+			{
+				if ( ++pos[ d ] <= r )
+					break;
+				pos[ d ] = -r;
+			}
+			if ( d >= numDimensions )
+				break;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Dilate {@code region} by {@code structuringElement}: the set of all
+	 * {@code p + s} for pixels {@code p} of the region and offsets {@code s}
+	 * of the structuring element.
+	 */
+	public static RunLengthRegion dilate( final RunLengthRegion region, final RunLengthRegion structuringElement )
+	{
+		checkArguments( region, structuringElement );
+		if ( region.isEmpty() )
+			return region;
+		final List< RunLengthRegion > terms = new ArrayList<>( structuringElement.numRuns() );
+		forEachSpan( structuringElement, ( offset, min, max ) -> terms.add( shift( region, offset, 1, min, max ) ) );
+		return terms.size() == 1 ? terms.get( 0 ) : RunLengthRegions.union( terms );
+	}
+
+	/**
+	 * Erode {@code region} by {@code structuringElement}: the set of all
+	 * positions {@code p} such that {@code p + s} is in the region for all
+	 * offsets {@code s} of the structuring element.
+	 */
+	public static RunLengthRegion erode( final RunLengthRegion region, final RunLengthRegion structuringElement )
+	{
+		checkArguments( region, structuringElement );
+		if ( region.isEmpty() )
+			return region;
+		final List< RunLengthRegion > terms = new ArrayList<>( structuringElement.numRuns() );
+		forEachSpan( structuringElement, ( offset, min, max ) -> terms.add( shift( region, offset, -1, -min, -max ) ) );
+		return terms.size() == 1 ? terms.get( 0 ) : RunLengthRegions.intersection( terms );
+	}
+
+	/**
+	 * Morphological opening: erosion followed by dilation.
+	 */
+	public static RunLengthRegion open( final RunLengthRegion region, final RunLengthRegion structuringElement )
+	{
+		return dilate( erode( region, structuringElement ), structuringElement );
+	}
+
+	/**
+	 * Morphological closing: dilation followed by erosion.
+	 */
+	public static RunLengthRegion close( final RunLengthRegion region, final RunLengthRegion structuringElement )
+	{
+		return erode( dilate( region, structuringElement ), structuringElement );
+	}
+
+	// -- Helper methods --
+
+	private interface SpanConsumer
+	{
+		void accept( long[] offset, long min, long max );
+	}
+
+	private static void checkArguments( final RunLengthRegion region, final RunLengthRegion structuringElement )
+	{
+		Operators.checkDimensions( region, structuringElement );
+		if ( structuringElement.isEmpty() )
+			throw new IllegalArgumentException( "structuring element must not be empty" );
+	}
+
+	/**
+	 * Call {@code action} for every run of {@code structuringElement}, with the
+	 * line position in dimensions 1, ..., n-1 of {@code offset}.
+	 */
+	private static void forEachSpan( final RunLengthRegion structuringElement, final SpanConsumer action )
+	{
+		final long[] offset = new long[ structuringElement.numDimensions() ];
+		for ( int l = 0; l < structuringElement.numLines; ++l )
+		{
+			structuringElement.lineLocalize( l, offset );
+			for ( int r = structuringElement.lineRuns[ l ]; r < structuringElement.lineRuns[ l + 1 ]; ++r )
+				action.accept( offset, structuringElement.runs[ 2 * r ], structuringElement.runs[ 2 * r + 1 ] );
+		}
+	}
+
+	/**
+	 * Shift the lines of {@code region} by {@code sign * offset} (dimensions 1,
+	 * ..., n-1), and map each run {@code [a, b]} to {@code [a + min, b + max]}.
+	 * Runs that become empty are dropped, runs that overlap are merged.
+	 */
+	private static RunLengthRegion shift( final RunLengthRegion region, final long[] offset, final int sign, final long min, final long max )
+	{
+		final int m = region.numDimensions() - 1;
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( m + 1 );
+		final long[] line = new long[ m ];
+		for ( int l = 0; l < region.numLines; ++l )
+		{
+			for ( int d = 0; d < m; ++d )
+				line[ d ] = region.lines[ l * m + d ] + sign * offset[ d + 1 ];
+			for ( int r = region.lineRuns[ l ]; r < region.lineRuns[ l + 1 ]; ++r )
+			{
+				final long a = region.runs[ 2 * r ] + min;
+				final long b = region.runs[ 2 * r + 1 ] + max;
+				if ( a <= b )
+					builder.append( line, 0, a, b );
+			}
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,504 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.imglib2.AbstractInterval;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Versioned;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.type.logic.BoolType;
+
+/**
+ * A region stored as sorted runs of consecutive pixels along dimension 0.
+ * <p>
+ * Lines (positions in dimensions 1, ..., n-1) are stored in flat iteration
+ * order, each with a sorted list of disjoint, non-adjacent runs
+ * {@code [minX, maxX]}. Memory and the cost of the set operations in
+ * {@link RunLengthRegions} are proportional to the number of runs, not to the
+ * number of pixels or the size of the bounding box.
+ * <p>
+ * The region is immutable. It can be iterated as an {@link IterableRegion}
+ * (pixels are visited in flat iteration order), tested as a
+ * {@link MaskInterval}, and converted to an {@link IterationCode}. Use
+ * {@link RunLengthRegionBuilder} or the factory methods in
+ * {@link RunLengthRegions} to create instances.
+ * <p>
+ * The interval bounds are the tight bounding box of all pixels. An empty region
+ * has {@code min = 0} and {@code max = -1} in all dimensions.
+ */
+public class RunLengthRegion extends AbstractInterval implements IterableRegion< BoolType >, MaskInterval, Versioned
+{
+	/**
+	 * Number of lines. (Every line contains at least one run.)
+	 */
+	final int numLines;
+
+	/**
+	 * Positions of the lines in dimensions 1, ..., n-1. {@code n-1} entries per
+	 * line.
+	 */
+	final long[] lines;
+
+	/**
+	 * Index of the first run of each line. {@code numLines + 1} entries, the
+	 * last one is the total number of runs.
+	 */
+	final int[] lineRuns;
+
+	/**
+	 * {@code [minX, maxX]} of each run (inclusive).
+	 */
+	final long[] runs;
+
+	/**
+	 * Iteration index of the first pixel of each run. {@code numRuns + 1}
+	 * entries, the last one is {@link #size()}.
+	 */
+	final long[] runIndex;
+
+	RunLengthRegion( final int numDimensions, final long[] lines, final int[] lineRuns, final long[] runs )
+	{
+		super( numDimensions );
+		this.lines = lines;
+		this.lineRuns = lineRuns;
+		this.runs = runs;
+		numLines = lineRuns.length - 1;
+
+		final int numRuns = numRuns();
+		runIndex = new long[ numRuns + 1 ];
+		for ( int r = 0; r < numRuns; ++r )
+			runIndex[ r + 1 ] = runIndex[ r ] + runs[ 2 * r + 1 ] - runs[ 2 * r ] + 1;
+
+		if ( numRuns == 0 )
+		{
+			Arrays.fill( min, 0 );
+			Arrays.fill( max, -1 );
+		}
+		else
+		{
+			Arrays.fill( min, Long.MAX_VALUE );
+			Arrays.fill( max, Long.MIN_VALUE );
+			final int m = n - 1;
+			for ( int l = 0; l < numLines; ++l )
+			{
+				min[ 0 ] = Math.min( min[ 0 ], runs[ 2 * lineRuns[ l ] ] );
+				max[ 0 ] = Math.max( max[ 0 ], runs[ 2 * lineRuns[ l + 1 ] - 1 ] );
+				for ( int d = 1; d < n; ++d )
+				{
+					final long p = lines[ l * m + d - 1 ];
+					min[ d ] = Math.min( min[ d ], p );
+					max[ d ] = Math.max( max[ d ], p );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create an empty region.
+	 */
+	public static RunLengthRegion empty( final int numDimensions )
+	{
+		return new RunLengthRegion( numDimensions, new long[ 0 ], new int[ 1 ], new long[ 0 ] );
+	}
+
+	/**
+	 * @return the number of lines (positions in dimensions 1, ..., n-1) that
+	 *         contain at least one pixel.
+	 */
+	public int numLines()
+	{
+		return numLines;
+	}
+
+	/**
+	 * @return the number of runs along dimension 0.
+	 */
+	public int numRuns()
+	{
+		return lineRuns[ numLines ];
+	}
+
+	/**
+	 * Returns 0, since the region is immutable.
+	 */
+	@Override
+	public long version()
+	{
+		return 0;
+	}
+
+	/**
+	 * Approximate memory used by the runs of this region, in bytes.
+	 */
+	public long sizeInBytes()
+	{
+		return 8L * lines.length + 4L * lineRuns.length + 8L * runs.length + 8L * runIndex.length;
+	}
+
+	@Override
+	public long size()
+	{
+		return runIndex[ runIndex.length - 1 ];
+	}
+
+	@Override
+	public boolean test( final Localizable localizable )
+	{
+		final long[] pos = new long[ n ];
+		localizable.localize( pos );
+		return contains( pos );
+	}
+
+	/**
+	 * Check whether the region contains the given position.
+	 */
+	boolean contains( final long[] pos )
+	{
+		final int l = findLine( pos );
+		if ( l < 0 )
+			return false;
+		final long x = pos[ 0 ];
+		int lo = lineRuns[ l ];
+		int hi = lineRuns[ l + 1 ] - 1;
+		// find the last run with minX <= x
+		while ( lo <= hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( runs[ 2 * mid ] <= x )
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		return hi >= lineRuns[ l ] && x <= runs[ 2 * hi + 1 ];
+	}
+
+	/**
+	 * Find the line containing {@code pos} (dimension 0 is ignored).
+	 *
+	 * @return the index of the line, or {@code -(insertionPoint + 1)} if there
+	 *         is no such line.
+	 */
+	public int findLine( final long[] pos )
+	{
+		int lo = 0;
+		int hi = numLines - 1;
+		while ( lo <= hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			final int c = compareLine( mid, pos );
+			if ( c < 0 )
+				lo = mid + 1;
+			else if ( c > 0 )
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -( lo + 1 );
+	}
+
+	/**
+	 * Compare line {@code l} to the position {@code pos} (dimension 0 is
+	 * ignored) in flat iteration order.
+	 */
+	int compareLine( final int l, final long[] pos )
+	{
+		final int m = n - 1;
+		for ( int d = m; d > 0; --d )
+		{
+			final long a = lines[ l * m + d - 1 ];
+			final long b = pos[ d ];
+			if ( a != b )
+				return a < b ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the minimum (inclusive) of run {@code r} in dimension 0.
+	 */
+	public long runMin( final int r )
+	{
+		return runs[ 2 * r ];
+	}
+
+	/**
+	 * Get the maximum (inclusive) of run {@code r} in dimension 0.
+	 */
+	public long runMax( final int r )
+	{
+		return runs[ 2 * r + 1 ];
+	}
+
+	/**
+	 * Get the index of the first run of line {@code l}. The runs of line
+	 * {@code l} are {@code lineRunStart(l)} to {@code lineRunStart(l+1) - 1}.
+	 */
+	public int lineRunStart( final int l )
+	{
+		return lineRuns[ l ];
+	}
+
+	/**
+	 * Get the position of line {@code l} in dimension {@code d > 0}.
+	 */
+	public long linePosition( final int l, final int d )
+	{
+		return lines[ l * ( n - 1 ) + d - 1 ];
+	}
+
+	/**
+	 * Write the position of line {@code l} into dimensions 1, ..., n-1 of
+	 * {@code pos}.
+	 */
+	public void lineLocalize( final int l, final long[] pos )
+	{
+		System.arraycopy( lines, l * ( n - 1 ), pos, 1, n - 1 );
+	}
+
+	/**
+	 * Convert to an {@link IterationCode}. (Coordinates must fit into
+	 * {@code int}.)
+	 */
+	public IterationCode toIterationCode()
+	{
+		final TIntArrayList itcode = new TIntArrayList( 2 * numRuns() + numLines * n + 1 );
+		final int m = n - 1;
+		if ( numLines > 0 )
+		{
+			final long offsetX = min[ 0 ];
+			itcode.add( ( int ) offsetX );
+			for ( int d = 0; d < m; ++d )
+				itcode.add( ( int ) lines[ d ] );
+			for ( int l = 0; l < numLines; ++l )
+			{
+				if ( l > 0 )
+				{
+					// find the highest dimension that changed
+					int dim = 1;
+					for ( int d = m; d > 0; --d )
+						if ( lines[ l * m + d - 1 ] != lines[ ( l - 1 ) * m + d - 1 ] )
+						{
+							dim = d;
+							break;
+						}
+					itcode.add( -dim );
+					for ( int d = 1; d <= dim; ++d )
+						itcode.add( ( int ) lines[ l * m + d - 1 ] );
+				}
+				for ( int r = lineRuns[ l ]; r < lineRuns[ l + 1 ]; ++r )
+				{
+					itcode.add( ( int ) ( runs[ 2 * r ] - offsetX ) );
+					itcode.add( ( int ) ( runs[ 2 * r + 1 ] - offsetX ) );
+				}
+			}
+		}
+		final long[] bbmin = new long[ n ];
+		final long[] bbmax = new long[ n ];
+		min( bbmin );
+		max( bbmax );
+		return new RunLengthIterationCode( n, itcode, size(), bbmin, bbmax );
+	}
+
+	@Override
+	public RunLengthCursor cursor()
+	{
+		return new RunLengthCursor( this );
+	}
+
+	@Override
+	public RunLengthCursor localizingCursor()
+	{
+		return cursor();
+	}
+
+	@Override
+	public RunLengthCursor iterator()
+	{
+		return cursor();
+	}
+
+	@Override
+	public Void firstElement()
+	{
+		if ( size() == 0 )
+			throw new NoSuchElementException();
+		return null;
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return this;
+	}
+
+	@Override
+	public RandomAccess< BoolType > randomAccess()
+	{
+		return new RunLengthRandomAccess( this );
+	}
+
+	@Override
+	public RandomAccess< BoolType > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+
+	@Override
+	public KnownConstant knownConstant()
+	{
+		return size() == 0 ? KnownConstant.ALL_FALSE : KnownConstant.UNKNOWN;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	/**
+	 * Union with {@code other}, computed by merging runs.
+	 */
+	public RunLengthRegion or( final RunLengthRegion other )
+	{
+		return RunLengthRegions.union( this, other );
+	}
+
+	/**
+	 * Intersection with {@code other}, computed by merging runs.
+	 */
+	public RunLengthRegion and( final RunLengthRegion other )
+	{
+		return RunLengthRegions.intersection( this, other );
+	}
+
+	/**
+	 * Difference {@code this - other}, computed by merging runs.
+	 */
+	public RunLengthRegion minus( final RunLengthRegion other )
+	{
+		return RunLengthRegions.difference( this, other );
+	}
+
+	/**
+	 * Symmetric difference with {@code other}, computed by merging runs.
+	 */
+	public RunLengthRegion xor( final RunLengthRegion other )
+	{
+		return RunLengthRegions.xor( this, other );
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( this == obj )
+			return true;
+		if ( !( obj instanceof RunLengthRegion ) )
+			return false;
+		final RunLengthRegion other = ( RunLengthRegion ) obj;
+		return n == other.n
+				&& numLines == other.numLines
+				&& Arrays.equals( lineRuns, other.lineRuns )
+				&& Arrays.equals( lines, other.lines )
+				&& Arrays.equals( runs, other.runs );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * Arrays.hashCode( lines ) + Arrays.hashCode( runs );
+	}
+
+	// -- Helper classes --
+
+	private static final class RunLengthIterationCode implements IterationCode
+	{
+		private final int n;
+
+		private final TIntArrayList itcode;
+
+		private final long size;
+
+		private final long[] bbmin;
+
+		private final long[] bbmax;
+
+		RunLengthIterationCode( final int n, final TIntArrayList itcode, final long size, final long[] bbmin, final long[] bbmax )
+		{
+			this.n = n;
+			this.itcode = itcode;
+			this.size = size;
+			this.bbmin = bbmin;
+			this.bbmax = bbmax;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public TIntArrayList getItcode()
+		{
+			return itcode;
+		}
+
+		@Override
+		public long getSize()
+		{
+			return size;
+		}
+
+		@Override
+		public long[] getBoundingBoxMin()
+		{
+			return bbmin;
+		}
+
+		@Override
+		public long[] getBoundingBoxMax()
+		{
+			return bbmax;
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import net.imglib2.AbstractEuclideanSpace;
+import net.imglib2.Localizable;
+import net.imglib2.roi.util.IndexSort;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+
+/**
+ * Create a {@link RunLengthRegion} by accumulating pixels and runs.
+ * <p>
+ * Adding pixels and runs in flat iteration order is cheapest: consecutive and
+ * overlapping runs on the same line are merged on the fly. Input in any other
+ * order (or with duplicates) is also accepted, the runs are then sorted and
+ * merged in {@link #build()}.
+ */
+public class RunLengthRegionBuilder extends AbstractEuclideanSpace
+{
+	private TLongArrayList lines;
+
+	private TIntArrayList lineRuns;
+
+	private TLongArrayList runs;
+
+	private boolean sorted;
+
+	private final long[] tmp;
+
+	public RunLengthRegionBuilder( final int numDimensions )
+	{
+		super( numDimensions );
+		lines = new TLongArrayList();
+		lineRuns = new TIntArrayList();
+		runs = new TLongArrayList();
+		sorted = true;
+		tmp = new long[ numDimensions ];
+	}
+
+	/**
+	 * Add a single pixel.
+	 */
+	public void add( final Localizable pos )
+	{
+		pos.localize( tmp );
+		addRun( tmp, tmp[ 0 ] );
+	}
+
+	/**
+	 * Add a single pixel.
+	 */
+	public void add( final long[] pos )
+	{
+		addRun( pos, pos[ 0 ] );
+	}
+
+	/**
+	 * Add the run from {@code start} to {@code (maxX, start[1], ..., start[n-1])}
+	 * (inclusive).
+	 */
+	public void addRun( final Localizable start, final long maxX )
+	{
+		start.localize( tmp );
+		addRun( tmp, maxX );
+	}
+
+	/**
+	 * Add the run from {@code start} to {@code (maxX, start[1], ..., start[n-1])}
+	 * (inclusive). Empty runs ({@code maxX < start[0]}) are ignored.
+	 */
+	public void addRun( final long[] start, final long maxX )
+	{
+		if ( maxX >= start[ 0 ] )
+			append( start, 1, start[ 0 ], maxX );
+	}
+
+	/**
+	 * Add all pixels of the given {@link IterationCode}.
+	 */
+	public void addIterationCode( final IterationCode iterationCode )
+	{
+		addIterationCode( iterationCode.getItcode(), new long[ n ] );
+	}
+
+	/**
+	 * Add all pixels of the bitmask encoded by {@code itcode}, shifted by
+	 * {@code offset}.
+	 */
+	public void addIterationCode( final TIntArrayList itcode, final long[] offset )
+	{
+		if ( itcode.isEmpty() )
+			return;
+		final long[] start = new long[ n ];
+		int i = 0;
+		final long offsetX = itcode.get( i++ ) + offset[ 0 ];
+		for ( int d = 1; d < n; ++d )
+			start[ d ] = itcode.get( i++ ) + offset[ d ];
+		final int size = itcode.size();
+		while ( i < size )
+		{
+			int minX = itcode.get( i++ );
+			if ( minX < 0 )
+			{
+				for ( int d = 1; d <= -minX; ++d )
+					start[ d ] = itcode.get( i++ ) + offset[ d ];
+				minX = itcode.get( i++ );
+			}
+			start[ 0 ] = minX + offsetX;
+			addRun( start, itcode.get( i++ ) + offsetX );
+		}
+	}
+
+	/**
+	 * Add all runs of the given {@link RunLengthRegion}.
+	 */
+	public void addRegion( final RunLengthRegion region )
+	{
+		if ( region.numDimensions() != n )
+			throw new IllegalArgumentException( "incompatible dimensionalities" );
+		final int m = n - 1;
+		for ( int l = 0; l < region.numLines; ++l )
+			for ( int r = region.lineRuns[ l ]; r < region.lineRuns[ l + 1 ]; ++r )
+				append( region.lines, l * m, region.runs[ 2 * r ], region.runs[ 2 * r + 1 ] );
+	}
+
+	/**
+	 * Create a {@link RunLengthRegion} from the pixels and runs added so far.
+	 * The builder can be used to add more pixels afterwards.
+	 */
+	public RunLengthRegion build()
+	{
+		if ( !sorted )
+			normalize();
+		final int[] lineRunsArray = Arrays.copyOf( lineRuns.toArray(), lineRuns.size() + 1 );
+		lineRunsArray[ lineRuns.size() ] = runs.size() / 2;
+		return new RunLengthRegion( n, lines.toArray(), lineRunsArray, runs.toArray() );
+	}
+
+	/**
+	 * Append a run. The line position is {@code line[lineOffset]} to
+	 * {@code line[lineOffset + n - 2]}.
+	 */
+	void append( final long[] line, final int lineOffset, final long minX, final long maxX )
+	{
+		final int numLines = lineRuns.size();
+		final int c = numLines == 0 ? 1 : compareToLastLine( line, lineOffset );
+		if ( c == 0 )
+		{
+			final int last = runs.size() - 1;
+			final long lastMin = runs.get( last - 1 );
+			final long lastMax = runs.get( last );
+			if ( minX > lastMax + 1 )
+			{
+				runs.add( minX );
+				runs.add( maxX );
+			}
+			else if ( minX >= lastMin )
+			{
+				if ( maxX > lastMax )
+					runs.set( last, maxX );
+			}
+			else
+			{
+				sorted = false;
+				runs.add( minX );
+				runs.add( maxX );
+			}
+		}
+		else
+		{
+			if ( c < 0 )
+				sorted = false;
+			lines.add( line, lineOffset, n - 1 );
+			lineRuns.add( runs.size() / 2 );
+			runs.add( minX );
+			runs.add( maxX );
+		}
+	}
+
+	/**
+	 * Compare {@code line} to the last line in flat iteration order.
+	 *
+	 * @return positive if {@code line} comes after the last line, 0 if it is
+	 *         the same line, negative otherwise.
+	 */
+	private int compareToLastLine( final long[] line, final int lineOffset )
+	{
+		final int m = n - 1;
+		final int last = lines.size() - m;
+		for ( int d = m - 1; d >= 0; --d )
+		{
+			final long a = line[ lineOffset + d ];
+			final long b = lines.get( last + d );
+			if ( a != b )
+				return a < b ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Sort runs by line and minX, and merge overlapping runs.
+	 */
+	private void normalize()
+	{
+		final int m = n - 1;
+		final int numRuns = runs.size() / 2;
+		final int numLines = lineRuns.size();
+		final int[] runLine = new int[ numRuns ];
+		for ( int l = 0; l < numLines; ++l )
+		{
+			final int end = l + 1 < numLines ? lineRuns.get( l + 1 ) : numRuns;
+			for ( int r = lineRuns.get( l ); r < end; ++r )
+				runLine[ r ] = l;
+		}
+
+		final long[] linesArray = lines.toArray();
+		final long[] runsArray = runs.toArray();
+		final int[] order = IndexSort.sort( numRuns, ( r1, r2 ) -> {
+			final int l1 = runLine[ r1 ] * m;
+			final int l2 = runLine[ r2 ] * m;
+			for ( int d = m - 1; d >= 0; --d )
+			{
+				final int c = Long.compare( linesArray[ l1 + d ], linesArray[ l2 + d ] );
+				if ( c != 0 )
+					return c;
+			}
+			return Long.compare( runsArray[ 2 * r1 ], runsArray[ 2 * r2 ] );
+		} );
+
+		lines = new TLongArrayList( linesArray.length );
+		lineRuns = new TIntArrayList( numLines );
+		runs = new TLongArrayList( runsArray.length );
+		for ( final int r : order )
+			append( linesArray, runLine[ r ] * m, runsArray[ 2 * r ], runsArray[ 2 * r + 1 ] );
+		sorted = true;
+	}
+}
@@ -0,0 +1,530 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.Positionable;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.BatchTest;
+import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Operators;
+import net.imglib2.roi.RealMask;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.real.RealPointCollection;
+import net.imglib2.roi.geom.real.Tube;
+import net.imglib2.roi.util.IndexSort;
+import net.imglib2.roi.util.IterableRegionOnBooleanRAI;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.type.BooleanType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Create {@link RunLengthRegion}s from other region representations, and
+ * combine them using set operations.
+ * <p>
+ * The set operations merge the runs of both operands line by line. Their cost
+ * is proportional to the number of runs of the operands, independent of the
+ * number of pixels or the size of the bounding boxes.
+ */
+public class RunLengthRegions
+{
+	/**
+	 * Convert an {@link IterationCode} to a {@link RunLengthRegion}.
+	 */
+	public static RunLengthRegion fromIterationCode( final IterationCode iterationCode )
+	{
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( iterationCode.numDimensions() );
+		builder.addIterationCode( iterationCode );
+		return builder.build();
+	}
+
+	/**
+	 * Convert an {@link IterationCode}, shifted by {@code offset}, to a
+	 * {@link RunLengthRegion}.
+	 */
+	public static RunLengthRegion fromIterationCode( final IterationCode iterationCode, final long[] offset )
+	{
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( iterationCode.numDimensions() );
+		builder.addIterationCode( iterationCode.getItcode(), offset );
+		return builder.build();
+	}
+
+	/**
+	 * Collect the positions visited by iterating {@code region} into a
+	 * {@link RunLengthRegion}. Works for any region, e.g.
+	 * {@link net.imglib2.roi.labeling.LabelRegion}, but regions that provide a
+	 * direct conversion (e.g.
+	 * {@link net.imglib2.roi.labeling.LabelRegion#toRunLengthRegion()}) should
+	 * prefer that.
+	 */
+	public static RunLengthRegion fromIterable( final IterableInterval< ? > region )
+	{
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( region.numDimensions() );
+		final Cursor< ? > c = region.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			builder.add( c );
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Collect the {@code true} pixels of a boolean
+	 * {@link RandomAccessibleInterval} (for example an
+	 * {@link IterableRegionOnBooleanRAI}) into a {@link RunLengthRegion}. The
+	 * source is scanned once, line by line.
+	 */
+	public static < B extends BooleanType< B > > RunLengthRegion fromBooleanRAI( final RandomAccessibleInterval< B > rai )
+	{
+		final RandomAccess< B > ra = rai.randomAccess( rai );
+		return scan( rai, ra, () -> ra.get().get() );
+	}
+
+	/**
+	 * Collect the pixels of a {@link MaskInterval} into a
+	 * {@link RunLengthRegion}. Every pixel of the interval is tested once.
+	 */
+	public static RunLengthRegion fromMaskInterval( final MaskInterval mask )
+	{
+		final Point pos = new Point( mask.numDimensions() );
+		return scan( mask, pos, () -> mask.test( pos ) );
+	}
+
+	/**
+	 * Rasterize a {@link RealMaskRealInterval} on the integer grid of its
+	 * largest contained interval, like
+	 * {@link net.imglib2.roi.Masks#toIterableRegion(RealMaskRealInterval)}.
+	 */
+	public static RunLengthRegion fromRealMask( final RealMaskRealInterval mask )
+	{
+		return fromRealMask( mask, Intervals.largestContainedInterval( mask ) );
+	}
+
+	/**
+	 * Rasterize a {@link RealMask} on the integer grid of {@code interval}.
+	 * Every pixel is tested once; each line along dimension 0 is tested as
+	 * one batch, see {@link RealMask#testBatch(double[], BitSet, BitSet)}.
+	 */
+	public static RunLengthRegion fromRealMask( final RealMask mask, final Interval interval )
+	{
+		final int n = interval.numDimensions();
+		if ( mask.numDimensions() != n )
+			throw new IllegalArgumentException( "mask and interval dimensions do not match" );
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		if ( Intervals.isEmpty( interval ) )
+			return builder.build();
+		if ( interval.dimension( 0 ) > Integer.MAX_VALUE / n )
+			throw new IllegalArgumentException( "lines are too long: " + interval.dimension( 0 ) );
+
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		interval.min( min );
+		interval.max( max );
+		final int width = ( int ) interval.dimension( 0 );
+		final double[] positions = new double[ width * n ];
+		for ( int x = 0; x < width; ++x )
+			positions[ x * n ] = min[ 0 ] + x;
+		final BitSet candidates = BatchTest.all( width );
+		final BitSet inside = new BitSet( width );
+		final long[] start = min.clone();
+		while ( true )
+		{
+			for ( int d = 1; d < n; ++d )
+				for ( int x = 0; x < width; ++x )
+					positions[ x * n + d ] = start[ d ];
+			mask.testBatch( positions, candidates, inside );
+			for ( int a = inside.nextSetBit( 0 ); a >= 0; )
+			{
+				final int b = inside.nextClearBit( a );
+				start[ 0 ] = min[ 0 ] + a;
+				builder.addRun( start, min[ 0 ] + b - 1 );
+				a = inside.nextSetBit( b );
+			}
+			start[ 0 ] = min[ 0 ];
+
+			// next line
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( ++start[ d ] <= max[ d ] )
+					break;
+				start[ d ] = min[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Rasterize the points of a {@link RealPointCollection}: each point is
+	 * rounded to the nearest pixel, and the resulting pixels are sorted into
+	 * flat iteration order, deduplicated and merged into runs. The cost is
+	 * {@code O(P log P)} for {@code P} points, independent of the extent of
+	 * the collection.
+	 * <p>
+	 * Note that this differs from
+	 * {@link net.imglib2.roi.Masks#toIterableRegion(net.imglib2.roi.RealMaskRealInterval)},
+	 * which tests every pixel of the bounding box and therefore only contains
+	 * points with integer coordinates.
+	 * </p>
+	 */
+	public static RunLengthRegion fromRealPointCollection( final RealPointCollection< ? > points )
+	{
+		final int n = points.numDimensions();
+		final long size = points.size();
+		if ( size > Integer.MAX_VALUE / n )
+			throw new IllegalArgumentException( "too many points: " + size );
+		final int numPoints = ( int ) size;
+		final long[] pixels = new long[ numPoints * n ];
+		int i = 0;
+		for ( final RealLocalizable p : points.points() )
+		{
+			for ( int d = 0; d < n; ++d )
+				pixels[ i * n + d ] = Math.round( p.getDoublePosition( d ) );
+			++i;
+		}
+
+		final int[] order = IndexSort.sort( numPoints, ( p1, p2 ) -> {
+			for ( int d = n - 1; d >= 0; --d )
+			{
+				final int c = Long.compare( pixels[ p1 * n + d ], pixels[ p2 * n + d ] );
+				if ( c != 0 )
+					return c;
+			}
+			return 0;
+		} );
+
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		final long[] pos = new long[ n ];
+		for ( final int p : order )
+		{
+			System.arraycopy( pixels, p * n, pos, 0, n );
+			builder.add( pos );
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Rasterize a {@link Tube}. Instead of testing every pixel of the bounding
+	 * box, the spans where raster lines cross each tube segment are computed
+	 * directly, so the cost is proportional to the number of raster lines
+	 * crossing the tube. The result contains the same pixels as testing
+	 * {@link Tube#test} on the integer grid.
+	 */
+	public static RunLengthRegion fromTube( final Tube tube )
+	{
+		return new TubeRasterizer( tube ).rasterize();
+	}
+
+	/**
+	 * Union of {@code a} and {@code b}.
+	 */
+	public static RunLengthRegion union( final RunLengthRegion a, final RunLengthRegion b )
+	{
+		return combine( a, b, SetOperation.OR );
+	}
+
+	/**
+	 * Intersection of {@code a} and {@code b}.
+	 */
+	public static RunLengthRegion intersection( final RunLengthRegion a, final RunLengthRegion b )
+	{
+		return combine( a, b, SetOperation.AND );
+	}
+
+	/**
+	 * Difference {@code a - b}.
+	 */
+	public static RunLengthRegion difference( final RunLengthRegion a, final RunLengthRegion b )
+	{
+		return combine( a, b, SetOperation.MINUS );
+	}
+
+	/**
+	 * Symmetric difference of {@code a} and {@code b}.
+	 */
+	public static RunLengthRegion xor( final RunLengthRegion a, final RunLengthRegion b )
+	{
+		return combine( a, b, SetOperation.XOR );
+	}
+
+	/**
+	 * Union of all {@code regions}. The regions are merged pairwise in a
+	 * balanced tree, so the cost is {@code O(R log k)} for {@code k} regions
+	 * with {@code R} runs in total.
+	 */
+	public static RunLengthRegion union( final Collection< RunLengthRegion > regions )
+	{
+		return reduce( regions, SetOperation.OR );
+	}
+
+	/**
+	 * Intersection of all {@code regions}.
+	 */
+	public static RunLengthRegion intersection( final Collection< RunLengthRegion > regions )
+	{
+		return reduce( regions, SetOperation.AND );
+	}
+
+	// -- Helper methods --
+
+	private static RunLengthRegion reduce( final Collection< RunLengthRegion > regions, final SetOperation op )
+	{
+		if ( regions.isEmpty() )
+			throw new IllegalArgumentException( "no regions given" );
+		List< RunLengthRegion > level = new ArrayList<>( regions );
+		while ( level.size() > 1 )
+		{
+			final List< RunLengthRegion > next = new ArrayList<>( ( level.size() + 1 ) / 2 );
+			for ( int i = 0; i + 1 < level.size(); i += 2 )
+				next.add( combine( level.get( i ), level.get( i + 1 ), op ) );
+			if ( level.size() % 2 == 1 )
+				next.add( level.get( level.size() - 1 ) );
+			level = next;
+		}
+		return level.get( 0 );
+	}
+
+	private static RunLengthRegion combine( final RunLengthRegion a, final RunLengthRegion b, final SetOperation op )
+	{
+		final int n = Operators.checkDimensions( a, b );
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		final boolean keepOnlyA = op.apply( true, false );
+		final boolean keepOnlyB = op.apply( false, true );
+		int la = 0;
+		int lb = 0;
+		while ( la < a.numLines || lb < b.numLines )
+		{
+			final int c;
+			if ( la >= a.numLines )
+				c = 1;
+			else if ( lb >= b.numLines )
+				c = -1;
+			else
+				c = compareLines( a, la, b, lb );
+
+			if ( c < 0 )
+			{
+				if ( keepOnlyA )
+					copyLine( a, la, builder );
+				++la;
+			}
+			else if ( c > 0 )
+			{
+				if ( keepOnlyB )
+					copyLine( b, lb, builder );
+				++lb;
+			}
+			else
+			{
+				mergeLine( a, la, b, lb, op, builder );
+				++la;
+				++lb;
+			}
+		}
+		return builder.build();
+	}
+
+	private static int compareLines( final RunLengthRegion a, final int la, final RunLengthRegion b, final int lb )
+	{
+		final int m = a.numDimensions() - 1;
+		for ( int d = m - 1; d >= 0; --d )
+		{
+			final long pa = a.lines[ la * m + d ];
+			final long pb = b.lines[ lb * m + d ];
+			if ( pa != pb )
+				return pa < pb ? -1 : 1;
+		}
+		return 0;
+	}
+
+	private static void copyLine( final RunLengthRegion region, final int l, final RunLengthRegionBuilder builder )
+	{
+		final int m = region.numDimensions() - 1;
+		for ( int r = region.lineRuns[ l ]; r < region.lineRuns[ l + 1 ]; ++r )
+			builder.append( region.lines, l * m, region.runs[ 2 * r ], region.runs[ 2 * r + 1 ] );
+	}
+
+	/**
+	 * Sweep over the runs of line {@code la} of {@code a} and line {@code lb}
+	 * of {@code b} (which have the same position), and emit the stretches
+	 * where {@code op} is {@code true}.
+	 */
+	private static void mergeLine(
+			final RunLengthRegion a, final int la,
+			final RunLengthRegion b, final int lb,
+			final SetOperation op,
+			final RunLengthRegionBuilder builder )
+	{
+		final int m = a.numDimensions() - 1;
+		final long[] ar = a.runs;
+		final long[] br = b.runs;
+		int ia = a.lineRuns[ la ];
+		final int ea = a.lineRuns[ la + 1 ];
+		int ib = b.lineRuns[ lb ];
+		final int eb = b.lineRuns[ lb + 1 ];
+
+		long x = Math.min( ar[ 2 * ia ], br[ 2 * ib ] );
+		while ( ia < ea || ib < eb )
+		{
+			final boolean inA = ia < ea && ar[ 2 * ia ] <= x;
+			final boolean inB = ib < eb && br[ 2 * ib ] <= x;
+			long next = Long.MAX_VALUE;
+			if ( ia < ea )
+				next = inA ? ar[ 2 * ia + 1 ] + 1 : ar[ 2 * ia ];
+			if ( ib < eb )
+				next = Math.min( next, inB ? br[ 2 * ib + 1 ] + 1 : br[ 2 * ib ] );
+			if ( op.apply( inA, inB ) )
+				builder.append( a.lines, la * m, x, next - 1 );
+			x = next;
+			if ( ia < ea && ar[ 2 * ia + 1 ] < x )
+				++ia;
+			if ( ib < eb && br[ 2 * ib + 1 ] < x )
+				++ib;
+		}
+	}
+
+	/**
+	 * Scan all pixels of {@code interval} line by line, moving {@code pos}
+	 * and evaluating {@code contains} at every pixel.
+	 */
+	private static < P extends Positionable & Localizable > RunLengthRegion scan(
+			final Interval interval,
+			final P pos,
+			final BooleanSupplier contains )
+	{
+		final int n = interval.numDimensions();
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		if ( Intervals.isEmpty( interval ) )
+			return builder.build();
+
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		interval.min( min );
+		interval.max( max );
+		final long[] start = min.clone();
+		while ( true )
+		{
+			pos.setPosition( start );
+			long runStart = 0;
+			boolean inRun = false;
+			for ( long x = min[ 0 ]; x <= max[ 0 ]; ++x )
+			{
+				final boolean value = contains.getAsBoolean();
+				if ( value && !inRun )
+				{
+					runStart = x;
+					inRun = true;
+				}
+				else if ( !value && inRun )
+				{
+					start[ 0 ] = runStart;
+					builder.addRun( start, x - 1 );
+					inRun = false;
+				}
+				pos.fwd( 0 );
+			}
+			if ( inRun )
+			{
+				start[ 0 ] = runStart;
+				builder.addRun( start, max[ 0 ] );
+			}
+			start[ 0 ] = min[ 0 ];
+
+			// next line
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( ++start[ d ] <= max[ d ] )
+					break;
+				start[ d ] = min[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+		return builder.build();
+	}
+
+	private enum SetOperation
+	{
+		AND
+		{
+			@Override
+			boolean apply( final boolean a, final boolean b )
+			{
+				return a && b;
+			}
+		},
+		OR
+		{
+			@Override
+			boolean apply( final boolean a, final boolean b )
+			{
+				return a || b;
+			}
+		},
+		MINUS
+		{
+			@Override
+			boolean apply( final boolean a, final boolean b )
+			{
+				return a && !b;
+			}
+		},
+		XOR
+		{
+			@Override
+			boolean apply( final boolean a, final boolean b )
+			{
+				return a ^ b;
+			}
+		};
+
+		abstract boolean apply( boolean a, boolean b );
+	}
+}
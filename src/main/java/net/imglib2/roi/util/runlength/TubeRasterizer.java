@@ -0,0 +1,284 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.geom.SegmentIndex;
+import net.imglib2.roi.geom.real.Tube;
+
+/**
+ * Rasterizes a {@link Tube} into a {@link RunLengthRegion} span by span.
+ * <p>
+ * For every segment and every raster line crossing its bounding box, the
+ * intersection of the line with the spheres around the two vertices and with
+ * the part in between is computed analytically (each is the solution of a
+ * quadratic inequality in {@code x}). The ends of each span are then checked
+ * against {@link SegmentIndex#segmentContains}, so that the result agrees
+ * with {@link Tube#test} despite rounding. The cost is proportional to the
+ * number of raster lines crossing the tube, not to the number of pixels.
+ */
+class TubeRasterizer
+{
+	private final int n;
+
+	private final List< double[] > vertices;
+
+	private final double[] radii;
+
+	private final SegmentIndex index;
+
+	private final boolean closed;
+
+	private final RunLengthRegionBuilder builder;
+
+	/** Position of the current line, with {@code p[0] = 0}. */
+	private final double[] p;
+
+	private final long[] line;
+
+	TubeRasterizer( final Tube tube )
+	{
+		n = tube.numDimensions();
+		vertices = new ArrayList<>();
+		final int numVertices = tube.numVertices();
+		radii = new double[ Math.max( numVertices, 2 ) ];
+		for ( int i = 0; i < numVertices; i++ )
+		{
+			final double[] v = new double[ n ];
+			tube.vertex( i ).localize( v );
+			vertices.add( v );
+			radii[ i ] = tube.radius( i );
+		}
+		if ( numVertices == 1 )
+		{
+			// a single vertex is a sphere, rasterize it as a degenerate segment
+			vertices.add( vertices.get( 0 ) );
+			radii[ 1 ] = radii[ 0 ];
+		}
+		index = new SegmentIndex( vertices, numVertices == 0 ? new double[ 0 ] : radii, n );
+		closed = tube.boundaryType() != BoundaryType.OPEN;
+		builder = new RunLengthRegionBuilder( n );
+		p = new double[ n ];
+		line = new long[ n ];
+	}
+
+	RunLengthRegion rasterize()
+	{
+		for ( int s = 0; s < index.numSegments(); s++ )
+			rasterizeSegment( s );
+		return builder.build();
+	}
+
+	// -- Helper methods --
+
+	private void rasterizeSegment( final int s )
+	{
+		final double[] a = vertices.get( s );
+		final double[] b = vertices.get( s + 1 );
+		final double ra = radii[ s ];
+		final double rb = radii[ s + 1 ];
+
+		final long[] lmin = new long[ n ];
+		final long[] lmax = new long[ n ];
+		for ( int d = 0; d < n; d++ )
+		{
+			lmin[ d ] = ( long ) Math.ceil( Math.min( a[ d ] - ra, b[ d ] - rb ) );
+			lmax[ d ] = ( long ) Math.floor( Math.max( a[ d ] + ra, b[ d ] + rb ) );
+			if ( lmin[ d ] > lmax[ d ] )
+				return;
+		}
+
+		final double[] v = new double[ n ];
+		double lengthSquared = 0;
+		for ( int d = 0; d < n; d++ )
+		{
+			v[ d ] = b[ d ] - a[ d ];
+			lengthSquared += v[ d ] * v[ d ];
+		}
+
+		System.arraycopy( lmin, 0, line, 0, n );
+		while ( true )
+		{
+			for ( int d = 1; d < n; d++ )
+				p[ d ] = line[ d ];
+
+			sphereSpans( s, a, ra, lmin[ 0 ], lmax[ 0 ] );
+			sphereSpans( s, b, rb, lmin[ 0 ], lmax[ 0 ] );
+			if ( lengthSquared > 0 )
+				middleSpans( s, a, v, lengthSquared, ra, rb, lmin[ 0 ], lmax[ 0 ] );
+
+			int d = 1;
+			for ( ; d < n; d++ )
+			{
+				if ( ++line[ d ] <= lmax[ d ] )
+					break;
+				line[ d ] = lmin[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+	}
+
+	/**
+	 * Spans of the current line inside the sphere around {@code center}.
+	 */
+	private void sphereSpans( final int s, final double[] center, final double r, final long xmin, final long xmax )
+	{
+		double c = center[ 0 ] * center[ 0 ] - r * r;
+		for ( int d = 1; d < n; d++ )
+		{
+			final double w = p[ d ] - center[ d ];
+			c += w * w;
+		}
+		quadraticSpans( s, 1, -2 * center[ 0 ], c, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, xmin, xmax );
+	}
+
+	/**
+	 * Spans of the current line whose projection falls inside segment
+	 * {@code s} and whose distance from the segment is at most the
+	 * interpolated radius.
+	 */
+	private void middleSpans( final int s, final double[] a, final double[] v, final double lengthSquared, final double ra, final double rb, final long xmin, final long xmax )
+	{
+		// w(x) = p(x) - a = w0 + x * e0
+		double dot = -a[ 0 ] * v[ 0 ];
+		double w0SquaredNorm = a[ 0 ] * a[ 0 ];
+		for ( int d = 1; d < n; d++ )
+		{
+			final double w = p[ d ] - a[ d ];
+			dot += w * v[ d ];
+			w0SquaredNorm += w * w;
+		}
+		final double v0 = v[ 0 ];
+		final double k = ( rb - ra ) / lengthSquared;
+		final double q = ra + k * dot;
+
+		// |w|^2 - (w.v)^2 / |v|^2 - r(t)^2 <= 0, with t = (w.v) / |v|^2
+		final double qa = 1 - v0 * v0 / lengthSquared - k * k * v0 * v0;
+		final double qb = -2 * a[ 0 ] - 2 * dot * v0 / lengthSquared - 2 * q * k * v0;
+		final double qc = w0SquaredNorm - dot * dot / lengthSquared - q * q;
+
+		// 0 <= t <= 1
+		final double from;
+		final double to;
+		if ( v0 != 0 )
+		{
+			final double t0 = -dot / v0;
+			final double t1 = ( lengthSquared - dot ) / v0;
+			from = Math.min( t0, t1 );
+			to = Math.max( t0, t1 );
+		}
+		else if ( dot >= 0 && dot <= lengthSquared )
+		{
+			from = Double.NEGATIVE_INFINITY;
+			to = Double.POSITIVE_INFINITY;
+		}
+		else
+			return;
+		quadraticSpans( s, qa, qb, qc, from, to, xmin, xmax );
+	}
+
+	/**
+	 * Add the spans where {@code qa x^2 + qb x + qc <= 0} and
+	 * {@code from <= x <= to}.
+	 */
+	private void quadraticSpans( final int s, final double qa, final double qb, final double qc, final double from, final double to, final long xmin, final long xmax )
+	{
+		if ( Math.abs( qa ) <= 1e-12 * ( Math.abs( qb ) + Math.abs( qc ) + 1 ) )
+		{
+			if ( qb > 0 )
+				span( s, from, Math.min( to, -qc / qb ), xmin, xmax );
+			else if ( qb < 0 )
+				span( s, Math.max( from, -qc / qb ), to, xmin, xmax );
+			else if ( qc <= 0 )
+				span( s, from, to, xmin, xmax );
+			return;
+		}
+		final double disc = qb * qb - 4 * qa * qc;
+		if ( qa > 0 )
+		{
+			if ( disc < 0 )
+				return;
+			final double sq = Math.sqrt( disc );
+			span( s, Math.max( from, ( -qb - sq ) / ( 2 * qa ) ), Math.min( to, ( -qb + sq ) / ( 2 * qa ) ), xmin, xmax );
+		}
+		else
+		{
+			if ( disc <= 0 )
+			{
+				span( s, from, to, xmin, xmax );
+				return;
+			}
+			final double sq = Math.sqrt( disc );
+			final double r1 = Math.min( ( -qb - sq ) / ( 2 * qa ), ( -qb + sq ) / ( 2 * qa ) );
+			final double r2 = Math.max( ( -qb - sq ) / ( 2 * qa ), ( -qb + sq ) / ( 2 * qa ) );
+			span( s, from, Math.min( to, r1 ), xmin, xmax );
+			span( s, Math.max( from, r2 ), to, xmin, xmax );
+		}
+	}
+
+	/**
+	 * Add the pixels of the current line between {@code lo} and {@code hi},
+	 * with the ends adjusted to agree with
+	 * {@link SegmentIndex#segmentContains}.
+	 */
+	private void span( final int s, final double lo, final double hi, final long xmin, final long xmax )
+	{
+		if ( !( lo <= hi ) )
+			return;
+		long xs = ( long ) Math.max( xmin, Math.ceil( lo ) - 1 );
+		long xe = ( long ) Math.min( xmax, Math.floor( hi ) + 1 );
+		while ( xs <= xe && !contains( s, xs ) )
+			++xs;
+		while ( xe >= xs && !contains( s, xe ) )
+			--xe;
+		if ( xs > xe )
+			return;
+		while ( xs > xmin && contains( s, xs - 1 ) )
+			--xs;
+		while ( xe < xmax && contains( s, xe + 1 ) )
+			++xe;
+		line[ 0 ] = xs;
+		builder.addRun( line, xe );
+	}
+
+	private boolean contains( final int s, final long x )
+	{
+		p[ 0 ] = x;
+		return index.segmentContains( s, p, closed );
+	}
+}
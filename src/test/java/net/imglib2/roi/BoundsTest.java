@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.AbstractWrappedRealInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.RealPositionable;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.roi.Bounds.IntersectionRealInterval;
+import net.imglib2.roi.Bounds.UnionRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.WritableBox;
+import net.imglib2.roi.geom.real.WritablePointMask;
+import net.imglib2.roi.util.VersionCounter;
+
+import org.junit.Test;
+
+/**
+ * Tests caching of adapting {@link Bounds} intervals.
+ */
+public class BoundsTest
+{
+	@Test
+	public void testCachedUnion()
+	{
+		final CountingInterval a = new CountingInterval( 0, 0, 2, 2 );
+		final CountingInterval b = new CountingInterval( 1, -1, 5, 1 );
+		final UnionRealInterval union = new UnionRealInterval( a, b );
+		assertEquals( 0, union.realMin( 0 ), 0 );
+		assertEquals( -1, union.realMin( 1 ), 0 );
+		assertEquals( 5, union.realMax( 0 ), 0 );
+
+		final int queries = a.queries + b.queries;
+		for ( int i = 0; i < 100; i++ )
+			union.realMax( 1 );
+		assertEquals( queries, a.queries + b.queries );
+		assertEquals( a.version() + b.version(), union.version() );
+
+		b.set( 1, -1, 5, 7 );
+		assertEquals( 7, union.realMax( 1 ), 0 );
+		assertTrue( a.queries + b.queries > queries );
+	}
+
+	@Test
+	public void testUnversionedSource()
+	{
+		final WritablePointMask point = GeomMasks.pointMask( new double[] { 3, 4 } );
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 5, 5 } );
+		// NB: the point mask is versioned itself, so hide it behind a plain view
+		final RealInterval unversioned = new AbstractWrappedRealInterval< RealInterval >( point )
+		{};
+		final IntersectionRealInterval intersection = new IntersectionRealInterval( box, unversioned );
+		assertEquals( -1, intersection.version() );
+		assertEquals( 4, intersection.realMin( 1 ), 0 );
+
+		point.setPosition( 2, 1 );
+		assertEquals( 2, intersection.realMin( 1 ), 0 );
+		assertEquals( 2, intersection.realMax( 1 ), 0 );
+	}
+
+	@Test
+	public void testDeepCompositeTree()
+	{
+		final List< WritableBox > boxes = new ArrayList<>();
+		for ( int i = 0; i < 1000; i++ )
+			boxes.add( GeomMasks.closedBox( new double[] { i, -i }, new double[] { i + 2, -i + 3 } ) );
+		final RealMaskRealInterval union = balancedUnion( boxes, 0, boxes.size() );
+		assertEquals( 0, union.realMin( 0 ), 0 );
+		assertEquals( 1001, union.realMax( 0 ), 0 );
+		assertEquals( -999, union.realMin( 1 ), 0 );
+		assertEquals( 3, union.realMax( 1 ), 0 );
+
+		final AffineTransform2D shift = new AffineTransform2D();
+		shift.translate( -10, 0 );
+		final RealMaskRealInterval shifted = union.transform( shift );
+		assertEquals( 1011, shifted.realMax( 0 ), 0 );
+
+		final long version = ( ( Versioned ) union ).version();
+		boxes.get( 500 ).center().setPosition( new double[] { 2000, 0 } );
+		assertTrue( ( ( Versioned ) union ).version() > version );
+		assertEquals( 2001, union.realMax( 0 ), 0 );
+		assertEquals( 2011, shifted.realMax( 0 ), 0 );
+		assertEquals( -999, union.realMin( 1 ), 0 );
+
+		boxes.get( 999 ).setSideLength( 1, 10 );
+		assertEquals( -1002.5, union.realMin( 1 ), 0 );
+	}
+
+	// -- Helper methods --
+
+	private static RealMaskRealInterval balancedUnion( final List< ? extends RealMaskRealInterval > masks, final int from, final int to )
+	{
+		if ( to - from == 1 )
+			return masks.get( from );
+		final int mid = ( from + to ) >>> 1;
+		return balancedUnion( masks, from, mid ).or( balancedUnion( masks, mid, to ) );
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * 2D {@link Versioned} interval which counts bounds queries.
+	 */
+	private static class CountingInterval implements RealInterval, Versioned
+	{
+		private final double[] min = new double[ 2 ];
+
+		private final double[] max = new double[ 2 ];
+
+		private final VersionCounter modifications = new VersionCounter();
+
+		private int queries;
+
+		public CountingInterval( final double minX, final double minY, final double maxX, final double maxY )
+		{
+			set( minX, minY, maxX, maxY );
+		}
+
+		public void set( final double minX, final double minY, final double maxX, final double maxY )
+		{
+			min[ 0 ] = minX;
+			min[ 1 ] = minY;
+			max[ 0 ] = maxX;
+			max[ 1 ] = maxY;
+			modifications.increment();
+		}
+
+		@Override
+		public long version()
+		{
+			return modifications.get();
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public double realMin( final int d )
+		{
+			++queries;
+			return min[ d ];
+		}
+
+		@Override
+		public void realMin( final double[] realMin )
+		{
+			for ( int d = 0; d < 2; d++ )
+				realMin[ d ] = realMin( d );
+		}
+
+		@Override
+		public void realMin( final RealPositionable realMin )
+		{
+			for ( int d = 0; d < 2; d++ )
+				realMin.setPosition( realMin( d ), d );
+		}
+
+		@Override
+		public double realMax( final int d )
+		{
+			++queries;
+			return max[ d ];
+		}
+
+		@Override
+		public void realMax( final double[] realMax )
+		{
+			for ( int d = 0; d < 2; d++ )
+				realMax[ d ] = realMax( d );
+		}
+
+		@Override
+		public void realMax( final RealPositionable realMax )
+		{
+			for ( int d = 0; d < 2; d++ )
+				realMax.setPosition( realMax( d ), d );
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.RealPoint;
+import net.imglib2.roi.composite.CompositeMaskPredicate;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.DefaultWritablePointMask;
+import net.imglib2.roi.geom.real.WritableBox;
+import net.imglib2.roi.geom.real.WritablePolygon2D;
+import net.imglib2.roi.geom.real.WritablePolyline;
+import net.imglib2.roi.geom.real.WritableSphere;
+import net.imglib2.roi.geom.real.WritableTube;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ObservableMask} on writable shapes and composites.
+ */
+public class ObservableMaskTest
+{
+	@Test
+	public void testShapeNotifications()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } );
+		final ObservableMask observable = ( ObservableMask ) box;
+		final List< Object > sources = new ArrayList<>();
+		final ModificationListener listener = sources::add;
+		observable.addModificationListener( listener );
+		observable.addModificationListener( listener );
+
+		box.setSideLength( 0, 4 );
+		assertEquals( 1, sources.size() );
+		assertSame( box, sources.get( 0 ) );
+
+		observable.modify( () -> {
+			box.setSideLength( 0, 5 );
+			observable.modify( () -> box.setSideLength( 1, 5 ) );
+			box.center().setPosition( new double[] { 1, 1 } );
+			assertEquals( 1, sources.size() );
+		} );
+		assertEquals( 2, sources.size() );
+
+		// NB: no notification for a bulk edit which modified nothing
+		observable.modify( () -> {} );
+		assertEquals( 2, sources.size() );
+
+		observable.removeModificationListener( listener );
+		box.setSideLength( 0, 6 );
+		assertEquals( 2, sources.size() );
+	}
+
+	@Test
+	public void testPolygonBulkEdit()
+	{
+		final WritablePolygon2D polygon = GeomMasks.polygon2D( new double[] { 0, 4, 4 }, new double[] { 0, 0, 4 } );
+		final long version = ( ( Versioned ) polygon ).version();
+		final int[] count = new int[ 1 ];
+		( ( ObservableMask ) polygon ).addModificationListener( source -> count[ 0 ]++ );
+
+		polygon.addVertices( 3, Arrays.asList( new RealPoint( 2, 6 ), new RealPoint( 0, 4 ) ) );
+		assertEquals( 1, count[ 0 ] );
+		assertTrue( ( ( Versioned ) polygon ).version() > version );
+	}
+
+	@Test
+	public void testPointMask()
+	{
+		final DefaultWritablePointMask point = new DefaultWritablePointMask( new double[] { 1, 2 } );
+		final int[] count = new int[ 1 ];
+		point.addModificationListener( source -> count[ 0 ]++ );
+
+		point.setPosition( new double[] { 3, 4 } );
+		point.move( 1, 0 );
+		point.fwd( 1 );
+		assertEquals( 3, count[ 0 ] );
+		assertEquals( 3, point.version() );
+	}
+
+	@Test
+	public void testCompositeForwarding()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 5, 5 }, 3 );
+		final RealMaskRealInterval and = box.and( sphere );
+		final RealMaskRealInterval composite = and.or( sphere );
+
+		final List< Object > sources = new ArrayList<>();
+		final ModificationListener listener = sources::add;
+		( ( ObservableMask ) composite ).addModificationListener( listener );
+		( ( ObservableMask ) and ).addModificationListener( listener );
+
+		box.setSideLength( 0, 4 );
+		assertEquals( Arrays.asList( composite, and ), sources );
+
+		sources.clear();
+		sphere.setRadius( 2 );
+		assertEquals( 2, sources.size() );
+		assertTrue( sources.contains( composite ) && sources.contains( and ) );
+
+		// NB: removing from one composite keeps the other subscription
+		( ( CompositeMaskPredicate< ? > ) composite ).removeModificationListener( listener );
+		sources.clear();
+		sphere.setRadius( 1 );
+		assertEquals( Arrays.asList( and ), sources );
+	}
+
+	@Test
+	public void testCompositeBulkEdit()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 5, 5 }, 3 );
+		final RealMaskRealInterval composite = box.and( sphere ).or( sphere );
+		final ObservableMask observable = ( ObservableMask ) composite;
+
+		final List< Object > sources = new ArrayList<>();
+		observable.addModificationListener( sources::add );
+		final int[] boxCount = new int[ 1 ];
+		( ( ObservableMask ) box ).addModificationListener( source -> boxCount[ 0 ]++ );
+
+		observable.modify( () -> {
+			box.setSideLength( 0, 4 );
+			box.setSideLength( 1, 4 );
+			observable.modify( () -> sphere.setRadius( 2 ) );
+			assertTrue( sources.isEmpty() );
+			assertEquals( 0, boxCount[ 0 ] );
+		} );
+		assertEquals( Arrays.asList( composite ), sources );
+		assertEquals( 1, boxCount[ 0 ] );
+
+		// NB: no notification for a bulk edit which modified nothing
+		observable.modify( () -> {} );
+		assertEquals( 1, sources.size() );
+	}
+
+	@Test
+	public void testBoundsInListener()
+	{
+		final WritablePolygon2D polygon = GeomMasks.polygon2D( new double[] { 0, 10, 10 }, new double[] { 0, 0, 10 } );
+		final WritablePolyline polyline = GeomMasks.polyline( Arrays.asList( new RealPoint( 0, 0 ), new RealPoint( 10, 0 ) ) );
+		final WritableTube tube = GeomMasks.closedTube( Arrays.asList( new RealPoint( 0, 0 ), new RealPoint( 10, 0 ) ), 1 );
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } );
+		final RealMaskRealInterval union = polygon.or( box ).or( polyline ).or( tube );
+
+		final List< Double > seen = new ArrayList<>();
+		( ( ObservableMask ) polygon ).addModificationListener( source -> seen.add( polygon.realMax( 0 ) ) );
+		( ( ObservableMask ) polyline ).addModificationListener( source -> seen.add( polyline.realMax( 0 ) ) );
+		( ( ObservableMask ) tube ).addModificationListener( source -> seen.add( tube.realMax( 0 ) ) );
+		( ( ObservableMask ) union ).addModificationListener( source -> seen.add( union.realMax( 0 ) ) );
+		assertEquals( 11, union.realMax( 0 ), 0 );
+
+		polygon.addVertex( 1, new RealPoint( 50, 0 ) );
+		assertEquals( Arrays.asList( 50.0, 50.0 ), seen );
+		assertEquals( 50, union.realMax( 0 ), 0 );
+
+		seen.clear();
+		polyline.addVertex( 2, new RealPoint( 60, 0 ) );
+		assertEquals( Arrays.asList( 60.0, 60.0 ), seen );
+		assertEquals( 60, union.realMax( 0 ), 0 );
+
+		seen.clear();
+		tube.addVertex( 2, new RealPoint( 70, 0 ) );
+		assertEquals( Arrays.asList( 71.0, 71.0 ), seen );
+		assertEquals( 71, union.realMax( 0 ), 0 );
+	}
+}
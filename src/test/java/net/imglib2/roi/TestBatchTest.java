@@ -0,0 +1,293 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import net.imglib2.Point;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.RealPositionable;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link RealMask#testBatch(double[], BitSet, BitSet)} and
+ * {@link Mask#testBatch(long[], BitSet, BitSet)} agree with testing one point
+ * at a time.
+ */
+public class TestBatchTest
+{
+	@Test
+	public void testPrimitives()
+	{
+		assertBatchMatches( GeomMasks.closedBox( new double[] { 1, 2 }, new double[] { 7, 5 } ) );
+		assertBatchMatches( GeomMasks.openBox( new double[] { 1, 2 }, new double[] { 7, 5 } ) );
+		assertBatchMatches( GeomMasks.closedEllipsoid( new double[] { 5, 5 }, new double[] { 4, 2 } ) );
+		assertBatchMatches( GeomMasks.openEllipsoid( new double[] { 5, 5 }, new double[] { 4, 2 } ) );
+		assertBatchMatches( GeomMasks.closedSuperEllipsoid( new double[] { 5, 5 }, new double[] { 4, 3 }, 3 ) );
+		assertBatchMatches( GeomMasks.openSuperEllipsoid( new double[] { 5, 5 }, new double[] { 4, 3 }, 0.5 ) );
+		assertBatchMatches( GeomMasks.closedSphere( new double[] { 4, 6 }, 3 ) );
+		assertBatchMatches( GeomMasks.openSphere( new double[] { 4, 6 }, 3 ) );
+		final double[] x = { 0, 8, 8, 4, 0 };
+		final double[] y = { 0, 0, 6, 2, 6 };
+		assertBatchMatches( GeomMasks.polygon2D( x, y ) );
+		assertBatchMatches( GeomMasks.closedPolygon2D( x, y ) );
+		assertBatchMatches( GeomMasks.openPolygon2D( x, y ) );
+		assertBatchMatches( GeomMasks.pointMask( new double[] { 3, 3 } ) );
+	}
+
+	@Test
+	public void testComposites()
+	{
+		final RealMaskRealInterval box = GeomMasks.closedBox( new double[] { 1, 2 }, new double[] { 7, 5 } );
+		final RealMaskRealInterval sphere = GeomMasks.openSphere( new double[] { 4, 6 }, 3 );
+		final RealMask lambda = new PredicateRealMask( p -> p.getDoublePosition( 0 ) > p.getDoublePosition( 1 ) );
+
+		assertBatchMatches( box.and( sphere ) );
+		assertBatchMatches( box.or( sphere ) );
+		assertBatchMatches( box.xor( sphere ) );
+		assertBatchMatches( box.minus( sphere ) );
+		assertBatchMatches( box.negate() );
+		assertBatchMatches( lambda.and( box ).or( sphere.negate() ) );
+		assertBatchMatches( box.or( lambda ).minus( sphere ) );
+	}
+
+	@Test
+	public void testTransforms()
+	{
+		final RealMaskRealInterval ellipsoid = GeomMasks.closedEllipsoid( new double[] { 5, 5 }, new double[] { 4, 2 } );
+		final AffineTransform2D affine = new AffineTransform2D();
+		affine.rotate( 0.5 );
+		affine.translate( 1, -2 );
+		assertBatchMatches( ellipsoid.transform( affine ) );
+		assertBatchMatches( ellipsoid.transform( new Swap() ).and( ellipsoid ) );
+	}
+
+	@Test
+	public void testModifiedTransform()
+	{
+		final RealMaskRealInterval box = GeomMasks.openBox( new double[] { 0, 0 }, new double[] { 1, 1 } );
+		final AffineTransform2D affine = new AffineTransform2D();
+		final RealMask transformed = box.transform( affine );
+		assertBatchMatches( transformed );
+
+		affine.translate( 10, 0 );
+		final BitSet result = new BitSet();
+		transformed.testBatch( new double[] { -9.5, 0.5, 0.5, 0.5 }, 2, result );
+		assertTrue( result.get( 0 ) );
+		assertFalse( result.get( 1 ) );
+		assertTrue( transformed.test( new RealPoint( -9.5, 0.5 ) ) );
+		assertBatchMatches( transformed );
+	}
+
+	@Test
+	public void testAndOnlyTestsSurvivors()
+	{
+		final AtomicInteger count = new AtomicInteger();
+		final RealMask box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 1, 1 } );
+		final RealMask counting = new PredicateRealMask( p -> count.incrementAndGet() > 0 );
+		final RealMask and = box.and( counting );
+
+		final double[] positions = grid( 0.25 );
+		final BitSet result = new BitSet();
+		and.testBatch( positions, positions.length / 2, result );
+
+		assertEquals( 25, result.cardinality() );
+		assertEquals( 25, count.get() );
+	}
+
+	@Test
+	public void testIntegerComposites()
+	{
+		final ArrayImg< BitType, LongArray > img = ArrayImgs.bits( 10, 10 );
+		final Random r = new Random( 7 );
+		img.forEach( b -> b.set( r.nextBoolean() ) );
+		final MaskInterval random = Masks.toMaskInterval( img );
+		final Mask other = Masks.toMaskInterval( ArrayImgs.bits( 10, 10 ) ).negate().and( random ).negate().or( random.negate() );
+
+		final long[] positions = new long[ 2 * 100 ];
+		for ( int i = 0; i < 100; i++ )
+		{
+			positions[ 2 * i ] = i % 10;
+			positions[ 2 * i + 1 ] = i / 10;
+		}
+		final Point point = new Point( 2 );
+		for ( final Mask mask : new Mask[] { random.negate(), random.xor( other ), random.minus( other ).or( random.negate() ) } )
+		{
+			final BitSet result = new BitSet();
+			mask.testBatch( positions, 100, result );
+			for ( int i = 0; i < 100; i++ )
+			{
+				point.setPosition( new long[] { positions[ 2 * i ], positions[ 2 * i + 1 ] } );
+				assertEquals( mask.test( point ), result.get( i ) );
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Points of [-1, 11]^2 on a grid of the given spacing, interleaved.
+	 */
+	private static double[] grid( final double spacing )
+	{
+		final int size = ( int ) Math.round( 12 / spacing ) + 1;
+		final double[] positions = new double[ 2 * size * size ];
+		for ( int i = 0; i < size * size; i++ )
+		{
+			positions[ 2 * i ] = -1 + ( i % size ) * spacing;
+			positions[ 2 * i + 1 ] = -1 + ( i / size ) * spacing;
+		}
+		return positions;
+	}
+
+	/**
+	 * Compares the batch test with testing one point at a time, for all
+	 * points and for every third point, also passing the candidates as
+	 * result.
+	 */
+	private static void assertBatchMatches( final RealMask mask )
+	{
+		final double[] positions = grid( 0.25 );
+		final int count = positions.length / 2;
+		final boolean[] expected = new boolean[ count ];
+		final RealPoint point = new RealPoint( 2 );
+		for ( int i = 0; i < count; i++ )
+		{
+			point.setPosition( positions[ 2 * i ], 0 );
+			point.setPosition( positions[ 2 * i + 1 ], 1 );
+			expected[ i ] = mask.test( point );
+		}
+
+		final BitSet result = new BitSet();
+		result.set( count + 5 );
+		mask.testBatch( positions, count, result );
+		for ( int i = 0; i < count + 10; i++ )
+			assertEquals( "point " + i, i < count && expected[ i ], result.get( i ) );
+
+		final BitSet candidates = new BitSet();
+		for ( int i = 0; i < count; i += 3 )
+			candidates.set( i );
+		mask.testBatch( positions, candidates, candidates );
+		for ( int i = 0; i < count; i++ )
+			assertEquals( "point " + i, i % 3 == 0 && expected[ i ], candidates.get( i ) );
+	}
+
+	// -- Helper classes --
+
+	private static final class PredicateRealMask implements RealMask
+	{
+		private final Predicate< RealLocalizable > predicate;
+
+		PredicateRealMask( final Predicate< RealLocalizable > predicate )
+		{
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean test( final RealLocalizable l )
+		{
+			return predicate.test( l );
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return 2;
+		}
+	}
+
+	/**
+	 * Swaps x and y, as a non-affine {@link RealTransform}.
+	 */
+	private static final class Swap implements RealTransform
+	{
+		@Override
+		public int numSourceDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public int numTargetDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public void apply( final double[] source, final double[] target )
+		{
+			final double t = source[ 0 ];
+			target[ 0 ] = source[ 1 ];
+			target[ 1 ] = t;
+		}
+
+		@Override
+		public void apply( final float[] source, final float[] target )
+		{
+			final float t = source[ 0 ];
+			target[ 0 ] = source[ 1 ];
+			target[ 1 ] = t;
+		}
+
+		@Override
+		public void apply( final RealLocalizable source, final RealPositionable target )
+		{
+			final double t = source.getDoublePosition( 0 );
+			target.setPosition( source.getDoublePosition( 1 ), 0 );
+			target.setPosition( t, 1 );
+		}
+
+		@Override
+		public RealTransform copy()
+		{
+			return this;
+		}
+	}
+}
@@ -33,11 +33,13 @@
  */
 package net.imglib2.roi.boundary;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.type.logic.BitType;
@@ -121,4 +123,22 @@ public class BoundaryRandomAccessTest
 			assertTrue( ba.get().get() == ( b4[ i++ ] != 0 ) );
 		}
 	}
+
+	@Test
+	public void testBoundaryRandomAccess8LeftNeighbor()
+	{
+		// the only background pixel in the neighborhood of (2, 2) is (1, 2)
+		final Img< BitType > regionImg = ArrayImgs.bits( 5, 5 );
+		for ( final BitType t : regionImg )
+			t.set( true );
+		final RandomAccess< BitType > ra = regionImg.randomAccess();
+		ra.setPosition( new long[] { 1, 2 } );
+		ra.get().set( false );
+
+		final BoundaryRandomAccess8< BitType > ba = new BoundaryRandomAccess8< BitType >( regionImg );
+		ba.setPosition( new long[] { 2, 2 } );
+		assertTrue( ba.get().get() );
+		ba.setPosition( new long[] { 3, 2 } );
+		assertFalse( ba.get().get() );
+	}
 }
@@ -0,0 +1,272 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Boundary} and {@link Boundaries} against
+ * {@link BoundaryRandomAccess4} and {@link BoundaryRandomAccess8}.
+ */
+public class BoundaryTest
+{
+	@Test
+	public void test2D()
+	{
+		final Img< BitType > img = randomBlobs( 0, 37, 23 );
+		for ( final StructuringElement se : StructuringElement.values() )
+			for ( final int numTasks : new int[] { 1, 4 } )
+				assertMatchesRandomAccess( img, new Boundary<>( img, se, numTasks ) );
+	}
+
+	@Test
+	public void test3D()
+	{
+		final Img< BitType > img = randomBlobs( 1, 19, 17, 13 );
+		for ( final StructuringElement se : StructuringElement.values() )
+			for ( final int numTasks : new int[] { 1, 5 } )
+				assertMatchesRandomAccess( img, new Boundary<>( img, se, numTasks ) );
+	}
+
+	@Test
+	public void test1D()
+	{
+		final Img< BitType > img = ArrayImgs.bits( 8 );
+		final RandomAccess< BitType > ra = img.randomAccess();
+		for ( final int x : new int[] { 0, 1, 2, 4, 5, 6 } )
+		{
+			ra.setPosition( x, 0 );
+			ra.get().set( true );
+		}
+		final Boundary< BitType > boundary = new Boundary<>( img );
+		assertMatchesRandomAccess( img, boundary );
+		assertEquals( 4, boundary.size() );
+	}
+
+	@Test
+	public void testOffsetInterval()
+	{
+		final Img< BitType > img = randomBlobs( 2, 20, 20 );
+		final FinalInterval interval = new FinalInterval( new long[] { 3, 5 }, new long[] { 15, 19 } );
+		final Boundary< BitType > boundary = new Boundary<>( Views.interval( img, interval ), StructuringElement.EIGHT_CONNECTED, 3 );
+		assertMatchesRandomAccess( Views.interval( img, interval ), boundary );
+
+		final RunLengthRegion source = RunLengthRegions.fromBooleanRAI( Views.interval( img, interval ) );
+		final RunLengthRegion runs = Boundaries.runs( source, interval, StructuringElement.EIGHT_CONNECTED, 2 );
+		assertEquals( boundary.toRunLengthRegion(), runs );
+		assertEquals( runs.size(), boundary.toIterationCode().getSize() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testSourceOutsideInterval()
+	{
+		final RunLengthRegion source = RunLengthRegions.fromBooleanRAI( randomBlobs( 3, 10, 10 ) );
+		Boundaries.runs( source, new FinalInterval( 5, 5 ), StructuringElement.FOUR_CONNECTED, 1 );
+	}
+
+	@Test
+	public void testInnerOuterSurfaceArea()
+	{
+		for ( final Img< BitType > img : Arrays.asList( randomBlobs( 4, 23, 19 ), randomBlobs( 5, 11, 9, 7 ) ) )
+		{
+			final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( img );
+			for ( final StructuringElement se : StructuringElement.values() )
+			{
+				final RunLengthRegion inner = Boundaries.inner( region, se );
+				final RunLengthRegion outer = Boundaries.outer( region, se );
+				final RunLengthRegion clipped = Boundaries.outer( region, se, img );
+				final long[][] offsets = offsets( img.numDimensions(), se );
+				final long[] pos = new long[ img.numDimensions() ];
+				final long[] neighbor = new long[ pos.length ];
+				final IntervalIterator it = new IntervalIterator( Intervals.expand( img, 2 ) );
+				while ( it.hasNext() )
+				{
+					it.fwd();
+					it.localize( pos );
+					final boolean contained = region.test( it );
+					boolean touchesOther = false;
+					for ( final long[] offset : offsets )
+					{
+						for ( int d = 0; d < pos.length; ++d )
+							neighbor[ d ] = pos[ d ] + offset[ d ];
+						if ( region.test( Point.wrap( neighbor ) ) != contained )
+							touchesOther = true;
+					}
+					assertEquals( contained && touchesOther, inner.test( it ) );
+					assertEquals( !contained && touchesOther, outer.test( it ) );
+					assertEquals( !contained && touchesOther && Intervals.contains( img, ( Localizable ) it ), clipped.test( it ) );
+				}
+			}
+			assertEquals( countFaces( region, img ), Boundaries.surfaceArea( region ) );
+		}
+	}
+
+	@Test
+	public void testSurfaceAreaOfBox()
+	{
+		final Img< BitType > img = ArrayImgs.bits( 10, 10, 10 );
+		for ( final BitType t : Views.interval( img, new long[] { 2, 3, 4 }, new long[] { 4, 6, 8 } ) )
+			t.set( true );
+		// 3 x 4 x 5 box
+		assertEquals( 2 * ( 3 * 4 + 4 * 5 + 3 * 5 ), Boundaries.surfaceArea( RunLengthRegions.fromBooleanRAI( img ) ) );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * All neighbor offsets of the structuring element.
+	 */
+	private static long[][] offsets( final int n, final StructuringElement se )
+	{
+		final List< long[] > offsets = new ArrayList<>();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		Arrays.fill( min, -1 );
+		Arrays.fill( max, 1 );
+		final IntervalIterator it = new IntervalIterator( min, max );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			final long[] offset = new long[ n ];
+			it.localize( offset );
+			final long nonZero = Arrays.stream( offset ).filter( o -> o != 0 ).count();
+			if ( nonZero == 1 || ( nonZero > 1 && se == StructuringElement.EIGHT_CONNECTED ) )
+				offsets.add( offset );
+		}
+		return offsets.toArray( new long[ 0 ][] );
+	}
+
+	private static long countFaces( final RunLengthRegion region, final Interval interval )
+	{
+		final int n = region.numDimensions();
+		long faces = 0;
+		final long[] neighbor = new long[ n ];
+		final IntervalIterator it = new IntervalIterator( interval );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			if ( !region.test( it ) )
+				continue;
+			for ( int d = 0; d < n; ++d )
+				for ( int step = -1; step <= 1; step += 2 )
+				{
+					it.localize( neighbor );
+					neighbor[ d ] += step;
+					if ( !region.test( Point.wrap( neighbor ) ) )
+						++faces;
+				}
+		}
+		return faces;
+	}
+
+
+	private static void assertMatchesRandomAccess( final RandomAccessibleInterval< BitType > img, final Boundary< BitType > boundary )
+	{
+		final RandomAccess< BoolType > expected = boundary.randomAccess();
+		final RunLengthRegion runs = boundary.toRunLengthRegion();
+		long count = 0;
+		final Cursor< BitType > c = Views.iterable( img ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			expected.setPosition( c );
+			final boolean isBoundary = expected.get().get();
+			assertEquals( isBoundary, runs.test( c ) );
+			if ( isBoundary )
+				++count;
+		}
+		assertEquals( count, boundary.size() );
+
+		long iterated = 0;
+		final Cursor< Void > bc = boundary.cursor();
+		while ( bc.hasNext() )
+		{
+			bc.fwd();
+			expected.setPosition( bc );
+			assertTrue( expected.get().get() );
+			++iterated;
+		}
+		assertEquals( count, iterated );
+	}
+
+	/**
+	 * Random union of boxes, so that there are both interior and boundary
+	 * pixels.
+	 */
+	private static Img< BitType > randomBlobs( final long seed, final long... dims )
+	{
+		final Img< BitType > img = ArrayImgs.bits( dims );
+		final Random random = new Random( seed );
+		final int n = dims.length;
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( int i = 0; i < 12; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = random.nextInt( ( int ) dims[ d ] );
+				max[ d ] = Math.min( dims[ d ] - 1, min[ d ] + random.nextInt( 8 ) );
+			}
+			for ( final BitType t : Views.interval( img, min, max ) )
+				t.set( true );
+		}
+		return img;
+	}
+}
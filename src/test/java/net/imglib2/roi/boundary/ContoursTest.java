@@ -0,0 +1,225 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.geom.real.Polygon2D;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegionBuilder;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.util.Intervals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Contours}.
+ */
+public class ContoursTest
+{
+	@Test
+	public void testBox()
+	{
+		final RunLengthRegion box = box( 2, 3, 5, 4 );
+		final List< Contour > contours = Contours.trace( box );
+		assertEquals( 1, contours.size() );
+		final Polygon2D outer = contours.get( 0 ).outer();
+		assertEquals( 4, outer.numVertices() );
+		assertEquals( 0, contours.get( 0 ).holes().size() );
+		assertEquals( 1.5, outer.realMin( 0 ), 0 );
+		assertEquals( 2.5, outer.realMin( 1 ), 0 );
+		assertEquals( 5.5, outer.realMax( 0 ), 0 );
+		assertEquals( 4.5, outer.realMax( 1 ), 0 );
+	}
+
+	@Test
+	public void testHoles()
+	{
+		// frame with a hole, and an island inside the hole
+		final RunLengthRegion frame = RunLengthRegions.difference( box( 0, 0, 9, 9 ), box( 2, 2, 7, 7 ) );
+		final RunLengthRegion region = RunLengthRegions.union( frame, box( 4, 4, 5, 5 ) );
+		final List< Contour > contours = Contours.trace( region );
+		assertEquals( 2, contours.size() );
+		final Contour outer = contours.get( 0 ).holes().isEmpty() ? contours.get( 1 ) : contours.get( 0 );
+		assertEquals( 1, outer.holes().size() );
+		assertEquals( 4, outer.holes().get( 0 ).numVertices() );
+		assertRasterizesTo( region, contours );
+	}
+
+	@Test
+	public void testNestedHoles()
+	{
+		// grid of small frames inside the hole of a large frame, so every hole
+		// is also inside the bounding box of the large frame
+		RunLengthRegion region = RunLengthRegions.difference( box( 0, 0, 39, 39 ), box( 2, 2, 37, 37 ) );
+		for ( int i = 0; i < 5; ++i )
+			for ( int j = 0; j < 5; ++j )
+				region = RunLengthRegions.union( region, RunLengthRegions.difference(
+						box( 4 + 7 * i, 4 + 7 * j, 8 + 7 * i, 8 + 7 * j ), box( 6 + 7 * i, 6 + 7 * j, 6 + 7 * i, 6 + 7 * j ) ) );
+		final List< Contour > contours = Contours.trace( region );
+		assertEquals( 26, contours.size() );
+		for ( final Contour contour : contours )
+			assertEquals( 1, contour.holes().size() );
+		assertRasterizesTo( region, contours );
+	}
+
+	@Test
+	public void testDiagonalConnectivity()
+	{
+		final RunLengthRegion region = RunLengthRegions.union( box( 0, 0, 0, 0 ), box( 1, 1, 1, 1 ) );
+		final List< Contour > eight = Contours.trace( region, StructuringElement.EIGHT_CONNECTED, 0 );
+		assertEquals( 1, eight.size() );
+		assertEquals( 8, eight.get( 0 ).outer().numVertices() );
+		final List< Contour > four = Contours.trace( region, StructuringElement.FOUR_CONNECTED, 0 );
+		assertEquals( 2, four.size() );
+		assertRasterizesTo( region, eight );
+		assertRasterizesTo( region, four );
+	}
+
+	@Test
+	public void testRandomRegions()
+	{
+		final Random random = new Random( 7 );
+		for ( int i = 0; i < 20; ++i )
+		{
+			final Img< BitType > img = ArrayImgs.bits( 17, 13 );
+			for ( final BitType t : img )
+				t.set( random.nextInt( 3 ) > 0 );
+			final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( img );
+			for ( final StructuringElement se : StructuringElement.values() )
+				assertRasterizesTo( region, Contours.trace( region, se, 0 ) );
+		}
+	}
+
+	@Test
+	public void testSimplification()
+	{
+		final RunLengthRegionBuilder disc = new RunLengthRegionBuilder( 2 );
+		final long[] start = new long[ 2 ];
+		for ( long y = -20; y <= 20; ++y )
+		{
+			final long w = ( long ) Math.sqrt( 400 - y * y );
+			start[ 0 ] = -w;
+			start[ 1 ] = y;
+			disc.addRun( start, w );
+		}
+		final RunLengthRegion region = disc.build();
+		final Polygon2D exact = Contours.trace( region ).get( 0 ).outer();
+		final Polygon2D simplified = Contours.trace( region, StructuringElement.EIGHT_CONNECTED, 1 ).get( 0 ).outer();
+		assertTrue( simplified.numVertices() < exact.numVertices() / 3 );
+		// every corner of the exact contour is within the tolerance of the simplified one
+		for ( int i = 0; i < exact.numVertices(); ++i )
+			assertTrue( distance( simplified, exact.vertex( i ) ) <= 1 + 1e-9 );
+	}
+
+	@Test
+	public void testSlices()
+	{
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( 3 );
+		builder.addRun( new long[] { 0, 0, 1 }, 3 );
+		builder.addRun( new long[] { 0, 1, 1 }, 3 );
+		builder.addRun( new long[] { 5, 0, 4 }, 5 );
+		builder.addRun( new long[] { 8, 0, 4 }, 8 );
+		final SortedMap< Long, List< Contour > > slices = Contours.traceSlices( builder.build(), StructuringElement.EIGHT_CONNECTED, 0 );
+		assertEquals( 2, slices.size() );
+		assertEquals( 1, slices.get( 1L ).size() );
+		assertEquals( 2, slices.get( 4L ).size() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNegativeTolerance()
+	{
+		Contours.trace( box( 0, 0, 1, 1 ), StructuringElement.EIGHT_CONNECTED, -1 );
+	}
+
+	// -- Helper methods --
+
+	private static RunLengthRegion box( final long minX, final long minY, final long maxX, final long maxY )
+	{
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( 2 );
+		for ( long y = minY; y <= maxY; ++y )
+			builder.addRun( new long[] { minX, y }, maxX );
+		return builder.build();
+	}
+
+	/**
+	 * Check that the pixel centers covered by the contours are exactly the
+	 * pixels of {@code region}.
+	 */
+	private static void assertRasterizesTo( final RunLengthRegion region, final List< Contour > contours )
+	{
+		final IntervalIterator it = new IntervalIterator( Intervals.expand( region, 2 ) );
+		final RealPoint center = new RealPoint( 2 );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			center.setPosition( it );
+			int covering = 0;
+			for ( final Contour contour : contours )
+				if ( contour.toMask().test( center ) )
+					++covering;
+			assertEquals( region.test( it ) ? 1 : 0, covering );
+		}
+	}
+
+	private static double distance( final Polygon2D polygon, final RealLocalizable p )
+	{
+		double min = Double.POSITIVE_INFINITY;
+		final int m = polygon.numVertices();
+		for ( int i = 0; i < m; ++i )
+		{
+			final double ax = polygon.vertex( i ).getDoublePosition( 0 );
+			final double ay = polygon.vertex( i ).getDoublePosition( 1 );
+			final double vx = polygon.vertex( ( i + 1 ) % m ).getDoublePosition( 0 ) - ax;
+			final double vy = polygon.vertex( ( i + 1 ) % m ).getDoublePosition( 1 ) - ay;
+			final double wx = p.getDoublePosition( 0 ) - ax;
+			final double wy = p.getDoublePosition( 1 ) - ay;
+			final double t = Math.max( 0, Math.min( 1, ( vx * wx + vy * wy ) / ( vx * vx + vy * vy ) ) );
+			min = Math.min( min, Math.hypot( wx - t * vx, wy - t * vy ) );
+		}
+		return min;
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.function.Predicate;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.real.ClosedWritableEllipsoid;
+import net.imglib2.roi.geom.real.ClosedWritablePolygon2D;
+import net.imglib2.roi.geom.real.OpenWritableBox;
+import net.imglib2.roi.geom.real.OpenWritableSphere;
+import net.imglib2.roi.geom.real.WritablePolygon2D;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link AffineShapes}.
+ */
+public class AffineShapesTest
+{
+	@Test
+	public void testRotatedEllipsoid()
+	{
+		final ClosedWritableEllipsoid e = new ClosedWritableEllipsoid( new double[] { 3, -2 }, new double[] { 10, 2 } );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.rotate( Math.PI / 4 );
+		transformToSource.translate( 1, 5 );
+		final RealMaskRealInterval rm = e.transform( transformToSource );
+
+		// x = R^-1 ( s - t ), so the center maps to R^-1 ( 2, -7 )
+		final double c = Math.sqrt( 0.5 );
+		final double cx = c * ( 2 - 7 );
+		final double cy = c * ( -2 - 7 );
+		final double extent = Math.sqrt( 0.5 * ( 100 + 4 ) );
+		assertEquals( cx - extent, rm.realMin( 0 ), 1e-10 );
+		assertEquals( cx + extent, rm.realMax( 0 ), 1e-10 );
+		assertEquals( cy - extent, rm.realMin( 1 ), 1e-10 );
+		assertEquals( cy + extent, rm.realMax( 1 ), 1e-10 );
+
+		assertMatchesSource( rm, e, transformToSource );
+	}
+
+	@Test
+	public void testModifiedSphere()
+	{
+		final OpenWritableSphere s = new OpenWritableSphere( new double[] { 0, 0 }, 2 );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.scale( 0.5 );
+		final RealMaskRealInterval rm = s.transform( transformToSource );
+
+		assertTrue( rm.test( new RealPoint( 3.9, 0 ) ) );
+		assertFalse( rm.test( new RealPoint( 4, 0 ) ) );
+		assertEquals( -4, rm.realMin( 0 ), 1e-10 );
+
+		s.center().setPosition( new double[] { 10, 0 } );
+		assertFalse( rm.test( new RealPoint( 3.9, 0 ) ) );
+		assertTrue( rm.test( new RealPoint( 20, 0 ) ) );
+		assertEquals( 16, rm.realMin( 0 ), 1e-10 );
+		assertEquals( 24, rm.realMax( 0 ), 1e-10 );
+	}
+
+	@Test
+	public void testShearedBox()
+	{
+		final OpenWritableBox b = new OpenWritableBox( new double[] { 1, 2 }, new double[] { 4, 9 } );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.set( 1, 0.75, -2, 0.25, 2, 1 );
+		final RealMaskRealInterval rm = b.transform( transformToSource );
+
+		assertMatchesSource( rm, b, transformToSource );
+	}
+
+	@Test
+	public void testShearedBoxBounds()
+	{
+		final OpenWritableBox b = new OpenWritableBox( new double[] { 1, 2 }, new double[] { 4, 9 } );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.set( 1, 0.75, -2, 0.25, 2, 1 );
+		final double[] min = new double[ 2 ];
+		final double[] max = new double[ 2 ];
+		assertTrue( AffineShapes.bounds( b, transformToSource, min, max ) );
+
+		final RealMaskRealInterval rm = b.transform( transformToSource );
+		for ( int d = 0; d < 2; d++ )
+		{
+			assertEquals( rm.realMin( d ), min[ d ], 1e-10 );
+			assertEquals( rm.realMax( d ), max[ d ], 1e-10 );
+		}
+	}
+
+	@Test
+	public void testModifiedTransform()
+	{
+		final OpenWritableBox b = new OpenWritableBox( new double[] { 0, 0 }, new double[] { 1, 1 } );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		final Predicate< RealLocalizable > p = AffineShapes.predicate( b, transformToSource );
+		assertTrue( p.test( new RealPoint( 0.5, 0.5 ) ) );
+		assertFalse( p.test( new RealPoint( -9.5, 0.5 ) ) );
+
+		transformToSource.translate( 10, 0 );
+		assertFalse( p.test( new RealPoint( 0.5, 0.5 ) ) );
+		assertTrue( p.test( new RealPoint( -9.5, 0.5 ) ) );
+
+		b.center().setPosition( new double[] { 20.5, 0.5 } );
+		assertFalse( p.test( new RealPoint( -9.5, 0.5 ) ) );
+		assertTrue( p.test( new RealPoint( 10.5, 0.5 ) ) );
+	}
+
+	@Test
+	public void testTransformedPolygon()
+	{
+		final WritablePolygon2D p = new ClosedWritablePolygon2D( new double[] { 0, 8, 8, 4, 0 }, new double[] { 0, 0, 6, 2, 6 } );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.rotate( 0.3 );
+		transformToSource.scale( 2 );
+		final RealMaskRealInterval rm = p.transform( transformToSource );
+
+		final AffineTransform2D transformFromSource = transformToSource.inverse();
+		final double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		final double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		final double[] v = new double[ 2 ];
+		for ( int i = 0; i < p.numVertices(); i++ )
+		{
+			transformFromSource.apply( new double[] { p.vertex( i ).getDoublePosition( 0 ), p.vertex( i ).getDoublePosition( 1 ) }, v );
+			for ( int d = 0; d < 2; d++ )
+			{
+				min[ d ] = Math.min( min[ d ], v[ d ] );
+				max[ d ] = Math.max( max[ d ], v[ d ] );
+			}
+		}
+		for ( int d = 0; d < 2; d++ )
+		{
+			assertEquals( min[ d ], rm.realMin( d ), 1e-10 );
+			assertEquals( max[ d ], rm.realMax( d ), 1e-10 );
+		}
+
+		assertMatchesSource( rm, p, transformToSource );
+
+		p.vertex( 3 ).setPosition( new double[] { 4, 5 } );
+		assertMatchesSource( rm, p, transformToSource );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks that {@code rm} agrees with {@code source} at random points
+	 * around the bounds of {@code rm} which are not within rounding distance of the
+	 * boundary.
+	 */
+	private static void assertMatchesSource( final RealMaskRealInterval rm, final RealMaskRealInterval source, final AffineTransform2D transformToSource )
+	{
+		final Random random = new Random( 42 );
+		final RealPoint pos = new RealPoint( 2 );
+		final RealPoint sourcePos = new RealPoint( 2 );
+		final RealPoint nudged = new RealPoint( 2 );
+		int inside = 0;
+		for ( int i = 0; i < 10000; i++ )
+		{
+			for ( int d = 0; d < 2; d++ )
+				pos.setPosition( rm.realMin( d ) - 1 + random.nextDouble() * ( rm.realMax( d ) - rm.realMin( d ) + 2 ), d );
+			transformToSource.apply( pos, sourcePos );
+			final boolean expected = source.test( sourcePos );
+			boolean stable = true;
+			for ( int d = 0; d < 2 && stable; d++ )
+				for ( final double delta : new double[] { -1e-9, 1e-9 } )
+				{
+					nudged.setPosition( sourcePos );
+					nudged.move( delta, d );
+					stable &= source.test( nudged ) == expected;
+				}
+			if ( !stable )
+				continue;
+			assertEquals( expected, rm.test( pos ) );
+			if ( expected )
+				inside++;
+		}
+		assertTrue( inside > 0 );
+	}
+}
@@ -57,6 +57,7 @@ import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators;
 import net.imglib2.roi.RealMask;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Versioned;
 import net.imglib2.roi.composite.BinaryCompositeMaskPredicate;
 import net.imglib2.roi.composite.DefaultBinaryCompositeRealMaskRealInterval;
 import net.imglib2.roi.composite.UnaryCompositeMaskPredicate;
@@ -75,10 +76,12 @@ import net.imglib2.roi.geom.real.WritableBox;
 import net.imglib2.roi.geom.real.WritableEllipsoid;
 import net.imglib2.roi.geom.real.WritablePolygon2D;
 import net.imglib2.roi.geom.real.WritableSphere;
+import net.imglib2.roi.util.VersionCounter;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.util.ConstantUtils;
 
 import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 
@@ -871,6 +874,28 @@ public class OperatorsTest
 		assertEquals( 2, mn[ 2 ], 0 );
 	}
 
+	@Test
+	public void testTransformInParallel()
+	{
+		final Box b = new ClosedWritableBox( new double[] { 10, 0 }, new double[] { 20, 10 } );
+		final RealMask rm = b.transform( new ScratchTransform() );
+		assertTrue( testsInParallel( rm, 0 ) );
+	}
+
+	@Test
+	public void testModifiedTransformInParallel()
+	{
+		final Box b = new ClosedWritableBox( new double[] { 10, 0 }, new double[] { 20, 10 } );
+		final ScratchTransform transform = new ScratchTransform();
+		final RealMask rm = b.transform( transform );
+		assertTrue( testsInParallel( rm, 0 ) );
+
+		transform.setShift( 15 );
+		assertTrue( rm.test( new RealPoint( -4, 5 ) ) );
+		assertFalse( rm.test( new RealPoint( 6, 5 ) ) );
+		assertTrue( testsInParallel( rm, -5 ) );
+	}
+
 	// -- Xor --
 
 	@Test
@@ -1168,6 +1193,20 @@ public class OperatorsTest
 
 	// -- Helper methods --
 
+	/**
+	 * Tests {@code rm} in parallel on a grid, expecting the square [0, 10]^2
+	 * shifted by {@code offset} along x.
+	 */
+	private static boolean testsInParallel( final RealMask rm, final double offset )
+	{
+		return IntStream.range( 0, 200000 ).parallel().allMatch( i -> {
+			final double x = ( i % 400 ) * 0.1 - 10;
+			final double y = ( i / 400 ) * 0.1 - 5;
+			final boolean expected = x >= offset && x <= offset + 10 && y >= 0 && y <= 10;
+			return rm.test( new RealPoint( x, y ) ) == expected;
+		} );
+	}
+
 	private static AffineGet createAffineRotationMatrix( final double[] center, final double[][] rotationMatrix, final int dim )
 	{
 		assert rotationMatrix.length == dim;
@@ -1399,4 +1438,76 @@ public class OperatorsTest
 		}
 	}
 
+	/**
+	 * Translation by (10, 0) which is not thread-safe, since it stores the
+	 * position it is transforming.
+	 */
+	private static final class ScratchTransform implements RealTransform, Versioned
+	{
+		private final double[] scratch = new double[ 2 ];
+
+		private final VersionCounter version = new VersionCounter();
+
+		private double shift = 10;
+
+		void setShift( final double shift )
+		{
+			this.shift = shift;
+			version.increment();
+		}
+
+		@Override
+		public long version()
+		{
+			return version.get();
+		}
+
+		@Override
+		public int numSourceDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public int numTargetDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public void apply( final double[] source, final double[] target )
+		{
+			scratch[ 0 ] = source[ 0 ];
+			scratch[ 1 ] = source[ 1 ];
+			Thread.yield();
+			target[ 0 ] = scratch[ 0 ] + shift;
+			target[ 1 ] = scratch[ 1 ];
+		}
+
+		@Override
+		public void apply( final float[] source, final float[] target )
+		{
+			final double[] t = new double[ 2 ];
+			apply( new double[] { source[ 0 ], source[ 1 ] }, t );
+			target[ 0 ] = ( float ) t[ 0 ];
+			target[ 1 ] = ( float ) t[ 1 ];
+		}
+
+		@Override
+		public void apply( final RealLocalizable source, final RealPositionable target )
+		{
+			final double[] t = new double[ 2 ];
+			apply( new double[] { source.getDoublePosition( 0 ), source.getDoublePosition( 1 ) }, t );
+			target.setPosition( t );
+		}
+
+		@Override
+		public RealTransform copy()
+		{
+			final ScratchTransform copy = new ScratchTransform();
+			copy.shift = shift;
+			return copy;
+		}
+	}
+
 }
@@ -40,14 +40,22 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import net.imglib2.FinalRealInterval;
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.geom.real.DefaultWritablePointMask;
 import net.imglib2.roi.geom.real.DefaultWritableRealPointCollection;
+import net.imglib2.roi.geom.real.GridWritableRealPointCollection;
+import net.imglib2.roi.geom.real.HashWritableRealPointCollection;
 import net.imglib2.roi.geom.real.KDTreeRealPointCollection;
 import net.imglib2.roi.geom.real.PointMask;
 import net.imglib2.roi.geom.real.RealPointCollection;
@@ -176,6 +184,180 @@ public class RealPointCollectionTest
 		assertFalse( rpc.test( new RealPoint( new double[] { -13, -13 } ) ) );
 	}
 
+	@Test
+	public void testHashRPC()
+	{
+		final RealPointCollection< ? > rpc = new HashWritableRealPointCollection<>( points );
+		assertEquals( points.size(), rpc.size() );
+
+		// all points within region
+		for ( final RealLocalizable p : points )
+			assertTrue( rpc.test( p ) );
+
+		// outside region
+		assertFalse( rpc.test( new RealPoint( new double[] { 19 + 10e-14, 12.1 } ) ) );
+		assertFalse( rpc.test( new RealPoint( new double[] { 112, 0.25 } ) ) );
+		assertFalse( rpc.test( new RealPoint( new double[] { -0.25, 0.5 } ) ) );
+
+		// RealPointCollection characteristics
+		int count = 0;
+		for ( final Object p : rpc.points() )
+		{
+			assertTrue( points.contains( p ) );
+			++count;
+		}
+		assertEquals( points.size(), count );
+		assertTrue( rpc.boundaryType() == BoundaryType.CLOSED );
+		assertTrue( rpc.equals( new DefaultWritableRealPointCollection<>( points ) ) );
+	}
+
+	@Test
+	public void testHashRPCAddRemovePoint()
+	{
+		final WritableRealPointCollection< RealLocalizable > rpc = new HashWritableRealPointCollection<>( points );
+
+		assertFalse( rpc.test( testAddPoint ) );
+		rpc.addPoint( testAddPoint );
+		assertTrue( rpc.test( testAddPoint ) );
+		rpc.addPoint( new RealPoint( testAddPoint ) );
+		assertEquals( points.size() + 1, rpc.size() );
+
+		rpc.removePoint( new RealPoint( new double[] { -13, -13 } ) );
+		assertFalse( rpc.test( new RealPoint( new double[] { -13, -13 } ) ) );
+		assertEquals( points.size(), rpc.size() );
+		for ( final RealLocalizable p : points )
+			if ( p.getDoublePosition( 0 ) != -13 )
+				assertTrue( rpc.test( p ) );
+
+		// many points: exercises resizing and deletion with collisions
+		final HashWritableRealPointCollection< RealPoint > large = new HashWritableRealPointCollection<>( 3 );
+		for ( int i = 0; i < 1000; ++i )
+			large.addPoint( new RealPoint( i % 10, i / 10 % 10, i / 100 ) );
+		for ( int i = 0; i < 1000; i += 2 )
+			large.removePoint( new RealPoint( i % 10, i / 10 % 10, i / 100 ) );
+		assertEquals( 500, large.size() );
+		for ( int i = 0; i < 1000; ++i )
+			assertEquals( i % 2 == 1, large.test( new RealPoint( i % 10, i / 10 % 10, i / 100 ) ) );
+	}
+
+	@Test
+	public void testHashRPCBounds()
+	{
+		final WritableRealPointCollection< RealLocalizable > rpc = new HashWritableRealPointCollection<>( points );
+		final double[] max = new double[] { 200, 80 };
+		double[] min = new double[] { -13, -13 };
+		final double[] rpcMin = new double[ 2 ];
+		final double[] rpcMax = new double[ 2 ];
+		rpc.realMin( rpcMin );
+		rpc.realMax( rpcMax );
+		assertArrayEquals( min, rpcMin, 0 );
+		assertArrayEquals( max, rpcMax, 0 );
+
+		rpc.removePoint( new RealPoint( new double[] { -13, -13 } ) );
+		min = new double[] { -12, -0.5 };
+		rpc.realMin( rpcMin );
+		rpc.realMax( rpcMax );
+		assertArrayEquals( min, rpcMin, 0 );
+		assertArrayEquals( max, rpcMax, 0 );
+
+		rpc.addPoint( new RealPoint( new double[] { 1024.25, -17.125 } ) );
+		max[ 0 ] = 1024.25;
+		min[ 1 ] = -17.125;
+		rpc.realMin( rpcMin );
+		rpc.realMax( rpcMax );
+		assertArrayEquals( min, rpcMin, 0 );
+		assertArrayEquals( max, rpcMax, 0 );
+	}
+
+	@Test
+	public void testBoundsAfterRemovals()
+	{
+		assertBoundsAfterRemovals( new DefaultWritableRealPointCollection<>( Collections.singletonList( new RealPoint( 0.5, 0.5, 0.5 ) ) ) );
+		assertBoundsAfterRemovals( new GridWritableRealPointCollection<>( 3, 4 ) );
+		assertBoundsAfterRemovals( new HashWritableRealPointCollection<>( 3 ) );
+	}
+
+	@Test
+	public void testGridRPCAddRemovePoint()
+	{
+		final GridWritableRealPointCollection< RealLocalizable > rpc = new GridWritableRealPointCollection<>( points, 4 );
+		assertEquals( points.size(), rpc.size() );
+		for ( final RealLocalizable p : points )
+			assertTrue( rpc.test( p ) );
+		assertFalse( rpc.test( new RealPoint( new double[] { 19 + 10e-14, 12.1 } ) ) );
+		assertTrue( rpc.equals( new DefaultWritableRealPointCollection<>( points ) ) );
+
+		rpc.addPoint( testAddPoint );
+		assertTrue( rpc.test( testAddPoint ) );
+		rpc.addPoint( new RealPoint( testAddPoint ) );
+		assertEquals( points.size() + 1, rpc.size() );
+
+		rpc.removePoint( new RealPoint( new double[] { -13, -13 } ) );
+		assertFalse( rpc.test( new RealPoint( new double[] { -13, -13 } ) ) );
+		assertEquals( points.size(), rpc.size() );
+		assertEquals( -12, rpc.realMin( 0 ), 0 );
+		assertEquals( -0.5, rpc.realMin( 1 ), 0 );
+		assertEquals( 111, rpc.realMax( 1 ), 0 );
+
+		int count = 0;
+		for ( final RealLocalizable p : rpc.points() )
+		{
+			assertTrue( rpc.test( p ) );
+			++count;
+		}
+		assertEquals( rpc.size(), count );
+	}
+
+	@Test
+	public void testGridRPCQueries()
+	{
+		final Random random = new Random( 42 );
+		final List< RealLocalizable > pts = new ArrayList<>();
+		for ( int i = 0; i < 500; ++i )
+			pts.add( new RealPoint( random.nextDouble() * 100, random.nextDouble() * 50, random.nextDouble() * 20 - 10 ) );
+		final GridWritableRealPointCollection< RealLocalizable > rpc = new GridWritableRealPointCollection<>( pts, 5 );
+
+		for ( int i = 0; i < 50; ++i )
+		{
+			final RealPoint q = new RealPoint( random.nextDouble() * 300 - 100, random.nextDouble() * 80 - 15, random.nextDouble() * 40 - 20 );
+
+			RealLocalizable nearest = null;
+			double best = Double.POSITIVE_INFINITY;
+			final List< RealLocalizable > inRadius = new ArrayList<>();
+			for ( final RealLocalizable p : pts )
+			{
+				final double dist = distance( p, q );
+				if ( dist < best )
+				{
+					best = dist;
+					nearest = p;
+				}
+				if ( dist <= 12 )
+					inRadius.add( p );
+			}
+			assertEquals( best, distance( rpc.nearestNeighbor( q ), q ), 0 );
+			assertTrue( nearest == rpc.nearestNeighbor( q ) );
+
+			final List< RealLocalizable > found = rpc.radiusSearch( q, 12 );
+			assertEquals( inRadius.size(), found.size() );
+			assertTrue( found.containsAll( inRadius ) );
+
+			final FinalRealInterval interval = new FinalRealInterval( new double[] { q.getDoublePosition( 0 ) - 10, q.getDoublePosition( 1 ) - 5, -3 }, new double[] { q.getDoublePosition( 0 ) + 10, q.getDoublePosition( 1 ) + 5, 3 } );
+			final List< RealLocalizable > inInterval = new ArrayList<>();
+			for ( final RealLocalizable p : pts )
+				if ( contains( interval, p ) )
+					inInterval.add( p );
+			final List< RealLocalizable > foundInInterval = rpc.intervalSearch( interval );
+			assertEquals( inInterval.size(), foundInInterval.size() );
+			assertTrue( foundInInterval.containsAll( inInterval ) );
+		}
+
+		for ( final RealLocalizable p : pts )
+			rpc.removePoint( p );
+		assertEquals( 0, rpc.size() );
+		assertTrue( rpc.nearestNeighbor( new RealPoint( 3 ) ) == null );
+	}
+
 	@Test
 	public void testRealPointSampleListRPCAddPoint()
 	{
@@ -240,6 +422,23 @@ public class RealPointCollectionTest
 
 		assertArrayEquals( min, rpcMin, 0 );
 		assertArrayEquals( max, rpcMax, 0 );
+		for ( int d = 0; d < 2; d++ )
+		{
+			assertEquals( min[ d ], rpc.realMin( d ), 0 );
+			assertEquals( max[ d ], rpc.realMax( d ), 0 );
+		}
+	}
+
+	@Test
+	public void testKDTreeRPCConcurrentTest() throws Exception
+	{
+		assertConcurrentTestIsConsistent( new KDTreeRealPointCollection<>( randomPoints( 2000 ) ) );
+	}
+
+	@Test
+	public void testRealPointSampleListRPCConcurrentTest() throws Exception
+	{
+		assertConcurrentTestIsConsistent( new RealPointSampleListWritableRealPointCollection<>( randomPoints( 200 ) ) );
 	}
 
 	@Test
@@ -397,4 +596,114 @@ public class RealPointCollectionTest
 		final PointMask pm = new DefaultWritablePointMask( new double[] { 83, 4 } );
 		assertNotEquals( d.hashCode(), pm.hashCode() );
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Adds random points to {@code rpc}, then removes them in random order,
+	 * comparing the bounds to those of the remaining points.
+	 */
+	private static void assertBoundsAfterRemovals( final WritableRealPointCollection< RealLocalizable > rpc )
+	{
+		final Random random = new Random( 7 );
+		final List< RealPoint > remaining = new ArrayList<>();
+		for ( final RealLocalizable p : rpc.points() )
+			remaining.add( new RealPoint( p ) );
+		for ( int i = 0; i < 300; ++i )
+		{
+			final RealPoint p = new RealPoint( random.nextInt( 40 ), random.nextInt( 40 ) * 0.5, random.nextGaussian() );
+			rpc.addPoint( p );
+			remaining.add( p );
+		}
+		Collections.shuffle( remaining, random );
+		while ( !remaining.isEmpty() )
+		{
+			final RealPoint removed = remaining.remove( remaining.size() - 1 );
+			rpc.removePoint( removed );
+			assertEquals( remaining.size(), rpc.size() );
+			assertFalse( rpc.test( removed ) );
+			for ( int d = 0; d < 3; ++d )
+			{
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for ( final RealPoint p : remaining )
+				{
+					min = Math.min( min, p.getDoublePosition( d ) );
+					max = Math.max( max, p.getDoublePosition( d ) );
+				}
+				assertEquals( min, rpc.realMin( d ), 0 );
+				assertEquals( max, rpc.realMax( d ), 0 );
+			}
+		}
+	}
+
+	private static List< RealLocalizable > randomPoints( final int count )
+	{
+		final Random random = new Random( 7 );
+		final List< RealLocalizable > pts = new ArrayList<>();
+		for ( int i = 0; i < count; ++i )
+			pts.add( new RealPoint( random.nextInt( 100 ), random.nextInt( 100 ) ) );
+		return pts;
+	}
+
+	/**
+	 * Tests all locations of a 100x100 grid from several threads at once and
+	 * checks each result against a single threaded evaluation.
+	 */
+	private static void assertConcurrentTestIsConsistent( final RealPointCollection< RealLocalizable > rpc ) throws Exception
+	{
+		final boolean[] expected = new boolean[ 100 * 100 ];
+		for ( int i = 0; i < expected.length; ++i )
+			expected[ i ] = rpc.test( new RealPoint( i % 100, i / 100 ) );
+
+		final int numThreads = 4;
+		final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+		try
+		{
+			final List< Future< Integer > > futures = new ArrayList<>();
+			for ( int t = 0; t < numThreads; ++t )
+			{
+				final int offset = t;
+				futures.add( executor.submit( () -> {
+					int mismatches = 0;
+					final RealPoint p = new RealPoint( 2 );
+					for ( int r = 0; r < 5; ++r )
+						for ( int i = 0; i < expected.length; ++i )
+						{
+							final int j = ( i + offset * 2500 ) % expected.length;
+							p.setPosition( j % 100, 0 );
+							p.setPosition( j / 100, 1 );
+							if ( rpc.test( p ) != expected[ j ] )
+								++mismatches;
+						}
+					return mismatches;
+				} ) );
+			}
+			for ( final Future< Integer > f : futures )
+				assertEquals( 0, f.get().intValue() );
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private static double distance( final RealLocalizable a, final RealLocalizable b )
+	{
+		double sum = 0;
+		for ( int d = 0; d < a.numDimensions(); ++d )
+		{
+			final double diff = a.getDoublePosition( d ) - b.getDoublePosition( d );
+			sum += diff * diff;
+		}
+		return Math.sqrt( sum );
+	}
+
+	private static boolean contains( final FinalRealInterval interval, final RealLocalizable p )
+	{
+		for ( int d = 0; d < p.numDimensions(); ++d )
+			if ( p.getDoublePosition( d ) < interval.realMin( d ) || p.getDoublePosition( d ) > interval.realMax( d ) )
+				return false;
+		return true;
+	}
 }
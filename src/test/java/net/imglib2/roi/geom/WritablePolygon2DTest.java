@@ -51,8 +51,11 @@ import net.imglib2.roi.geom.real.DefaultWritablePolygon2D;
 import net.imglib2.roi.geom.real.OpenWritablePolygon2D;
 import net.imglib2.roi.geom.real.Polygon2D;
 import net.imglib2.roi.geom.real.WritablePolygon2D;
+import net.imglib2.util.Intervals;
 import net.imglib2.util.Util;
 
+import gnu.trove.list.array.TDoubleArrayList;
+
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
@@ -444,6 +447,54 @@ public class WritablePolygon2DTest
 		assertArrayEquals( max, pMax, 0 );
 	}
 
+	@Test
+	public void testSetVertices()
+	{
+		final WritablePolygon2D p = new DefaultWritablePolygon2D( points );
+		final List< RealPoint > moved = new ArrayList<>();
+		moved.add( new RealPoint( 40, 15 ) );
+		moved.add( new RealPoint( 20, -5 ) );
+		p.setVertices( 1, moved );
+
+		assertEquals( points.size(), p.numVertices() );
+		assertEquals( 40, p.vertex( 1 ).getDoublePosition( 0 ), 0 );
+		assertEquals( -5, p.vertex( 2 ).getDoublePosition( 1 ), 0 );
+		assertEquals( 40, p.realMax( 0 ), 0 );
+		assertEquals( -5, p.realMin( 1 ), 0 );
+		assertTrue( p.test( new RealPoint( 25, 13 ) ) );
+	}
+
+	@Test
+	public void testLargePolygonBounds()
+	{
+		final Random random = new Random( 7 );
+		final List< RealPoint > vertices = new ArrayList<>();
+		for ( int i = 0; i < 500; i++ )
+			vertices.add( new RealPoint( random.nextDouble() * 100, random.nextDouble() * 100 ) );
+		final WritablePolygon2D p = new DefaultWritablePolygon2D( vertices );
+		for ( int i = 0; i < 300; i++ )
+		{
+			final int index = random.nextInt( vertices.size() );
+			final RealPoint v = new RealPoint( random.nextDouble() * 120 - 10, random.nextDouble() * 120 - 10 );
+			switch ( random.nextInt( 3 ) )
+			{
+			case 0:
+				vertices.set( index, v );
+				p.vertex( index ).setPosition( v );
+				break;
+			case 1:
+				vertices.remove( index );
+				p.removeVertex( index );
+				break;
+			default:
+				vertices.add( index, v );
+				p.addVertex( index, v );
+			}
+			assertArrayEquals( Intervals.minAsDoubleArray( GeomMaths.getBoundsReal( vertices ) ), Intervals.minAsDoubleArray( p ), 0 );
+			assertArrayEquals( Intervals.maxAsDoubleArray( GeomMaths.getBoundsReal( vertices ) ), Intervals.maxAsDoubleArray( p ), 0 );
+		}
+	}
+
 	@Test
 	public void testEquals()
 	{
@@ -480,6 +531,123 @@ public class WritablePolygon2DTest
 		assertNotEquals( p.hashCode(), cp.hashCode() );
 	}
 
+	@Test
+	public void testLargePolygons()
+	{
+		final Random random = new Random( 17 );
+
+		// star shaped polygon with integer vertices, so that pixels hit edges
+		final int n = 500;
+		final double[] x = new double[ n ];
+		final double[] y = new double[ n ];
+		for ( int i = 0; i < n; i++ )
+		{
+			final double angle = 2 * Math.PI * i / n;
+			final double r = 50 + random.nextInt( 40 );
+			x[ i ] = Math.round( 100 + r * Math.cos( angle ) );
+			y[ i ] = Math.round( 100 + r * Math.sin( angle ) );
+		}
+		assertMatchesReference( x, y, random );
+
+		// self-intersecting polygon
+		for ( int i = 0; i < n; i++ )
+		{
+			x[ i ] = random.nextDouble() * 200;
+			y[ i ] = random.nextDouble() * 200;
+		}
+		assertMatchesReference( x, y, random );
+
+		// comb with long teeth, exceeds the slab index size limit
+		final int teeth = 300;
+		final double[] cx = new double[ 2 * teeth + 2 ];
+		final double[] cy = new double[ 2 * teeth + 2 ];
+		for ( int i = 0; i < teeth; i++ )
+		{
+			cx[ 2 * i ] = 2 * i;
+			cy[ 2 * i ] = 200 - i * 0.25;
+			cx[ 2 * i + 1 ] = 2 * i + 1;
+			cy[ 2 * i + 1 ] = 10 + i * 0.125;
+		}
+		cx[ 2 * teeth ] = 2 * teeth;
+		cy[ 2 * teeth ] = 0;
+		cx[ 2 * teeth + 1 ] = 0;
+		cy[ 2 * teeth + 1 ] = 0;
+		assertMatchesReference( cx, cy, random );
+	}
+
+	@Test
+	public void testLargePolygonModification()
+	{
+		final int n = 100;
+		final double[] x = new double[ n ];
+		final double[] y = new double[ n ];
+		for ( int i = 0; i < n; i++ )
+		{
+			x[ i ] = 10 * Math.cos( 2 * Math.PI * i / n );
+			y[ i ] = 10 * Math.sin( 2 * Math.PI * i / n );
+		}
+		final WritablePolygon2D closed = new ClosedWritablePolygon2D( x, y );
+		final RealPoint p = new RealPoint( 15.0, 0.0 );
+		assertFalse( closed.test( p ) );
+		assertTrue( closed.test( new RealPoint( 0.0, 0.0 ) ) );
+		assertTrue( closed.test( new RealPoint( x[ 3 ], y[ 3 ] ) ) );
+
+		closed.vertex( 0 ).setPosition( new double[] { 20, 0 } );
+		assertTrue( closed.test( p ) );
+
+		closed.removeVertex( 0 );
+		assertFalse( closed.test( p ) );
+
+		closed.addVertex( 0, new RealPoint( 15.0, 0.0 ) );
+		assertTrue( closed.test( p ) );
+		final WritablePolygon2D open = new OpenWritablePolygon2D( x, y );
+		open.addVertex( 0, new RealPoint( 15.0, 0.0 ) );
+		assertFalse( open.test( p ) );
+		assertTrue( open.test( new RealPoint( 12.0, -0.1 ) ) );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks polygons with many vertices (which use indices) against the
+	 * plain pnpoly and edge tests.
+	 */
+	private static void assertMatchesReference( final double[] x, final double[] y, final Random random )
+	{
+		final Polygon2D polygon = new DefaultWritablePolygon2D( x, y );
+		final Polygon2D closed = new ClosedWritablePolygon2D( x, y );
+		final Polygon2D open = new OpenWritablePolygon2D( x, y );
+		final TDoubleArrayList xl = new TDoubleArrayList( x );
+		final TDoubleArrayList yl = new TDoubleArrayList( y );
+		final List< RealPoint > queries = new ArrayList<>();
+		for ( int i = 0; i < 2000; i++ )
+			queries.add( new RealPoint( random.nextDouble() * 220 - 10, random.nextDouble() * 220 - 10 ) );
+		for ( int px = -5; px < 610; px += 3 )
+			for ( int py = -5; py < 210; py += 3 )
+				queries.add( new RealPoint( px, py ) );
+		for ( int i = 0; i < x.length; i++ )
+			queries.add( new RealPoint( x[ i ], y[ i ] ) );
+
+		final double[] a = new double[ 2 ];
+		final double[] b = new double[ 2 ];
+		for ( final RealPoint q : queries )
+		{
+			final boolean inside = GeomMaths.pnpoly( xl, yl, q );
+			boolean edge = false;
+			for ( int i = 0; i < x.length && !edge; i++ )
+			{
+				a[ 0 ] = x[ i ];
+				a[ 1 ] = y[ i ];
+				b[ 0 ] = x[ ( i + 1 ) % x.length ];
+				b[ 1 ] = y[ ( i + 1 ) % x.length ];
+				edge = GeomMaths.lineContains( a, b, q, 2 );
+			}
+			assertEquals( inside, polygon.test( q ) );
+			assertEquals( edge || inside, closed.test( q ) );
+			assertEquals( !edge && inside, open.test( q ) );
+		}
+	}
+
 	// -- Helper methods --
 
 	private boolean assertRealLocalizableEquals( final RealLocalizable predicted, final RealLocalizable expected )
@@ -208,6 +208,46 @@ public class WritablePolylineTest
 		assertTrue( pl.test( new RealPoint( new double[] { 5, 9 } ) ) );
 	}
 
+	@Test
+	public void testDistance()
+	{
+		final Random random = new Random( 11 );
+		final List< RealPoint > walk = new ArrayList<>();
+		final double[] pos = new double[ 3 ];
+		for ( int i = 0; i < 1000; i++ )
+		{
+			walk.add( new RealPoint( pos ) );
+			for ( int d = 0; d < 3; d++ )
+				pos[ d ] += random.nextDouble() * 4 - 1;
+		}
+		final DefaultWritablePolyline pl = new DefaultWritablePolyline( walk );
+
+		for ( int i = 0; i < 200; i++ )
+		{
+			final RealPoint q = new RealPoint( random.nextDouble() * 1500 - 50, random.nextDouble() * 1500 - 50, random.nextDouble() * 1500 - 50 );
+			double expected = Double.POSITIVE_INFINITY;
+			for ( int v = 1; v < walk.size(); v++ )
+				expected = Math.min( expected, GeomMaths.squaredDistanceToSegment( toArray( walk.get( v - 1 ) ), toArray( walk.get( v ) ), q, 3 ) );
+			assertEquals( Math.sqrt( expected ), pl.distance( q ), 1e-9 );
+		}
+
+		// midpoints of all segments are contained
+		for ( int v = 1; v < walk.size(); v++ )
+		{
+			final RealPoint mid = new RealPoint( 3 );
+			for ( int d = 0; d < 3; d++ )
+				mid.setPosition( 0.5 * ( walk.get( v - 1 ).getDoublePosition( d ) + walk.get( v ).getDoublePosition( d ) ), d );
+			assertTrue( pl.test( mid ) );
+			assertEquals( 0, pl.distance( mid ), 1e-7 );
+		}
+
+		// closest to the middle of the second segment
+		final Polyline simplePolyline = new DefaultWritablePolyline( simple );
+		assertEquals( 11 * Math.sqrt( 0.5 ), simplePolyline.distance( new RealPoint( new double[] { 12, -3 } ) ), 1e-12 );
+		// closest to the last vertex
+		assertEquals( 5, simplePolyline.distance( new RealPoint( new double[] { 33, 14 } ) ), 1e-12 );
+	}
+
 	@Test
 	public void testAddVertex()
 	{
@@ -379,6 +419,23 @@ public class WritablePolylineTest
 		assertArrayEquals( max, plMax, 0 );
 	}
 
+	@Test
+	public void testSetVertices()
+	{
+		final WritablePolyline pl = new DefaultWritablePolyline( simple );
+		final List< RealPoint > moved = new ArrayList<>();
+		moved.add( new RealPoint( -100, 3 ) );
+		moved.add( new RealPoint( 2, 200 ) );
+		pl.setVertices( 0, moved );
+
+		assertEquals( simple.size(), pl.numVertices() );
+		assertEquals( -100, pl.vertex( 0 ).getDoublePosition( 0 ), 0 );
+		assertEquals( 200, pl.vertex( 1 ).getDoublePosition( 1 ), 0 );
+		assertEquals( -100, pl.realMin( 0 ), 0 );
+		assertEquals( 200, pl.realMax( 1 ), 0 );
+		assertTrue( pl.test( new RealPoint( -49, 101.5 ) ) );
+	}
+
 	@Test
 	public void testEquals()
 	{
@@ -465,4 +522,10 @@ public class WritablePolylineTest
 		return true;
 	}
 
+	private static double[] toArray( final RealLocalizable l )
+	{
+		final double[] a = new double[ l.numDimensions() ];
+		l.localize( a );
+		return a;
+	}
 }
@@ -0,0 +1,242 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.Point;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.geom.integer.IterableLine;
+import net.imglib2.roi.geom.real.ClosedWritableTube;
+import net.imglib2.roi.geom.real.Line;
+import net.imglib2.roi.geom.real.OpenWritableTube;
+import net.imglib2.roi.geom.real.Polyline;
+import net.imglib2.roi.geom.real.Tube;
+import net.imglib2.roi.geom.real.WritableTube;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+import net.imglib2.util.Intervals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class WritableTubeTest
+{
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	private static final List< RealPoint > straight = Arrays.asList( new RealPoint( 0.0, 0.0 ), new RealPoint( 10.0, 0.0 ) );
+
+	@Test
+	public void testCapsule()
+	{
+		final Tube closed = new ClosedWritableTube( straight, 2 );
+		final Tube open = new OpenWritableTube( straight, 2 );
+
+		assertTrue( closed.test( new RealPoint( 5.0, 1.5 ) ) );
+		assertTrue( closed.test( new RealPoint( 5.0, 2.0 ) ) );
+		assertFalse( open.test( new RealPoint( 5.0, 2.0 ) ) );
+		assertTrue( open.test( new RealPoint( 5.0, -1.99 ) ) );
+		assertFalse( closed.test( new RealPoint( 5.0, 2.01 ) ) );
+
+		// round caps
+		assertTrue( closed.test( new RealPoint( -2.0, 0.0 ) ) );
+		assertTrue( closed.test( new RealPoint( 11.0, 1.5 ) ) );
+		assertFalse( closed.test( new RealPoint( 11.5, 1.5 ) ) );
+
+		assertEquals( -2, closed.realMin( 0 ), 0 );
+		assertEquals( 12, closed.realMax( 0 ), 0 );
+		assertEquals( 2, closed.realMax( 1 ), 0 );
+		assertTrue( closed.boundaryType() == BoundaryType.CLOSED );
+		assertTrue( open.boundaryType() == BoundaryType.OPEN );
+	}
+
+	@Test
+	public void testTaperedTube()
+	{
+		final Tube tube = new ClosedWritableTube( straight, new double[] { 3, 1 } );
+		assertTrue( tube.test( new RealPoint( 5.0, 1.9 ) ) );
+		assertFalse( tube.test( new RealPoint( 5.0, 2.1 ) ) );
+		assertTrue( tube.test( new RealPoint( 10.0, 1.0 ) ) );
+		assertTrue( tube.test( new RealPoint( -3.0, 0.0 ) ) );
+		assertFalse( tube.test( new RealPoint( 11.1, 0.0 ) ) );
+	}
+
+	@Test
+	public void testSingleVertex()
+	{
+		final Tube sphere = new ClosedWritableTube( Arrays.asList( new RealPoint( 1.0, 2.0, 3.0 ) ), 2 );
+		assertTrue( sphere.test( new RealPoint( 1.0, 2.0, 5.0 ) ) );
+		assertFalse( sphere.test( new RealPoint( 1.0, 3.5, 4.5 ) ) );
+	}
+
+	@Test
+	public void testFactories()
+	{
+		final List< RealPoint > bent = Arrays.asList( new RealPoint( 0.0, 0.0 ), new RealPoint( 10.0, 0.0 ), new RealPoint( 10.0, 10.0 ) );
+		final Polyline polyline = GeomMasks.polyline( bent );
+		assertEquals( GeomMasks.closedTube( bent, 1 ), GeomMasks.closedTube( polyline, 1 ) );
+		assertEquals( GeomMasks.openTube( bent, 1 ), GeomMasks.openTube( polyline, 1 ) );
+
+		final Line line = GeomMasks.line( straight.get( 0 ), straight.get( 1 ) );
+		assertEquals( GeomMasks.closedTube( straight, 2 ), GeomMasks.closedTube( line, 2 ) );
+		assertEquals( GeomMasks.openTube( straight, 2 ), GeomMasks.openTube( line, 2 ) );
+		assertTrue( GeomMasks.openTube( line, 2 ).boundaryType() == BoundaryType.OPEN );
+
+		// the pixels of a sampled line are within half a pixel of the segment
+		final Point start = new Point( 1, 2 );
+		final Point end = new Point( 17, -5 );
+		final Tube tube = GeomMasks.closedTube( start, end, 0.5 );
+		long count = 0;
+		final Cursor< Void > cursor = new IterableLine( start, end ).localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			assertTrue( tube.test( cursor ) );
+			++count;
+		}
+		assertTrue( count > 0 );
+	}
+
+	@Test
+	public void testModification()
+	{
+		final WritableTube tube = new ClosedWritableTube( straight, 1 );
+		assertFalse( tube.test( new RealPoint( 5.0, 5.0 ) ) );
+
+		tube.setRadius( 1, 12 );
+		assertTrue( tube.test( new RealPoint( 5.0, 5.0 ) ) );
+		assertEquals( 12, tube.realMax( 1 ), 0 );
+
+		tube.setRadius( 1, 1 );
+		tube.vertex( 1 ).setPosition( new double[] { 10, 10 } );
+		assertTrue( tube.test( new RealPoint( 5.0, 5.0 ) ) );
+		assertEquals( 11, tube.realMax( 1 ), 0 );
+
+		tube.addVertex( 2, new RealPoint( 20.0, 10.0 ) );
+		assertEquals( 1, tube.radius( 2 ), 0 );
+		assertTrue( tube.test( new RealPoint( 15.0, 10.5 ) ) );
+
+		tube.addVertex( 0, new RealPoint( -10.0, 0.0 ), 4 );
+		assertTrue( tube.test( new RealPoint( -5.0, 2.0 ) ) );
+		assertEquals( -14, tube.realMin( 0 ), 0 );
+
+		tube.removeVertex( 0 );
+		assertFalse( tube.test( new RealPoint( -5.0, 2.0 ) ) );
+		assertEquals( -1, tube.realMin( 0 ), 0 );
+	}
+
+	@Test
+	public void testNegativeRadius()
+	{
+		exception.expect( IllegalArgumentException.class );
+		new ClosedWritableTube( straight, -1 );
+	}
+
+	@Test
+	public void testEquals()
+	{
+		final Tube a = GeomMasks.closedTube( straight, new double[] { 1, 2 } );
+		final Tube b = GeomMasks.closedTube( straight, new double[] { 1, 2 } );
+		final Tube c = GeomMasks.closedTube( straight, 1 );
+		final Tube d = GeomMasks.openTube( straight, new double[] { 1, 2 } );
+		assertTrue( a.equals( b ) );
+		assertEquals( a.hashCode(), b.hashCode() );
+		assertFalse( a.equals( c ) );
+		assertFalse( a.equals( d ) );
+		assertNotEquals( a.hashCode(), d.hashCode() );
+	}
+
+	@Test
+	public void testRasterization()
+	{
+		final Random random = new Random( 5 );
+		final List< RealLocalizable > vertices = new ArrayList<>();
+		final double[] radii = new double[ 12 ];
+		final double[] pos = new double[] { 3.3, 4.1, 2.7 };
+		for ( int i = 0; i < radii.length; i++ )
+		{
+			vertices.add( new RealPoint( pos ) );
+			radii[ i ] = 0.5 + random.nextDouble() * 3;
+			for ( int d = 0; d < 3; d++ )
+				pos[ d ] += random.nextDouble() * 8 - 2;
+		}
+		// one segment parallel to the raster lines
+		vertices.set( 3, new RealPoint( vertices.get( 2 ).getDoublePosition( 0 ) + 6, vertices.get( 2 ).getDoublePosition( 1 ), vertices.get( 2 ).getDoublePosition( 2 ) ) );
+		radii[ 3 ] = 2;
+
+		assertRasterizationMatchesTest( new ClosedWritableTube( vertices, radii ) );
+		assertRasterizationMatchesTest( new OpenWritableTube( vertices, radii ) );
+		assertRasterizationMatchesTest( new ClosedWritableTube( vertices, 2 ) );
+		assertRasterizationMatchesTest( new OpenWritableTube( vertices, 2 ) );
+		assertRasterizationMatchesTest( new ClosedWritableTube( straight, 2 ) );
+		assertRasterizationMatchesTest( new OpenWritableTube( straight, 2 ) );
+		assertRasterizationMatchesTest( new ClosedWritableTube( Arrays.asList( new RealPoint( 1.5, -2.0 ) ), 3 ) );
+	}
+
+	// -- Helper methods --
+
+	private static void assertRasterizationMatchesTest( final Tube tube )
+	{
+		final RunLengthRegion region = RunLengthRegions.fromTube( tube );
+		final Interval bounds = Intervals.largestContainedInterval( tube );
+		long count = 0;
+		final LocalizingIntervalIterator it = new LocalizingIntervalIterator( bounds );
+		final Point point = new Point( bounds.numDimensions() );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			point.setPosition( it );
+			final boolean inside = tube.test( new RealPoint( point ) );
+			assertEquals( inside, region.test( point ) );
+			if ( inside )
+				++count;
+		}
+		assertEquals( count, region.size() );
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.integer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.Point;
+
+public class IterablePolylineTest
+{
+	@Test
+	public void testMatchesIterableLines()
+	{
+		final List< Point > vertices = Arrays.asList(
+				new Point( 0, 0 ),
+				new Point( 10, 3 ),
+				new Point( 10, 3 ),
+				new Point( 4, -7 ),
+				new Point( 4, 20 ),
+				new Point( -3, 21 ) );
+		final IterablePolyline polyline = new IterablePolyline( vertices );
+
+		// concatenate the segments, dropping the shared vertices
+		final List< long[] > expected = new ArrayList<>();
+		expected.add( new long[] { 0, 0 } );
+		for ( int i = 1; i < vertices.size(); i++ )
+		{
+			final Cursor< Void > c = new IterableLine( vertices.get( i - 1 ), vertices.get( i ) ).cursor();
+			c.fwd();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				expected.add( new long[] { c.getLongPosition( 0 ), c.getLongPosition( 1 ) } );
+			}
+		}
+
+		assertEquals( expected.size(), polyline.size() );
+		final Cursor< Void > c = polyline.cursor();
+		for ( final long[] p : expected )
+		{
+			assertTrue( c.hasNext() );
+			c.fwd();
+			assertArrayEquals( p, new long[] { c.getLongPosition( 0 ), c.getLongPosition( 1 ) } );
+		}
+		assertFalse( c.hasNext() );
+
+		assertEquals( -3, polyline.min( 0 ) );
+		assertEquals( -7, polyline.min( 1 ) );
+		assertEquals( 10, polyline.max( 0 ) );
+		assertEquals( 21, polyline.max( 1 ) );
+	}
+
+	@Test
+	public void testJumpFwd()
+	{
+		final Random random = new Random( 1 );
+		final List< Point > vertices = new ArrayList<>();
+		for ( int i = 0; i < 20; i++ )
+			vertices.add( new Point( random.nextInt( 30 ), random.nextInt( 30 ), random.nextInt( 30 ) ) );
+		vertices.add( new Point( vertices.get( 19 ) ) );
+		vertices.add( new Point( 3, 3, 3 ) );
+		final IterablePolyline polyline = new IterablePolyline( vertices );
+
+		final List< long[] > expected = new ArrayList<>();
+		final Cursor< Void > c = polyline.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final long[] p = new long[ 3 ];
+			c.localize( p );
+			expected.add( p );
+		}
+		assertEquals( polyline.size(), expected.size() );
+
+		for ( int i = 0; i < 100; i++ )
+		{
+			final Cursor< Void > j = polyline.cursor();
+			long index = -1;
+			while ( true )
+			{
+				final long step = 1 + random.nextInt( 40 );
+				if ( index + step >= expected.size() )
+					break;
+				j.jumpFwd( step );
+				index += step;
+				final long[] p = new long[ 3 ];
+				j.localize( p );
+				assertArrayEquals( expected.get( ( int ) index ), p );
+				if ( random.nextBoolean() )
+				{
+					// continue with fwd and a copy
+					final Cursor< Void > copy = j.copyCursor();
+					if ( copy.hasNext() )
+					{
+						copy.fwd();
+						copy.localize( p );
+						assertArrayEquals( expected.get( ( int ) index + 1 ), p );
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSingleVertex()
+	{
+		final IterablePolyline polyline = new IterablePolyline( Arrays.asList( new Point( 4, 5 ), new Point( 4, 5 ) ) );
+		assertEquals( 1, polyline.size() );
+		final Cursor< Void > c = polyline.cursor();
+		assertTrue( c.hasNext() );
+		c.fwd();
+		assertEquals( 4, c.getLongPosition( 0 ) );
+		assertEquals( 5, c.getLongPosition( 1 ) );
+		assertFalse( c.hasNext() );
+
+		final IterablePolyline point = new IterablePolyline( Arrays.asList( new Point( 1, 2, 3 ) ) );
+		assertEquals( 1, point.size() );
+		final Cursor< Void > pc = point.cursor();
+		pc.jumpFwd( 1 );
+		assertEquals( 3, pc.getLongPosition( 2 ) );
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.labeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import net.imglib2.Point;
+import net.imglib2.RealPoint;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.boundary.Boundary;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.boundary.Contour;
+import net.imglib2.roi.geom.real.Polygon2D;
+import net.imglib2.roi.util.runlength.RunLengthRegion;
+import net.imglib2.roi.util.runlength.RunLengthRegions;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests the boundary measurements of {@link LabelRegions}.
+ */
+public class LabelRegionsTest
+{
+	@Test
+	public void testBoundaries()
+	{
+		final LabelRegions< String > regions = new LabelRegions<>( createLabeling() );
+		for ( final StructuringElement se : StructuringElement.values() )
+		{
+			final Map< String, RunLengthRegion > inner = regions.innerBoundaries( se );
+			final Map< String, RunLengthRegion > outer = regions.outerBoundaries( se );
+			assertEquals( regions.getExistingLabels(), inner.keySet() );
+			for ( final LabelRegion< String > region : regions )
+			{
+				// compare to the per-pixel Boundary
+				final RunLengthRegion expected = RunLengthRegions.fromIterable( new Boundary< BoolType >( region, se ) );
+				assertEquals( expected, inner.get( region.getLabel() ) );
+				assertEquals( expected, region.innerBoundary( se ) );
+				assertEquals( outer.get( region.getLabel() ), region.outerBoundary( se ) );
+			}
+		}
+
+		// "b" touches the border of the labeling, so its outer boundary is clipped
+		final RunLengthRegion outerB = regions.outerBoundaries( StructuringElement.FOUR_CONNECTED ).get( "b" );
+		assertTrue( outerB.test( new Point( 2, 7 ) ) );
+		assertFalse( outerB.test( new Point( 5, 10 ) ) );
+		assertEquals( 9, outerB.max( 1 ) );
+	}
+
+	@Test
+	public void testSurfaceAreas()
+	{
+		final LabelRegions< String > regions = new LabelRegions<>( createLabeling() );
+		final Map< String, Long > areas = regions.surfaceAreas();
+		assertEquals( 16, areas.get( "a" ).longValue() );
+		assertEquals( 22, areas.get( "b" ).longValue() );
+
+		// moving a region does not change its surface area
+		final LabelRegion< String > a = regions.getLabelRegion( "a" ).copy();
+		a.move( 3, 0 );
+		assertEquals( 16, a.surfaceArea() );
+		assertTrue( a.innerBoundary( StructuringElement.FOUR_CONNECTED ).test( new Point( 4, 2 ) ) );
+	}
+
+	@Test
+	public void testContours()
+	{
+		final Map< String, List< Contour > > contours = new LabelRegions<>( createLabeling() ).contours( StructuringElement.EIGHT_CONNECTED, 0 );
+		assertEquals( 2, contours.size() );
+		final Polygon2D a = contours.get( "a" ).get( 0 ).outer();
+		assertEquals( 4, a.numVertices() );
+		assertEquals( 0.5, a.realMin( 0 ), 0 );
+		assertEquals( 5.5, a.realMax( 1 ), 0 );
+		assertTrue( contours.get( "b" ).get( 0 ).toMask().test( new RealPoint( 3.0, 6.0 ) ) );
+	}
+
+	/**
+	 * 12 x 10 labeling with "a" on [1, 4] x [2, 5] and "b" on [3, 9] x [6, 9].
+	 */
+	private static ImgLabeling< String, IntType > createLabeling()
+	{
+		final ImgLabeling< String, IntType > labeling = new ImgLabeling<>( ArrayImgs.ints( 12, 10 ) );
+		for ( final LabelingType< String > t : Views.interval( labeling, new long[] { 1, 2 }, new long[] { 4, 5 } ) )
+			t.add( "a" );
+		for ( final LabelingType< String > t : Views.interval( labeling, new long[] { 3, 6 }, new long[] { 9, 9 } ) )
+			t.add( "b" );
+		return labeling;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.measure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.Masks;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelRegion;
+import net.imglib2.roi.labeling.LabelRegions;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.view.Views;
+
+/**
+ * Tests {@link MultiRegionMeasurement}.
+ */
+public class MultiRegionMeasurementTest
+{
+	private static Img< UnsignedByteType > img;
+
+	private static List< RealMaskRealInterval > masks;
+
+	private static LabelRegions< Integer > labelRegions;
+
+	@BeforeClass
+	public static void setUp()
+	{
+		final Random rand = new Random( 11 );
+		img = ArrayImgs.unsignedBytes( 80, 60 );
+		for ( final UnsignedByteType t : img )
+			t.set( rand.nextInt( 256 ) );
+
+		masks = new ArrayList<>();
+		for ( int i = 0; i < 30; ++i )
+		{
+			final double x = rand.nextDouble() * 90 - 5;
+			final double y = rand.nextDouble() * 70 - 5;
+			if ( i % 2 == 0 )
+				masks.add( GeomMasks.closedBox( new double[] { x, y }, new double[] { x + rand.nextDouble() * 20, y + rand.nextDouble() * 20 } ) );
+			else
+				masks.add( GeomMasks.closedEllipsoid( new double[] { x, y }, new double[] { 1 + rand.nextDouble() * 10, 1 + rand.nextDouble() * 10 } ) );
+		}
+
+		final ImgLabeling< Integer, IntType > labeling = new ImgLabeling<>( ArrayImgs.ints( 80, 60 ) );
+		final Cursor< LabelingType< Integer > > c = labeling.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final LabelingType< Integer > t = c.next();
+			t.add( ( int ) ( c.getLongPosition( 0 ) / 20 + 4 * ( c.getLongPosition( 1 ) / 15 ) ) );
+			if ( rand.nextInt( 5 ) == 0 )
+				t.add( 100 );
+		}
+		labelRegions = new LabelRegions<>( labeling );
+	}
+
+	private static RegionStatistics reference( final IterableInterval< Void > region )
+	{
+		final RegionStatistics stats = new RegionStatistics( 0, 255, 16 );
+		for ( final UnsignedByteType t : Regions.sample( region, img ) )
+			stats.add( t.getRealDouble() );
+		return stats;
+	}
+
+	private static void assertStatisticsEqual( final RegionStatistics expected, final RegionStatistics actual )
+	{
+		assertEquals( expected.getCount(), actual.getCount() );
+		assertEquals( expected.getSum(), actual.getSum(), 0 );
+		assertEquals( expected.getSumOfSquares(), actual.getSumOfSquares(), 0 );
+		assertEquals( expected.getMin(), actual.getMin(), 0 );
+		assertEquals( expected.getMax(), actual.getMax(), 0 );
+		assertArrayEquals( expected.getHistogram(), actual.getHistogram() );
+	}
+
+	private static MultiRegionMeasurement< UnsignedByteType > createMeasurement( final List< IterableInterval< Void > > expectedRegions )
+	{
+		final MultiRegionMeasurement< UnsignedByteType > measurement = new MultiRegionMeasurement<>( img );
+		measurement.setHistogram( 0, 255, 16 );
+		for ( final RealMaskRealInterval mask : masks )
+		{
+			measurement.add( mask );
+			expectedRegions.add( Regions.iterable( Views.interval( Masks.toIterableRegion( mask ), img ) ) );
+		}
+		for ( final LabelRegion< Integer > region : labelRegions )
+		{
+			measurement.add( region );
+			expectedRegions.add( region );
+		}
+		return measurement;
+	}
+
+	@Test
+	public void testMeasure()
+	{
+		final List< IterableInterval< Void > > expectedRegions = new ArrayList<>();
+		final MultiRegionMeasurement< UnsignedByteType > measurement = createMeasurement( expectedRegions );
+		assertEquals( expectedRegions.size(), measurement.numRegions() );
+
+		final List< RegionStatistics > results = measurement.measure();
+		for ( int i = 0; i < results.size(); ++i )
+			assertStatisticsEqual( reference( expectedRegions.get( i ) ), results.get( i ) );
+	}
+
+	@Test
+	public void testMeasureParallel()
+	{
+		final List< IterableInterval< Void > > expectedRegions = new ArrayList<>();
+		final MultiRegionMeasurement< UnsignedByteType > measurement = createMeasurement( expectedRegions );
+		final List< RegionStatistics > sequential = measurement.measure();
+		final List< RegionStatistics > parallel = measurement.measure( 7 );
+		for ( int i = 0; i < sequential.size(); ++i )
+		{
+			assertEquals( sequential.get( i ).getCount(), parallel.get( i ).getCount() );
+			assertEquals( sequential.get( i ).getSum(), parallel.get( i ).getSum(), 0 );
+			assertArrayEquals( sequential.get( i ).getHistogram(), parallel.get( i ).getHistogram() );
+		}
+	}
+
+	@Test
+	public void testStatistics()
+	{
+		final RegionStatistics stats = new RegionStatistics( 0, 10, 5 );
+		for ( final double v : new double[] { 1, 2, 3, 4, 10, 11 } )
+			stats.add( v );
+		assertEquals( 6, stats.getCount() );
+		assertEquals( 31.0 / 6, stats.getMean(), 1e-12 );
+		assertEquals( 1, stats.getMin(), 0 );
+		assertEquals( 11, stats.getMax(), 0 );
+		assertArrayEquals( new long[] { 1, 2, 1, 0, 1 }, stats.getHistogram() );
+
+		final double mean = 31.0 / 6;
+		double ss = 0;
+		for ( final double v : new double[] { 1, 2, 3, 4, 10, 11 } )
+			ss += ( v - mean ) * ( v - mean );
+		assertEquals( ss / 5, stats.getVariance(), 1e-9 );
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BoundsTree}.
+ */
+public class BoundsTreeTest
+{
+	@Test
+	public void testEmpty()
+	{
+		final BoundsTree tree = new BoundsTree( 2, 5 );
+		assertEquals( 5, tree.size() );
+		assertEquals( Double.POSITIVE_INFINITY, tree.min( 0 ), 0 );
+		assertEquals( Double.NEGATIVE_INFINITY, tree.max( 1 ), 0 );
+
+		final BoundsTree none = new BoundsTree( 2 );
+		assertEquals( Double.POSITIVE_INFINITY, none.min( 1 ), 0 );
+		assertEquals( Double.NEGATIVE_INFINITY, none.max( 0 ), 0 );
+	}
+
+	@Test
+	public void testSingleEntry()
+	{
+		final BoundsTree tree = new BoundsTree( 2 );
+		tree.insert( 0, new double[] { 3, -4 } );
+		assertEquals( 3, tree.min( 0 ), 0 );
+		assertEquals( 3, tree.max( 0 ), 0 );
+		assertEquals( -4, tree.min( 1 ), 0 );
+		assertEquals( -4, tree.max( 1 ), 0 );
+
+		tree.set( 0, new double[] { 1, 2 }, new double[] { 5, 6 } );
+		assertEquals( 1, tree.min( 0 ), 0 );
+		assertEquals( 6, tree.max( 1 ), 0 );
+
+		tree.remove( 0 );
+		assertEquals( 0, tree.size() );
+		assertEquals( Double.POSITIVE_INFINITY, tree.min( 0 ), 0 );
+	}
+
+	@Test
+	public void testRandomEdits()
+	{
+		final Random random = new Random( 42 );
+		final int n = 3;
+		final BoundsTree tree = new BoundsTree( n );
+		final List< double[] > entries = new ArrayList<>();
+		for ( int i = 0; i < 2000; i++ )
+		{
+			final double[] p = new double[ n ];
+			for ( int d = 0; d < n; d++ )
+				p[ d ] = random.nextGaussian() * 100;
+			final int op = random.nextInt( 6 );
+			if ( entries.isEmpty() || op < 2 )
+			{
+				final int index = random.nextInt( entries.size() + 1 );
+				entries.add( index, p );
+				tree.insert( index, p );
+			}
+			else if ( op == 2 )
+			{
+				final int index = random.nextInt( entries.size() );
+				entries.remove( index );
+				tree.remove( index );
+			}
+			else if ( op == 3 )
+			{
+				final int index = random.nextInt( entries.size() );
+				entries.set( index, null );
+				tree.clear( index );
+			}
+			else if ( op == 4 )
+			{
+				final int index = random.nextInt( entries.size() );
+				entries.set( index, p );
+				tree.set( index, p );
+			}
+			else
+			{
+				// bulk update
+				final int index = random.nextInt( entries.size() );
+				final int count = Math.min( entries.size() - index, 10 );
+				for ( int j = index; j < index + count; j++ )
+				{
+					final double[] q = p.clone();
+					q[ 0 ] += j;
+					entries.set( j, q );
+					tree.setQuick( j, q );
+				}
+				tree.update();
+			}
+			assertEquals( entries.size(), tree.size() );
+			assertBounds( entries, tree );
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void assertBounds( final List< double[] > entries, final BoundsTree tree )
+	{
+		for ( int d = 0; d < tree.numDimensions(); d++ )
+		{
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for ( final double[] p : entries )
+				if ( p != null )
+				{
+					min = Math.min( min, p[ d ] );
+					max = Math.max( max, p[ d ] );
+				}
+			assertEquals( min, tree.min( d ), 0 );
+			assertEquals( max, tree.max( d ), 0 );
+		}
+	}
+}
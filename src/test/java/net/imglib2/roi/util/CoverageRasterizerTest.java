@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.RealMask;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.WritablePolygon2D;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link CoverageRasterizer}.
+ */
+public class CoverageRasterizerTest
+{
+	@Test
+	public void testUnitCircleRectangleArea()
+	{
+		assertEquals( Math.PI, CoverageRasterizer.unitCircleRectangleArea( -2, 2, -2, 2 ), 1e-12 );
+		assertEquals( Math.PI / 4, CoverageRasterizer.unitCircleRectangleArea( 0, 1, 0, 1 ), 1e-12 );
+		assertEquals( Math.PI / 2, CoverageRasterizer.unitCircleRectangleArea( -1, 1, -3, 0 ), 1e-12 );
+		assertEquals( 0.25, CoverageRasterizer.unitCircleRectangleArea( -0.25, 0.25, -0.25, 0.25 ), 1e-12 );
+		assertEquals( 0, CoverageRasterizer.unitCircleRectangleArea( 0.8, 1, 0.8, 1 ), 1e-12 );
+	}
+
+	@Test
+	public void testBox()
+	{
+		final RealMaskRealInterval box = GeomMasks.closedBox( new double[] { 0.2, -1 }, new double[] { 3.7, 1.25 } );
+		final RandomAccessibleInterval< DoubleType > coverage = CoverageRasterizer.rasterize( box );
+		assertTrue( Intervals.equals( new FinalInterval( new long[] { 0, -1 }, new long[] { 4, 1 } ), coverage ) );
+		assertEquals( 3.5 * 2.25, sum( coverage ), 1e-12 );
+		assertEquals( 0.3 * 0.5, value( coverage, 0, -1 ), 1e-12 );
+		assertEquals( 1, value( coverage, 2, 0 ), 1e-12 );
+		assertEquals( 0.2 * 0.75, value( coverage, 4, 1 ), 1e-12 );
+		assertMatchesSampling( box, coverage, 0.02 );
+	}
+
+	@Test
+	public void testEllipse()
+	{
+		final RealMaskRealInterval circle = GeomMasks.closedSphere( new double[] { 2.3, -1.6 }, 4.1 );
+		final RandomAccessibleInterval< DoubleType > circleCoverage = CoverageRasterizer.rasterize( circle );
+		assertEquals( Math.PI * 4.1 * 4.1, sum( circleCoverage ), 1e-9 );
+		assertMatchesSampling( circle, circleCoverage, 0.02 );
+
+		final RealMaskRealInterval ellipse = GeomMasks.openEllipsoid( new double[] { 0, 0.5 }, new double[] { 6.2, 2.9 } );
+		final RandomAccessibleInterval< DoubleType > ellipseCoverage = CoverageRasterizer.rasterize( ellipse );
+		assertEquals( Math.PI * 6.2 * 2.9, sum( ellipseCoverage ), 1e-9 );
+		assertMatchesSampling( ellipse, ellipseCoverage, 0.02 );
+	}
+
+	@Test
+	public void testPolygon()
+	{
+		// triangle with area 0.5 * 9.5 * 6.25
+		final RealMaskRealInterval triangle = GeomMasks.polygon2D( new double[] { 0.3, 9.8, 4.1 }, new double[] { -0.2, -0.2, 6.05 } );
+		final RandomAccessibleInterval< DoubleType > coverage = CoverageRasterizer.rasterize( triangle );
+		assertEquals( 0.5 * 9.5 * 6.25, sum( coverage ), 1e-9 );
+		assertMatchesSampling( triangle, coverage, 0.02 );
+
+		// clockwise, non-convex, and partially outside the interval
+		final RealMaskRealInterval arrow = GeomMasks.polygon2D( new double[] { -4, 3, 10.5, 3 }, new double[] { -3.5, 2.2, -3.5, 12 } );
+		final Interval interval = Intervals.createMinMax( 0, 0, 6, 5 );
+		final RandomAccessibleInterval< DoubleType > clipped = CoverageRasterizer.rasterize( arrow, interval );
+		assertTrue( Intervals.equals( interval, clipped ) );
+		assertMatchesSampling( arrow, clipped, 0.02 );
+	}
+
+	@Test
+	public void testSelfIntersectingPolygon()
+	{
+		// pentagram, whose center is outside by the even-odd rule
+		final double[] x = new double[ 5 ];
+		final double[] y = new double[ 5 ];
+		for ( int k = 0; k < 5; k++ )
+		{
+			final double angle = Math.PI / 2 + k * 4 * Math.PI / 5;
+			x[ k ] = 10 + 8 * Math.cos( angle );
+			y[ k ] = 10 + 8 * Math.sin( angle );
+		}
+		final WritablePolygon2D star = GeomMasks.polygon2D( x, y );
+		assertFalse( CoverageRasterizer.isSimple( star ) );
+		assertFalse( star.test( new RealPoint( 10.0, 10.0 ) ) );
+
+		final RandomAccessibleInterval< DoubleType > coverage = CoverageRasterizer.rasterize( star );
+		final RandomAccess< DoubleType > center = coverage.randomAccess();
+		center.setPosition( new long[] { 10, 10 } );
+		assertEquals( 0, center.get().get(), 1e-9 );
+		assertMatchesSampling( star, coverage, 0.02 );
+
+		// NB: touching adjacent edges are fine, folding back is not
+		assertTrue( CoverageRasterizer.isSimple( GeomMasks.polygon2D( new double[] { 0, 4, 4, 0 }, new double[] { 0, 0, 4, 4 } ) ) );
+		assertFalse( CoverageRasterizer.isSimple( GeomMasks.polygon2D( new double[] { 0, 4, 2, 2 }, new double[] { 0, 0, 0, 4 } ) ) );
+	}
+
+	@Test
+	public void testAdaptive()
+	{
+		// 3D spheres are sampled adaptively
+		final RealMaskRealInterval sphere = GeomMasks.closedSphere( new double[] { 0.5, 0.25, -1 }, 6 );
+		final RandomAccessibleInterval< DoubleType > sphereCoverage = CoverageRasterizer.rasterize( sphere );
+		assertEquals( 4.0 / 3 * Math.PI * 6 * 6 * 6, sum( sphereCoverage ), 5 );
+
+		final RealMask ring = GeomMasks.closedSphere( new double[] { 0, 0 }, 8 ).minus( GeomMasks.openSphere( new double[] { 0, 0 }, 3.5 ) );
+		final Interval interval = Intervals.createMinMax( -9, -9, 9, 9 );
+		final RandomAccessibleInterval< DoubleType > ringCoverage = CoverageRasterizer.rasterize( ring, interval );
+		assertEquals( Math.PI * ( 8 * 8 - 3.5 * 3.5 ), sum( ringCoverage ), 0.5 );
+		assertMatchesSampling( ring, ringCoverage, 0.05 );
+
+		final RandomAccessibleInterval< DoubleType > exact = CoverageRasterizer.rasterize( GeomMasks.closedSphere( new double[] { 0, 0 }, 8 ), interval );
+		final RandomAccessibleInterval< DoubleType > sampled = CoverageRasterizer.rasterize( GeomMasks.closedSphere( new double[] { 0, 0 }, 8 ), interval, 6 );
+		final Cursor< DoubleType > c = Views.flatIterable( exact ).cursor();
+		final Cursor< DoubleType > s = Views.flatIterable( sampled ).cursor();
+		while ( c.hasNext() )
+			assertEquals( c.next().get(), s.next().get(), 0.02 );
+	}
+
+	// -- Helper methods --
+
+	private static double sum( final RandomAccessibleInterval< DoubleType > coverage )
+	{
+		double sum = 0;
+		for ( final DoubleType t : Views.flatIterable( coverage ) )
+			sum += t.get();
+		return sum;
+	}
+
+	private static double value( final RandomAccessibleInterval< DoubleType > coverage, final long... position )
+	{
+		final RandomAccess< DoubleType > ra = coverage.randomAccess();
+		ra.setPosition( position );
+		return ra.get().get();
+	}
+
+	/**
+	 * Compares each pixel with the fraction of 64 x 64 samples inside the
+	 * mask.
+	 */
+	private static void assertMatchesSampling( final RealMask mask, final RandomAccessibleInterval< DoubleType > coverage, final double tolerance )
+	{
+		final int k = 64;
+		final RealPoint p = new RealPoint( 2 );
+		final Cursor< DoubleType > c = Views.flatIterable( coverage ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			final double value = c.next().get();
+			int inside = 0;
+			for ( int i = 0; i < k; i++ )
+				for ( int j = 0; j < k; j++ )
+				{
+					p.setPosition( c.getDoublePosition( 0 ) - 0.5 + ( i + 0.5 ) / k, 0 );
+					p.setPosition( c.getDoublePosition( 1 ) - 0.5 + ( j + 0.5 ) / k, 1 );
+					if ( mask.test( p ) )
+						inside++;
+				}
+			assertEquals( ( double ) inside / ( k * k ), value, tolerance );
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelRegions;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+
+/**
+ * Tests {@link CursorSpliterator} and the parallel helpers in {@link Regions}.
+ */
+public class CursorSpliteratorTest
+{
+	private static Img< IntType > img;
+
+	private static IterableInterval< Void > region;
+
+	@BeforeClass
+	public static void setUp()
+	{
+		img = ArrayImgs.ints( 200, 150 );
+		final Random rand = new Random( 42 );
+		for ( final IntType t : img )
+			t.set( rand.nextInt( 100 ) );
+
+		final ImgLabeling< Integer, IntType > labeling = new ImgLabeling<>( ArrayImgs.ints( 200, 150 ) );
+		final Cursor< LabelingType< Integer > > c = labeling.cursor();
+		while ( c.hasNext() )
+		{
+			final LabelingType< Integer > t = c.next();
+			if ( rand.nextInt( 4 ) != 0 )
+				t.add( 1 );
+		}
+		region = new LabelRegions<>( labeling ).getLabelRegion( 1 );
+	}
+
+	private static long sequentialSum()
+	{
+		long sum = 0;
+		for ( final IntType t : Regions.sample( region, img ) )
+			sum += t.get();
+		return sum;
+	}
+
+	@Test
+	public void testParallelStream()
+	{
+		final long sum = Regions.stream( Regions.sample( region, img ), true ).mapToLong( IntType::get ).sum();
+		assertEquals( sequentialSum(), sum );
+		assertEquals( region.size(), Regions.stream( region, true ).count() );
+	}
+
+	@Test
+	public void testParallelForEach()
+	{
+		final LongAdder sum = new LongAdder();
+		final LongAdder count = new LongAdder();
+		Regions.parallelForEach( Regions.sample( region, img ), 100, c -> {
+			sum.add( c.get().get() );
+			count.increment();
+		} );
+		assertEquals( sequentialSum(), sum.sum() );
+		assertEquals( region.size(), count.sum() );
+	}
+
+	@Test
+	public void testSplitPositions()
+	{
+		final CursorSpliterator< Void > prefix = new CursorSpliterator<>( region, 0, region.size(), true );
+		final CursorSpliterator< Void > suffix = new CursorSpliterator<>( region, 0, region.size(), true );
+		final CursorSpliterator< Void > split = suffix.trySplit();
+		assertNotNull( split );
+		assertEquals( region.size(), split.estimateSize() + suffix.estimateSize() );
+
+		final long[] expected = new long[ 2 ];
+		final long[] actual = new long[ 2 ];
+		final Cursor< Void > ref = region.localizingCursor();
+		ref.jumpFwd( split.estimateSize() + 1 );
+		ref.localize( expected );
+		suffix.forEachRemainingCursor( c -> {
+			if ( actual[ 0 ] == 0 && actual[ 1 ] == 0 )
+				c.localize( actual );
+		} );
+		assertArrayEquals( expected, actual );
+		assertEquals( 0, suffix.estimateSize() );
+		assertEquals( region.size(), prefix.estimateSize() );
+	}
+
+	@Test
+	public void testIterationCodeJumpFwd()
+	{
+		final IterableInterval< Void > r = region;
+		final Cursor< Void > stepped = r.cursor();
+		final Cursor< Void > jumped = r.cursor();
+		final long[] expected = new long[ 2 ];
+		final long[] actual = new long[ 2 ];
+		long index = 0;
+		for ( long steps = 1; index + steps <= r.size(); steps += 97 )
+		{
+			for ( long i = 0; i < steps; ++i )
+				stepped.fwd();
+			jumped.jumpFwd( steps );
+			index += steps;
+			stepped.localize( expected );
+			jumped.localize( actual );
+			assertArrayEquals( expected, actual );
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.util.FusedSampler.Channel;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Tests {@link FusedSampler}.
+ */
+public class FusedSamplerTest
+{
+	private static IterableInterval< Void > region;
+
+	private static Img< IntType > channel0;
+
+	private static Img< IntType > channel1;
+
+	private static Img< FloatType > weights;
+
+	@BeforeClass
+	public static void setUp()
+	{
+		final Random rand = new Random( 3 );
+		final Img< BitType > mask = ArrayImgs.bits( 64, 48 );
+		for ( final BitType t : mask )
+			t.set( rand.nextInt( 3 ) != 0 );
+		region = Regions.iterable( mask );
+
+		channel0 = ArrayImgs.ints( 64, 48 );
+		channel1 = ArrayImgs.ints( 64, 48 );
+		weights = ArrayImgs.floats( 64, 48 );
+		for ( final IntType t : channel0 )
+			t.set( rand.nextInt( 1000 ) );
+		for ( final IntType t : channel1 )
+			t.set( rand.nextInt( 1000 ) );
+		for ( final FloatType t : weights )
+			t.set( rand.nextFloat() );
+	}
+
+	private static double expectedWeightedSum()
+	{
+		double sum = 0;
+		final RandomAccess< IntType > a0 = channel0.randomAccess();
+		final RandomAccess< IntType > a1 = channel1.randomAccess();
+		final RandomAccess< FloatType > w = weights.randomAccess();
+		final Cursor< Void > c = region.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			a0.setPosition( c );
+			a1.setPosition( c );
+			w.setPosition( c );
+			sum += w.get().get() * ( a0.get().get() - a1.get().get() );
+		}
+		return sum;
+	}
+
+	@Test
+	public void testForEach()
+	{
+		final FusedSampler sampler = new FusedSampler( region );
+		final Channel< IntType > c0 = sampler.add( channel0 );
+		final Channel< IntType > c1 = sampler.add( channel1 );
+		final Channel< FloatType > w = sampler.add( weights );
+		assertEquals( 3, sampler.numChannels() );
+
+		final double[] sum = new double[ 1 ];
+		final long[] count = new long[ 1 ];
+		sampler.forEach( s -> {
+			sum[ 0 ] += s.get( w ).get() * ( s.get( c0 ).get() - s.get( c1 ).get() );
+			++count[ 0 ];
+		} );
+		assertEquals( region.size(), count[ 0 ] );
+		assertEquals( expectedWeightedSum(), sum[ 0 ], 1e-6 );
+	}
+
+	@Test
+	public void testPositions()
+	{
+		final FusedSampler sampler = new FusedSampler( region );
+		final Channel< IntType > c0 = sampler.add( channel0 );
+		final RandomAccess< IntType > a0 = channel0.randomAccess();
+		sampler.forEach( s -> {
+			a0.setPosition( s );
+			assertEquals( a0.get().get(), s.get( c0 ).get() );
+		} );
+	}
+
+	@Test
+	public void testParallelForEach()
+	{
+		final FusedSampler sampler = new FusedSampler( region );
+		final Channel< IntType > c0 = sampler.add( channel0 );
+		final Channel< IntType > c1 = sampler.add( channel1 );
+		final Channel< FloatType > w = sampler.add( weights );
+
+		final DoubleAdder sum = new DoubleAdder();
+		final LongAdder count = new LongAdder();
+		sampler.parallelForEach( s -> {
+			sum.add( s.get( w ).get() * ( s.get( c0 ).get() - s.get( c1 ).get() ) );
+			count.increment();
+		} );
+		assertEquals( region.size(), count.sum() );
+		assertEquals( expectedWeightedSum(), sum.sum(), 1e-3 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testForeignChannel()
+	{
+		final FusedSampler sampler = new FusedSampler( region );
+		sampler.add( channel0 );
+		final Channel< IntType > foreign = new FusedSampler( region ).add( channel1 );
+		sampler.forEach( s -> s.get( foreign ) );
+	}
+}
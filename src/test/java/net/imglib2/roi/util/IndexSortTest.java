@@ -0,0 +1,80 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link IndexSort}.
+ */
+public class IndexSortTest
+{
+	@Test
+	public void testRandom()
+	{
+		final Random random = new Random( 42 );
+		for ( final int size : new int[] { 0, 1, 15, 16, 17, 100, 1000, 4097 } )
+		{
+			final long[] keys = new long[ size ];
+			for ( int i = 0; i < size; ++i )
+				keys[ i ] = random.nextInt( 50 );
+			final int[] order = IndexSort.sort( size, ( i, j ) -> Long.compare( keys[ i ], keys[ j ] ) );
+
+			final Integer[] expected = new Integer[ size ];
+			for ( int i = 0; i < size; ++i )
+				expected[ i ] = i;
+			// NB: Arrays.sort of objects is stable, too
+			Arrays.sort( expected, Comparator.comparingLong( i -> keys[ i ] ) );
+			assertEquals( size, order.length );
+			for ( int i = 0; i < size; ++i )
+				assertEquals( expected[ i ].intValue(), order[ i ] );
+		}
+	}
+
+	@Test
+	public void testSortInPlace()
+	{
+		final int[] indices = { 4, 1, 3 };
+		final double[] keys = { 0, 2, 0, 1, 2 };
+		IndexSort.sort( indices, ( i, j ) -> Double.compare( keys[ i ], keys[ j ] ) );
+		assertArrayEquals( new int[] { 3, 4, 1 }, indices );
+	}
+}
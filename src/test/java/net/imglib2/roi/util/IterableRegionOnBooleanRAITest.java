@@ -164,4 +164,49 @@ public class IterableRegionOnBooleanRAITest
 		exception.expect( NoSuchElementException.class );
 		empty.firstElement();
 	}
+
+	@Test
+	public void testCachedRunsCursorNext()
+	{
+		final IterableRegionOnBooleanRAI< BitType > cached = new IterableRegionOnBooleanRAI<>( img, true );
+		assertEquals( ir.size(), cached.size() );
+
+		final Cursor< Void > irC = ir.cursor();
+		final Cursor< Void > cachedC = cached.cursor();
+		while ( irC.hasNext() )
+		{
+			irC.next();
+			cachedC.next();
+			assertEquals( irC.getLongPosition( 0 ), cachedC.getLongPosition( 0 ) );
+			assertEquals( irC.getLongPosition( 1 ), cachedC.getLongPosition( 1 ) );
+		}
+		assertTrue( !cachedC.hasNext() );
+	}
+
+	@Test
+	public void testCachedRunsJumpFwd()
+	{
+		final IterableRegion< BitType > cached = Regions.iterableCached( img );
+		final Cursor< Void > irC = ir.cursor();
+		final Cursor< Void > cachedC = cached.cursor();
+		final long steps = cached.size() / 3;
+		irC.jumpFwd( steps );
+		cachedC.jumpFwd( steps );
+		assertEquals( irC.getLongPosition( 0 ), cachedC.getLongPosition( 0 ) );
+		assertEquals( irC.getLongPosition( 1 ), cachedC.getLongPosition( 1 ) );
+	}
+
+	@Test
+	public void testCachedRunsInvalidate()
+	{
+		final Img< BitType > source = ArrayImgs.bits( 5, 4 );
+		final IterableRegionOnBooleanRAI< BitType > cached = new IterableRegionOnBooleanRAI<>( source, true );
+		assertEquals( 0, cached.size() );
+
+		source.firstElement().set( true );
+		assertEquals( 0, cached.size() );
+		cached.invalidate();
+		assertEquals( 1, cached.size() );
+		assertTrue( cached.cursor().hasNext() );
+	}
 }
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PerThread}.
+ */
+public class PerThreadTest
+{
+	@Test
+	public void testInstancePerThread() throws InterruptedException
+	{
+		final AtomicInteger created = new AtomicInteger();
+		final PerThread< Object > perThread = new PerThread<>( () -> {
+			created.incrementAndGet();
+			return new Object();
+		} );
+
+		final Object mine = perThread.get();
+		assertSame( mine, perThread.get() );
+
+		final AtomicReference< Object > other = new AtomicReference<>();
+		final Thread thread = new Thread( () -> {
+			final Object o = perThread.get();
+			if ( o == perThread.get() )
+				other.set( o );
+		} );
+		thread.start();
+		thread.join();
+
+		assertNotSame( mine, other.get() );
+		assertSame( mine, perThread.get() );
+		assertEquals( 2, created.get() );
+	}
+
+	@Test
+	public void testReclaimTerminatedThread() throws InterruptedException
+	{
+		final AtomicInteger created = new AtomicInteger();
+		final PerThread< Integer > perThread = new PerThread<>( created::incrementAndGet, 1 );
+
+		final Thread thread = new Thread( perThread::get );
+		thread.start();
+		thread.join();
+
+		// NB: the only slot belonged to the terminated thread
+		final Integer mine = perThread.get();
+		assertEquals( 2, mine.intValue() );
+		assertSame( mine, perThread.get() );
+		assertEquals( 2, created.get() );
+	}
+
+	@Test
+	public void testFullTable() throws InterruptedException
+	{
+		final AtomicInteger created = new AtomicInteger();
+		final PerThread< Integer > perThread = new PerThread<>( created::incrementAndGet, 1 );
+		perThread.get();
+
+		// NB: the other threads are alive while they take their instances
+		final int numThreads = 5;
+		final CountDownLatch taken = new CountDownLatch( numThreads );
+		final CountDownLatch done = new CountDownLatch( 1 );
+		final AtomicInteger mismatches = new AtomicInteger();
+		final Thread[] threads = new Thread[ numThreads ];
+		for ( int t = 0; t < numThreads; t++ )
+		{
+			threads[ t ] = new Thread( () -> {
+				final Integer first = perThread.get();
+				taken.countDown();
+				try
+				{
+					done.await();
+				}
+				catch ( final InterruptedException e )
+				{
+					Thread.currentThread().interrupt();
+				}
+				if ( perThread.get() != first )
+					mismatches.incrementAndGet();
+			} );
+			threads[ t ].start();
+		}
+		taken.await();
+		done.countDown();
+		for ( final Thread thread : threads )
+			thread.join();
+
+		assertEquals( 0, mismatches.get() );
+		assertEquals( 1 + numThreads, created.get() );
+		assertEquals( Integer.valueOf( 1 ), perThread.get() );
+		assertEquals( 1 + numThreads, created.get() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testInvalidCapacity()
+	{
+		new PerThread<>( Object::new, 0 );
+	}
+}
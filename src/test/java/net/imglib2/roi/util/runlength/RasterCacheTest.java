@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Masks;
+import net.imglib2.roi.RealMask;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.WritableBox;
+import net.imglib2.roi.geom.real.WritableSphere;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.type.logic.BoolType;
+
+/**
+ * Tests {@link RasterCache} and {@link RunLengthRegions#fromRealMask}.
+ */
+public class RasterCacheTest
+{
+	@Test
+	public void testFromRealMask()
+	{
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 4.3, 5, -2 }, 6.5 );
+		final RealMaskRealInterval mask = sphere.minus( GeomMasks.openBox( new double[] { 0, 0, 0 }, new double[] { 20, 3, 5 } ) );
+		final IterableRegion< BoolType > expected = Masks.toIterableRegion( mask );
+		final RunLengthRegion region = RunLengthRegions.fromRealMask( mask );
+
+		assertEquals( Regions.countTrue( expected ), region.size() );
+		final Cursor< Void > c = expected.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			assertTrue( region.test( c ) );
+		}
+	}
+
+	@Test
+	public void testInvalidation()
+	{
+		final RasterCache cache = new RasterCache( 1 << 20 );
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 5, 5 }, 3 );
+		final RealMaskRealInterval mask = box.minus( sphere );
+
+		final RunLengthRegion first = cache.get( mask );
+		assertSame( first, cache.get( mask ) );
+		assertEquals( 1, cache.size() );
+
+		sphere.center().setPosition( new double[] { 0, 0 } );
+		final RunLengthRegion second = cache.get( mask );
+		assertNotSame( first, second );
+		assertEquals( RunLengthRegions.fromRealMask( mask ).size(), second.size() );
+		assertSame( second, cache.get( mask ) );
+		assertEquals( 1, cache.size() );
+
+		// NB: a different sampling grid is a different entry
+		final RunLengthRegion shifted = cache.get( mask, new FinalInterval( new long[] { 5, 5 }, new long[] { 20, 20 } ) );
+		assertEquals( 36, shifted.size() );
+		assertEquals( 2, cache.size() );
+
+		cache.invalidate( mask );
+		assertEquals( 0, cache.size() );
+		assertEquals( 0, cache.sizeInBytes() );
+	}
+
+	@Test
+	public void testUntrackedOperand()
+	{
+		final RasterCache cache = new RasterCache( 1 << 20 );
+		final RealMask lambda = Masks.emptyRealMask( 2 ).negate();
+		final RealMaskRealInterval mask = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } ).and( lambda );
+
+		assertEquals( 121, cache.get( mask ).size() );
+		assertEquals( 0, cache.size() );
+	}
+
+	@Test
+	public void testPredicateMask()
+	{
+		final RasterCache cache = new RasterCache( 1 << 20 );
+		final boolean[] on = { true };
+		final MaskInterval mask = new DefaultMaskInterval( new FinalInterval( 10, 10 ), BoundaryType.UNSPECIFIED, p -> on[ 0 ], KnownConstant.UNKNOWN );
+
+		assertEquals( 100, cache.get( mask ).size() );
+		on[ 0 ] = false;
+		assertEquals( 0, cache.get( mask ).size() );
+		assertEquals( 0, cache.size() );
+	}
+
+	@Test
+	public void testEviction()
+	{
+		final RealMaskRealInterval[] masks = new RealMaskRealInterval[ 4 ];
+		for ( int i = 0; i < masks.length; i++ )
+			masks[ i ] = GeomMasks.closedSphere( new double[] { 0, 0 }, 10 + i );
+
+		final long entryBytes = RunLengthRegions.fromRealMask( masks[ 3 ] ).sizeInBytes() + 128;
+		final RasterCache cache = new RasterCache( 2 * entryBytes );
+		final RunLengthRegion first = cache.get( masks[ 0 ] );
+		cache.get( masks[ 1 ] );
+		assertSame( first, cache.get( masks[ 0 ] ) );
+		cache.get( masks[ 2 ] );
+
+		// NB: masks[ 1 ] was least recently used
+		assertEquals( 2, cache.size() );
+		assertSame( first, cache.get( masks[ 0 ] ) );
+		assertTrue( cache.sizeInBytes() <= 2 * entryBytes );
+
+		final RasterCache tiny = new RasterCache( 10 );
+		tiny.get( masks[ 0 ] );
+		assertEquals( 0, tiny.size() );
+	}
+
+	@Test
+	public void testDiscardedMask() throws InterruptedException
+	{
+		final RasterCache cache = new RasterCache( 1 << 20 );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 5, 5 }, 3 );
+		RealMaskRealInterval mask = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } ).minus( sphere );
+		cache.get( mask );
+		cache.get( sphere );
+		assertEquals( 2, cache.size() );
+
+		// NB: the cache must not keep the composite alive
+		final WeakReference< RealMaskRealInterval > ref = new WeakReference<>( mask );
+		mask = null;
+		for ( int i = 0; i < 100 && ref.get() != null; i++ )
+		{
+			System.gc();
+			Thread.sleep( 10 );
+		}
+		assertNull( ref.get() );
+		assertEquals( 1, cache.size() );
+		assertEquals( RunLengthRegions.fromRealMask( sphere ).sizeInBytes() + 128, cache.sizeInBytes() );
+	}
+}
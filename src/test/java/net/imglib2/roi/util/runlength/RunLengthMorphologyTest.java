@@ -0,0 +1,185 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.Point;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.util.Intervals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RunLengthMorphology} against brute-force morphology.
+ */
+public class RunLengthMorphologyTest
+{
+	@Test
+	public void testStructuringElements()
+	{
+		final RunLengthRegion box = RunLengthMorphology.box( 1, 2 );
+		assertEquals( 15, box.size() );
+		assertEquals( -1, box.min( 0 ) );
+		assertEquals( 2, box.max( 1 ) );
+
+		// radius 1 is the 4-neighborhood, resp. 6-neighborhood
+		assertEquals( 5, RunLengthMorphology.sphere( 2, 1 ).size() );
+		assertEquals( 7, RunLengthMorphology.sphere( 3, 1.2 ).size() );
+		assertEquals( 1, RunLengthMorphology.sphere( 3, 0 ).size() );
+	}
+
+	@Test
+	public void testDilateErode2D()
+	{
+		final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( randomImg( 1, 31, 23 ) );
+		for ( final RunLengthRegion se : Arrays.asList(
+				RunLengthMorphology.box( 1, 2 ),
+				RunLengthMorphology.sphere( 2, 2.5 ),
+				randomStructuringElement( 2, 2 ) ) )
+		{
+			assertMorphology( region, se );
+		}
+	}
+
+	@Test
+	public void testDilateErode3D()
+	{
+		final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( randomImg( 3, 13, 11, 9 ) );
+		for ( final RunLengthRegion se : Arrays.asList(
+				RunLengthMorphology.box( 1, 0, 1 ),
+				RunLengthMorphology.sphere( 3, 1.5 ),
+				randomStructuringElement( 4, 3 ) ) )
+		{
+			assertMorphology( region, se );
+		}
+	}
+
+	@Test
+	public void testOpenClose()
+	{
+		final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( randomImg( 5, 40, 30 ) );
+		final RunLengthRegion se = RunLengthMorphology.sphere( 2, 1.5 );
+		final RunLengthRegion opened = RunLengthMorphology.open( region, se );
+		final RunLengthRegion closed = RunLengthMorphology.close( region, se );
+		assertTrue( RunLengthRegions.difference( opened, region ).isEmpty() );
+		assertTrue( RunLengthRegions.difference( region, closed ).isEmpty() );
+		// opening and closing are idempotent
+		assertEquals( opened, RunLengthMorphology.open( opened, se ) );
+		assertEquals( closed, RunLengthMorphology.close( closed, se ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testEmptyStructuringElement()
+	{
+		RunLengthMorphology.dilate( RunLengthMorphology.box( 1, 1 ), RunLengthRegion.empty( 2 ) );
+	}
+
+	// -- Helper methods --
+
+	private static void assertMorphology( final RunLengthRegion region, final RunLengthRegion se )
+	{
+		final RunLengthRegion dilated = RunLengthMorphology.dilate( region, se );
+		final RunLengthRegion eroded = RunLengthMorphology.erode( region, se );
+		final List< long[] > offsets = new ArrayList<>();
+		final Cursor< Void > c = se.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final long[] offset = new long[ se.numDimensions() ];
+			c.localize( offset );
+			offsets.add( offset );
+		}
+
+		final int n = region.numDimensions();
+		final long[] pos = new long[ n ];
+		final long[] shifted = new long[ n ];
+		final IntervalIterator it = new IntervalIterator( Intervals.expand( region, 4 ) );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			it.localize( pos );
+			boolean any = false;
+			boolean all = true;
+			for ( final long[] offset : offsets )
+			{
+				for ( int d = 0; d < n; ++d )
+					shifted[ d ] = pos[ d ] - offset[ d ];
+				any |= region.test( Point.wrap( shifted ) );
+				for ( int d = 0; d < n; ++d )
+					shifted[ d ] = pos[ d ] + offset[ d ];
+				all &= region.test( Point.wrap( shifted ) );
+			}
+			assertEquals( any, dilated.test( it ) );
+			assertEquals( all, eroded.test( it ) );
+		}
+	}
+
+	/**
+	 * Random structuring element with several runs per line, which does not
+	 * necessarily contain the origin.
+	 */
+	private static RunLengthRegion randomStructuringElement( final long seed, final int n )
+	{
+		final Random random = new Random( seed );
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( n );
+		final long[] pos = new long[ n ];
+		for ( int i = 0; i < 6; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+				pos[ d ] = random.nextInt( 5 ) - 2;
+			builder.add( pos );
+		}
+		return builder.build();
+	}
+
+	private static Img< BitType > randomImg( final long seed, final long... dims )
+	{
+		final Img< BitType > img = ArrayImgs.bits( dims );
+		final Random random = new Random( seed );
+		for ( final BitType t : img )
+			t.set( random.nextInt( 4 ) > 0 );
+		return img;
+	}
+}
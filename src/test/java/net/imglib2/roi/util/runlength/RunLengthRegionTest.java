@@ -0,0 +1,343 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2017 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.runlength;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.geom.real.DefaultWritableRealPointCollection;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelRegion;
+import net.imglib2.roi.labeling.LabelRegions;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCodeBuilder;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.numeric.integer.IntType;
+
+/**
+ * Tests {@link RunLengthRegion}, {@link RunLengthRegionBuilder} and
+ * {@link RunLengthRegions}.
+ */
+public class RunLengthRegionTest
+{
+	private static Img< BitType > randomImg( final long seed, final long... dims )
+	{
+		final Img< BitType > img = ArrayImgs.bits( dims );
+		final Random rand = new Random( seed );
+		for ( final BitType t : img )
+			t.set( rand.nextInt( 3 ) == 0 );
+		return img;
+	}
+
+	private static void assertSameRegion( final Img< BitType > expected, final RunLengthRegion actual )
+	{
+		final RandomAccess< BoolType > ra = actual.randomAccess();
+		final Cursor< BitType > c = expected.localizingCursor();
+		final Cursor< Void > rc = actual.cursor();
+		long count = 0;
+		while ( c.hasNext() )
+		{
+			final boolean value = c.next().get();
+			ra.setPosition( c );
+			assertEquals( value, ra.get().get() );
+			assertEquals( value, actual.test( c ) );
+			if ( value )
+			{
+				++count;
+				assertTrue( rc.hasNext() );
+				rc.fwd();
+				for ( int d = 0; d < c.numDimensions(); ++d )
+					assertEquals( c.getLongPosition( d ), rc.getLongPosition( d ) );
+			}
+		}
+		assertFalse( rc.hasNext() );
+		assertEquals( count, actual.size() );
+	}
+
+	@Test
+	public void testFromBooleanRAI()
+	{
+		final Img< BitType > img = randomImg( 1, 17, 13, 5 );
+		final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( img );
+		assertSameRegion( img, region );
+		assertEquals( region, RunLengthRegions.fromIterable( Regions.iterable( img ) ) );
+		assertEquals( region, RunLengthRegions.fromBooleanRAI( Regions.iterable( img ) ) );
+	}
+
+	@Test
+	public void testFromMaskInterval()
+	{
+		final Img< BitType > img = randomImg( 2, 10, 11 );
+		final RandomAccess< BitType > ra = img.randomAccess();
+		final DefaultMaskInterval mask = new DefaultMaskInterval( img, BoundaryType.UNSPECIFIED, l -> {
+			ra.setPosition( l );
+			return ra.get().get();
+		}, KnownConstant.UNKNOWN );
+		assertSameRegion( img, RunLengthRegions.fromMaskInterval( mask ) );
+	}
+
+	@Test
+	public void testIterationCodeRoundTrip()
+	{
+		final Img< BitType > img = randomImg( 3, 20, 7, 4 );
+		final IterationCodeBuilder itcode = new IterationCodeBuilder( 3, 0 );
+		final Cursor< BitType > c = img.localizingCursor();
+		while ( c.hasNext() )
+			if ( c.next().get() )
+				itcode.add( c );
+		itcode.finish();
+
+		final RunLengthRegion region = RunLengthRegions.fromIterationCode( itcode );
+		assertSameRegion( img, region );
+
+		final IterationCode converted = region.toIterationCode();
+		assertEquals( itcode.getSize(), converted.getSize() );
+		assertArrayEquals( itcode.getBoundingBoxMin(), converted.getBoundingBoxMin() );
+		assertArrayEquals( itcode.getBoundingBoxMax(), converted.getBoundingBoxMax() );
+		assertEquals( region, RunLengthRegions.fromIterationCode( converted ) );
+	}
+
+	@Test
+	public void testFromLabelRegion()
+	{
+		final Img< IntType > indexImg = ArrayImgs.ints( 12, 9 );
+		final ImgLabeling< Integer, IntType > labeling = new ImgLabeling<>( indexImg );
+		final Random rand = new Random( 4 );
+		final Cursor< LabelingType< Integer > > c = labeling.cursor();
+		while ( c.hasNext() )
+		{
+			final int label = rand.nextInt( 3 );
+			if ( label > 0 )
+				c.next().add( label );
+			else
+				c.fwd();
+		}
+
+		for ( final LabelRegion< Integer > labelRegion : new LabelRegions<>( labeling ) )
+		{
+			final RunLengthRegion region = labelRegion.toRunLengthRegion();
+			assertEquals( labelRegion.size(), region.size() );
+			assertEquals( RunLengthRegions.fromIterable( labelRegion ), region );
+			final Cursor< Void > lc = labelRegion.cursor();
+			while ( lc.hasNext() )
+			{
+				lc.fwd();
+				assertTrue( region.test( lc ) );
+			}
+		}
+	}
+
+	@Test
+	public void testSetOperations()
+	{
+		final Img< BitType > imgA = randomImg( 5, 19, 8, 3 );
+		final Img< BitType > imgB = randomImg( 6, 19, 8, 3 );
+		final RunLengthRegion a = RunLengthRegions.fromBooleanRAI( imgA );
+		final RunLengthRegion b = RunLengthRegions.fromBooleanRAI( imgB );
+
+		final Img< BitType > and = ArrayImgs.bits( 19, 8, 3 );
+		final Img< BitType > or = ArrayImgs.bits( 19, 8, 3 );
+		final Img< BitType > minus = ArrayImgs.bits( 19, 8, 3 );
+		final Img< BitType > xor = ArrayImgs.bits( 19, 8, 3 );
+		final Cursor< BitType > ca = imgA.cursor();
+		final Cursor< BitType > cb = imgB.cursor();
+		final Cursor< BitType > cAnd = and.cursor();
+		final Cursor< BitType > cOr = or.cursor();
+		final Cursor< BitType > cMinus = minus.cursor();
+		final Cursor< BitType > cXor = xor.cursor();
+		while ( ca.hasNext() )
+		{
+			final boolean va = ca.next().get();
+			final boolean vb = cb.next().get();
+			cAnd.next().set( va && vb );
+			cOr.next().set( va || vb );
+			cMinus.next().set( va && !vb );
+			cXor.next().set( va ^ vb );
+		}
+
+		assertSameRegion( and, a.and( b ) );
+		assertSameRegion( or, a.or( b ) );
+		assertSameRegion( minus, a.minus( b ) );
+		assertSameRegion( xor, a.xor( b ) );
+		assertEquals( RunLengthRegions.fromBooleanRAI( or ), a.or( b ) );
+	}
+
+	@Test
+	public void testUnionOfMany()
+	{
+		final List< RunLengthRegion > regions = new ArrayList<>();
+		final RunLengthRegionBuilder expected = new RunLengthRegionBuilder( 2 );
+		final Random rand = new Random( 7 );
+		for ( int i = 0; i < 50; ++i )
+		{
+			final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( 2 );
+			final long[] start = { rand.nextInt( 100 ) - 50, rand.nextInt( 20 ) - 10 };
+			final long maxX = start[ 0 ] + rand.nextInt( 10 );
+			builder.addRun( start, maxX );
+			expected.addRun( start, maxX );
+			regions.add( builder.build() );
+		}
+		assertEquals( expected.build(), RunLengthRegions.union( regions ) );
+	}
+
+	@Test
+	public void testBuilderUnsortedInput()
+	{
+		final RunLengthRegionBuilder builder = new RunLengthRegionBuilder( 2 );
+		builder.add( new Point( 5, 1 ) );
+		builder.add( new Point( 3, 0 ) );
+		builder.add( new Point( 4, 1 ) );
+		builder.add( new Point( 4, 0 ) );
+		builder.add( new Point( 4, 0 ) );
+		builder.add( new Point( 9, 1 ) );
+		builder.add( new Point( 6, 1 ) );
+		final RunLengthRegion region = builder.build();
+
+		assertEquals( 2, region.numLines() );
+		assertEquals( 3, region.numRuns() );
+		assertEquals( 6, region.size() );
+		assertEquals( 3, region.min( 0 ) );
+		assertEquals( 9, region.max( 0 ) );
+		assertEquals( 0, region.min( 1 ) );
+		assertEquals( 1, region.max( 1 ) );
+		assertTrue( region.test( new Point( 6, 1 ) ) );
+		assertFalse( region.test( new Point( 7, 1 ) ) );
+	}
+
+	@Test
+	public void testJumpFwd()
+	{
+		final Img< BitType > img = randomImg( 8, 31, 17 );
+		final RunLengthRegion region = RunLengthRegions.fromBooleanRAI( img );
+		final Cursor< Void > ref = region.cursor();
+		final long[] expected = new long[ 2 ];
+		final long[] actual = new long[ 2 ];
+		for ( long steps = 1; steps < region.size(); steps += 13 )
+		{
+			ref.reset();
+			for ( long i = 0; i < steps; ++i )
+				ref.fwd();
+			ref.localize( expected );
+
+			final Cursor< Void > c = region.cursor();
+			c.jumpFwd( steps );
+			c.localize( actual );
+			assertArrayEquals( expected, actual );
+
+			if ( ref.hasNext() )
+			{
+				ref.fwd();
+				c.fwd();
+				assertEquals( ref.getLongPosition( 0 ), c.getLongPosition( 0 ) );
+				assertEquals( ref.getLongPosition( 1 ), c.getLongPosition( 1 ) );
+			}
+		}
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final RunLengthRegion empty = RunLengthRegion.empty( 2 );
+		assertEquals( 0, empty.size() );
+		assertTrue( empty.isEmpty() );
+		assertFalse( empty.cursor().hasNext() );
+		assertEquals( empty, RunLengthRegions.fromBooleanRAI( ArrayImgs.bits( 4, 4 ) ) );
+		final RunLengthRegion a = RunLengthRegions.fromBooleanRAI( randomImg( 9, 5, 5 ) );
+		assertEquals( a, a.or( empty ) );
+		assertEquals( empty, a.and( empty ) );
+		assertEquals( empty, a.minus( a ) );
+	}
+
+	@Test
+	public void testFromRealPointCollection()
+	{
+		final Random random = new Random( 3 );
+		final List< RealLocalizable > points = new ArrayList<>();
+		final boolean[][] expected = new boolean[ 30 ][ 40 ];
+		for ( int i = 0; i < 300; ++i )
+		{
+			final double x = random.nextDouble() * 39 - 0.49;
+			final double y = random.nextDouble() * 29 - 0.49;
+			points.add( new RealPoint( x, y ) );
+			expected[ ( int ) Math.round( y ) ][ ( int ) Math.round( x ) ] = true;
+		}
+		final RunLengthRegion region = RunLengthRegions.fromRealPointCollection( new DefaultWritableRealPointCollection<>( points ) );
+
+		int count = 0;
+		final Point pos = new Point( 2 );
+		for ( int y = 0; y < 30; ++y )
+			for ( int x = 0; x < 40; ++x )
+			{
+				pos.setPosition( new long[] { x, y } );
+				assertEquals( expected[ y ][ x ], region.test( pos ) );
+				if ( expected[ y ][ x ] )
+					++count;
+			}
+		assertEquals( count, region.size() );
+
+		// cursor visits pixels in flat iteration order
+		final Cursor< Void > c = region.cursor();
+		long previous = -1;
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final long index = c.getLongPosition( 1 ) * 40 + c.getLongPosition( 0 );
+			assertTrue( index > previous );
+			previous = index;
+		}
+
+		assertTrue( RunLengthRegions.fromRealPointCollection( new DefaultWritableRealPointCollection<>( points.subList( 0, 1 ) ) ).size() == 1 );
+	}
+}